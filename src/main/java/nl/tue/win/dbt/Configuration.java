@@ -6,34 +6,30 @@ import nl.tue.win.dbt.algorithms.TimeIndices.TimeIndex;
 import nl.tue.win.dbt.algorithms.TimeIndices.candidatefilters.CandidateFilter;
 import nl.tue.win.dbt.data.LabeledGraph;
 import nl.tue.win.dbt.data.LabeledHistoryGraph;
-import nl.tue.win.dbt.data.LabeledVersionGraph;
+import nl.tue.win.dbt.data.TemporalAdjacencyIndex;
+import nl.tue.win.dbt.data.VersionGraph;
+import nl.tue.win.dbt.data.VertexOrder;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
 
 import java.io.Serializable;
 import java.util.BitSet;
 import java.util.Objects;
-import java.util.Set;
 
-public class Configuration implements Intersection, IsomorphicSubgraphFinderCreator,
-        LongestBitSequence, TimeIndex, Serializable {
-    private Intersection intersection;
+public class Configuration implements IsomorphicSubgraphFinderCreator, TimeIndex, LifespanSetFactory, Serializable {
     private IsomorphicSubgraphFinderCreator isfCreator;
-    private LongestBitSequence lbs;
     private TimeIndex ti;
+    private LifespanSetFactory lifespanSetFactory;
+    private VertexOrder vertexOrder;
+    // Whether time joins look up the alive neighbors of high-degree vertices in a TemporalAdjacencyIndex.
+    private boolean temporalAdjacencyIndexed;
 
     public Configuration() {
-        this.intersection = new Intersection.SmallestContainsIntersection();
         this.ti = new Ctinla();
-        this.lbs = new SimpleLongestBitSequence();
         this.isfCreator = VertexComparatorSubgraphFinder::new;
-    }
-
-    public Intersection getIntersection() {
-        return intersection;
-    }
-
-    public void setIntersection(Intersection intersection) {
-        Objects.requireNonNull(intersection);
-        this.intersection = intersection;
+        this.lifespanSetFactory = new LifespanSetFactory.ContainerFactory();
+        this.vertexOrder = new VertexOrder.InsertionOrder();
+        this.temporalAdjacencyIndexed = true;
     }
 
     public IsomorphicSubgraphFinderCreator getIsfCreator() {
@@ -45,15 +41,6 @@ public class Configuration implements Intersection, IsomorphicSubgraphFinderCrea
         this.isfCreator = isfCreator;
     }
 
-    public LongestBitSequence getLbs() {
-        return lbs;
-    }
-
-    public void setLbs(LongestBitSequence lbs) {
-        Objects.requireNonNull(lbs);
-        this.lbs = lbs;
-    }
-
     public TimeIndex getTi() {
         return ti;
     }
@@ -63,24 +50,46 @@ public class Configuration implements Intersection, IsomorphicSubgraphFinderCrea
         this.ti = ti;
     }
 
-    @Override
-    public <T> Set<T> intersect(Set<T> set1, Set<T> set2) {
-        return intersection.intersect(set1, set2);
+    public LifespanSetFactory getLifespanSetFactory() {
+        return lifespanSetFactory;
     }
 
-    @Override
-    public int longestSetBits(BitSet bs) {
-        return this.lbs.longestSetBits(bs);
+    public void setLifespanSetFactory(LifespanSetFactory lifespanSetFactory) {
+        Objects.requireNonNull(lifespanSetFactory);
+        this.lifespanSetFactory = lifespanSetFactory;
+    }
+
+    public VertexOrder getVertexOrder() {
+        return vertexOrder;
+    }
+
+    public void setVertexOrder(VertexOrder vertexOrder) {
+        Objects.requireNonNull(vertexOrder);
+        this.vertexOrder = vertexOrder;
+    }
+
+    public boolean isTemporalAdjacencyIndexed() {
+        return temporalAdjacencyIndexed;
+    }
+
+    public void setTemporalAdjacencyIndexed(boolean temporalAdjacencyIndexed) {
+        this.temporalAdjacencyIndexed = temporalAdjacencyIndexed;
+    }
+
+    // Null if time joins should scan all neighbors.
+    public TemporalAdjacencyIndex createTemporalAdjacencyIndex(final VersionGraph<?, ?> lvg) {
+        Objects.requireNonNull(lvg);
+        return this.temporalAdjacencyIndexed ? new TemporalAdjacencyIndex(lvg) : null;
     }
 
     @Override
-    public int longestUnsetBits(BitSet bs) {
-        return this.lbs.longestUnsetBits(bs);
+    public LifespanSet createLifespanSet(final BitSet bs) {
+        return this.lifespanSetFactory.createLifespanSet(bs);
     }
 
     @Override
     public <V, E, L> CandidateFilter<V, E, L> createCandidateFilter(
-            final LabeledVersionGraph<V, E, L> lvg) {
+            final VersionGraph<V, L> lvg) {
         return this.ti.createCandidateFilter(lvg);
     }
 
@@ -3,30 +3,66 @@ package nl.tue.win.dbt.algorithms;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.RangeSet;
 import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
 import com.google.common.collect.TreeRangeSet;
 import nl.tue.win.dbt.Configuration;
 import nl.tue.win.dbt.algorithms.TimeIndices.candidatefilters.CandidateFilter;
 import nl.tue.win.dbt.data.*;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.data.lifespans.LifespanSummary;
+import nl.tue.win.dbt.data.lifespans.RunLifespanSet;
 import nl.tue.win.dbt.util.Graphs;
 import nl.tue.win.dbt.util.IntegerRangeSets;
 import nl.tue.win.dbt.util.IntegerRanges;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class DurablePatternAlgorithm<V, E, L> implements DurablePattern<V, E, L>, Serializable {
 
-    private final LabeledVersionGraph<V, E, L> lvg;
+    private final VersionGraph<V, L> lvg;
     private final Configuration config;
     private final CandidateFilter<V, E, L> candidateFilter;
     private final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator;
+    // Built on first use, unless the configuration disables it.
+    private TemporalAdjacencyIndex temporalAdjacency;
+    // Positions of the neighbors that a time join looks at, reused by every time join.
+    private final BitSet alivePositions;
+    // Segments of the original timestamps if the version graph is compacted, null otherwise.
+    private final TimeSegments timeSegments;
 
     private LabeledGraph<V, E, L> pattern;
-    private BitSet intervals;
+    private LifespanSet intervals;
+    private LifespanSet noIntervals;
+    // Interned lifespans are cached by identity, lifespans that are decoded from a file on every lookup are cached
+    // by their index in the file, so the caches hold at most one entry per stored lifespan.
+    private Map<LifespanSet, LifespanSet> intervalIntersections;
+    private Map<Integer, LifespanSet> indexedIntervalIntersections;
     private boolean collective;
+    // Weights of the segments for the query intervals, null if the version graph is not compacted.
+    private TimeSegments.Weights weights;
+    // Whether only the most durable matches are kept, otherwise every match that reaches the threshold is kept.
+    private boolean maximal;
     private List<V> vertices;
+    // Pattern vertices are identified by their index in vertices.
+    private int[][] patternLabels;
+    private int[][] patternNeighbors;
+    // Sources of the edges into every pattern vertex, only used if the version graph has incoming neighbors.
+    private int[][] patternInNeighbors;
+    private int[][] patternEdges;
     private Set<Lifespan<LabeledGraph<V, E, L>>> matches;
     private int threshold;
+    private transient ThresholdExchange thresholdExchange;
+    // Whether the version graph is a window of a larger one, see queryWindowDurableGraphPatterns. Queried timestamps
+    // outside the window add at most windowBefore and windowAfter to the duration of a match.
+    private boolean windowed;
+    private int windowBefore;
+    private int windowAfter;
+    // Upper bounds on the durations of the matches of a window, matches below the threshold are dropped.
+    private Map<Lifespan<LabeledGraph<V, E, L>>, Integer> windowBounds;
+    // Vertex ids that the first pattern vertex can be mapped to, null if it can be mapped to any vertex.
+    private Set<Integer> anchorVertices;
 
     public DurablePatternAlgorithm(
             final LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> historyGraph) {
@@ -36,7 +72,7 @@ public class DurablePatternAlgorithm<V, E, L> implements DurablePattern<V, E, L>
     public DurablePatternAlgorithm(
             LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> historyGraph,
             Configuration config) {
-        this(new LabeledVersionGraph<>(historyGraph),
+        this(new LabeledVersionGraph<>(historyGraph, config.getLifespanSetFactory(), config.getVertexOrder()),
                 historyGraph.getGraphCreator(),
                 config);
     }
@@ -51,18 +87,124 @@ public class DurablePatternAlgorithm<V, E, L> implements DurablePattern<V, E, L>
             final LabeledVersionGraph<V, E, L> lvg,
             final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
             final Configuration config) {
+        this(new CsrVersionGraph<>(lvg), graphCreator, config);
+    }
+
+    public DurablePatternAlgorithm(
+            final VersionGraph<V, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final Configuration config) {
+        this(lvg, graphCreator, config, config.createCandidateFilter(lvg));
+    }
+
+    // The candidate filter must have been created for the given version graph.
+    public DurablePatternAlgorithm(
+            final VersionGraph<V, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final Configuration config,
+            final CandidateFilter<V, E, L> candidateFilter) {
+        this(lvg, graphCreator, config, candidateFilter, null);
+    }
+
+    // Version graph whose timestamps are the given segments, see compacted. Intervals of queries and matches are
+    // original timestamps. Null segments means that the version graph is not compacted.
+    public DurablePatternAlgorithm(
+            final VersionGraph<V, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final Configuration config,
+            final CandidateFilter<V, E, L> candidateFilter,
+            final TimeSegments timeSegments) {
+        this(lvg, graphCreator, config, candidateFilter, timeSegments, null);
+    }
+
+    // The candidate filter and the temporal adjacency index must have been created for the given version graph,
+    // algorithms on the same version graph can share them. Null builds the index on first use, if the configuration
+    // enables it.
+    public DurablePatternAlgorithm(
+            final VersionGraph<V, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final Configuration config,
+            final CandidateFilter<V, E, L> candidateFilter,
+            final TimeSegments timeSegments,
+            final TemporalAdjacencyIndex temporalAdjacency) {
         Objects.requireNonNull(lvg);
         Objects.requireNonNull(graphCreator);
         Objects.requireNonNull(config);
+        Objects.requireNonNull(candidateFilter);
+        if(timeSegments != null && timeSegments.getSegmentCount() != lvg.getSize()) {
+            throw new IllegalArgumentException("Expected one timestamp per segment");
+        }
 
         this.lvg = lvg;
         this.graphCreator = graphCreator;
         this.config = config;
-        this.candidateFilter = config.createCandidateFilter(this.lvg);
+        this.candidateFilter = candidateFilter;
+        this.temporalAdjacency = temporalAdjacency;
+        this.alivePositions = new BitSet();
+        this.timeSegments = timeSegments;
 
         this.threshold = 1;
     }
 
+    // Collapses the timestamps at which the version graph does not change, so the algorithm works on one timestamp
+    // per segment. Useful if the graph changes slowly compared to the number of timestamps.
+    public static <V, E, L> DurablePatternAlgorithm<V, E, L> compacted(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final Configuration config) {
+        TimeSegments timeSegments = TimeSegments.of(lvg);
+        VersionGraph<V, L> compacted = new CsrVersionGraph<>(
+                timeSegments.compact(lvg, graphCreator, config.getLifespanSetFactory()));
+        return new DurablePatternAlgorithm<>(
+                compacted, graphCreator, config, config.createCandidateFilter(compacted), timeSegments);
+    }
+
+    public VersionGraph<V, L> getVersionGraph() {
+        return this.lvg;
+    }
+
+    public TimeSegments getTimeSegments() {
+        return this.timeSegments;
+    }
+
+    public ThresholdExchange getThresholdExchange() {
+        return this.thresholdExchange;
+    }
+
+    // Null stops exchanging thresholds.
+    public void setThresholdExchange(ThresholdExchange thresholdExchange) {
+        this.thresholdExchange = thresholdExchange;
+    }
+
+    // Only matches that map the first vertex of the pattern to one of the vertices are found, so parts of a version
+    // graph that overlap find every match once. Null finds all matches again.
+    public void setAnchorVertices(Collection<? extends V> vertices) {
+        if(vertices == null) {
+            this.anchorVertices = null;
+        } else {
+            this.anchorVertices = vertices.stream()
+                    .map(this.lvg::getVertexId)
+                    .filter(vertexId -> vertexId != IdDictionary.NO_ID)
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    public CandidateFilter<V, E, L> getCandidateFilter() {
+        return this.candidateFilter;
+    }
+
+    public GraphCreator<LabeledGraph<V, E, L>, V, E> getGraphCreator() {
+        return this.graphCreator;
+    }
+
+    // Null if the configuration disables the index.
+    public TemporalAdjacencyIndex getTemporalAdjacencyIndex() {
+        if(this.temporalAdjacency == null) {
+            this.temporalAdjacency = this.config.createTemporalAdjacencyIndex(this.lvg);
+        }
+        return this.temporalAdjacency;
+    }
+
     public static <V, E, L> Set<Lifespan<LabeledGraph<V, E, L>>>
     queryMaximalCollectiveDurableGraphPattern(
             final LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> graph,
@@ -153,21 +295,79 @@ public class DurablePatternAlgorithm<V, E, L> implements DurablePattern<V, E, L>
         return this.query(pattern, IntegerRangeSets.toBitSet(intervals), false);
     }
 
+    // Every match that exists at no less than minimumDuration timestamps of the intervals, with all of those
+    // timestamps. The threshold stays at minimumDuration, so partial results of different version graphs can be
+    // combined afterwards.
+    public Set<Lifespan<LabeledGraph<V, E, L>>> queryDurableGraphPatterns(
+            final LabeledGraph<V, E, L> pattern,
+            final RangeSet<Integer> intervals,
+            final int minimumDuration) {
+        if(minimumDuration < 1) {
+            throw new IllegalArgumentException("Expected a positive minimum duration");
+        }
+        this.configureAlgorithm(pattern, IntegerRangeSets.toBitSet(intervals), true);
+        this.maximal = false;
+        this.threshold = minimumDuration;
+        return this.search();
+    }
+
+    // Matches of a version graph that is the window of a larger version graph, where intervals are the queried
+    // timestamps in the window. Queried timestamps before and after the window add at most before and after to the
+    // duration of a match: all of them for collective durations, for continuous durations only the runs that touch
+    // the window, which only matches that are alive at the border of the window can extend.
+    // Every match whose duration may still reach the threshold is kept, with all its timestamps in the window, so
+    // the matches of all windows can be combined afterwards. The threshold starts at 1 and rises to the highest
+    // duration in any window, shared through the threshold exchange.
+    // Matches are compared by identity, so matches with equal labels and timestamps in the window are both kept,
+    // their timestamps outside the window may differ.
+    public Set<Lifespan<LabeledGraph<V, E, L>>> queryWindowDurableGraphPatterns(
+            final LabeledGraph<V, E, L> pattern,
+            final RangeSet<Integer> intervals,
+            final boolean collective,
+            final int before,
+            final int after) {
+        if(before < 0 || after < 0) {
+            throw new IllegalArgumentException("Expected non-negative timestamps outside the window");
+        }
+        this.configureAlgorithm(pattern, IntegerRangeSets.toBitSet(intervals), collective);
+        this.maximal = false;
+        this.windowed = true;
+        this.windowBefore = before;
+        this.windowAfter = after;
+        this.matches = Sets.newIdentityHashSet();
+        this.windowBounds = new IdentityHashMap<>();
+        return this.search();
+    }
+
     private BitSet allIntervals() {
-        BitSet bs = new BitSet(this.lvg.getSize());
-        bs.flip(0, this.lvg.getSize());
+        int size = this.timeSegments == null ? this.lvg.getSize() : this.timeSegments.getSize();
+        BitSet bs = new BitSet(size);
+        bs.flip(0, size);
         return bs;
     }
 
+    private LifespanSet toLifespan(final BitSet bs) {
+        return this.config.createLifespanSet(bs);
+    }
+
     private Set<Lifespan<LabeledGraph<V, E, L>>> query(
             final LabeledGraph<V, E, L> pattern,
             final BitSet intervals,
             final boolean collective) {
         this.configureAlgorithm(pattern, intervals, collective);
-        SetMultimap<V, V> candidates = HashMultimap.create();
-        for (V vertex : this.vertices) {
-            candidates.putAll(vertex, filterCandidates(vertex));
-            if (candidates.get(vertex).isEmpty()) {
+        return this.search();
+    }
+
+    private Set<Lifespan<LabeledGraph<V, E, L>>> search() {
+        this.exchangeThreshold();
+        // Keys are pattern vertex indices, values are vertex ids of the lvg.
+        SetMultimap<Integer, Integer> candidates = HashMultimap.create();
+        for (int vertexIndex = 0; vertexIndex < this.vertices.size(); vertexIndex++) {
+            candidates.putAll(vertexIndex, filterCandidates(vertexIndex));
+            if (vertexIndex == 0 && this.anchorVertices != null) {
+                candidates.get(vertexIndex).retainAll(this.anchorVertices);
+            }
+            if (candidates.get(vertexIndex).isEmpty()) {
                 return this.matches;
             }
         }
@@ -183,166 +383,360 @@ public class DurablePatternAlgorithm<V, E, L> implements DurablePattern<V, E, L>
         Objects.requireNonNull(pattern);
         Objects.requireNonNull(intervals);
         this.pattern = pattern;
-        this.intervals = intervals;
         this.collective = collective;
+        // Lifespans of a compacted version graph are intersected with the segments that overlap the intervals.
+        this.weights = this.timeSegments == null ? null : this.timeSegments.weigh(intervals);
+        LifespanSet lifespan = this.toLifespan(this.weights == null ? intervals : this.weights.getSegments());
+        // Continuous durations only depend on runs, so intersections are computed on runs directly.
+        this.intervals = collective ? lifespan : RunLifespanSet.valueOf(lifespan);
+        this.noIntervals = this.intervals.and(this.toLifespan(new BitSet()));
+        this.intervalIntersections = new IdentityHashMap<>();
+        this.indexedIntervalIntersections = new HashMap<>();
         this.vertices = new ArrayList<>(this.pattern.vertexSet());
         this.matches = new HashSet<>();
+        this.maximal = true;
+        this.threshold = 1;
+        this.windowed = false;
+        this.windowBounds = null;
+
+        Map<V, Integer> vertexIndices = new HashMap<>();
+        for (int i = 0; i < this.vertices.size(); i++) {
+            vertexIndices.put(this.vertices.get(i), i);
+        }
+        this.patternLabels = new int[this.vertices.size()][];
+        this.patternNeighbors = new int[this.vertices.size()][];
+        this.patternInNeighbors = new int[this.vertices.size()][];
+        this.patternEdges = new int[this.pattern.edgeSet().size()][];
+        for (int i = 0; i < this.vertices.size(); i++) {
+            V vertex = this.vertices.get(i);
+            this.patternLabels[i] = this.pattern.getLabels(vertex).stream()
+                    .mapToInt(this.lvg::getLabelId)
+                    .toArray();
+            this.patternNeighbors[i] = Graphs.getNextNeighbors(this.pattern, vertex).stream()
+                    .mapToInt(vertexIndices::get)
+                    .toArray();
+            this.patternInNeighbors[i] = !this.lvg.hasIncomingNeighbors()
+                    ? new int[0]
+                    : Graphs.getPreviousNeighbors(this.pattern, vertex).stream()
+                    .mapToInt(vertexIndices::get)
+                    .toArray();
+        }
+        int edgeIndex = 0;
+        for (E patternEdge : this.pattern.edgeSet()) {
+            this.patternEdges[edgeIndex++] = new int[] {
+                    vertexIndices.get(this.pattern.getEdgeSource(patternEdge)),
+                    vertexIndices.get(this.pattern.getEdgeTarget(patternEdge))};
+        }
     }
 
-    private int calculateDuration(final BitSet intervals) {
+    private int calculateDuration(final LifespanSet intervals) {
         int duration;
-        if(this.collective) {
-            duration = intervals.cardinality();
+        if(this.weights != null) {
+            duration = this.collective ? this.weights.cardinality(intervals) : this.weights.longestRun(intervals);
+        } else if(this.collective) {
+            duration = intervals.summary().getCardinality();
         } else {
-            duration = this.config.longestSetBits(intervals);
+            duration = intervals.summary().getLongestRun();
         }
         return duration;
     }
 
-    private Set<V> filterCandidates(final V patternVertex) {
-        return this.candidateFilter.filterCandidates(this.pattern, patternVertex, intervals);
-    }
-
-    private SetMultimap<V, V> refineCandidates(final SetMultimap<V, V> candidates) {
-        Set<V> allCandidateNeighbors;
-        Set<V> candidateNeighbors;
-        Set<V> invalidCandidates;
-        for(V patternVertex: this.vertices) {
-            for(V patternNeighborVertex: Graphs.getNextNeighbors(this.pattern, patternVertex)) {
-                allCandidateNeighbors = new HashSet<>();
-                invalidCandidates = new HashSet<>();
-                for(V candidateVertex: candidates.get(patternVertex)) {
-                    candidateNeighbors = timeJoin(
-                            patternVertex,
-                            candidateVertex,
-                            patternNeighborVertex,
-                            candidates);
-                    if(candidateNeighbors.isEmpty()) {
-                        invalidCandidates.add(candidateVertex);
-                    } else {
-                        allCandidateNeighbors.addAll(candidateNeighbors);
-                    }
-                }
-                if(allCandidateNeighbors.isEmpty()) {
-                    return HashMultimap.create();
-                }
-                invalidCandidates.forEach(v -> candidates.remove(patternVertex, v));
-                candidates.replaceValues(patternNeighborVertex, allCandidateNeighbors);
+    // Upper bound on the duration of a match with the lifespan, which is the duration itself unless the version
+    // graph is a window.
+    private int windowBound(final LifespanSet lifespan, final int duration) {
+        if(!this.windowed) {
+            return duration;
+        }
+        if(this.collective) {
+            return duration + this.windowBefore + this.windowAfter;
+        }
+        int bound = duration;
+        if(lifespan.get(0)) {
+            bound += this.windowBefore;
+        }
+        if(lifespan.get(this.lvg.getSize() - 1)) {
+            bound += this.windowAfter;
+        }
+        return bound;
+    }
+
+    private boolean reachesThreshold(final LifespanSet lifespan) {
+        return this.windowBound(lifespan, calculateDuration(lifespan)) >= this.threshold;
+    }
+
+    // Upper bound on the duration of the intersection, derived from the summaries alone.
+    private boolean mayReachThreshold(final LifespanSet lifespan1, final LifespanSet lifespan2) {
+        LifespanSummary summary1 = lifespan1.summary();
+        LifespanSummary summary2 = lifespan2.summary();
+        int bound;
+        if(this.collective) {
+            bound = summary1.maxIntersectionCardinality(summary2);
+        } else {
+            bound = summary1.maxIntersectionRun(summary2);
+        }
+        // Windows may still gain all queried timestamps outside the window.
+        long outside = this.windowed ? (long) this.windowBefore + this.windowAfter : 0;
+        if(this.weights != null) {
+            // Summaries count segments, every segment lasts at most the maximum weight.
+            return (long) bound * this.weights.getMaxWeight() + outside >= this.threshold;
+        }
+        return bound + outside >= this.threshold;
+    }
+
+    private Set<Integer> filterCandidates(final int patternVertex) {
+        return this.candidateFilter.filterCandidates(
+                this.pattern, this.vertices.get(patternVertex), intervals);
+    }
+
+    private SetMultimap<Integer, Integer> refineCandidates(final SetMultimap<Integer, Integer> candidates) {
+        for(int patternVertex = 0; patternVertex < this.vertices.size(); patternVertex++) {
+            if(!refineNeighbors(patternVertex, this.patternNeighbors[patternVertex], false, candidates)
+                    || !refineNeighbors(patternVertex, this.patternInNeighbors[patternVertex], true, candidates)) {
+                return HashMultimap.create();
             }
         }
         return candidates;
     }
 
-    private Set<V> timeJoin(
-            final V patternVertex,
-            final V candidateVertex,
-            final V patternNeighborVertex,
-            final SetMultimap<V, V> candidates) {
-        Set<V> candidateNeighbors = new HashSet<>();
-        BitSet candidateLabelsLifespan = calculateLabelSetLifespan(patternVertex, candidateVertex);
-        if(calculateDuration(candidateLabelsLifespan) < this.threshold) {
+    // Returns false if a pattern neighbor has no candidates left.
+    private boolean refineNeighbors(
+            final int patternVertex,
+            final int[] patternNeighborVertices,
+            final boolean incoming,
+            final SetMultimap<Integer, Integer> candidates) {
+        Set<Integer> allCandidateNeighbors;
+        Set<Integer> candidateNeighbors;
+        Set<Integer> invalidCandidates;
+        for(int patternNeighborVertex: patternNeighborVertices) {
+            allCandidateNeighbors = new HashSet<>();
+            invalidCandidates = new HashSet<>();
+            for(int candidateVertex: candidates.get(patternVertex)) {
+                candidateNeighbors = timeJoin(
+                        patternVertex,
+                        candidateVertex,
+                        patternNeighborVertex,
+                        incoming,
+                        candidates);
+                if(candidateNeighbors.isEmpty()) {
+                    invalidCandidates.add(candidateVertex);
+                } else {
+                    allCandidateNeighbors.addAll(candidateNeighbors);
+                }
+            }
+            if(allCandidateNeighbors.isEmpty()) {
+                return false;
+            }
+            for(int v: invalidCandidates) {
+                candidates.remove(patternVertex, v);
+            }
+            candidates.replaceValues(patternNeighborVertex, allCandidateNeighbors);
+        }
+        return true;
+    }
+
+    private Set<Integer> timeJoin(
+            final int patternVertex,
+            final int candidateVertex,
+            final int patternNeighborVertex,
+            final boolean incoming,
+            final SetMultimap<Integer, Integer> candidates) {
+        Set<Integer> candidateNeighbors = new HashSet<>();
+        LifespanSet candidateLabelsLifespan = calculateLabelSetLifespan(patternVertex, candidateVertex);
+        if(!reachesThreshold(candidateLabelsLifespan)) {
             return candidateNeighbors;
         }
-        Set<V> possibleNeighbors = this.config.intersect(
-                candidates.get(patternNeighborVertex),
-                Graphs.getNextNeighbors(this.lvg, candidateVertex));
-        BitSet possibleNeighborLifespan;
-        for(V possibleNeighbor: possibleNeighbors) {
-            possibleNeighborLifespan = calculateLabelSetLifespan(patternNeighborVertex, possibleNeighbor);
-            possibleNeighborLifespan.and(candidateLabelsLifespan);
-            if(hasValidEdge(candidateVertex, possibleNeighbor, possibleNeighborLifespan)) {
+        Set<Integer> possibleNeighbors = candidates.get(patternNeighborVertex);
+        LifespanSet possibleNeighborLifespan = null;
+        LifespanSet edgeLifespan;
+        int possibleNeighbor;
+        int previousNeighbor = -1;
+        // Edges of hubs that are not alive while the candidate has its labels are skipped, all edges are scanned
+        // otherwise. Neighbors are sorted, so multiple edges to the same neighbor are adjacent.
+        // Incoming neighbors are joined on the edges from the neighbor to the candidate.
+        int degree = incoming ? this.lvg.getInDegree(candidateVertex) : this.lvg.getOutDegree(candidateVertex);
+        TemporalAdjacencyIndex adjacency = incoming ? null : this.getTemporalAdjacencyIndex();
+        BitSet alive = adjacency != null
+                && adjacency.alivePositions(candidateVertex, candidateLabelsLifespan, this.alivePositions)
+                ? this.alivePositions
+                : null;
+        for(int index = alive == null ? 0 : alive.nextSetBit(0);
+                index >= 0 && index < degree;
+                index = alive == null ? index + 1 : alive.nextSetBit(index + 1)) {
+            possibleNeighbor = incoming
+                    ? this.lvg.getInNeighbor(candidateVertex, index)
+                    : this.lvg.getOutNeighbor(candidateVertex, index);
+            if(possibleNeighbor != previousNeighbor) {
+                previousNeighbor = possibleNeighbor;
+                possibleNeighborLifespan = null;
+                if(possibleNeighbors.contains(possibleNeighbor)) {
+                    possibleNeighborLifespan = calculateLabelSetLifespan(patternNeighborVertex, possibleNeighbor);
+                    if(mayReachThreshold(possibleNeighborLifespan, candidateLabelsLifespan)) {
+                        possibleNeighborLifespan = possibleNeighborLifespan.and(candidateLabelsLifespan);
+                    } else {
+                        possibleNeighborLifespan = null;
+                    }
+                }
+            }
+            if(possibleNeighborLifespan == null) {
+                continue;
+            }
+            edgeLifespan = incoming
+                    ? this.lvg.inEdgeLifespan(candidateVertex, index)
+                    : this.lvg.outEdgeLifespan(candidateVertex, index);
+            if(isValidEdge(edgeLifespan, possibleNeighborLifespan)) {
                 candidateNeighbors.add(possibleNeighbor);
+                possibleNeighborLifespan = null;
             }
         }
         return candidateNeighbors;
     }
 
-    private BitSet calculateLabelSetLifespan(final V patternVertex, final V lvgVertex) {
-        Iterator<L> patternVertexLabels = this.pattern.getLabels(patternVertex).iterator();
-        BitSet bs = new BitSet(this.lvg.getSize());
-        bs.or(this.intervals);
-        BitSet lvgLabelLifespan;
-        while(!bs.isEmpty() && patternVertexLabels.hasNext()) {
-            lvgLabelLifespan = this.lvg.labelLifespan(
-                    lvgVertex, patternVertexLabels.next());
+    private LifespanSet calculateLabelSetLifespan(final int patternVertex, final int lvgVertex) {
+        int[] patternVertexLabels = this.patternLabels[patternVertex];
+        LifespanSet lifespan = this.intervals;
+        LifespanSet lvgLabelLifespan;
+        for(int i = 0; !lifespan.isEmpty() && i < patternVertexLabels.length; i++) {
+            if(i == 0 && patternVertexLabels[i] != IdDictionary.NO_ID) {
+                int index = this.lvg.labelLifespanIndex(lvgVertex, patternVertexLabels[i]);
+                if(index >= 0) {
+                    // Cached before the lifespan is decoded.
+                    LifespanSet intersection = this.indexedIntervalIntersections.get(index);
+                    if(intersection == null) {
+                        intersection = this.intervals.and(this.lvg.labelLifespanById(lvgVertex, patternVertexLabels[i]));
+                        this.indexedIntervalIntersections.put(index, intersection);
+                    }
+                    lifespan = intersection;
+                    continue;
+                }
+            }
+            lvgLabelLifespan = patternVertexLabels[i] == IdDictionary.NO_ID
+                    ? null
+                    : this.lvg.labelLifespanById(lvgVertex, patternVertexLabels[i]);
             if(lvgLabelLifespan == null) {
-                bs.clear();
+                lifespan = this.noIntervals;
+            } else if(i == 0) {
+                lifespan = this.intervalIntersections.computeIfAbsent(lvgLabelLifespan, this.intervals::and);
             } else {
-                bs.and(lvgLabelLifespan);
+                lifespan = lifespan.and(lvgLabelLifespan);
             }
         }
-        return bs;
+        return lifespan;
     }
 
-    private boolean hasValidEdge(
-            final V vertex1,
-            final V vertex2,
-            final BitSet intervals) {
-        BitSet bs;
-        for(E edge: this.lvg.getAllEdges(vertex1, vertex2)) {
-            bs = new BitSet(this.lvg.getSize());
-            bs.or(intervals);
-            bs.and(this.lvg.edgeLifespan(edge));
-            if(calculateDuration(bs) >= this.threshold) {
-                return true;
-            }
+    private boolean isValidEdge(
+            final LifespanSet edgeLifespan,
+            final LifespanSet intervals) {
+        if(!mayReachThreshold(edgeLifespan, intervals)) {
+            return false;
         }
-        return false;
+        return reachesThreshold(intervals.and(edgeLifespan));
     }
 
     private void durableGraphSearch(
             final int vertexIndex,
-            final SetMultimap<V, V> candidates) {
+            final SetMultimap<Integer, Integer> candidates) {
         if (vertexIndex == this.vertices.size()) {
-            BitSet intervals = new BitSet(this.lvg.getSize());
-            intervals.or(this.intervals);
+            LifespanSet intervals = this.intervals;
 
-            V candidateVertex;
-            for(V patternVertex: this.vertices) {
+            int candidateVertex;
+            for(int patternVertex = 0; patternVertex < this.vertices.size(); patternVertex++) {
                 candidateVertex = candidates.get(patternVertex).iterator().next(); // Expect exactly one.
-                intervals.and(calculateLabelSetLifespan(patternVertex, candidateVertex));
+                intervals = intervals.and(calculateLabelSetLifespan(patternVertex, candidateVertex));
                 if(intervals.isEmpty()) {
                     return;
                 }
             }
-            V source;
-            V target;
-            E candidateEdge;
-            for (E patternEdge : this.pattern.edgeSet()) {
-                // TODO: handle multiple edges for same pairs.
-
-                source = this.pattern.getEdgeSource(patternEdge);
-                target = this.pattern.getEdgeTarget(patternEdge);
-                source = candidates.get(source).iterator().next(); // Expect exactly one.
-                target = candidates.get(target).iterator().next(); // Expect exactly one.
-
-                // TODO: Following line only works for unique edges between two vertices.
-                candidateEdge = this.lvg.getEdge(source, target);
-                intervals.and(this.lvg.edgeLifespan(candidateEdge));
-                if(intervals.isEmpty()) {
-                    return;
+            this.joinEdges(0, candidates, intervals);
+        } else {
+            this.exchangeThreshold();
+            SetMultimap<Integer, Integer> copiedCandidates;
+            for(int u: candidates.get(vertexIndex)) {
+                if(isNewCandidate(vertexIndex, u, candidates)) {
+                    copiedCandidates = HashMultimap.create(candidates);
+                    copiedCandidates.removeAll(vertexIndex);
+                    copiedCandidates.put(vertexIndex, u);
+                    copiedCandidates = refineCandidates(copiedCandidates);
+                    if (!copiedCandidates.isEmpty()) {
+                        durableGraphSearch(vertexIndex + 1, copiedCandidates);
+                    }
+                }
+            }
+        }
+    }
+
+    // Multiple edges between the source and the target of a pattern edge are joined one by one, like timeJoin does,
+    // so every combination of them is a match of its own.
+    private void joinEdges(
+            final int patternEdgeIndex,
+            final SetMultimap<Integer, Integer> candidates,
+            final LifespanSet intervals) {
+        if(patternEdgeIndex < this.patternEdges.length) {
+            int[] patternEdge = this.patternEdges[patternEdgeIndex];
+            int source = candidates.get(patternEdge[0]).iterator().next(); // Expect exactly one.
+            int target = candidates.get(patternEdge[1]).iterator().next(); // Expect exactly one.
+            int degree = this.lvg.getOutDegree(source);
+            LifespanSet joined;
+            for(int index = this.lvg.getOutEdgeIndex(source, target);
+                    index >= 0 && index < degree && this.lvg.getOutNeighbor(source, index) == target;
+                    index++) {
+                joined = intervals.and(this.lvg.outEdgeLifespan(source, index));
+                if(!joined.isEmpty()) {
+                    this.joinEdges(patternEdgeIndex + 1, candidates, joined);
                 }
             }
+        } else {
             int duration = calculateDuration(intervals);
-            if (duration == threshold) {
+            if(this.windowed) {
+                this.updateWindowState(candidates, intervals, duration);
+                return;
+            }
+            if (duration == threshold || (duration > threshold && !this.maximal)) {
                 updateState(candidates, intervals);
             } else if(duration > threshold) {
                 threshold = duration;
                 this.matches.clear();
                 updateState(candidates, intervals);
+                if(this.thresholdExchange != null) {
+                    this.thresholdExchange.raiseThreshold(duration);
+                }
             }
-        } else {
-            V vertex = this.vertices.get(vertexIndex);
-            SetMultimap<V, V> copiedCandidates;
-            for(V u: candidates.get(vertex)) {
-                if(isNewCandidate(vertexIndex, u, candidates)) {
-                    copiedCandidates = HashMultimap.create(candidates);
-                    copiedCandidates.removeAll(vertex);
-                    copiedCandidates.put(vertex, u);
-                    copiedCandidates = refineCandidates(copiedCandidates);
-                    if (!copiedCandidates.isEmpty()) {
-                        durableGraphSearch(vertexIndex + 1, copiedCandidates);
-                    }
+        }
+    }
+
+    // A match of a window is kept while its bound reaches the threshold, its duration in the window is a duration
+    // that the match reaches in the larger version graph, so it raises the threshold.
+    private void updateWindowState(
+            final SetMultimap<Integer, Integer> candidates,
+            final LifespanSet intervals,
+            final int duration) {
+        if(duration > this.threshold) {
+            this.threshold = duration;
+            this.dropWindowMatches();
+            if(this.thresholdExchange != null) {
+                this.thresholdExchange.raiseThreshold(duration);
+            }
+        }
+        int bound = this.windowBound(intervals, duration);
+        if(bound >= this.threshold) {
+            this.windowBounds.put(this.updateState(candidates, intervals), bound);
+        }
+    }
+
+    private void dropWindowMatches() {
+        this.matches.removeIf(match -> this.windowBounds.get(match) < this.threshold);
+        this.windowBounds.keySet().retainAll(this.matches);
+    }
+
+    // Matches below a threshold that was reached elsewhere are not maximal, so they are dropped.
+    private void exchangeThreshold() {
+        if(this.thresholdExchange != null && (this.maximal || this.windowed)) {
+            int threshold = this.thresholdExchange.getThreshold();
+            if(threshold > this.threshold) {
+                this.threshold = threshold;
+                if(this.windowed) {
+                    this.dropWindowMatches();
+                } else {
+                    this.matches.clear();
                 }
             }
         }
@@ -350,19 +744,23 @@ public class DurablePatternAlgorithm<V, E, L> implements DurablePattern<V, E, L>
 
     private boolean isNewCandidate(
             final int vertexIndex,
-            final V candidate,
-            final SetMultimap<V, V> candidates) {
+            final int candidate,
+            final SetMultimap<Integer, Integer> candidates) {
         for(int i=0; i < vertexIndex; i++) {
-            if(candidates.get(this.vertices.get(i)).contains(candidate)) {
+            if(candidates.get(i).contains(candidate)) {
                 return false;
             }
         }
         return true;
     }
 
-    private void updateState(
-            final SetMultimap<V, V> candidates,
-            final BitSet intervals) {
+    private V toVertex(final int vertexId) {
+        return this.lvg.getVertexDictionary().decode(vertexId);
+    }
+
+    private Lifespan<LabeledGraph<V, E, L>> updateState(
+            final SetMultimap<Integer, Integer> candidates,
+            final LifespanSet intervals) {
         // Following code assumes exactly one candidate per pattern vertex.
         // TODO: Following code only works for unique edges between two vertices.
         LabeledGraph<V, E, L> match = this.graphCreator.create();
@@ -370,40 +768,53 @@ public class DurablePatternAlgorithm<V, E, L> implements DurablePattern<V, E, L>
         // TODO: Following code looks like first case durableGraphSearch. Refactor???
 
         V vertex;
-        for(V patternVertex: this.vertices) {
-            vertex = candidates.get(patternVertex).iterator().next(); // Expect exactly one.
+        for(int patternVertex = 0; patternVertex < this.vertices.size(); patternVertex++) {
+            vertex = this.toVertex(candidates.get(patternVertex).iterator().next()); // Expect exactly one.
             match.addVertex(vertex);
-            for (L label : this.pattern.getLabels(patternVertex)) {
+            for (L label : this.pattern.getLabels(this.vertices.get(patternVertex))) {
                 match.addLabel(vertex, label);
             }
         }
 
         V source;
         V target;
-        for (E patternEdge : this.pattern.edgeSet()) {
+        for (int[] patternEdge : this.patternEdges) {
             // TODO: handle multiple edges for same pairs.
-            source = this.pattern.getEdgeSource(patternEdge);
-            target = this.pattern.getEdgeTarget(patternEdge);
-            source = candidates.get(source).iterator().next(); // Expect exactly one.
-            target = candidates.get(target).iterator().next(); // Expect exactly one.
+            source = this.toVertex(candidates.get(patternEdge[0]).iterator().next()); // Expect exactly one.
+            target = this.toVertex(candidates.get(patternEdge[1]).iterator().next()); // Expect exactly one.
             match.addEdge(source, target);
         }
 
         RangeSet<Integer> rangeSet = this.calculateMatchRangeSet(intervals);
-        this.matches.add(new Lifespan<>(match, rangeSet));
+        Lifespan<LabeledGraph<V, E, L>> lifespan = new Lifespan<>(match, rangeSet);
+        this.matches.add(lifespan);
+        return lifespan;
     }
 
-    private RangeSet<Integer> calculateMatchRangeSet(BitSet intervals) {
+    private RangeSet<Integer> calculateMatchRangeSet(LifespanSet lifespan) {
         RangeSet<Integer> rangeSet = TreeRangeSet.create();
+        // Matches of a compacted version graph map back to the original timestamps of the intervals.
+        BitSet intervals = this.weights == null ? lifespan.toBitSet() : this.weights.toTimestamps(lifespan);
         int setIndex = intervals.nextSetBit(0);
         int unsetIndex;
         while(setIndex >= 0) {
             unsetIndex = intervals.nextClearBit(setIndex);
-            if(this.collective || unsetIndex - setIndex == this.threshold) {
+            // Matches of windows keep every run, runs may continue in other windows.
+            if(this.collective || this.windowed || unsetIndex - setIndex == this.threshold) {
                 rangeSet.add(IntegerRanges.closed(setIndex, unsetIndex -1));
             }
             setIndex = intervals.nextSetBit(unsetIndex + 1);
         }
         return rangeSet;
     }
+
+    // Shares the threshold of maximal queries with queries on other parts of the same version graph, so every part
+    // can skip matches that are less durable than a match found elsewhere.
+    public interface ThresholdExchange {
+        // Highest duration reached by any part so far.
+        int getThreshold();
+
+        // Called whenever this query reaches a higher duration.
+        void raiseThreshold(int threshold);
+    }
 }
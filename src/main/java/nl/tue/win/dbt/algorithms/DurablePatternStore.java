@@ -0,0 +1,284 @@
+package nl.tue.win.dbt.algorithms;
+
+import nl.tue.win.dbt.Configuration;
+import nl.tue.win.dbt.algorithms.TimeIndices.candidatefilters.CandidateFilter;
+import nl.tue.win.dbt.data.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Serves durable pattern queries while snapshots are appended.
+// Queries pin an immutable version of the graph, pinning never blocks and a version does not change while pinned.
+// Appending builds the next version next to the current one and publishes it afterwards.
+// Versions that are replaced are reclaimed as soon as the last query that pinned them unpins them.
+public class DurablePatternStore<V, E, L> {
+    private final LabeledVersionGraph<V, E, L> lvg;
+    private final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator;
+    private final Configuration config;
+    // Writers synchronize on this lock, readers never do.
+    private final Object writeLock;
+    private final AtomicReference<Version<V, E, L>> current;
+
+    // The store becomes the only writer of lvg, lvg should not be changed by others afterwards.
+    public DurablePatternStore(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final Configuration config) {
+        Objects.requireNonNull(lvg);
+        Objects.requireNonNull(graphCreator);
+        Objects.requireNonNull(config);
+        this.lvg = lvg;
+        this.graphCreator = graphCreator;
+        this.config = config;
+        this.writeLock = new Object();
+        this.current = new AtomicReference<>(this.createVersion(0));
+    }
+
+    private Version<V, E, L> createVersion(long epoch) {
+        CsrVersionGraph<V, L> graph = new CsrVersionGraph<>(
+                this.lvg,
+                new IdDictionary<>(this.lvg.getVertexDictionary().values()),
+                new IdDictionary<>(this.lvg.getLabelDictionary().values()));
+        return new Version<>(graph, this.graphCreator, this.config, epoch);
+    }
+
+    // The returned version must be unpinned with close, preferably with try-with-resources.
+    public Version<V, E, L> pin() {
+        while(true) {
+            Version<V, E, L> version = this.current.get();
+            if(version.tryPin()) {
+                return version;
+            }
+            // The version was replaced and reclaimed in the meantime, the next one is already published.
+        }
+    }
+
+    public Version<V, E, L> getCurrentVersion() {
+        return this.current.get();
+    }
+
+    // Appends the snapshot as the next timestamp and returns that timestamp.
+    // Queries that are running keep their version, queries that pin afterwards see the snapshot.
+    public int appendSnapshot(LabeledGraph<V, E, L> snapshot) {
+        Objects.requireNonNull(snapshot);
+        synchronized(this.writeLock) {
+            Version<V, E, L> previous = this.current.get();
+            boolean changesStructure = this.changesStructure(snapshot);
+            int timestamp = this.lvg.appendSnapshot(snapshot);
+            // The previous version is not reclaimed before it is retired, so its graph is still there.
+            Version<V, E, L> next = changesStructure
+                    ? this.createVersion(previous.getEpoch() + 1)
+                    : new Version<>(
+                            previous.contents.get().graph.withSnapshot(this.lvg, snapshot),
+                            this.graphCreator,
+                            this.config,
+                            previous.getEpoch());
+            this.current.set(next);
+            previous.retire();
+            return timestamp;
+        }
+    }
+
+    // Whether the snapshot has a vertex, label or edge that never existed before.
+    private boolean changesStructure(LabeledGraph<V, E, L> snapshot) {
+        for(V vertex: snapshot.vertexSet()) {
+            if(!this.lvg.containsVertex(vertex)) {
+                return true;
+            }
+            for(L label: snapshot.getLabels(vertex)) {
+                if(!this.lvg.hasLabel(vertex, label)) {
+                    return true;
+                }
+            }
+        }
+        for(E edge: snapshot.edgeSet()) {
+            if(!this.lvg.containsEdge(snapshot.getEdgeSource(edge), snapshot.getEdgeTarget(edge))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public GraphCreator<LabeledGraph<V, E, L>, V, E> getGraphCreator() {
+        return this.graphCreator;
+    }
+
+    public Configuration getConfig() {
+        return this.config;
+    }
+
+    @Override
+    public String toString() {
+        return "DurablePatternStore{" +
+                "current=" + current.get() +
+                '}';
+    }
+
+    // Immutable version of the graph, identified by the length of its time axis and its structural epoch.
+    // The epoch only increases when a version adds vertices, labels or edges, versions of the same epoch share the
+    // structure of their graphs and only differ in their lifespans.
+    // The candidate filter and the temporal adjacency index are built when the first query needs them, so versions
+    // that are replaced before they are queried never build them. Queries that need them at the same time may both
+    // build them, only the first ones are published, so queries never wait for each other.
+    public static final class Version<V, E, L> implements AutoCloseable {
+        // Number of queries that pinned the version, RECLAIMED once the version is reclaimed.
+        private static final int RECLAIMED = -1;
+
+        // Null once the version is reclaimed.
+        private final AtomicReference<Contents<V, E, L>> contents;
+        private final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator;
+        private final Configuration config;
+        private final int size;
+        private final long epoch;
+        private final AtomicInteger pins;
+        private volatile boolean retired;
+
+        private Version(
+                CsrVersionGraph<V, L> graph,
+                GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+                Configuration config,
+                long epoch) {
+            this.contents = new AtomicReference<>(new Contents<>(graph, null, null, false));
+            this.graphCreator = graphCreator;
+            this.config = config;
+            this.size = graph.getSize();
+            this.epoch = epoch;
+            this.pins = new AtomicInteger();
+            this.retired = false;
+        }
+
+        // Pinned versions are not reclaimed, so the contents are there.
+        private Contents<V, E, L> index() {
+            Contents<V, E, L> contents = this.contents.get();
+            if(contents.indexed) {
+                return contents;
+            }
+            Contents<V, E, L> indexed = new Contents<>(
+                    contents.graph,
+                    this.config.<V, E, L>createCandidateFilter(contents.graph),
+                    this.config.createTemporalAdjacencyIndex(contents.graph),
+                    true);
+            // Another query published its indices first.
+            return this.contents.compareAndSet(contents, indexed) ? indexed : this.contents.get();
+        }
+
+        private boolean tryPin() {
+            int pinned;
+            do {
+                pinned = this.pins.get();
+                if(pinned == RECLAIMED) {
+                    return false;
+                }
+            } while(!this.pins.compareAndSet(pinned, pinned + 1));
+            return true;
+        }
+
+        private void retire() {
+            this.retired = true;
+            this.tryReclaim();
+        }
+
+        // Only one thread can move the pins from 0 to RECLAIMED, pinning fails afterwards.
+        private void tryReclaim() {
+            if(this.retired && this.pins.compareAndSet(0, RECLAIMED)) {
+                this.contents.set(null);
+            }
+        }
+
+        public VersionGraph<V, L> getVersionGraph() {
+            this.assertPinned();
+            return this.contents.get().graph;
+        }
+
+        public CandidateFilter<V, E, L> getCandidateFilter() {
+            this.assertPinned();
+            return this.index().candidateFilter;
+        }
+
+        // Algorithms keep the state of a query, every query needs its own algorithm.
+        // The candidate filter and the temporal adjacency index are shared, they are never changed by a query.
+        public DurablePatternAlgorithm<V, E, L> createAlgorithm() {
+            this.assertPinned();
+            Contents<V, E, L> contents = this.index();
+            return new DurablePatternAlgorithm<>(
+                    contents.graph,
+                    this.graphCreator,
+                    this.config,
+                    contents.candidateFilter,
+                    null,
+                    contents.temporalAdjacency);
+        }
+
+        private void assertPinned() {
+            if(this.pins.get() <= 0) {
+                throw new IllegalStateException("Expected a pinned version");
+            }
+        }
+
+        public int getSize() {
+            return this.size;
+        }
+
+        public long getEpoch() {
+            return this.epoch;
+        }
+
+        public int getPins() {
+            return Math.max(this.pins.get(), 0);
+        }
+
+        public boolean isRetired() {
+            return this.retired;
+        }
+
+        public boolean isReclaimed() {
+            return this.pins.get() == RECLAIMED;
+        }
+
+        // Unpins the version.
+        @Override
+        public void close() {
+            int pinned;
+            do {
+                pinned = this.pins.get();
+                if(pinned <= 0) {
+                    throw new IllegalStateException("Expected a pinned version");
+                }
+            } while(!this.pins.compareAndSet(pinned, pinned - 1));
+            if(pinned == 1) {
+                this.tryReclaim();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Version{" +
+                    "size=" + size +
+                    ", epoch=" + epoch +
+                    ", pins=" + getPins() +
+                    ", retired=" + retired +
+                    '}';
+        }
+    }
+
+    // Graph of a version with its indices, replaced as a whole when the indices are built.
+    private static final class Contents<V, E, L> {
+        private final CsrVersionGraph<V, L> graph;
+        private final CandidateFilter<V, E, L> candidateFilter;
+        // Null if the configuration does not index temporal adjacency.
+        private final TemporalAdjacencyIndex temporalAdjacency;
+        private final boolean indexed;
+
+        private Contents(
+                CsrVersionGraph<V, L> graph,
+                CandidateFilter<V, E, L> candidateFilter,
+                TemporalAdjacencyIndex temporalAdjacency,
+                boolean indexed) {
+            this.graph = graph;
+            this.candidateFilter = candidateFilter;
+            this.temporalAdjacency = temporalAdjacency;
+            this.indexed = indexed;
+        }
+    }
+}
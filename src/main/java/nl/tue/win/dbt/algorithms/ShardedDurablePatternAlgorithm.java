@@ -0,0 +1,293 @@
+package nl.tue.win.dbt.algorithms;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import nl.tue.win.dbt.Configuration;
+import nl.tue.win.dbt.data.*;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.util.Graphs;
+import nl.tue.win.dbt.util.IntegerRangeSets;
+import nl.tue.win.dbt.util.IntegerRanges;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+
+// Durable pattern queries on a version graph that is split into shards of consecutive timestamps. A shard only
+// holds the vertices, labels and edges that exist in its window, with lifespans of the length of the window.
+// Shards are queried in parallel for the matches in their window, the lifespans of equal matches are combined
+// afterwards, so continuous runs that cross the border of a shard are found.
+// Shards share the highest duration that any shard found, a match is dropped once its duration in the window plus
+// the queried timestamps it can still gain outside the window stays below it.
+// Only shards that overlap the queried intervals are queried.
+public class ShardedDurablePatternAlgorithm<V, E, L> implements DurablePattern<V, E, L>, Serializable {
+    private final int size;
+    private final int shardLength;
+    private final boolean directed;
+    private final List<Shard<V, E, L>> shards;
+
+    public ShardedDurablePatternAlgorithm(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final int shardLength) {
+        this(lvg, graphCreator, shardLength, new Configuration());
+    }
+
+    public ShardedDurablePatternAlgorithm(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final int shardLength,
+            final Configuration config) {
+        Objects.requireNonNull(lvg);
+        Objects.requireNonNull(graphCreator);
+        Objects.requireNonNull(config);
+        if(shardLength <= 0) {
+            throw new IllegalArgumentException("Expected a positive shard length");
+        }
+        this.size = lvg.getSize();
+        this.shardLength = shardLength;
+        this.directed = Graphs.isDirected(lvg);
+        this.shards = new ArrayList<>();
+        for(int start = 0; start < this.size; start += shardLength) {
+            int end = Math.min(start + shardLength, this.size);
+            LabeledVersionGraph<V, E, L> shard = createShard(lvg, graphCreator, config, start, end);
+            this.shards.add(new Shard<>(start, end, new DurablePatternAlgorithm<>(shard, graphCreator, config)));
+        }
+    }
+
+    // Version graph of the window, timestamp start of lvg is timestamp 0 of the shard.
+    private static <V, E, L> LabeledVersionGraph<V, E, L> createShard(
+            LabeledVersionGraph<V, E, L> lvg,
+            GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            Configuration config,
+            int start,
+            int end) {
+        VersionGraphBuilder<V, E, L> builder = new VersionGraphBuilder<>(graphCreator, end - start);
+        for(V vertex: lvg.vertexSet()) {
+            forEachTimestamp(lvg.vertexLifespan(vertex), start, end, t -> builder.addVertex(vertex, t));
+            for(L label: lvg.getLabels(vertex)) {
+                forEachTimestamp(lvg.labelLifespan(vertex, label), start, end, t -> builder.addLabel(vertex, label, t));
+            }
+        }
+        for(E edge: lvg.edgeSet()) {
+            V source = lvg.getEdgeSource(edge);
+            V target = lvg.getEdgeTarget(edge);
+            forEachTimestamp(lvg.edgeLifespan(edge), start, end, t -> builder.addEdge(source, target, t));
+        }
+        return builder.build(config.getLifespanSetFactory());
+    }
+
+    // Calls the consumer with every timestamp of the lifespan in the window, relative to the start of the window.
+    private static void forEachTimestamp(LifespanSet lifespan, int start, int end, IntConsumer consumer) {
+        if(lifespan == null) {
+            return;
+        }
+        for(int t = lifespan.nextSetBit(start); t >= 0 && t < end; t = lifespan.nextSetBit(t + 1)) {
+            consumer.accept(t - start);
+        }
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    public int getShardLength() {
+        return this.shardLength;
+    }
+
+    public int getShardCount() {
+        return this.shards.size();
+    }
+
+    @Override
+    public Set<Lifespan<LabeledGraph<V, E, L>>> queryMaximalCollectiveDurableGraphPattern(
+            final LabeledGraph<V, E, L> pattern) {
+        return this.query(pattern, this.allIntervals(), true);
+    }
+
+    @Override
+    public Set<Lifespan<LabeledGraph<V, E, L>>> queryMaximalCollectiveDurableGraphPattern(
+            final LabeledGraph<V, E, L> pattern,
+            final RangeSet<Integer> intervals) {
+        return this.query(pattern, IntegerRangeSets.toBitSet(intervals, this.size), true);
+    }
+
+    @Override
+    public Set<Lifespan<LabeledGraph<V, E, L>>> queryMaximalContinuousDurableGraphPattern(
+            final LabeledGraph<V, E, L> pattern) {
+        return this.query(pattern, this.allIntervals(), false);
+    }
+
+    @Override
+    public Set<Lifespan<LabeledGraph<V, E, L>>> queryMaximalContinuousDurableGraphPattern(
+            final LabeledGraph<V, E, L> pattern,
+            final RangeSet<Integer> intervals) {
+        return this.query(pattern, IntegerRangeSets.toBitSet(intervals, this.size), false);
+    }
+
+    private BitSet allIntervals() {
+        BitSet bs = new BitSet(this.size);
+        bs.flip(0, this.size);
+        return bs;
+    }
+
+    private Set<Lifespan<LabeledGraph<V, E, L>>> query(
+            final LabeledGraph<V, E, L> pattern,
+            final BitSet intervals,
+            final boolean collective) {
+        Objects.requireNonNull(pattern);
+        List<Shard<V, E, L>> overlapping = this.shards.stream()
+                .filter(shard -> shard.overlaps(intervals))
+                .collect(Collectors.toList());
+        AtomicInteger highest = new AtomicInteger(1);
+        DurablePatternAlgorithm.ThresholdExchange exchange = new DurablePatternAlgorithm.ThresholdExchange() {
+            @Override
+            public int getThreshold() {
+                return highest.get();
+            }
+
+            @Override
+            public void raiseThreshold(int threshold) {
+                highest.accumulateAndGet(threshold, Math::max);
+            }
+        };
+        List<List<Lifespan<LabeledGraph<V, E, L>>>> partialMatches = overlapping.parallelStream()
+                .map(shard -> shard.query(pattern, intervals, collective, exchange))
+                .collect(Collectors.toList());
+
+        // Matches of different shards are equal if they have the same vertices, labels and edges. Shards keep every
+        // match apart, LabeledGraph.equals ignores the edges, so it does not tell matches that only differ in the
+        // directions of their edges apart.
+        Map<Object, LabeledGraph<V, E, L>> matches = new HashMap<>();
+        Map<Object, BitSet> lifespans = new HashMap<>();
+        for(List<Lifespan<LabeledGraph<V, E, L>>> shardMatches: partialMatches) {
+            for(Lifespan<LabeledGraph<V, E, L>> match: shardMatches) {
+                Object key = this.matchKey(match.getData());
+                matches.putIfAbsent(key, match.getData());
+                lifespans.computeIfAbsent(key, k -> new BitSet())
+                        .or(IntegerRangeSets.toBitSet(match.getRangeSet()));
+            }
+        }
+
+        int threshold = 1;
+        Map<Object, Integer> durations = new HashMap<>();
+        for(Map.Entry<Object, BitSet> entry: lifespans.entrySet()) {
+            int duration = collective ? entry.getValue().cardinality() : longestRun(entry.getValue());
+            durations.put(entry.getKey(), duration);
+            threshold = Math.max(threshold, duration);
+        }
+        Set<Lifespan<LabeledGraph<V, E, L>>> maximalMatches = new HashSet<>();
+        for(Map.Entry<Object, Integer> entry: durations.entrySet()) {
+            if(entry.getValue() == threshold) {
+                maximalMatches.add(new Lifespan<>(
+                        matches.get(entry.getKey()),
+                        matchRangeSet(lifespans.get(entry.getKey()), collective, threshold)));
+            }
+        }
+        return maximalMatches;
+    }
+
+    private Object matchKey(LabeledGraph<V, E, L> match) {
+        Map<V, Set<L>> labels = new HashMap<>();
+        for(V vertex: match.vertexSet()) {
+            labels.put(vertex, new HashSet<>(match.getLabels(vertex)));
+        }
+        Set<Object> edges = new HashSet<>();
+        for(E edge: match.edgeSet()) {
+            V source = match.getEdgeSource(edge);
+            V target = match.getEdgeTarget(edge);
+            edges.add(this.directed ? Arrays.asList(source, target) : ImmutableSet.of(source, target));
+        }
+        return Arrays.asList(labels, edges);
+    }
+
+    private static int longestRun(BitSet bs) {
+        int longest = 0;
+        int start = bs.nextSetBit(0);
+        int end;
+        while(start >= 0) {
+            end = bs.nextClearBit(start);
+            longest = Math.max(longest, end - start);
+            start = bs.nextSetBit(end);
+        }
+        return longest;
+    }
+
+    // The same ranges as an unsharded query: every run for collective queries, the longest runs otherwise.
+    private static RangeSet<Integer> matchRangeSet(BitSet lifespan, boolean collective, int threshold) {
+        RangeSet<Integer> rangeSet = TreeRangeSet.create();
+        int start = lifespan.nextSetBit(0);
+        int end;
+        while(start >= 0) {
+            end = lifespan.nextClearBit(start);
+            if(collective || end - start == threshold) {
+                rangeSet.add(IntegerRanges.closed(start, end - 1));
+            }
+            start = lifespan.nextSetBit(end);
+        }
+        return rangeSet;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedDurablePatternAlgorithm{" +
+                "size=" + size +
+                ", shardLength=" + shardLength +
+                ", shards=" + shards.size() +
+                '}';
+    }
+
+    private static final class Shard<V, E, L> implements Serializable {
+        private final int start;
+        private final int end;
+        private final DurablePatternAlgorithm<V, E, L> algorithm;
+
+        private Shard(int start, int end, DurablePatternAlgorithm<V, E, L> algorithm) {
+            this.start = start;
+            this.end = end;
+            this.algorithm = algorithm;
+        }
+
+        private boolean overlaps(BitSet intervals) {
+            int next = intervals.nextSetBit(this.start);
+            return next >= 0 && next < this.end;
+        }
+
+        // Every match in the window that may be maximal, with global timestamps.
+        private List<Lifespan<LabeledGraph<V, E, L>>> query(
+                LabeledGraph<V, E, L> pattern,
+                BitSet intervals,
+                boolean collective,
+                DurablePatternAlgorithm.ThresholdExchange exchange) {
+            RangeSet<Integer> localIntervals = IntegerRangeSets.fromBitSet(intervals.get(this.start, this.end));
+            int before;
+            int after;
+            if(collective) {
+                before = intervals.get(0, this.start).cardinality();
+                after = intervals.get(this.end, Math.max(intervals.length(), this.end)).cardinality();
+            } else {
+                // Only the runs next to the window can continue a run in the window.
+                before = this.start - 1 - intervals.previousClearBit(this.start - 1);
+                after = intervals.nextClearBit(this.end) - this.end;
+            }
+            List<Lifespan<LabeledGraph<V, E, L>>> matches = new ArrayList<>();
+            this.algorithm.setThresholdExchange(exchange);
+            Set<Lifespan<LabeledGraph<V, E, L>>> windowMatches;
+            try {
+                windowMatches = this.algorithm.queryWindowDurableGraphPatterns(
+                        pattern, localIntervals, collective, before, after);
+            } finally {
+                this.algorithm.setThresholdExchange(null);
+            }
+            for(Lifespan<LabeledGraph<V, E, L>> match: windowMatches) {
+                BitSet lifespan = new BitSet();
+                IntegerRangeSets.toStream(match.getRangeSet()).forEach(t -> lifespan.set(this.start + t));
+                matches.add(new Lifespan<>(match.getData(), IntegerRangeSets.fromBitSet(lifespan)));
+            }
+            return matches;
+        }
+    }
+}
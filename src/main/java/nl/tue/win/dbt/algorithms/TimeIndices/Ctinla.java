@@ -1,13 +1,13 @@
 package nl.tue.win.dbt.algorithms.TimeIndices;
 
 import nl.tue.win.dbt.algorithms.TimeIndices.candidatefilters.CtinlaFilter;
-import nl.tue.win.dbt.data.LabeledVersionGraph;
+import nl.tue.win.dbt.data.VersionGraph;
 
 import java.io.Serializable;
 
 public class Ctinla implements TimeIndex, Serializable {
     @Override
-    public <V, E, L> CtinlaFilter<V, E, L> createCandidateFilter(LabeledVersionGraph<V, E, L> lvg) {
+    public <V, E, L> CtinlaFilter<V, E, L> createCandidateFilter(VersionGraph<V, L> lvg) {
         return new CtinlaFilter<>(lvg);
     }
 }
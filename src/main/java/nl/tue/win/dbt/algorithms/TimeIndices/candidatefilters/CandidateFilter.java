@@ -1,14 +1,20 @@
 package nl.tue.win.dbt.algorithms.TimeIndices.candidatefilters;
 
+import nl.tue.win.dbt.codec.BinaryWriter;
 import nl.tue.win.dbt.data.LabeledGraph;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.BitSet;
 import java.util.Set;
 
 public interface CandidateFilter<V, E, L> extends Serializable {
-    Set<V> filterCandidates(
+    // Returns the ids of the candidate vertices in the version graph.
+    Set<Integer> filterCandidates(
             LabeledGraph<V, E, L> pattern,
             V patternVertex,
-            BitSet intervals);
+            LifespanSet intervals);
+
+    // Writes the index only, the version graph it was created for is not written.
+    void write(BinaryWriter out) throws IOException;
 }
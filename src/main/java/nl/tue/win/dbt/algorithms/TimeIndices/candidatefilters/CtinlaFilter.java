@@ -1,128 +1,291 @@
 package nl.tue.win.dbt.algorithms.TimeIndices.candidatefilters;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import nl.tue.win.dbt.codec.BinaryReader;
+import nl.tue.win.dbt.codec.BinaryWriter;
+import nl.tue.win.dbt.data.IdDictionary;
 import nl.tue.win.dbt.data.LabeledGraph;
-import nl.tue.win.dbt.data.LabeledVersionGraph;
+import nl.tue.win.dbt.data.TimeHierarchy;
+import nl.tue.win.dbt.data.VersionGraph;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
 import nl.tue.win.dbt.util.Graphs;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 
 // class CtinlaFilter implements CTINLA time index and uses generic data types for Vertices, Edges and Labels
+// the index is kept on the heap, also for mapped and paged version graphs: (radius + 1) x nodes x labels references
+// and one counter per time instant for every distinct radius 0 lifespan and every node/label combination with
+// labeled neighbors, so up to (radius + 1) x nodes x labels x size ints. The Tinla and Tipla filters only keep a
+// bit per time instant and fit graphs that do not fit in the heap better.
 public class CtinlaFilter<V, E, L> implements CandidateFilter<V, E, L>, Serializable {
 
-    // variables for lvg, radius, nodes, labels and ctinla time index
-    private final LabeledVersionGraph<V, E, L> lvg;
+    // variables for lvg, radius, number of nodes, number of labels and ctinla time index
+    private final VersionGraph<V, L> lvg;
     private final int radius = 1;
-    private ArrayList<V> nodes;
-    private ArrayList<L> labels;
-    private ArrayList<Table<V, L, ArrayList<Integer>>> ctinla;
+    // directed graphs with incoming neighbors get a layer after the radiuses with counters of incoming neighbors
+    private final int incoming = this.radius + 1;
+    private final int nodes;
+    private final int labels;
+    // indexed by radius (or the incoming layer), node id and label id, contains the label counters per time instant
+    private final int[][][][] ctinla;
+    // time instants grouped into buckets at several resolutions
+    private final TimeHierarchy hierarchy;
+    // maximum and minimum of every counter array per bucket, indexed like ctinla
+    private final TimeHierarchy.Counters[][][] rollups;
 
     // constructor gets labeled version graph
-    public CtinlaFilter(LabeledVersionGraph<V, E, L> lvg) {
+    public CtinlaFilter(VersionGraph<V, L> lvg) {
 
         // initialize variables
         this.lvg = lvg;
-        this.nodes = new ArrayList<>(lvg.vertexSet());
-        this.labels = new ArrayList<>(lvg.labelSet());
-        this.ctinla = new ArrayList<>();
+        this.nodes = lvg.getVertexCount();
+        this.labels = lvg.getLabelCount();
+        int layers = lvg.hasIncomingNeighbors() ? this.incoming + 1 : this.radius + 1;
+        this.ctinla = new int[layers][this.nodes][this.labels][];
 
-        // print graph structure
-        /*for (V node : this.nodes) {
-            System.out.println("Node: " + node + ", Edges: " + Graphs.getNextNeighbors(lvg, node));
-        }*/
+        // all absent node/label combinations share the same counters
+        int[] zeros = new int[this.lvg.getSize()];
 
-        // from radius 0 to maximum radius
-        for (int r = 0; r <= this.radius; r++) {
+        // lifespans of the version graph are interned, so equal lifespans share the same radius 0 counters
+        Map<LifespanSet, int[]> sharedCounters = new IdentityHashMap<>();
+        // graphs that decode lifespans from a file return new instances, their lifespans are shared by index
+        Map<Integer, int[]> indexedCounters = new HashMap<>();
 
-            // add new table for respective radius to ctinla index
-            ctinla.add(HashBasedTable.create());
+        // from radius 0 to maximum radius, followed by the incoming layer
+        for (int r = 0; r < layers; r++) {
 
             // for each node/label combination
-            for (V node : this.nodes) {
-                for (L label : this.labels) {
+            for (int node = 0; node < this.nodes; node++) {
+                for (int label = 0; label < this.labels; label++) {
 
-                    // arraylist for temporarily saving label counters
-                    ArrayList<Integer> counters = new ArrayList<>();
+                    // array for temporarily saving label counters
+                    int[] counters = zeros;
 
                     // if radius is 0, create label counters for pattern node itself
                     if (r == 0) {
-                        if (lvg.labelLifespan(node, label) != null) {
-                            for (int i = 0; i < this.lvg.getSize(); i++) {
-                                if (lvg.labelLifespan(node, label).get(i))
-                                    counters.add(1);
-                                else
-                                    counters.add(0);
-                            }
+                        int index = lvg.labelLifespanIndex(node, label);
+                        if (index >= 0 && indexedCounters.containsKey(index)) {
+                            counters = indexedCounters.get(index);
                         } else {
-                            for (int i = 0; i < this.lvg.getSize(); i++) {
-                                counters.add(0);
+                            LifespanSet lifespan = lvg.labelLifespanById(node, label);
+                            if (lifespan != null && !lifespan.isEmpty()) {
+                                if (index >= 0) {
+                                    counters = this.createCounters(lifespan);
+                                    indexedCounters.put(index, counters);
+                                } else {
+                                    counters = sharedCounters.computeIfAbsent(lifespan, this::createCounters);
+                                }
                             }
                         }
                     }
 
                     // if radius is 1, create label counters for pattern neighbors of pattern node
                     if (r == 1) {
-                        for (int i = 0; i < this.lvg.getSize(); i++) {
-                            int sum = 0;
-                            for (V v : Graphs.getNextNeighbors(lvg, node)) {
-                                if (lvg.labelLifespan(v, label) != null) {
-                                    if (lvg.labelLifespan(v, label).get(i)) {
-                                        sum++;
-                                    }
+                        for (int n = 0; n < lvg.getOutDegree(node); n++) {
+                            int v = lvg.getOutNeighbor(node, n);
+                            // neighbors are sorted, multiple edges to the same neighbor are counted once
+                            if (n > 0 && v == lvg.getOutNeighbor(node, n - 1)) {
+                                continue;
+                            }
+                            LifespanSet lifespan = lvg.labelLifespanById(v, label);
+                            if (lifespan != null && !lifespan.isEmpty()) {
+                                if (counters == zeros) {
+                                    counters = new int[this.lvg.getSize()];
+                                }
+                                for (int i = lifespan.nextSetBit(0); i >= 0 && i < this.lvg.getSize(); i = lifespan.nextSetBit(i+1)) {
+                                    counters[i]++;
+                                }
+                            }
+                        }
+                    }
+
+                    // if this is the incoming layer, create label counters for the sources of edges into the node
+                    if (r == this.incoming) {
+                        for (int n = 0; n < lvg.getInDegree(node); n++) {
+                            int v = lvg.getInNeighbor(node, n);
+                            // incoming neighbors are sorted as well
+                            if (n > 0 && v == lvg.getInNeighbor(node, n - 1)) {
+                                continue;
+                            }
+                            LifespanSet lifespan = lvg.labelLifespanById(v, label);
+                            if (lifespan != null && !lifespan.isEmpty()) {
+                                if (counters == zeros) {
+                                    counters = new int[this.lvg.getSize()];
+                                }
+                                for (int i = lifespan.nextSetBit(0); i >= 0 && i < this.lvg.getSize(); i = lifespan.nextSetBit(i+1)) {
+                                    counters[i]++;
                                 }
                             }
-                            counters.add(sum);
                         }
                     }
 
                     // for higher radiuses: google "jgrapht closest first iterator"
 
                     // add entry to time index
-                    ctinla.get(r).put(node, label, counters);
+                    this.ctinla[r][node][label] = counters;
+                }
+            }
+        }
+        this.hierarchy = new TimeHierarchy(this.lvg.getSize());
+        this.rollups = this.rollUp();
+    }
+
+    // constructor for an index that was read back, counters are indexed like ctinla
+    private CtinlaFilter(VersionGraph<V, L> lvg, int[][][][] ctinla) {
+        this.lvg = lvg;
+        this.nodes = lvg.getVertexCount();
+        this.labels = lvg.getLabelCount();
+        this.ctinla = ctinla;
+        this.hierarchy = new TimeHierarchy(this.lvg.getSize());
+        this.rollups = this.rollUp();
+    }
+
+    // rolls up every distinct counter array once, rollups are not written and are created again when reading
+    private TimeHierarchy.Counters[][][] rollUp() {
+        Map<int[], TimeHierarchy.Counters> sharedRollups = new IdentityHashMap<>();
+        TimeHierarchy.Counters[][][] rollups = new TimeHierarchy.Counters[this.ctinla.length][this.nodes][this.labels];
+        for (int r = 0; r < this.ctinla.length; r++) {
+            for (int node = 0; node < this.nodes; node++) {
+                for (int label = 0; label < this.labels; label++) {
+                    rollups[r][node][label] = sharedRollups.computeIfAbsent(this.ctinla[r][node][label], this.hierarchy::rollUp);
                 }
             }
         }
+        return rollups;
+    }
+
+    // counter arrays are shared between many node/label combinations, so each distinct array is written once
+    @Override
+    public void write(BinaryWriter out) throws IOException {
+        Map<int[], Integer> counterIds = new IdentityHashMap<>();
+        List<int[]> distinctCounters = new ArrayList<>();
+        for (int[][][] byNode : this.ctinla) {
+            for (int[][] byLabel : byNode) {
+                for (int[] counters : byLabel) {
+                    if (!counterIds.containsKey(counters)) {
+                        counterIds.put(counters, distinctCounters.size());
+                        distinctCounters.add(counters);
+                    }
+                }
+            }
+        }
+        out.writeVarInt(this.lvg.getSize());
+        // the incoming layer is written as an extra radius, so indices without it are written as before
+        out.writeVarInt(this.ctinla.length - 1);
+        out.writeVarInt(this.nodes);
+        out.writeVarInt(this.labels);
+        out.writeVarInt(distinctCounters.size());
+        for (int[] counters : distinctCounters) {
+            out.writeVarInts(counters);
+        }
+        for (int[][][] byNode : this.ctinla) {
+            for (int[][] byLabel : byNode) {
+                for (int[] counters : byLabel) {
+                    out.writeVarInt(counterIds.get(counters));
+                }
+            }
+        }
+    }
+
+    public static <V, E, L> CtinlaFilter<V, E, L> read(VersionGraph<V, L> lvg, BinaryReader in) throws IOException {
+        Objects.requireNonNull(lvg);
+        int size = in.readVarInt();
+        int radius = in.readVarInt();
+        int nodes = in.readVarInt();
+        int labels = in.readVarInt();
+        boolean validRadius = radius == 1 || (radius == 2 && lvg.hasIncomingNeighbors());
+        if (size != lvg.getSize() || !validRadius || nodes != lvg.getVertexCount() || labels != lvg.getLabelCount()) {
+            throw new IOException("CTiNLa index does not belong to the version graph");
+        }
+        int[][] distinctCounters = new int[in.readVarInt()][];
+        for (int i = 0; i < distinctCounters.length; i++) {
+            distinctCounters[i] = in.readVarInts();
+        }
+        int[][][][] ctinla = new int[radius + 1][nodes][labels][];
+        for (int r = 0; r <= radius; r++) {
+            for (int node = 0; node < nodes; node++) {
+                for (int label = 0; label < labels; label++) {
+                    ctinla[r][node][label] = distinctCounters[in.readVarInt()];
+                }
+            }
+        }
+        return new CtinlaFilter<>(lvg, ctinla);
+    }
 
-//        // print ctinla time index
-//        for (int i = 0; i <= this.radius; i++) {
-//            System.out.println("Ctinla(" + i + "):");
-//            for (Table.Cell<V, L, ArrayList<Integer>> t : ctinla.get(i).cellSet()) {
-//                System.out.println("Node: " + t.getRowKey() + ", Label: " + t.getColumnKey() + ", Counters: " + t.getValue());
-//            }
-//        }
+    // creates counters that are 1 at every time instant of the lifespan
+    private int[] createCounters(LifespanSet lifespan) {
+        int[] counters = new int[this.lvg.getSize()];
+        for (int i = lifespan.nextSetBit(0); i >= 0 && i < this.lvg.getSize(); i = lifespan.nextSetBit(i+1)) {
+            counters[i] = 1;
+        }
+        return counters;
     }
 
     @Override
     // filter candidates method gets the query pattern, the current pattern node and a bitset of intervals
-    public Set<V> filterCandidates(
+    public Set<Integer> filterCandidates(
             final LabeledGraph<V, E, L> pattern,
             final V patternVertex,
-            final BitSet intervals) {
+            final LifespanSet intervals) {
+
+        // candidate set
+        Set<Integer> candidates = new HashSet<>();
 
         // get label of pattern nodes (if there are more only consider first one)
-        L c_label = pattern.getLabels(patternVertex).iterator().next();
+        int c_label = this.lvg.getLabelId(pattern.getLabels(patternVertex).iterator().next());
 
-        // get labels of neighbors of pattern node
-        ArrayList<L> n_labels = new ArrayList<>();
-        for (V node : Graphs.getNextNeighbors(pattern, patternVertex)) {
-            n_labels.add(pattern.getLabels(node).iterator().next());
+        // a label that never occurs in the version graph can not be matched
+        if (c_label == IdDictionary.NO_ID) {
+            return candidates;
         }
 
         // save counters of label occurrences of pattern neighbors in hashmap
-        HashMap<L, Integer> hm = new HashMap<>();
-        for (L label : n_labels) {
-            if (!hm.containsKey(label)) {
-                hm.put(label, 1);
-            } else {
-                hm.replace(label, hm.get(label) + 1);
+        HashMap<Integer, Integer> hm = new HashMap<>();
+        for (V node : Graphs.getNextNeighbors(pattern, patternVertex)) {
+            int label = this.lvg.getLabelId(pattern.getLabels(node).iterator().next());
+            if (label == IdDictionary.NO_ID) {
+                return candidates;
             }
+            hm.merge(label, 1, Integer::sum);
         }
-        //System.out.println("Hashmap Label Groups: " + hm);
 
-        // candidate set
-        Set<V> candidates = new HashSet<>();
+        // same for the sources of edges into the pattern node, if the index has the incoming layer
+        HashMap<Integer, Integer> hmIn = new HashMap<>();
+        if (this.ctinla.length > this.incoming) {
+            for (V node : Graphs.getPreviousNeighbors(pattern, patternVertex)) {
+                int label = this.lvg.getLabelId(pattern.getLabels(node).iterator().next());
+                if (label == IdDictionary.NO_ID) {
+                    return candidates;
+                }
+                hmIn.merge(label, 1, Integer::sum);
+            }
+        }
+
+        // buckets of the intervals, time instants are checked bucket by bucket from the coarsest level
+        TimeHierarchy.Intervals buckets = this.hierarchy.rollUp(intervals);
+
+        // radius 0 needs the label of the pattern node itself
+        TimeHierarchy.Counters[] ownCounters = new TimeHierarchy.Counters[1];
+        int[] ownNeeds = {1};
+
+        // radius 1 additionally needs enough neighbors per label, in both directions
+        int[] layers = new int[1 + hm.size() + hmIn.size()];
+        int[] neighborLabels = new int[layers.length];
+        int[] neighborNeeds = new int[layers.length];
+        neighborNeeds[0] = 1;
+        int index = 1;
+        for (Map.Entry<Integer, Integer> e : hm.entrySet()) {
+            layers[index] = 1;
+            neighborLabels[index] = e.getKey();
+            neighborNeeds[index++] = e.getValue();
+        }
+        for (Map.Entry<Integer, Integer> e : hmIn.entrySet()) {
+            layers[index] = this.incoming;
+            neighborLabels[index] = e.getKey();
+            neighborNeeds[index++] = e.getValue();
+        }
+        TimeHierarchy.Counters[] neighborCounters = new TimeHierarchy.Counters[layers.length];
 
         // for each distance radius
         for (int r = 0; r <= this.radius; r++) {
@@ -131,29 +294,15 @@ public class CtinlaFilter<V, E, L> implements CandidateFilter<V, E, L>, Serializ
             if (r == 0) {
 
                 // for each possible node
-                for (V node : this.nodes) {
-
-                    boolean match = false;
-                    // check for all time instants of given interval if there is at least one occurrence of the current label
-                    for (int i = intervals.nextSetBit(0); i >= 0 && i < this.lvg.getSize(); i = intervals.nextSetBit(i+1)) {
-                        Table<V, L, ArrayList<Integer>> rTable = ctinla.get(r);
-                        ArrayList<Integer> timestamps = rTable.get(node, c_label);
-                        if(timestamps != null) {
-                            Integer count = timestamps.get(i);
-                            if (count != null && count > 0) {
-                                match = true;
-                                break;
-                            }
-                        }
-                    }
+                for (int node = 0; node < this.nodes; node++) {
 
-                    if (match)
-                        candidates.add(node);
+                    ownCounters[0] = this.rollups[r][node][c_label];
 
-                    /*// if sum of counters is greater than 0, there is at least one occurrence, therefore node is added to candidate set
-                    if (ctinla.get(r).get(node, c_label).stream().mapToInt(Integer::intValue).sum() > 0) {
+                    // check if there is at least one occurrence of the current label in the given interval
+                    if (this.exists(buckets, ownCounters, ownNeeds, this.hierarchy.getTopLevel(), 0)) {
+                        // there is at least one occurrence, therefore node is added to candidate set
                         candidates.add(node);
-                    }*/
+                    }
                 }
             }
 
@@ -161,60 +310,24 @@ public class CtinlaFilter<V, E, L> implements CandidateFilter<V, E, L>, Serializ
             if (r == 1) {
 
                 // create temporary candidate set to avoid runtime errors when removing nodes from the candidate set while iterating through it
-                Set<V> temp = new HashSet<>(candidates);
+                Set<Integer> temp = new HashSet<>(candidates);
 
                 // for each candidate node
-                for (V node : candidates) {
-
-                    // create two dimensional array list for comparing counters
-                    ArrayList<ArrayList<Integer>> cnt = new ArrayList<>();
-
-                    // add counters of candidate node
-                    cnt.add(ctinla.get(0).get(node, c_label));
+                for (int node : candidates) {
 
-                    // for each group of neighbor labels
-                    for (Map.Entry<L, Integer> e : hm.entrySet()) {
-                        // add counters of each group of neighbor labels
-                        cnt.add(ctinla.get(r).get(node, e.getKey()));
+                    // counters of candidate node, followed by the counters of its neighbors with the labels of the pattern
+                    neighborCounters[0] = this.rollups[0][node][c_label];
+                    for (int i = 1; i < layers.length; i++) {
+                        neighborCounters[i] = this.rollups[layers[i]][node][neighborLabels[i]];
                     }
 
-                    //System.out.println("Counters Node " + node + ": " + cnt);
-
-                    boolean total_match = false;
-                    // check for all time instants of given interval
-                    for (int i = intervals.nextSetBit(0); i >= 0 && i < this.lvg.getSize(); i = intervals.nextSetBit(i+1)) {
-
-                        boolean match = true;
-                        // check if pattern node and pattern neighbors exist at the same time instant
-                        for (ArrayList<Integer> c : cnt) {
-                            if (c.get(i) == 0) {
-                                match = false;
-                                break;
-                            }
-                        }
-
-                        // if that is so, we also have to check for each label if there are enough respective neighbors according to the pattern
-                        if (match) {
-                            for (Map.Entry<L, Integer> e : hm.entrySet()) {
-                                if (e.getValue() > ctinla.get(r).get(node, e.getKey()).get(i)) {
-                                    match = false;
-                                    break;
-                                }
-                            }
-
-                            // if both conditions hold, we have a pattern match in at least one time instant
-                            if (match) {
-                                total_match = true;
-                                break;
-                            }
-                        }
-                    }
+                    // we have a pattern match if in at least one time instant the pattern node exists and there are
+                    // enough respective neighbors for each label according to the pattern
+                    boolean total_match = this.exists(buckets, neighborCounters, neighborNeeds, this.hierarchy.getTopLevel(), 0);
 
                     // if there was no pattern match, the current node is removed from the temporary candidate set
                     if (!total_match) {
                         temp.remove(node);
-                        //System.out.println("candidates: " + candidates);
-                        //System.out.println("temp: " + temp);
                     }
                 }
 
@@ -223,9 +336,39 @@ public class CtinlaFilter<V, E, L> implements CandidateFilter<V, E, L>, Serializ
             }
         }
 
-//        // print candidate nodes
-//        System.out.println("Pattern Node: " + pattern.getLabels(patternVertex) + ", Candidate Nodes: " + candidates);
-
         return candidates;
     }
+
+    // checks if there is a time instant of the intervals in the bucket at which every counter reaches its need.
+    // a bucket is rejected if a maximum is below its need and accepted if the intervals cover the bucket and every
+    // minimum reaches its need, otherwise its children are checked. at level 0 maximum and minimum are the same.
+    private boolean exists(
+            TimeHierarchy.Intervals buckets,
+            TimeHierarchy.Counters[] counters,
+            int[] needs,
+            int level,
+            int bucket) {
+        if (!buckets.any(level, bucket)) {
+            return false;
+        }
+        boolean decided = buckets.all(level, bucket);
+        for (int i = 0; i < counters.length; i++) {
+            if (counters[i].max(level, bucket) < needs[i]) {
+                return false;
+            }
+            if (counters[i].min(level, bucket) < needs[i]) {
+                decided = false;
+            }
+        }
+        if (decided) {
+            return true;
+        }
+        int end = this.hierarchy.endChild(level, bucket);
+        for (int child = this.hierarchy.firstChild(bucket); child < end; child++) {
+            if (this.exists(buckets, counters, needs, level - 1, child)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -1,58 +1,228 @@
 package nl.tue.win.dbt.algorithms.TimeIndices.candidatefilters;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.SetMultimap;
+import nl.tue.win.dbt.codec.BinaryReader;
+import nl.tue.win.dbt.codec.BinaryWriter;
+import nl.tue.win.dbt.data.IdDictionary;
 import nl.tue.win.dbt.data.LabeledGraph;
-import nl.tue.win.dbt.data.LabeledVersionGraph;
+import nl.tue.win.dbt.data.TimeHierarchy;
+import nl.tue.win.dbt.data.VersionGraph;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 
 public class TilaFilter<V, E, L> implements CandidateFilter<V, E, L>, Serializable {
-    private final LabeledVersionGraph<V, E, L> lvg;
-    private final List<SetMultimap<L, V>> tila;
+    private final VersionGraph<V, L> lvg;
+    // Indexed by timestamp and label id, contains sorted vertex ids.
+    private final int[][][] tila;
+    private final TimeHierarchy hierarchy;
+    // Indexed by level, bucket and label id, contains the sorted vertex ids that have the label at any timestamp of
+    // the bucket. Level 0 is tila itself.
+    private final int[][][][] levels;
 
-    public TilaFilter(LabeledVersionGraph<V, E, L> lvg) {
+    public TilaFilter(VersionGraph<V, L> lvg) {
         Objects.requireNonNull(lvg);
         this.lvg = lvg;
-        this.tila = new ArrayList<>(this.lvg.getSize());
+        this.tila = new int[this.lvg.getSize()][][];
         fillTila();
+        this.hierarchy = new TimeHierarchy(this.lvg.getSize());
+        this.levels = this.rollUp();
+    }
+
+    private TilaFilter(VersionGraph<V, L> lvg, int[][][] tila) {
+        this.lvg = lvg;
+        this.tila = tila;
+        this.hierarchy = new TimeHierarchy(this.lvg.getSize());
+        this.levels = this.rollUp();
+    }
+
+    public static <V, E, L> TilaFilter<V, E, L> read(VersionGraph<V, L> lvg, BinaryReader in) throws IOException {
+        Objects.requireNonNull(lvg);
+        int size = in.readVarInt();
+        int labelCount = in.readVarInt();
+        if(size != lvg.getSize() || labelCount != lvg.getLabelCount()) {
+            throw new IOException("TiLa index does not belong to the version graph");
+        }
+        int[][][] tila = new int[size][labelCount][];
+        for(int i = 0; i < size; i++) {
+            for(int labelId = 0; labelId < labelCount; labelId++) {
+                tila[i][labelId] = in.readSortedInts();
+            }
+        }
+        return new TilaFilter<>(lvg, tila);
+    }
+
+    @Override
+    public void write(BinaryWriter out) throws IOException {
+        int labelCount = this.lvg.getLabelCount();
+        out.writeVarInt(this.tila.length);
+        out.writeVarInt(labelCount);
+        for(int[][] vertices: this.tila) {
+            for(int labelId = 0; labelId < labelCount; labelId++) {
+                out.writeSortedInts(vertices[labelId]);
+            }
+        }
     }
 
     private void fillTila() {
+        int labelCount = this.lvg.getLabelCount();
+        int vertexCount = this.lvg.getVertexCount();
+        int[][] counts = new int[this.lvg.getSize()][labelCount];
+        for(int i = 0; i < this.lvg.getSize(); i++) {
+            this.tila[i] = new int[labelCount][];
+        }
+        // Count first, so that the vertex arrays can be allocated exactly.
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            for(int labelId = 0; labelId < labelCount; labelId++) {
+                LifespanSet lifespan = this.lvg.labelLifespanById(vertexId, labelId);
+                if(lifespan != null) {
+                    for(int i = lifespan.nextSetBit(0); i >= 0 && i < this.lvg.getSize(); i = lifespan.nextSetBit(i+1)) {
+                        counts[i][labelId]++;
+                    }
+                }
+            }
+        }
         for(int i = 0; i < this.lvg.getSize(); i++) {
-            this.tila.add(HashMultimap.create());
-            for (V vertex : this.lvg.vertexSet()) {
-                for (L label : this.lvg.getLabels(vertex)) {
-                    if (this.lvg.labelLifespan(vertex, label).get(i)) {
-                        this.tila.get(i).put(label, vertex);
+            for(int labelId = 0; labelId < labelCount; labelId++) {
+                this.tila[i][labelId] = new int[counts[i][labelId]];
+                counts[i][labelId] = 0;
+            }
+        }
+        // Vertex ids are visited in increasing order, so every array ends up sorted.
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            for(int labelId = 0; labelId < labelCount; labelId++) {
+                LifespanSet lifespan = this.lvg.labelLifespanById(vertexId, labelId);
+                if(lifespan != null) {
+                    for(int i = lifespan.nextSetBit(0); i >= 0 && i < this.lvg.getSize(); i = lifespan.nextSetBit(i+1)) {
+                        this.tila[i][labelId][counts[i][labelId]++] = vertexId;
+                    }
+                }
+            }
+        }
+    }
+
+    // Coarse levels are not written, they are rolled up again when the index is read.
+    private int[][][][] rollUp() {
+        int labelCount = this.lvg.getLabelCount();
+        int[][][][] levels = new int[this.hierarchy.getLevelCount()][][][];
+        levels[0] = this.tila;
+        for(int level = 1; level < levels.length; level++) {
+            levels[level] = new int[this.hierarchy.getBucketCount(level)][labelCount][];
+            for(int bucket = 0; bucket < levels[level].length; bucket++) {
+                int first = this.hierarchy.firstChild(bucket);
+                int end = this.hierarchy.endChild(level, bucket);
+                for(int labelId = 0; labelId < labelCount; labelId++) {
+                    int[] vertices = new int[0];
+                    for(int child = first; child < end; child++) {
+                        vertices = union(vertices, levels[level - 1][child][labelId]);
                     }
+                    levels[level][bucket][labelId] = vertices;
                 }
             }
         }
+        return levels;
     }
 
     @Override
-    public Set<V> filterCandidates(
+    public Set<Integer> filterCandidates(
             final LabeledGraph<V, E, L> pattern,
             final V patternVertex,
-            final BitSet intervals) {
-        Set<V> candidates = new HashSet<>();
-        Set<L> labels = pattern.getLabels(patternVertex);
+            final LifespanSet intervals) {
+        Set<Integer> candidates = new HashSet<>();
+        int[] labelIds = this.toLabelIds(pattern.getLabels(patternVertex));
+        if(labelIds == null) {
+            return candidates;
+        }
+        if(labelIds.length == 1) {
+            // A vertex with the label at any timestamp of a bucket is a candidate if the intervals cover the bucket,
+            // so the vertices of the coarsest covered buckets are added instead of those of every timestamp.
+            int labelId = labelIds[0];
+            this.hierarchy.rollUp(intervals).cover((level, bucket) -> {
+                for(int vertexId: this.levels[level][bucket][labelId]) {
+                    candidates.add(vertexId);
+                }
+            });
+            return candidates;
+        }
         for (int i = intervals.nextSetBit(0); i >= 0 && i < this.lvg.getSize(); i = intervals.nextSetBit(i+1)) {
-            this.updateCandidates(i, labels, candidates);
+            this.updateCandidates(i, labelIds, candidates);
         }
         return candidates;
     }
 
-    private void updateCandidates(int index, Set<L> labels, Set<V> candidates) {
-        SetMultimap<L, V> labelVertices = this.tila.get(index);
-        if(labelVertices.keySet().containsAll(labels)) {
-            Set<V> moreCandidates = new HashSet<>(this.lvg.vertexSet());
-            for(L label: labels) {
-                moreCandidates.retainAll(labelVertices.get(label));
+    private int[] toLabelIds(Set<L> labels) {
+        int[] labelIds = new int[labels.size()];
+        int index = 0;
+        for(L label: labels) {
+            labelIds[index] = this.lvg.getLabelId(label);
+            if(labelIds[index] == IdDictionary.NO_ID) {
+                return null;
+            }
+            index++;
+        }
+        return labelIds;
+    }
+
+    private void updateCandidates(int index, int[] labelIds, Set<Integer> candidates) {
+        if(labelIds.length == 0) {
+            for(int vertexId = 0; vertexId < this.lvg.getVertexCount(); vertexId++) {
+                if(this.lvg.containsVertexId(vertexId)) {
+                    candidates.add(vertexId);
+                }
+            }
+            return;
+        }
+        int[] moreCandidates = this.tila[index][labelIds[0]];
+        for(int i = 1; i < labelIds.length && moreCandidates.length > 0; i++) {
+            moreCandidates = intersect(moreCandidates, this.tila[index][labelIds[i]]);
+        }
+        for(int vertexId: moreCandidates) {
+            candidates.add(vertexId);
+        }
+    }
+
+    private static int[] union(int[] sorted1, int[] sorted2) {
+        if(sorted1.length == 0) {
+            return sorted2;
+        }
+        if(sorted2.length == 0) {
+            return sorted1;
+        }
+        int[] union = new int[sorted1.length + sorted2.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while(i < sorted1.length || j < sorted2.length) {
+            if(j == sorted2.length || (i < sorted1.length && sorted1[i] < sorted2[j])) {
+                union[count++] = sorted1[i++];
+            } else if(i == sorted1.length || sorted1[i] > sorted2[j]) {
+                union[count++] = sorted2[j++];
+            } else {
+                union[count++] = sorted1[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(union, count);
+    }
+
+    private static int[] intersect(int[] sorted1, int[] sorted2) {
+        int[] intersection = new int[Math.min(sorted1.length, sorted2.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while(i < sorted1.length && j < sorted2.length) {
+            if(sorted1[i] < sorted2[j]) {
+                i++;
+            } else if(sorted1[i] > sorted2[j]) {
+                j++;
+            } else {
+                intersection[count++] = sorted1[i];
+                i++;
+                j++;
             }
-            candidates.addAll(moreCandidates);
         }
+        return Arrays.copyOf(intersection, count);
     }
 }
@@ -1,17 +1,24 @@
 package nl.tue.win.dbt.algorithms.TimeIndices.candidatefilters;
 
+import nl.tue.win.dbt.codec.BinaryWriter;
 import nl.tue.win.dbt.data.LabeledGraph;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.util.BitSet;
 import java.util.Set;
 
 public class TinlaFilter<V, E, L> implements CandidateFilter<V, E, L>, Serializable {
     @Override
-    public Set<V> filterCandidates(
+    public Set<Integer> filterCandidates(
             final LabeledGraph<V, E, L> pattern,
             final V patternVertex,
-            final BitSet intervals) {
+            final LifespanSet intervals) {
         throw new UnsupportedOperationException("Not yet implemented."); // TODO
     }
+
+    @Override
+    public void write(BinaryWriter out) throws IOException {
+        // Nothing is indexed yet.
+    }
 }
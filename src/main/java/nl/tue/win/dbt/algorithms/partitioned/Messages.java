@@ -0,0 +1,108 @@
+package nl.tue.win.dbt.algorithms.partitioned;
+
+import nl.tue.win.dbt.data.GraphCreator;
+import nl.tue.win.dbt.data.LabeledGraph;
+
+import java.io.Serializable;
+import java.util.*;
+
+// Messages between the coordinator and the workers, sent with object streams over sockets.
+final class Messages {
+    private Messages() {
+        // Do not construct holder class.
+    }
+
+    // First message of a worker.
+    static final class Hello implements Serializable {
+        final int partition;
+
+        Hello(int partition) {
+            this.partition = partition;
+        }
+    }
+
+    static final class Query<V, L> implements Serializable {
+        final long id;
+        final GraphData<V, L> pattern;
+        final BitSet intervals;
+        final boolean collective;
+
+        Query(long id, GraphData<V, L> pattern, BitSet intervals, boolean collective) {
+            this.id = id;
+            this.pattern = pattern;
+            this.intervals = intervals;
+            this.collective = collective;
+        }
+    }
+
+    // Sent by a worker that raised its threshold and by the coordinator when the global threshold is raised.
+    static final class Threshold implements Serializable {
+        final long id;
+        final int threshold;
+
+        Threshold(long id, int threshold) {
+            this.id = id;
+            this.threshold = threshold;
+        }
+    }
+
+    // Maximal matches of a partition with their durations, or the error of the query.
+    static final class Result<V, L> implements Serializable {
+        final long id;
+        final int threshold;
+        final List<GraphData<V, L>> matches;
+        final List<BitSet> lifespans;
+        final String error;
+
+        Result(long id, int threshold, List<GraphData<V, L>> matches, List<BitSet> lifespans, String error) {
+            this.id = id;
+            this.threshold = threshold;
+            this.matches = matches;
+            this.lifespans = lifespans;
+            this.error = error;
+        }
+    }
+
+    static final class Shutdown implements Serializable {
+    }
+
+    // Vertices, labels and edges of a graph, so graphs are recreated with the graph creator of the receiver.
+    static final class GraphData<V, L> implements Serializable {
+        final List<V> vertices;
+        final List<Set<L>> labels;
+        // Source and target of every edge after each other.
+        final List<V> edges;
+
+        private GraphData(List<V> vertices, List<Set<L>> labels, List<V> edges) {
+            this.vertices = vertices;
+            this.labels = labels;
+            this.edges = edges;
+        }
+
+        static <V, E, L> GraphData<V, L> of(LabeledGraph<V, E, L> graph) {
+            List<V> vertices = new ArrayList<>(graph.vertexSet());
+            List<Set<L>> labels = new ArrayList<>(vertices.size());
+            for(V vertex: vertices) {
+                labels.add(new HashSet<>(graph.getLabels(vertex)));
+            }
+            List<V> edges = new ArrayList<>(2 * graph.edgeSet().size());
+            for(E edge: graph.edgeSet()) {
+                edges.add(graph.getEdgeSource(edge));
+                edges.add(graph.getEdgeTarget(edge));
+            }
+            return new GraphData<>(vertices, labels, edges);
+        }
+
+        <E> LabeledGraph<V, E, L> toGraph(GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator) {
+            LabeledGraph<V, E, L> graph = graphCreator.create();
+            for(int i = 0; i < this.vertices.size(); i++) {
+                graph.addVertex(this.vertices.get(i));
+                graph.addAllLabels(this.vertices.get(i), this.labels.get(i));
+            }
+            for(int i = 0; i < this.edges.size(); i += 2) {
+                graph.addEdge(this.edges.get(i), this.edges.get(i + 1));
+            }
+            return graph;
+        }
+    }
+}
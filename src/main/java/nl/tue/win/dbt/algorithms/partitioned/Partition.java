@@ -0,0 +1,146 @@
+package nl.tue.win.dbt.algorithms.partitioned;
+
+import nl.tue.win.dbt.Configuration;
+import nl.tue.win.dbt.data.GraphCreator;
+import nl.tue.win.dbt.data.IdDictionary;
+import nl.tue.win.dbt.data.LabeledGraph;
+import nl.tue.win.dbt.data.LabeledVersionGraph;
+
+import java.io.Serializable;
+import java.util.*;
+
+// Part of a version graph with the vertices that the partition owns and a halo of every vertex within haloRadius
+// edges of them, regardless of the direction of the edges. The halo holds all labels and all edges between its
+// vertices, so every match of a pattern with a diameter of at most haloRadius that contains an owned vertex is
+// complete in the partition, with the same lifespan as in the whole version graph.
+// Every vertex is owned by one partition, a partition only looks for matches that map the first pattern vertex
+// to an owned vertex.
+class Partition<V, E, L> implements Serializable {
+    private final int index;
+    private final Set<V> ownedVertices;
+    private final LabeledVersionGraph<V, E, L> lvg;
+    private final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator;
+    private final Configuration config;
+
+    private Partition(
+            int index,
+            Set<V> ownedVertices,
+            LabeledVersionGraph<V, E, L> lvg,
+            GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            Configuration config) {
+        this.index = index;
+        this.ownedVertices = ownedVertices;
+        this.lvg = lvg;
+        this.graphCreator = graphCreator;
+        this.config = config;
+    }
+
+    // Vertices are owned by partition vertexId % count.
+    static <V, E, L> List<Partition<V, E, L>> split(
+            LabeledVersionGraph<V, E, L> lvg,
+            GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            Configuration config,
+            int count,
+            int haloRadius) {
+        List<Partition<V, E, L>> partitions = new ArrayList<>(count);
+        IdDictionary<V> vertexDictionary = lvg.getVertexDictionary();
+        for(int index = 0; index < count; index++) {
+            Set<V> owned = new HashSet<>();
+            for(int vertexId = index; vertexId < vertexDictionary.size(); vertexId += count) {
+                if(lvg.containsVertexId(vertexId)) {
+                    owned.add(vertexDictionary.decode(vertexId));
+                }
+            }
+            partitions.add(new Partition<>(
+                    index,
+                    owned,
+                    createGraph(lvg, graphCreator, config, halo(lvg, owned, haloRadius)),
+                    graphCreator,
+                    config));
+        }
+        return partitions;
+    }
+
+    // Breadth first search from the owned vertices.
+    private static <V, E, L> Set<V> halo(LabeledVersionGraph<V, E, L> lvg, Set<V> owned, int haloRadius) {
+        Set<V> halo = new LinkedHashSet<>(owned);
+        List<V> frontier = new ArrayList<>(owned);
+        for(int distance = 0; distance < haloRadius && !frontier.isEmpty(); distance++) {
+            List<V> next = new ArrayList<>();
+            for(V vertex: frontier) {
+                for(V neighbor: org.jgrapht.Graphs.neighborListOf(lvg, vertex)) {
+                    if(halo.add(neighbor)) {
+                        next.add(neighbor);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return halo;
+    }
+
+    // Lifespans are shared with lvg, they are immutable.
+    private static <V, E, L> LabeledVersionGraph<V, E, L> createGraph(
+            LabeledVersionGraph<V, E, L> lvg,
+            GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            Configuration config,
+            Set<V> vertices) {
+        LabeledGraph<V, E, L> graph = graphCreator.create();
+        Map<E, E> edges = new HashMap<>();
+        for(V vertex: vertices) {
+            graph.addVertex(vertex);
+            graph.addAllLabels(vertex, lvg.getLabels(vertex));
+        }
+        for(V vertex: vertices) {
+            for(E edge: lvg.edgesOf(vertex)) {
+                V source = lvg.getEdgeSource(edge);
+                V target = lvg.getEdgeTarget(edge);
+                // Every edge is seen from both endpoints, it is added from its source.
+                if(source.equals(vertex) && vertices.contains(target)) {
+                    edges.put(graph.addEdge(source, target), edge);
+                }
+            }
+        }
+        LabeledVersionGraph<V, E, L> partition = new LabeledVersionGraph<>(
+                graph, lvg.getSize(), new IdDictionary<>(), new IdDictionary<>(), config.getLifespanSetFactory());
+        for(V vertex: vertices) {
+            partition.changeVertexLifespan(vertex, lvg.vertexLifespan(vertex));
+            for(L label: lvg.getLabels(vertex)) {
+                partition.changeLabelLifespan(vertex, label, lvg.labelLifespan(vertex, label));
+            }
+        }
+        for(Map.Entry<E, E> entry: edges.entrySet()) {
+            partition.changeEdgeLifespan(entry.getKey(), lvg.edgeLifespan(entry.getValue()));
+        }
+        return partition;
+    }
+
+    int getIndex() {
+        return this.index;
+    }
+
+    Set<V> getOwnedVertices() {
+        return Collections.unmodifiableSet(this.ownedVertices);
+    }
+
+    LabeledVersionGraph<V, E, L> getVersionGraph() {
+        return this.lvg;
+    }
+
+    GraphCreator<LabeledGraph<V, E, L>, V, E> getGraphCreator() {
+        return this.graphCreator;
+    }
+
+    Configuration getConfig() {
+        return this.config;
+    }
+
+    @Override
+    public String toString() {
+        return "Partition{" +
+                "index=" + index +
+                ", ownedVertices=" + ownedVertices.size() +
+                ", vertexCount=" + lvg.vertexSet().size() +
+                '}';
+    }
+}
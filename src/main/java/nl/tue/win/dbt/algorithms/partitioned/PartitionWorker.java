@@ -0,0 +1,139 @@
+package nl.tue.win.dbt.algorithms.partitioned;
+
+import nl.tue.win.dbt.algorithms.DurablePatternAlgorithm;
+import nl.tue.win.dbt.data.LabeledGraph;
+import nl.tue.win.dbt.data.Lifespan;
+import nl.tue.win.dbt.util.IntegerRangeSets;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Worker process of a partitioned algorithm. It reads its partition from a file, connects to the coordinator
+// and answers queries until it is shut down. Queries run on a separate thread, so thresholds of other
+// partitions are received while a query runs.
+// Arguments: coordinator host, coordinator port and partition file.
+public class PartitionWorker<V, E, L> {
+    private final Partition<V, E, L> partition;
+    private final DurablePatternAlgorithm<V, E, L> algorithm;
+    private final ObjectInputStream in;
+    private final ObjectOutputStream out;
+    private final ExecutorService executor;
+    // Id of the running query and the highest threshold of that query that is known here.
+    private volatile long queryId;
+    private final AtomicInteger threshold;
+
+    private PartitionWorker(Partition<V, E, L> partition, ObjectInputStream in, ObjectOutputStream out) {
+        this.partition = partition;
+        this.algorithm = new DurablePatternAlgorithm<>(
+                partition.getVersionGraph(), partition.getGraphCreator(), partition.getConfig());
+        this.algorithm.setAnchorVertices(partition.getOwnedVertices());
+        this.in = in;
+        this.out = out;
+        this.executor = Executors.newSingleThreadExecutor();
+        this.queryId = -1;
+        this.threshold = new AtomicInteger();
+    }
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        if(args.length != 3) {
+            throw new IllegalArgumentException("Expected the coordinator host, port and the partition file");
+        }
+        Partition<?, ?, ?> partition;
+        try(ObjectInputStream file = new ObjectInputStream(new BufferedInputStream(new FileInputStream(args[2])))) {
+            partition = (Partition<?, ?, ?>) file.readObject();
+        }
+        try(Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+            socket.setTcpNoDelay(true);
+            ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.flush();
+            ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            new PartitionWorker<>(partition, in, out).run();
+        }
+    }
+
+    private void run() throws IOException, ClassNotFoundException {
+        this.send(new Messages.Hello(this.partition.getIndex()));
+        this.algorithm.setThresholdExchange(new DurablePatternAlgorithm.ThresholdExchange() {
+            @Override
+            public int getThreshold() {
+                return PartitionWorker.this.threshold.get();
+            }
+
+            @Override
+            public void raiseThreshold(int threshold) {
+                PartitionWorker.this.raiseThreshold(threshold);
+            }
+        });
+        try {
+            while(true) {
+                Object message = this.in.readObject();
+                if(message instanceof Messages.Query) {
+                    @SuppressWarnings("unchecked")
+                    Messages.Query<V, L> query = (Messages.Query<V, L>) message;
+                    this.threshold.set(1);
+                    this.queryId = query.id;
+                    this.executor.submit(() -> this.answer(query));
+                } else if(message instanceof Messages.Threshold) {
+                    Messages.Threshold threshold = (Messages.Threshold) message;
+                    if(threshold.id == this.queryId) {
+                        this.threshold.accumulateAndGet(threshold.threshold, Math::max);
+                    }
+                } else if(message instanceof Messages.Shutdown) {
+                    return;
+                }
+            }
+        } catch (EOFException e) {
+            // The coordinator is gone.
+        } finally {
+            this.executor.shutdownNow();
+        }
+    }
+
+    private void raiseThreshold(int threshold) {
+        if(threshold > this.threshold.getAndAccumulate(threshold, Math::max)) {
+            this.send(new Messages.Threshold(this.queryId, threshold));
+        }
+    }
+
+    private void answer(Messages.Query<V, L> query) {
+        List<Messages.GraphData<V, L>> matches = new ArrayList<>();
+        List<BitSet> lifespans = new ArrayList<>();
+        int duration = 0;
+        String error = null;
+        try {
+            LabeledGraph<V, E, L> pattern = query.pattern.toGraph(this.partition.getGraphCreator());
+            Set<Lifespan<LabeledGraph<V, E, L>>> result = query.collective
+                    ? this.algorithm.queryMaximalCollectiveDurableGraphPattern(
+                            pattern, IntegerRangeSets.fromBitSet(query.intervals))
+                    : this.algorithm.queryMaximalContinuousDurableGraphPattern(
+                            pattern, IntegerRangeSets.fromBitSet(query.intervals));
+            for(Lifespan<LabeledGraph<V, E, L>> match: result) {
+                BitSet lifespan = IntegerRangeSets.toBitSet(match.getRangeSet());
+                matches.add(Messages.GraphData.of(match.getData()));
+                lifespans.add(lifespan);
+                // Continuous matches only keep their longest runs, which all have the duration as length.
+                duration = query.collective
+                        ? lifespan.cardinality()
+                        : lifespan.nextClearBit(lifespan.nextSetBit(0)) - lifespan.nextSetBit(0);
+            }
+        } catch (RuntimeException e) {
+            error = e.toString();
+        }
+        this.send(new Messages.Result<>(query.id, duration, matches, lifespans, error));
+    }
+
+    private synchronized void send(Object message) {
+        try {
+            this.out.writeObject(message);
+            // Messages are independent, nothing has to be remembered for back references.
+            this.out.reset();
+            this.out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package nl.tue.win.dbt.algorithms.partitioned;
+
+import com.google.common.collect.RangeSet;
+import nl.tue.win.dbt.Configuration;
+import nl.tue.win.dbt.algorithms.DurablePattern;
+import nl.tue.win.dbt.data.GraphCreator;
+import nl.tue.win.dbt.data.LabeledGraph;
+import nl.tue.win.dbt.data.LabeledVersionGraph;
+import nl.tue.win.dbt.data.Lifespan;
+import nl.tue.win.dbt.util.IntegerRangeSets;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Coordinator of durable pattern queries on a version graph that is split by vertex over worker processes on this
+// host. Every worker holds one partition with a halo, see Partition, and runs the durable pattern algorithm on it.
+// A query is sent to all workers. Workers report every raise of their threshold, the coordinator forwards the
+// highest threshold to all workers so they can stop looking for less durable matches.
+// The maximal matches of the workers with the highest threshold form the result.
+public class PartitionedDurablePatternAlgorithm<V, E, L> implements DurablePattern<V, E, L>, Closeable {
+    private static final int CONNECT_TIMEOUT = 60000;
+
+    private final int size;
+    private final int haloRadius;
+    private final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator;
+    private final ServerSocket server;
+    private final List<Path> partitionFiles;
+    private final List<Process> processes;
+    private final List<Connection> connections;
+    private long queryId;
+    private volatile QueryState current;
+
+    public PartitionedDurablePatternAlgorithm(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final int partitionCount,
+            final int haloRadius) throws IOException {
+        this(lvg, graphCreator, new Configuration(), partitionCount, haloRadius);
+    }
+
+    // Queries accept patterns with a diameter of at most haloRadius.
+    public PartitionedDurablePatternAlgorithm(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final Configuration config,
+            final int partitionCount,
+            final int haloRadius) throws IOException {
+        Objects.requireNonNull(lvg);
+        Objects.requireNonNull(graphCreator);
+        Objects.requireNonNull(config);
+        if(partitionCount <= 0) {
+            throw new IllegalArgumentException("Expected a positive number of partitions");
+        }
+        if(haloRadius < 0) {
+            throw new IllegalArgumentException("Expected a non-negative halo radius");
+        }
+        this.size = lvg.getSize();
+        this.haloRadius = haloRadius;
+        this.graphCreator = graphCreator;
+        this.partitionFiles = new ArrayList<>();
+        this.processes = new ArrayList<>();
+        this.connections = new ArrayList<>(Collections.nCopies(partitionCount, null));
+        this.server = new ServerSocket(0, partitionCount, InetAddress.getLoopbackAddress());
+        try {
+            for(Partition<V, E, L> partition: Partition.split(lvg, graphCreator, config, partitionCount, haloRadius)) {
+                Path file = Files.createTempFile("partition-" + partition.getIndex() + "-", ".ser");
+                this.partitionFiles.add(file);
+                try(ObjectOutputStream out = new ObjectOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(file)))) {
+                    out.writeObject(partition);
+                }
+                this.processes.add(this.startWorker(file));
+            }
+            this.server.setSoTimeout(CONNECT_TIMEOUT);
+            for(int i = 0; i < partitionCount; i++) {
+                Connection connection = new Connection(this.server.accept());
+                this.connections.set(connection.partition, connection);
+            }
+            for(Connection connection: this.connections) {
+                connection.start();
+            }
+        } catch (IOException | RuntimeException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    private Process startWorker(Path partitionFile) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(
+                java,
+                "-cp",
+                System.getProperty("java.class.path"),
+                PartitionWorker.class.getName(),
+                this.server.getInetAddress().getHostAddress(),
+                Integer.toString(this.server.getLocalPort()),
+                partitionFile.toString())
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    public int getPartitionCount() {
+        return this.connections.size();
+    }
+
+    public int getHaloRadius() {
+        return this.haloRadius;
+    }
+
+    @Override
+    public Set<Lifespan<LabeledGraph<V, E, L>>> queryMaximalCollectiveDurableGraphPattern(
+            final LabeledGraph<V, E, L> pattern) {
+        return this.query(pattern, this.allIntervals(), true);
+    }
+
+    @Override
+    public Set<Lifespan<LabeledGraph<V, E, L>>> queryMaximalCollectiveDurableGraphPattern(
+            final LabeledGraph<V, E, L> pattern,
+            final RangeSet<Integer> intervals) {
+        return this.query(pattern, IntegerRangeSets.toBitSet(intervals, this.size), true);
+    }
+
+    @Override
+    public Set<Lifespan<LabeledGraph<V, E, L>>> queryMaximalContinuousDurableGraphPattern(
+            final LabeledGraph<V, E, L> pattern) {
+        return this.query(pattern, this.allIntervals(), false);
+    }
+
+    @Override
+    public Set<Lifespan<LabeledGraph<V, E, L>>> queryMaximalContinuousDurableGraphPattern(
+            final LabeledGraph<V, E, L> pattern,
+            final RangeSet<Integer> intervals) {
+        return this.query(pattern, IntegerRangeSets.toBitSet(intervals, this.size), false);
+    }
+
+    private BitSet allIntervals() {
+        BitSet bs = new BitSet(this.size);
+        bs.flip(0, this.size);
+        return bs;
+    }
+
+    private synchronized Set<Lifespan<LabeledGraph<V, E, L>>> query(
+            final LabeledGraph<V, E, L> pattern,
+            final BitSet intervals,
+            final boolean collective) {
+        Objects.requireNonNull(pattern);
+        if(diameter(pattern) > this.haloRadius) {
+            throw new IllegalArgumentException(
+                    "Expected a connected pattern with a diameter of at most " + this.haloRadius);
+        }
+        QueryState state = new QueryState(++this.queryId, this.connections.size());
+        this.current = state;
+        Messages.Query<V, L> query = new Messages.Query<>(
+                state.id, Messages.GraphData.of(pattern), intervals, collective);
+        for(Connection connection: this.connections) {
+            connection.send(query);
+        }
+        try {
+            state.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the partitions", e);
+        }
+        if(state.error != null) {
+            throw new IllegalStateException("Query failed on a partition: " + state.error);
+        }
+
+        int threshold = 0;
+        for(Messages.Result<V, L> result: state.results) {
+            if(!result.matches.isEmpty()) {
+                threshold = Math.max(threshold, result.threshold);
+            }
+        }
+        Set<Lifespan<LabeledGraph<V, E, L>>> matches = new HashSet<>();
+        for(Messages.Result<V, L> result: state.results) {
+            if(result.threshold == threshold) {
+                for(int i = 0; i < result.matches.size(); i++) {
+                    matches.add(new Lifespan<>(
+                            result.matches.get(i).toGraph(this.graphCreator),
+                            IntegerRangeSets.fromBitSet(result.lifespans.get(i))));
+                }
+            }
+        }
+        return matches;
+    }
+
+    // Largest number of edges on a shortest path between two vertices, ignoring the direction of the edges.
+    // Integer.MAX_VALUE if the pattern is not connected.
+    private static <V, E> int diameter(org.jgrapht.Graph<V, E> pattern) {
+        int diameter = 0;
+        for(V start: pattern.vertexSet()) {
+            Map<V, Integer> distances = new HashMap<>();
+            Deque<V> queue = new ArrayDeque<>();
+            distances.put(start, 0);
+            queue.add(start);
+            while(!queue.isEmpty()) {
+                V vertex = queue.poll();
+                int distance = distances.get(vertex);
+                diameter = Math.max(diameter, distance);
+                for(V neighbor: org.jgrapht.Graphs.neighborListOf(pattern, vertex)) {
+                    if(distances.putIfAbsent(neighbor, distance + 1) == null) {
+                        queue.add(neighbor);
+                    }
+                }
+            }
+            if(distances.size() < pattern.vertexSet().size()) {
+                return Integer.MAX_VALUE;
+            }
+        }
+        return diameter;
+    }
+
+    // Asks the workers to stop and waits for them.
+    @Override
+    public void close() throws IOException {
+        for(Connection connection: this.connections) {
+            if(connection != null) {
+                try {
+                    connection.send(new Messages.Shutdown());
+                } catch (UncheckedIOException e) {
+                    // The worker is gone already.
+                }
+                connection.close();
+            }
+        }
+        for(Process process: this.processes) {
+            try {
+                if(!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+        for(Path file: this.partitionFiles) {
+            Files.deleteIfExists(file);
+        }
+        this.server.close();
+    }
+
+    @Override
+    public String toString() {
+        return "PartitionedDurablePatternAlgorithm{" +
+                "size=" + size +
+                ", partitions=" + connections.size() +
+                ", haloRadius=" + haloRadius +
+                '}';
+    }
+
+    private final class QueryState {
+        private final long id;
+        private final List<Messages.Result<V, L>> results;
+        private final CountDownLatch done;
+        private int threshold;
+        private volatile String error;
+
+        private QueryState(long id, int partitionCount) {
+            this.id = id;
+            this.results = Collections.synchronizedList(new ArrayList<>());
+            this.done = new CountDownLatch(partitionCount);
+            this.threshold = 1;
+        }
+
+        // Whether the threshold is higher than every threshold before.
+        private synchronized boolean raise(int threshold) {
+            if(threshold > this.threshold) {
+                this.threshold = threshold;
+                return true;
+            }
+            return false;
+        }
+
+        private void fail(String error) {
+            this.error = error;
+            while(this.done.getCount() > 0) {
+                this.done.countDown();
+            }
+        }
+    }
+
+    // Connection to a worker, a thread reads the messages of the worker.
+    private final class Connection extends Thread {
+        private final Socket socket;
+        private final ObjectOutputStream out;
+        private final ObjectInputStream in;
+        private final int partition;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.socket.setTcpNoDelay(true);
+            this.out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.out.flush();
+            this.in = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            try {
+                this.partition = ((Messages.Hello) this.in.readObject()).partition;
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+            this.setName("partition-" + this.partition);
+            this.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while(true) {
+                    Object message = this.in.readObject();
+                    QueryState state = PartitionedDurablePatternAlgorithm.this.current;
+                    if(message instanceof Messages.Threshold) {
+                        Messages.Threshold threshold = (Messages.Threshold) message;
+                        if(state != null && state.id == threshold.id && state.raise(threshold.threshold)) {
+                            for(Connection connection: PartitionedDurablePatternAlgorithm.this.connections) {
+                                if(connection != this) {
+                                    connection.send(threshold);
+                                }
+                            }
+                        }
+                    } else if(message instanceof Messages.Result) {
+                        @SuppressWarnings("unchecked")
+                        Messages.Result<V, L> result = (Messages.Result<V, L>) message;
+                        if(state != null && state.id == result.id) {
+                            if(result.error != null) {
+                                state.fail(result.error);
+                            } else {
+                                state.results.add(result);
+                                state.done.countDown();
+                            }
+                        }
+                    }
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                QueryState state = PartitionedDurablePatternAlgorithm.this.current;
+                if(state != null && !this.socket.isClosed()) {
+                    state.fail("Lost partition " + this.partition + ": " + e);
+                }
+            }
+        }
+
+        private synchronized void send(Object message) {
+            try {
+                this.out.writeObject(message);
+                this.out.reset();
+                this.out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void close() throws IOException {
+            this.socket.close();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package nl.tue.win.dbt.codec;
+
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Buffered reader on a channel or on bytes in memory, reads what BinaryWriter writes.
+public class BinaryReader implements Closeable {
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final Inflater inflater;
+    private final ByteBuffer blockHeader;
+    private byte[] block;
+
+    public BinaryReader(ReadableByteChannel channel, boolean compressed) {
+        Objects.requireNonNull(channel);
+        this.channel = channel;
+        // Room for the unread bytes of the previous block and a complete new block.
+        this.buffer = ByteBuffer.allocate(2 * BinaryWriter.BLOCK_SIZE);
+        this.buffer.flip();
+        if(compressed) {
+            this.inflater = new Inflater();
+            this.blockHeader = ByteBuffer.allocate(2 * Integer.BYTES);
+            this.block = new byte[0];
+        } else {
+            this.inflater = null;
+            this.blockHeader = null;
+        }
+    }
+
+    // Reads the remaining bytes of the buffer, for example a value in a mapped file. The buffer is not changed.
+    public BinaryReader(ByteBuffer buffer) {
+        Objects.requireNonNull(buffer);
+        this.channel = null;
+        this.buffer = buffer.slice();
+        this.inflater = null;
+        this.blockHeader = null;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        while(this.buffer.remaining() < bytes) {
+            if(this.channel == null) {
+                throw new EOFException();
+            }
+            this.buffer.compact();
+            try {
+                if(this.inflater == null) {
+                    if(this.channel.read(this.buffer) < 0) {
+                        throw new EOFException();
+                    }
+                } else {
+                    this.readBlock();
+                }
+            } finally {
+                this.buffer.flip();
+            }
+        }
+    }
+
+    private void readBlock() throws IOException {
+        this.blockHeader.clear();
+        this.readFully(this.blockHeader);
+        this.blockHeader.flip();
+        int rawLength = this.blockHeader.getInt();
+        int compressedLength = this.blockHeader.getInt();
+        if(rawLength > this.buffer.remaining() || compressedLength < 0) {
+            throw new IOException("Corrupt compressed block");
+        }
+        if(this.block.length < compressedLength) {
+            this.block = new byte[compressedLength];
+        }
+        this.readFully(ByteBuffer.wrap(this.block, 0, compressedLength));
+        this.inflater.reset();
+        this.inflater.setInput(this.block, 0, compressedLength);
+        try {
+            int length = this.inflater.inflate(
+                    this.buffer.array(), this.buffer.arrayOffset() + this.buffer.position(), rawLength);
+            if(length != rawLength) {
+                throw new IOException("Corrupt compressed block");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+        this.buffer.position(this.buffer.position() + rawLength);
+    }
+
+    private void readFully(ByteBuffer target) throws IOException {
+        while(target.hasRemaining()) {
+            if(this.channel.read(target) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    public int readByte() throws IOException {
+        this.ensure(1);
+        return this.buffer.get();
+    }
+
+    public boolean readBoolean() throws IOException {
+        return this.readByte() != 0;
+    }
+
+    public int readInt() throws IOException {
+        this.ensure(Integer.BYTES);
+        return this.buffer.getInt();
+    }
+
+    public long readLong() throws IOException {
+        this.ensure(Long.BYTES);
+        return this.buffer.getLong();
+    }
+
+    public int readVarInt() throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if(shift > 28) {
+                throw new IOException("Malformed variable length integer");
+            }
+            b = this.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+        return value;
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if(shift > 63) {
+                throw new IOException("Malformed variable length long");
+            }
+            b = this.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while((b & 0x80) != 0);
+        return value;
+    }
+
+    public int readSignedVarInt() throws IOException {
+        int value = this.readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[this.readVarInt()];
+        int offset = 0;
+        while(offset < bytes.length) {
+            this.ensure(1);
+            int length = Math.min(this.buffer.remaining(), bytes.length - offset);
+            this.buffer.get(bytes, offset, length);
+            offset += length;
+        }
+        return bytes;
+    }
+
+    public String readString() throws IOException {
+        return new String(this.readBytes(), StandardCharsets.UTF_8);
+    }
+
+    public long[] readLongs() throws IOException {
+        long[] values = new long[this.readVarInt()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = this.readLong();
+        }
+        return values;
+    }
+
+    public BitSet readBitSet() throws IOException {
+        return BitSet.valueOf(this.readLongs());
+    }
+
+    public LifespanSet readLifespan(LifespanSetFactory lifespanSetFactory) throws IOException {
+        return lifespanSetFactory.createLifespanSet(this.readBitSet());
+    }
+
+    public int[] readVarInts() throws IOException {
+        int[] values = new int[this.readVarInt()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = this.readVarInt();
+        }
+        return values;
+    }
+
+    public int[] readSortedInts() throws IOException {
+        int[] values = new int[this.readVarInt()];
+        int previous = 0;
+        for(int i = 0; i < values.length; i++) {
+            previous += this.readVarInt();
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if(this.inflater != null) {
+                this.inflater.end();
+            }
+        } finally {
+            if(this.channel != null) {
+                this.channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package nl.tue.win.dbt.codec;
+
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.zip.Deflater;
+
+// Buffered writer on a channel. When compression is enabled every full buffer is written as a deflated block,
+// preceded by its raw and compressed length.
+public class BinaryWriter implements Closeable {
+    static final int BLOCK_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final Deflater deflater;
+    private final ByteBuffer block;
+    private long bytesWritten;
+
+    public BinaryWriter(WritableByteChannel channel, boolean compressed) {
+        Objects.requireNonNull(channel);
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        if(compressed) {
+            this.deflater = new Deflater(Deflater.BEST_SPEED);
+            // Deflate can slightly expand incompressible blocks.
+            this.block = ByteBuffer.allocate(2 * Integer.BYTES + BLOCK_SIZE + BLOCK_SIZE / 16 + 64);
+        } else {
+            this.deflater = null;
+            this.block = null;
+        }
+        this.bytesWritten = 0;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if(this.buffer.remaining() < bytes) {
+            this.flushBlock();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        this.buffer.flip();
+        if(!this.buffer.hasRemaining()) {
+            this.buffer.clear();
+            return;
+        }
+        ByteBuffer out = this.buffer;
+        if(this.deflater != null) {
+            int rawLength = this.buffer.remaining();
+            this.deflater.reset();
+            this.deflater.setInput(this.buffer.array(), 0, rawLength);
+            this.deflater.finish();
+            this.block.clear();
+            int compressedLength = this.deflater.deflate(
+                    this.block.array(), 2 * Integer.BYTES, this.block.capacity() - 2 * Integer.BYTES);
+            if(!this.deflater.finished()) {
+                throw new IOException("Compressed block does not fit");
+            }
+            this.block.putInt(rawLength);
+            this.block.putInt(compressedLength);
+            this.block.limit(2 * Integer.BYTES + compressedLength);
+            this.block.position(0);
+            out = this.block;
+        }
+        while(out.hasRemaining()) {
+            this.bytesWritten += this.channel.write(out);
+        }
+        this.buffer.clear();
+    }
+
+    public void writeByte(int value) throws IOException {
+        this.ensure(1);
+        this.buffer.put((byte) value);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        this.writeByte(value ? 1 : 0);
+    }
+
+    public void writeInt(int value) throws IOException {
+        this.ensure(Integer.BYTES);
+        this.buffer.putInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        this.ensure(Long.BYTES);
+        this.buffer.putLong(value);
+    }
+
+    // Unsigned LEB128, small non-negative values take a single byte.
+    public void writeVarInt(int value) throws IOException {
+        this.ensure(5);
+        while((value & ~0x7F) != 0) {
+            this.buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        this.buffer.put((byte) value);
+    }
+
+    public void writeVarLong(long value) throws IOException {
+        this.ensure(10);
+        while((value & ~0x7FL) != 0) {
+            this.buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        this.buffer.put((byte) value);
+    }
+
+    // Zigzag encoding keeps small negative values small.
+    public void writeSignedVarInt(int value) throws IOException {
+        this.writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    public void writeBytes(byte[] bytes) throws IOException {
+        this.writeVarInt(bytes.length);
+        int offset = 0;
+        while(offset < bytes.length) {
+            this.ensure(1);
+            int length = Math.min(this.buffer.remaining(), bytes.length - offset);
+            this.buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    public void writeString(String value) throws IOException {
+        this.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeLongs(long[] values) throws IOException {
+        this.writeVarInt(values.length);
+        for(long value: values) {
+            this.writeLong(value);
+        }
+    }
+
+    // Bit sets are dumped word by word.
+    public void writeBitSet(BitSet bs) throws IOException {
+        this.writeLongs(bs.toLongArray());
+    }
+
+    public void writeLifespan(LifespanSet lifespan) throws IOException {
+        this.writeBitSet(lifespan.toBitSet());
+    }
+
+    public void writeVarInts(int[] values) throws IOException {
+        this.writeVarInt(values.length);
+        for(int value: values) {
+            this.writeVarInt(value);
+        }
+    }
+
+    // Values must be sorted and non-negative, they are written as deltas.
+    public void writeSortedInts(int[] values) throws IOException {
+        this.writeVarInt(values.length);
+        int previous = 0;
+        for(int value: values) {
+            this.writeVarInt(value - previous);
+            previous = value;
+        }
+    }
+
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    public void flush() throws IOException {
+        this.flushBlock();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            if(this.deflater != null) {
+                this.deflater.end();
+            }
+            this.channel.close();
+        }
+    }
+}
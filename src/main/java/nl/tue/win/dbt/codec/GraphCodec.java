@@ -0,0 +1,562 @@
+package nl.tue.win.dbt.codec;
+
+import nl.tue.win.dbt.Configuration;
+import nl.tue.win.dbt.algorithms.BaselineAlgorithm;
+import nl.tue.win.dbt.algorithms.DurablePattern;
+import nl.tue.win.dbt.algorithms.DurablePatternAlgorithm;
+import nl.tue.win.dbt.algorithms.TimeIndices.candidatefilters.*;
+import nl.tue.win.dbt.data.*;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Binary format for history graphs, version graphs and candidate filters. Every file starts with an
+// uncompressed header (magic, format version, kind of content and flags), the rest of the file is written
+// through a BinaryWriter and is optionally compressed in blocks.
+// Vertices and labels are written once in a dictionary, everything else refers to them by id.
+public class GraphCodec<V, E, L> {
+    private static final int MAGIC = 0x44425443; // "DBTC"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 2 * Integer.BYTES + 2;
+    private static final int COMPRESSED = 1;
+
+    private static final byte HISTORY_GRAPH = 1;
+    private static final byte VERSION_GRAPH = 2;
+    private static final byte CANDIDATE_FILTER = 3;
+    private static final byte DURABLE_PATTERN = 4;
+
+    private static final byte TILA = 1;
+    private static final byte CTINLA = 2;
+    private static final byte TINLA = 3;
+    private static final byte TIPLA = 4;
+
+    private final ValueCodec<V> vertexCodec;
+    private final ValueCodec<L> labelCodec;
+    private final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator;
+    private boolean compressed;
+    private LifespanSetFactory lifespanSetFactory;
+
+    public GraphCodec(
+            final ValueCodec<V> vertexCodec,
+            final ValueCodec<L> labelCodec,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator) {
+        Objects.requireNonNull(vertexCodec);
+        Objects.requireNonNull(labelCodec);
+        Objects.requireNonNull(graphCreator);
+        this.vertexCodec = vertexCodec;
+        this.labelCodec = labelCodec;
+        this.graphCreator = graphCreator;
+        this.compressed = false;
+        this.lifespanSetFactory = new LifespanSetFactory.ContainerFactory();
+    }
+
+    public GraphCreator<LabeledGraph<V, E, L>, V, E> getGraphCreator() {
+        return this.graphCreator;
+    }
+
+    public boolean isCompressed() {
+        return this.compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public LifespanSetFactory getLifespanSetFactory() {
+        return this.lifespanSetFactory;
+    }
+
+    public void setLifespanSetFactory(LifespanSetFactory lifespanSetFactory) {
+        Objects.requireNonNull(lifespanSetFactory);
+        this.lifespanSetFactory = lifespanSetFactory;
+    }
+
+    public void writeHistoryGraph(
+            final LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg,
+            final String filename) throws IOException {
+        Objects.requireNonNull(lhg);
+        try(BinaryWriter out = this.openWriter(filename, HISTORY_GRAPH)) {
+            this.writeHistoryGraph(out, lhg);
+        }
+    }
+
+    public LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> readHistoryGraph(
+            final String filename) throws IOException {
+        try(BinaryReader in = this.openReader(filename, HISTORY_GRAPH)) {
+            return this.readHistoryGraph(in);
+        }
+    }
+
+    public void writeVersionGraph(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final String filename) throws IOException {
+        Objects.requireNonNull(lvg);
+        try(BinaryWriter out = this.openWriter(filename, VERSION_GRAPH)) {
+            this.writeVersionGraph(out, lvg);
+        }
+    }
+
+    public LabeledVersionGraph<V, E, L> readVersionGraph(final String filename) throws IOException {
+        try(BinaryReader in = this.openReader(filename, VERSION_GRAPH)) {
+            return this.readVersionGraph(in);
+        }
+    }
+
+    public void writeCandidateFilter(
+            final CandidateFilter<V, E, L> filter,
+            final String filename) throws IOException {
+        Objects.requireNonNull(filter);
+        try(BinaryWriter out = this.openWriter(filename, CANDIDATE_FILTER)) {
+            this.writeCandidateFilter(out, filter);
+        }
+    }
+
+    // The version graph must have the same ids as the one the filter was created for.
+    public CandidateFilter<V, E, L> readCandidateFilter(
+            final String filename,
+            final VersionGraph<V, L> lvg) throws IOException {
+        Objects.requireNonNull(lvg);
+        try(BinaryReader in = this.openReader(filename, CANDIDATE_FILTER)) {
+            return this.readCandidateFilter(in, lvg);
+        }
+    }
+
+    // Writes the version graph together with a candidate filter that was created for its CsrVersionGraph.
+    public void writeDurablePattern(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final CandidateFilter<V, E, L> filter,
+            final String filename) throws IOException {
+        Objects.requireNonNull(lvg);
+        Objects.requireNonNull(filter);
+        try(BinaryWriter out = this.openWriter(filename, DURABLE_PATTERN)) {
+            this.writeVersionGraph(out, lvg);
+            this.writeCandidateFilter(out, filter);
+        }
+    }
+
+    public DurablePatternAlgorithm<V, E, L> readDurablePattern(
+            final String filename,
+            final Configuration config) throws IOException {
+        Objects.requireNonNull(config);
+        try(BinaryReader in = this.openReader(filename, DURABLE_PATTERN)) {
+            return this.readDurablePattern(in, config);
+        }
+    }
+
+    // Reads a durable pattern algorithm, or a baseline algorithm on a history graph.
+    public DurablePattern<V, E, L> readAlgorithm(
+            final String filename,
+            final Configuration config) throws IOException {
+        Objects.requireNonNull(config);
+        try(FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer header = this.readHeader(channel, filename);
+            byte kind = header.get();
+            BinaryReader in = new BinaryReader(channel, (header.get() & COMPRESSED) != 0);
+            switch(kind) {
+                case HISTORY_GRAPH:
+                    return new BaselineAlgorithm<>(this.readHistoryGraph(in), config);
+                case DURABLE_PATTERN:
+                    return this.readDurablePattern(in, config);
+                default:
+                    throw new IOException("No algorithm stored in " + filename);
+            }
+        }
+    }
+
+    private BinaryWriter openWriter(String filename, byte kind) throws IOException {
+        Objects.requireNonNull(filename);
+        FileChannel channel = FileChannel.open(
+                Paths.get(filename),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.put(kind);
+            header.put((byte) (this.compressed ? COMPRESSED : 0));
+            header.flip();
+            while(header.hasRemaining()) {
+                channel.write(header);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BinaryWriter(channel, this.compressed);
+    }
+
+    private BinaryReader openReader(String filename, byte kind) throws IOException {
+        Objects.requireNonNull(filename);
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        ByteBuffer header;
+        try {
+            header = this.readHeader(channel, filename);
+            if(header.get() != kind) {
+                throw new IOException("Unexpected content in " + filename);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new BinaryReader(channel, (header.get() & COMPRESSED) != 0);
+    }
+
+    // Checks the magic number and the version, the returned header is positioned at the kind of content.
+    private ByteBuffer readHeader(FileChannel channel, String filename) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while(header.hasRemaining()) {
+            if(channel.read(header) < 0) {
+                throw new IOException("Truncated header in " + filename);
+            }
+        }
+        header.flip();
+        if(header.getInt() != MAGIC) {
+            throw new IOException("Unknown file format of " + filename);
+        }
+        int version = header.getInt();
+        if(version != VERSION) {
+            throw new IOException("Unsupported format version " + version + " of " + filename);
+        }
+        return header;
+    }
+
+    private <T> void writeDictionary(BinaryWriter out, List<T> values, ValueCodec<T> codec) throws IOException {
+        out.writeVarInt(values.size());
+        for(T value: values) {
+            codec.write(out, value);
+        }
+    }
+
+    private <T> IdDictionary<T> readDictionary(BinaryReader in, ValueCodec<T> codec) throws IOException {
+        int size = in.readVarInt();
+        List<T> values = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            values.add(codec.read(in));
+        }
+        IdDictionary<T> dictionary = new IdDictionary<>(values);
+        if(dictionary.size() != size) {
+            throw new IOException("Duplicate values in dictionary");
+        }
+        return dictionary;
+    }
+
+    private int[] sortedIds(Collection<? extends V> vertices, IdDictionary<V> vertexDictionary) {
+        int[] ids = new int[vertices.size()];
+        int index = 0;
+        for(V vertex: vertices) {
+            ids[index++] = vertexDictionary.getId(vertex);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private int[] sortedLabelIds(Set<L> labels, IdDictionary<L> labelDictionary) {
+        int[] ids = new int[labels.size()];
+        int index = 0;
+        for(L label: labels) {
+            ids[index++] = labelDictionary.getId(label);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private long edgeKey(org.jgrapht.Graph<V, E> graph, E edge, IdDictionary<V> vertexDictionary) {
+        return ((long) vertexDictionary.getId(graph.getEdgeSource(edge)) << 32)
+                | vertexDictionary.getId(graph.getEdgeTarget(edge));
+    }
+
+    // Edges sorted on source id and then on target id, so the sources can be delta encoded.
+    private List<E> sortedEdges(org.jgrapht.Graph<V, E> graph, IdDictionary<V> vertexDictionary) {
+        List<E> edges = new ArrayList<>(graph.edgeSet());
+        edges.sort(Comparator.comparingLong(edge -> this.edgeKey(graph, edge, vertexDictionary)));
+        return edges;
+    }
+
+    private void writeEdges(
+            BinaryWriter out,
+            org.jgrapht.Graph<V, E> graph,
+            List<E> edges,
+            IdDictionary<V> vertexDictionary) throws IOException {
+        out.writeVarInt(edges.size());
+        int previous = 0;
+        int source;
+        for(E edge: edges) {
+            source = vertexDictionary.getId(graph.getEdgeSource(edge));
+            out.writeVarInt(source - previous);
+            out.writeVarInt(vertexDictionary.getId(graph.getEdgeTarget(edge)));
+            previous = source;
+        }
+    }
+
+    void writeHistoryGraph(
+            BinaryWriter out,
+            LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg) throws IOException {
+        IdDictionary<V> vertexDictionary = new IdDictionary<>(lhg.vertexSet());
+        IdDictionary<L> labelDictionary = new IdDictionary<>(lhg.labelSet());
+        out.writeVarInt(lhg.size());
+        this.writeDictionary(out, vertexDictionary.values(), this.vertexCodec);
+        this.writeDictionary(out, labelDictionary.values(), this.labelCodec);
+        for(LabeledGraph<V, E, L> graph: lhg) {
+            this.writeSnapshot(out, graph, vertexDictionary, labelDictionary);
+        }
+    }
+
+    private void writeSnapshot(
+            BinaryWriter out,
+            LabeledGraph<V, E, L> graph,
+            IdDictionary<V> vertexDictionary,
+            IdDictionary<L> labelDictionary) throws IOException {
+        int[] vertices = this.sortedIds(graph.vertexSet(), vertexDictionary);
+        out.writeSortedInts(vertices);
+        for(int vertexId: vertices) {
+            out.writeSortedInts(this.sortedLabelIds(
+                    graph.getLabels(vertexDictionary.decode(vertexId)), labelDictionary));
+        }
+        this.writeEdges(out, graph, this.sortedEdges(graph, vertexDictionary), vertexDictionary);
+    }
+
+    LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> readHistoryGraph(BinaryReader in) throws IOException {
+        int size = in.readVarInt();
+        IdDictionary<V> vertexDictionary = this.readDictionary(in, this.vertexCodec);
+        IdDictionary<L> labelDictionary = this.readDictionary(in, this.labelCodec);
+        LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg = new LabeledHistoryGraph<>(this.graphCreator);
+        for(int i = 0; i < size; i++) {
+            lhg.addGraph(this.readSnapshot(in, vertexDictionary, labelDictionary));
+        }
+        return lhg;
+    }
+
+    private LabeledGraph<V, E, L> readSnapshot(
+            BinaryReader in,
+            IdDictionary<V> vertexDictionary,
+            IdDictionary<L> labelDictionary) throws IOException {
+        LabeledGraph<V, E, L> graph = this.graphCreator.create();
+        int[] vertices = in.readSortedInts();
+        for(int vertexId: vertices) {
+            graph.addVertex(vertexDictionary.decode(vertexId));
+        }
+        for(int vertexId: vertices) {
+            for(int labelId: in.readSortedInts()) {
+                graph.addLabel(vertexDictionary.decode(vertexId), labelDictionary.decode(labelId));
+            }
+        }
+        int edgeCount = in.readVarInt();
+        int source = 0;
+        for(int j = 0; j < edgeCount; j++) {
+            source += in.readVarInt();
+            graph.addEdge(vertexDictionary.decode(source), vertexDictionary.decode(in.readVarInt()));
+        }
+        return graph;
+    }
+
+    // Concatenates history graph files into one history graph file. Snapshots are copied one at a time, so only the
+    // dictionaries and a single snapshot are kept on the heap.
+    void concatenateHistoryGraphs(List<String> filenames, String filename) throws IOException {
+        Objects.requireNonNull(filenames);
+        List<BinaryReader> readers = new ArrayList<>();
+        try {
+            int[] sizes = new int[filenames.size()];
+            List<IdDictionary<V>> vertexDictionaries = new ArrayList<>();
+            List<IdDictionary<L>> labelDictionaries = new ArrayList<>();
+            IdDictionary<V> vertexDictionary = new IdDictionary<>();
+            IdDictionary<L> labelDictionary = new IdDictionary<>();
+            int size = 0;
+            for(int i = 0; i < filenames.size(); i++) {
+                BinaryReader in = this.openReader(filenames.get(i), HISTORY_GRAPH);
+                readers.add(in);
+                sizes[i] = in.readVarInt();
+                vertexDictionaries.add(this.readDictionary(in, this.vertexCodec));
+                labelDictionaries.add(this.readDictionary(in, this.labelCodec));
+                vertexDictionaries.get(i).values().forEach(vertexDictionary::encode);
+                labelDictionaries.get(i).values().forEach(labelDictionary::encode);
+                size += sizes[i];
+            }
+            try(BinaryWriter out = this.openWriter(filename, HISTORY_GRAPH)) {
+                out.writeVarInt(size);
+                this.writeDictionary(out, vertexDictionary.values(), this.vertexCodec);
+                this.writeDictionary(out, labelDictionary.values(), this.labelCodec);
+                for(int i = 0; i < readers.size(); i++) {
+                    for(int j = 0; j < sizes[i]; j++) {
+                        LabeledGraph<V, E, L> graph = this.readSnapshot(
+                                readers.get(i), vertexDictionaries.get(i), labelDictionaries.get(i));
+                        this.writeSnapshot(out, graph, vertexDictionary, labelDictionary);
+                    }
+                }
+            }
+        } finally {
+            for(BinaryReader in: readers) {
+                in.close();
+            }
+        }
+    }
+
+    private void writeVersionGraph(BinaryWriter out, LabeledVersionGraph<V, E, L> lvg) throws IOException {
+        IdDictionary<V> vertexDictionary = lvg.getVertexDictionary();
+        IdDictionary<L> labelDictionary = lvg.getLabelDictionary();
+        out.writeVarInt(lvg.getSize());
+        this.writeDictionary(out, vertexDictionary.values(), this.vertexCodec);
+        this.writeDictionary(out, labelDictionary.values(), this.labelCodec);
+
+        // Equal lifespans are written once and referred to by their index.
+        Map<LifespanSet, Integer> lifespanIndices = new HashMap<>();
+        List<LifespanSet> lifespans = new ArrayList<>();
+        int vertexCount = vertexDictionary.size();
+        int[] vertexLifespans = new int[vertexCount];
+        int[][] labelIds = new int[vertexCount][];
+        int[][] labelLifespans = new int[vertexCount][];
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            if(!lvg.containsVertexId(vertexId)) {
+                // Zero marks a removed vertex.
+                continue;
+            }
+            vertexLifespans[vertexId] = indexOf(lvg.vertexLifespanById(vertexId), lifespanIndices, lifespans) + 1;
+            labelIds[vertexId] = this.sortedLabelIds(lvg.getLabels(vertexDictionary.decode(vertexId)), labelDictionary);
+            labelLifespans[vertexId] = new int[labelIds[vertexId].length];
+            for(int i = 0; i < labelIds[vertexId].length; i++) {
+                labelLifespans[vertexId][i] = indexOf(
+                        lvg.labelLifespanById(vertexId, labelIds[vertexId][i]), lifespanIndices, lifespans);
+            }
+        }
+        List<E> edges = this.sortedEdges(lvg, vertexDictionary);
+        int[] edgeLifespans = new int[edges.size()];
+        for(int i = 0; i < edgeLifespans.length; i++) {
+            edgeLifespans[i] = indexOf(lvg.edgeLifespan(edges.get(i)), lifespanIndices, lifespans);
+        }
+
+        out.writeVarInt(lifespans.size());
+        for(LifespanSet lifespan: lifespans) {
+            out.writeLifespan(lifespan);
+        }
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            out.writeVarInt(vertexLifespans[vertexId]);
+            if(vertexLifespans[vertexId] != 0) {
+                out.writeSortedInts(labelIds[vertexId]);
+                for(int labelLifespan: labelLifespans[vertexId]) {
+                    out.writeVarInt(labelLifespan);
+                }
+            }
+        }
+        this.writeEdges(out, lvg, edges, vertexDictionary);
+        for(int edgeLifespan: edgeLifespans) {
+            out.writeVarInt(edgeLifespan);
+        }
+    }
+
+    private static int indexOf(LifespanSet lifespan, Map<LifespanSet, Integer> indices, List<LifespanSet> lifespans) {
+        Integer index = indices.get(lifespan);
+        if(index == null) {
+            index = lifespans.size();
+            indices.put(lifespan, index);
+            lifespans.add(lifespan);
+        }
+        return index;
+    }
+
+    private LabeledVersionGraph<V, E, L> readVersionGraph(BinaryReader in) throws IOException {
+        int size = in.readVarInt();
+        IdDictionary<V> vertexDictionary = this.readDictionary(in, this.vertexCodec);
+        IdDictionary<L> labelDictionary = this.readDictionary(in, this.labelCodec);
+        LifespanSet[] lifespans = new LifespanSet[in.readVarInt()];
+        for(int i = 0; i < lifespans.length; i++) {
+            lifespans[i] = in.readLifespan(this.lifespanSetFactory);
+        }
+
+        LabeledGraph<V, E, L> graph = this.graphCreator.create();
+        int vertexCount = vertexDictionary.size();
+        int[] vertexLifespans = new int[vertexCount];
+        int[][] labelIds = new int[vertexCount][];
+        int[][] labelLifespans = new int[vertexCount][];
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            vertexLifespans[vertexId] = in.readVarInt();
+            if(vertexLifespans[vertexId] != 0) {
+                V vertex = vertexDictionary.decode(vertexId);
+                graph.addVertex(vertex);
+                labelIds[vertexId] = in.readSortedInts();
+                labelLifespans[vertexId] = new int[labelIds[vertexId].length];
+                for(int i = 0; i < labelIds[vertexId].length; i++) {
+                    graph.addLabel(vertex, labelDictionary.decode(labelIds[vertexId][i]));
+                    labelLifespans[vertexId][i] = in.readVarInt();
+                }
+            }
+        }
+        int edgeCount = in.readVarInt();
+        List<E> edges = new ArrayList<>(edgeCount);
+        int[] edgeLifespans = new int[edgeCount];
+        int source = 0;
+        for(int i = 0; i < edgeCount; i++) {
+            source += in.readVarInt();
+            edges.add(graph.addEdge(vertexDictionary.decode(source), vertexDictionary.decode(in.readVarInt())));
+        }
+        for(int i = 0; i < edgeCount; i++) {
+            edgeLifespans[i] = in.readVarInt();
+        }
+
+        LabeledVersionGraph<V, E, L> lvg = new LabeledVersionGraph<>(
+                graph, size, vertexDictionary, labelDictionary, this.lifespanSetFactory);
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            if(vertexLifespans[vertexId] != 0) {
+                V vertex = vertexDictionary.decode(vertexId);
+                lvg.changeVertexLifespan(vertex, lifespans[vertexLifespans[vertexId] - 1]);
+                for(int i = 0; i < labelIds[vertexId].length; i++) {
+                    lvg.changeLabelLifespan(
+                            vertex,
+                            labelDictionary.decode(labelIds[vertexId][i]),
+                            lifespans[labelLifespans[vertexId][i]]);
+                }
+            }
+        }
+        for(int i = 0; i < edgeCount; i++) {
+            if(edges.get(i) != null) {
+                lvg.changeEdgeLifespan(edges.get(i), lifespans[edgeLifespans[i]]);
+            }
+        }
+        return lvg;
+    }
+
+    private void writeCandidateFilter(BinaryWriter out, CandidateFilter<V, E, L> filter) throws IOException {
+        byte tag;
+        if(filter instanceof TilaFilter) {
+            tag = TILA;
+        } else if(filter instanceof CtinlaFilter) {
+            tag = CTINLA;
+        } else if(filter instanceof TinlaFilter) {
+            tag = TINLA;
+        } else if(filter instanceof TiplaFilter) {
+            tag = TIPLA;
+        } else {
+            throw new IllegalArgumentException("Unsupported candidate filter " + filter.getClass().getName());
+        }
+        out.writeByte(tag);
+        filter.write(out);
+    }
+
+    private CandidateFilter<V, E, L> readCandidateFilter(BinaryReader in, VersionGraph<V, L> lvg) throws IOException {
+        int tag = in.readByte();
+        switch(tag) {
+            case TILA:
+                return TilaFilter.read(lvg, in);
+            case CTINLA:
+                return CtinlaFilter.read(lvg, in);
+            case TINLA:
+                return new TinlaFilter<>();
+            case TIPLA:
+                return new TiplaFilter<>();
+            default:
+                throw new IOException("Unknown candidate filter " + tag);
+        }
+    }
+
+    private DurablePatternAlgorithm<V, E, L> readDurablePattern(BinaryReader in, Configuration config) throws IOException {
+        VersionGraph<V, L> lvg = new CsrVersionGraph<>(this.readVersionGraph(in));
+        CandidateFilter<V, E, L> filter = this.readCandidateFilter(in, lvg);
+        return new DurablePatternAlgorithm<>(lvg, this.graphCreator, config, filter);
+    }
+}
@@ -0,0 +1,435 @@
+package nl.tue.win.dbt.codec;
+
+import nl.tue.win.dbt.data.LabeledGraph;
+import nl.tue.win.dbt.data.LabeledHistoryGraph;
+import nl.tue.win.dbt.data.LabeledVersionGraph;
+import nl.tue.win.dbt.data.VersionGraphBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Persists a version graph in a directory as immutable segment files, every segment holds a batch of consecutive
+// snapshots in the history graph format of the codec.
+// Appended snapshots are first written to a write-ahead log and become a segment on flush, after which the log is
+// emptied. Opening a store recovers the version graph from the segments and replays the log.
+// A single compactor thread merges adjacent segments of a similar size in the background, a merged segment replaces
+// the segments it covers. Segments are merged in tiers, so every snapshot is only rewritten a logarithmic number of
+// times, and merges stream the snapshots of the segments instead of reading them all onto the heap.
+public class SegmentStore<V, E, L> implements Closeable {
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String LOG_FILE = "wal.log";
+    // Length and checksum of the payload.
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final GraphCodec<V, E, L> codec;
+    // Ordered on the first timestamp, the segments cover the timestamps without gaps or overlap.
+    private final List<Segment> segments;
+    // Snapshots in the log that are not yet in a segment.
+    private final List<LabeledGraph<V, E, L>> pending;
+    private final FileChannel log;
+    private final ExecutorService compactor;
+    private Future<?> compaction;
+    // Number of adjacent segments of the same tier that are merged.
+    private int compactionThreshold;
+    private int size;
+    private LabeledVersionGraph<V, E, L> lvg;
+
+    public SegmentStore(final String directory, final GraphCodec<V, E, L> codec) throws IOException {
+        Objects.requireNonNull(directory);
+        Objects.requireNonNull(codec);
+        this.directory = Files.createDirectories(Paths.get(directory));
+        this.codec = codec;
+        this.segments = new ArrayList<>();
+        this.pending = new ArrayList<>();
+        this.compactionThreshold = 8;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        VersionGraphBuilder<V, E, L> builder = new VersionGraphBuilder<>(codec.getGraphCreator());
+        this.recoverSegments(builder);
+        this.log = FileChannel.open(
+                this.directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.replayLog(builder);
+        if(this.size > 0) {
+            this.lvg = builder.build(codec.getLifespanSetFactory());
+        }
+    }
+
+    private void recoverSegments(VersionGraphBuilder<V, E, L> builder) throws IOException {
+        List<Segment> found = new ArrayList<>();
+        try(Stream<Path> files = Files.list(this.directory)) {
+            for(Path file: files.collect(Collectors.toList())) {
+                String name = file.getFileName().toString();
+                if(name.endsWith(TEMPORARY_SUFFIX)) {
+                    // Left behind by a flush or a compaction that did not finish.
+                    Files.delete(file);
+                } else if(name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    found.add(Segment.parse(name));
+                }
+            }
+        }
+        // Larger segments first, so segments that were compacted but not deleted are covered by their merge.
+        found.sort(Comparator.comparingInt((Segment segment) -> segment.first)
+                .thenComparing(Comparator.comparingInt((Segment segment) -> segment.count).reversed()));
+        for(Segment segment: found) {
+            if(segment.first + segment.count <= this.size) {
+                Files.delete(this.directory.resolve(segment.fileName()));
+            } else if(segment.first == this.size) {
+                LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg = this.readSegment(segment);
+                for(int i = 0; i < lhg.size(); i++) {
+                    builder.addSnapshot(lhg.get(i), segment.first + i);
+                }
+                this.segments.add(segment);
+                this.size += segment.count;
+            } else {
+                throw new IOException("Missing timestamps " + this.size + " until " + segment.first
+                        + " in " + this.directory);
+            }
+        }
+    }
+
+    // Replays the records after the last segment. A torn or corrupt record ends the log, it is cut off there.
+    private void replayLog(VersionGraphBuilder<V, E, L> builder) throws IOException {
+        long end = this.log.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        while(position + RECORD_HEADER_BYTES <= end) {
+            header.clear();
+            this.readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if(length < 0 || position + RECORD_HEADER_BYTES + length > end) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            this.readFully(payload, position + RECORD_HEADER_BYTES);
+            if(checksum(payload.array()) != checksum) {
+                break;
+            }
+            try(BinaryReader in = new BinaryReader(
+                    Channels.newChannel(new ByteArrayInputStream(payload.array())), false)) {
+                int timestamp = in.readVarInt();
+                LabeledGraph<V, E, L> snapshot = this.codec.readHistoryGraph(in).get(0);
+                if(timestamp > this.size) {
+                    throw new IOException("Missing timestamps " + this.size + " until " + timestamp
+                            + " in " + this.directory.resolve(LOG_FILE));
+                }
+                // Records before the size were already flushed to a segment before the log was emptied.
+                if(timestamp == this.size) {
+                    builder.addSnapshot(snapshot, timestamp);
+                    this.pending.add(snapshot);
+                    this.size++;
+                }
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        if(position < end) {
+            this.log.truncate(position);
+            this.log.force(true);
+        }
+        this.log.position(position);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = this.log.read(buffer, position);
+            if(read < 0) {
+                throw new IOException("Unexpected end of " + this.directory.resolve(LOG_FILE));
+            }
+            position += read;
+        }
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+
+    // Number of timestamps, including the snapshots that are only in the log.
+    public synchronized int getSize() {
+        return this.size;
+    }
+
+    // Null while the store is empty.
+    public synchronized LabeledVersionGraph<V, E, L> getVersionGraph() {
+        return this.lvg;
+    }
+
+    public synchronized int getSegmentCount() {
+        return this.segments.size();
+    }
+
+    public synchronized int getPendingCount() {
+        return this.pending.size();
+    }
+
+    public synchronized int getCompactionThreshold() {
+        return this.compactionThreshold;
+    }
+
+    // Flushing starts a compaction once there are this many adjacent segments of the same tier. Tier t holds the
+    // segments with at least threshold^t and less than threshold^(t + 1) snapshots.
+    public synchronized void setCompactionThreshold(int compactionThreshold) {
+        if(compactionThreshold < 2) {
+            throw new IllegalArgumentException("Expected a compaction threshold of at least 2");
+        }
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    // Logs the snapshot and adds it to the version graph as the next timestamp, which is returned.
+    // The snapshot is durable when this returns, it is kept by the store and should not change afterwards.
+    public synchronized int append(LabeledGraph<V, E, L> snapshot) throws IOException {
+        Objects.requireNonNull(snapshot);
+        int timestamp = this.size;
+        byte[] payload = this.encodeRecord(timestamp, snapshot);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+        record.putInt(payload.length);
+        record.putInt(checksum(payload));
+        record.put(payload);
+        record.flip();
+        while(record.hasRemaining()) {
+            this.log.write(record);
+        }
+        this.log.force(false);
+
+        this.pending.add(snapshot);
+        this.size++;
+        if(this.lvg == null) {
+            VersionGraphBuilder<V, E, L> builder = new VersionGraphBuilder<>(this.codec.getGraphCreator());
+            builder.addSnapshot(snapshot, timestamp);
+            this.lvg = builder.build(this.codec.getLifespanSetFactory());
+        } else {
+            this.lvg.appendSnapshot(snapshot);
+        }
+        return timestamp;
+    }
+
+    // Appends the snapshots and writes them as a single segment.
+    public synchronized void appendBatch(List<? extends LabeledGraph<V, E, L>> snapshots) throws IOException {
+        Objects.requireNonNull(snapshots);
+        for(LabeledGraph<V, E, L> snapshot: snapshots) {
+            this.append(snapshot);
+        }
+        this.flush();
+    }
+
+    private byte[] encodeRecord(int timestamp, LabeledGraph<V, E, L> snapshot) throws IOException {
+        LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg =
+                new LabeledHistoryGraph<>(this.codec.getGraphCreator());
+        lhg.add(snapshot);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(BinaryWriter out = new BinaryWriter(Channels.newChannel(bytes), false)) {
+            out.writeVarInt(timestamp);
+            this.codec.writeHistoryGraph(out, lhg);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Writes the logged snapshots as a new segment and empties the log.
+    public synchronized void flush() throws IOException {
+        if(this.pending.isEmpty()) {
+            return;
+        }
+        Segment segment = new Segment(this.size - this.pending.size(), this.pending.size());
+        LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg =
+                new LabeledHistoryGraph<>(this.codec.getGraphCreator());
+        lhg.addAll(this.pending);
+        this.writeSegment(segment, lhg);
+        this.segments.add(segment);
+        this.pending.clear();
+        this.log.truncate(0);
+        this.log.force(true);
+        if(this.nextMerge() != null) {
+            this.compactInBackground();
+        }
+    }
+
+    // Merges segments on the compactor thread until no tier has enough adjacent segments, unless a compaction is
+    // already running. A running compaction also merges the segments that are flushed while it runs.
+    public synchronized Future<?> compactInBackground() {
+        if(this.compaction == null || this.compaction.isDone()) {
+            this.compaction = this.compactor.submit(() -> {
+                this.compact();
+                return null;
+            });
+        }
+        return this.compaction;
+    }
+
+    // Only runs on the compactor thread, so only one merge runs at a time. Segments are immutable, so they are merged
+    // without holding the lock. Flushes only add segments at the end, the merged segments stay in place.
+    private void compact() throws IOException {
+        List<Segment> merged;
+        while((merged = this.nextMerge()) != null) {
+            List<String> filenames = new ArrayList<>();
+            int count = 0;
+            for(Segment segment: merged) {
+                filenames.add(this.directory.resolve(segment.fileName()).toString());
+                count += segment.count;
+            }
+            Segment segment = new Segment(merged.get(0).first, count);
+            Path temporary = this.directory.resolve(segment.fileName() + TEMPORARY_SUFFIX);
+            this.codec.concatenateHistoryGraphs(filenames, temporary.toString());
+            this.moveSegment(segment, temporary);
+            synchronized(this) {
+                int start = this.segments.indexOf(merged.get(0));
+                if(start < 0 || start + merged.size() > this.segments.size()
+                        || !this.segments.subList(start, start + merged.size()).equals(merged)) {
+                    throw new IllegalStateException("Segments changed during compaction");
+                }
+                this.segments.subList(start, start + merged.size()).clear();
+                this.segments.add(start, segment);
+            }
+            for(Segment old: merged) {
+                Files.deleteIfExists(this.directory.resolve(old.fileName()));
+            }
+        }
+    }
+
+    // The first run of threshold adjacent segments of the same tier, null if there is none.
+    private synchronized List<Segment> nextMerge() {
+        int start = 0;
+        for(int i = 1; i <= this.segments.size(); i++) {
+            if(i - start == this.compactionThreshold) {
+                return new ArrayList<>(this.segments.subList(start, i));
+            }
+            if(i < this.segments.size() && this.tier(this.segments.get(i)) != this.tier(this.segments.get(start))) {
+                start = i;
+            }
+        }
+        return null;
+    }
+
+    private int tier(Segment segment) {
+        int tier = 0;
+        for(long count = segment.count; count >= this.compactionThreshold; count /= this.compactionThreshold) {
+            tier++;
+        }
+        return tier;
+    }
+
+    private LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> readSegment(Segment segment) throws IOException {
+        String filename = this.directory.resolve(segment.fileName()).toString();
+        LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg = this.codec.readHistoryGraph(filename);
+        if(lhg.size() != segment.count) {
+            throw new IOException("Expected " + segment.count + " snapshots in " + filename);
+        }
+        return lhg;
+    }
+
+    private void writeSegment(
+            Segment segment,
+            LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg) throws IOException {
+        Path temporary = this.directory.resolve(segment.fileName() + TEMPORARY_SUFFIX);
+        this.codec.writeHistoryGraph(lhg, temporary.toString());
+        this.moveSegment(segment, temporary);
+    }
+
+    // Segments are written to a temporary file that is moved into place, so a segment is either complete or absent.
+    private void moveSegment(Segment segment, Path temporary) throws IOException {
+        Path target = this.directory.resolve(segment.fileName());
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        this.forceDirectory();
+    }
+
+    // Makes the rename durable. Not every platform can open a directory, the rename is still atomic there.
+    private void forceDirectory() {
+        try(FileChannel channel = FileChannel.open(this.directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Nothing to do.
+        }
+    }
+
+    // Waits for a running compaction, the logged snapshots stay in the log until the store is opened again.
+    @Override
+    public void close() throws IOException {
+        this.compactor.shutdown();
+        try {
+            this.compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.log.close();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "SegmentStore{" +
+                "directory=" + directory +
+                ", size=" + size +
+                ", segments=" + segments.size() +
+                ", pending=" + pending.size() +
+                '}';
+    }
+
+    // Snapshots first until first + count, the range is part of the file name.
+    private static final class Segment {
+        private final int first;
+        private final int count;
+
+        private Segment(int first, int count) {
+            this.first = first;
+            this.count = count;
+        }
+
+        private static Segment parse(String fileName) throws IOException {
+            String[] range = fileName
+                    .substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length())
+                    .split("-");
+            try {
+                return new Segment(Integer.parseInt(range[0]), Integer.parseInt(range[1]));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Unexpected segment file " + fileName, e);
+            }
+        }
+
+        private String fileName() {
+            return String.format("%s%010d-%010d%s", SEGMENT_PREFIX, this.first, this.count, SEGMENT_SUFFIX);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Segment segment = (Segment) o;
+
+            return first == segment.first && count == segment.count;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * first + count;
+        }
+    }
+}
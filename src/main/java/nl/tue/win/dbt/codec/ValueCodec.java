@@ -0,0 +1,62 @@
+package nl.tue.win.dbt.codec;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Objects;
+
+// Encodes the vertices and labels of a graph.
+public interface ValueCodec<T> extends Serializable {
+    void write(BinaryWriter out, T value) throws IOException;
+
+    T read(BinaryReader in) throws IOException;
+
+    class IntegerCodec implements ValueCodec<Integer>, Serializable {
+
+        @Override
+        public void write(BinaryWriter out, Integer value) throws IOException {
+            out.writeSignedVarInt(value);
+        }
+
+        @Override
+        public Integer read(BinaryReader in) throws IOException {
+            return in.readSignedVarInt();
+        }
+    }
+
+    class StringCodec implements ValueCodec<String>, Serializable {
+
+        @Override
+        public void write(BinaryWriter out, String value) throws IOException {
+            out.writeString(value);
+        }
+
+        @Override
+        public String read(BinaryReader in) throws IOException {
+            return in.readString();
+        }
+    }
+
+    class EnumCodec<T extends Enum<T>> implements ValueCodec<T>, Serializable {
+        private final Class<T> enumClass;
+
+        public EnumCodec(Class<T> enumClass) {
+            Objects.requireNonNull(enumClass);
+            this.enumClass = enumClass;
+        }
+
+        @Override
+        public void write(BinaryWriter out, T value) throws IOException {
+            out.writeVarInt(value.ordinal());
+        }
+
+        @Override
+        public T read(BinaryReader in) throws IOException {
+            int ordinal = in.readVarInt();
+            T[] constants = this.enumClass.getEnumConstants();
+            if(ordinal >= constants.length) {
+                throw new IOException("Unknown ordinal " + ordinal + " of " + this.enumClass.getName());
+            }
+            return constants[ordinal];
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package nl.tue.win.dbt.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Bounded pool of fixed-size pages of a read-only file. Pages are read on their first access and evicted with the
+// CLOCK algorithm once the pool is full: a page that was accessed since the hand passed it gets a second chance.
+// Hits, misses and evictions are counted so the pool can be sized for a workload.
+public class BufferPool implements Closeable {
+    private static final long NO_PAGE = -1;
+
+    private final FileChannel channel;
+    private final int pageSize;
+    private final ByteBuffer[] frames;
+    private final long[] pages;
+    private final boolean[] referenced;
+    // Page number to frame index of all pages in the pool.
+    private final Map<Long, Integer> frameIndices;
+    private int hand;
+    private int lastFrame;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public BufferPool(final Path path, final int pageSize, final int capacity) throws IOException {
+        Objects.requireNonNull(path);
+        if(pageSize <= 0 || pageSize % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Expected a positive page size that is a multiple of " + Long.BYTES);
+        }
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Expected a positive capacity");
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.pageSize = pageSize;
+        this.frames = new ByteBuffer[capacity];
+        this.pages = new long[capacity];
+        Arrays.fill(this.pages, NO_PAGE);
+        this.referenced = new boolean[capacity];
+        this.frameIndices = new HashMap<>();
+        this.hand = 0;
+        this.lastFrame = 0;
+    }
+
+    // Reads the int at the position, positions of ints are aligned so an int never crosses a page.
+    public synchronized int getInt(long position) {
+        ByteBuffer frame = this.frames[this.frameOf(position / this.pageSize)];
+        return frame.getInt((int) (position % this.pageSize));
+    }
+
+    private int frameOf(long page) {
+        // Consecutive accesses mostly hit the same page, e.g. the offsets and neighbors of a single vertex.
+        if(this.pages[this.lastFrame] == page) {
+            this.hits++;
+            this.referenced[this.lastFrame] = true;
+            return this.lastFrame;
+        }
+        Integer frame = this.frameIndices.get(page);
+        if(frame != null) {
+            this.hits++;
+        } else {
+            this.misses++;
+            frame = this.evict();
+            this.load(frame, page);
+        }
+        this.referenced[frame] = true;
+        this.lastFrame = frame;
+        return frame;
+    }
+
+    private int evict() {
+        while(true) {
+            int frame = this.hand;
+            this.hand = (this.hand + 1) % this.frames.length;
+            if(this.pages[frame] == NO_PAGE) {
+                return frame;
+            }
+            if(this.referenced[frame]) {
+                this.referenced[frame] = false;
+            } else {
+                this.frameIndices.remove(this.pages[frame]);
+                this.pages[frame] = NO_PAGE;
+                this.evictions++;
+                return frame;
+            }
+        }
+    }
+
+    private void load(int frame, long page) {
+        ByteBuffer buffer = this.frames[frame];
+        if(buffer == null) {
+            buffer = ByteBuffer.allocate(this.pageSize);
+            this.frames[frame] = buffer;
+        }
+        buffer.clear();
+        long position = page * this.pageSize;
+        try {
+            while(buffer.hasRemaining()) {
+                int read = this.channel.read(buffer, position + buffer.position());
+                if(read < 0) {
+                    // The last page of the file is not full.
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.pages[frame] = page;
+        this.frameIndices.put(page, frame);
+    }
+
+    public int getPageSize() {
+        return this.pageSize;
+    }
+
+    public int getCapacity() {
+        return this.frames.length;
+    }
+
+    public synchronized int getResidentPages() {
+        return this.frameIndices.size();
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    public synchronized double getHitRatio() {
+        long accesses = this.hits + this.misses;
+        return accesses == 0 ? 0 : (double) this.hits / accesses;
+    }
+
+    public synchronized void resetCounters() {
+        this.hits = 0;
+        this.misses = 0;
+        this.evictions = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BufferPool{" +
+                "pageSize=" + pageSize +
+                ", capacity=" + frames.length +
+                ", resident=" + frameIndices.size() +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
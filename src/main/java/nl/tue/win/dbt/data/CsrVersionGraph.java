@@ -0,0 +1,358 @@
+package nl.tue.win.dbt.data;
+
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.util.Graphs;
+
+import java.io.Serializable;
+import java.util.*;
+
+// Compressed sparse row representation of a labeled version graph.
+public class CsrVersionGraph<V, L> implements VersionGraph<V, L>, Serializable {
+    private static final LifespanSet[] NO_LABEL_LIFESPANS = new LifespanSet[0];
+
+    private final int size;
+    private final boolean directed;
+    private final IdDictionary<V> vertexDictionary;
+    private final IdDictionary<L> labelDictionary;
+    private final int labelCount;
+
+    private final LifespanSet[] vertexLifespans;
+    private final LifespanSet[][] labelLifespans;
+
+    // Neighbors of vertex v are neighbors[offsets[v]] until neighbors[offsets[v + 1]].
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final LifespanSet[] edgeLifespans;
+    // Union of the lifespans of the edges between every pair of vertex ids.
+    private final EdgeIndex edgeIndex;
+    // Incoming neighbors of directed graphs, laid out like the neighbors, null for undirected graphs.
+    private final int[] inOffsets;
+    private final int[] inNeighbors;
+    private final LifespanSet[] inEdgeLifespans;
+
+    public <E> CsrVersionGraph(final LabeledVersionGraph<V, E, L> lvg) {
+        this(lvg, lvg.getVertexDictionary(), lvg.getLabelDictionary());
+    }
+
+    // The dictionaries must assign the same ids as the dictionaries of lvg, for example copies of them.
+    // With copies, later changes to lvg do not change this graph.
+    public <E> CsrVersionGraph(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final IdDictionary<V> vertexDictionary,
+            final IdDictionary<L> labelDictionary) {
+        Objects.requireNonNull(lvg);
+        Objects.requireNonNull(vertexDictionary);
+        Objects.requireNonNull(labelDictionary);
+        if(!vertexDictionary.equals(lvg.getVertexDictionary()) || !labelDictionary.equals(lvg.getLabelDictionary())) {
+            throw new IllegalArgumentException("Expected dictionaries with the ids of the version graph");
+        }
+        this.size = lvg.getSize();
+        this.directed = Graphs.isDirected(lvg);
+        this.vertexDictionary = vertexDictionary;
+        this.labelDictionary = labelDictionary;
+        this.labelCount = this.labelDictionary.size();
+
+        int vertexCount = this.vertexDictionary.size();
+        this.vertexLifespans = new LifespanSet[vertexCount];
+        this.labelLifespans = new LifespanSet[vertexCount][];
+        this.offsets = new int[vertexCount + 1];
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            this.labelLifespans[vertexId] = NO_LABEL_LIFESPANS;
+            if(lvg.containsVertexId(vertexId)) {
+                V vertex = this.vertexDictionary.decode(vertexId);
+                this.vertexLifespans[vertexId] = lvg.vertexLifespanById(vertexId);
+                this.labelLifespans[vertexId] = this.copyLabelLifespans(lvg, vertexId);
+                this.offsets[vertexId + 1] = Graphs.getTraversableEdges(lvg, vertex).size();
+            }
+        }
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            this.offsets[vertexId + 1] += this.offsets[vertexId];
+        }
+
+        this.neighbors = new int[this.offsets[vertexCount]];
+        this.edgeLifespans = new LifespanSet[this.offsets[vertexCount]];
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            if(lvg.containsVertexId(vertexId)) {
+                this.fillNeighbors(lvg, vertexId);
+            }
+        }
+        this.edgeIndex = new EdgeIndex(this.neighbors.length);
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            for(int position = this.offsets[vertexId]; position < this.offsets[vertexId + 1]; position++) {
+                this.edgeIndex.put(vertexId, this.neighbors[position], this.edgeLifespans[position]);
+            }
+        }
+
+        if(this.directed) {
+            this.inOffsets = new int[vertexCount + 1];
+            this.inNeighbors = new int[this.neighbors.length];
+            this.inEdgeLifespans = new LifespanSet[this.neighbors.length];
+            this.fillInNeighbors();
+        } else {
+            this.inOffsets = null;
+            this.inNeighbors = null;
+            this.inEdgeLifespans = null;
+        }
+    }
+
+    // Shares the structure of the graph, the lifespans are copied so they can be replaced.
+    private CsrVersionGraph(final CsrVersionGraph<V, L> graph, final int size) {
+        this.size = size;
+        this.directed = graph.directed;
+        this.vertexDictionary = graph.vertexDictionary;
+        this.labelDictionary = graph.labelDictionary;
+        this.labelCount = graph.labelCount;
+        this.vertexLifespans = graph.vertexLifespans.clone();
+        this.labelLifespans = graph.labelLifespans.clone();
+        this.offsets = graph.offsets;
+        this.neighbors = graph.neighbors;
+        this.edgeLifespans = graph.edgeLifespans.clone();
+        this.edgeIndex = new EdgeIndex(graph.edgeIndex);
+        this.inOffsets = graph.inOffsets;
+        this.inNeighbors = graph.inNeighbors;
+        this.inEdgeLifespans = this.directed ? graph.inEdgeLifespans.clone() : null;
+    }
+
+    // Graph with the structure of this graph and the lifespans of lvg, after the snapshot was appended to lvg.
+    // The snapshot must only have vertices, labels and edges that lvg already had, then only the lifespans of the
+    // elements in the snapshot are looked up again, instead of building the graph from scratch.
+    public <E> CsrVersionGraph<V, L> withSnapshot(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final LabeledGraph<V, E, L> snapshot) {
+        Objects.requireNonNull(lvg);
+        Objects.requireNonNull(snapshot);
+        if(lvg.getSize() != this.size + 1) {
+            throw new IllegalArgumentException("Expected a version graph with one more timestamp");
+        }
+        CsrVersionGraph<V, L> graph = new CsrVersionGraph<>(this, lvg.getSize());
+        for(V vertex: snapshot.vertexSet()) {
+            int vertexId = this.vertexIdOf(vertex);
+            graph.vertexLifespans[vertexId] = lvg.vertexLifespanById(vertexId);
+            LifespanSet[] lifespans = graph.labelLifespans[vertexId].clone();
+            for(L label: snapshot.getLabels(vertex)) {
+                int labelId = this.labelDictionary.getId(label);
+                if(labelId == IdDictionary.NO_ID || labelId >= lifespans.length || lifespans[labelId] == null) {
+                    throw new IllegalArgumentException("Expected a snapshot without new labels");
+                }
+                lifespans[labelId] = lvg.labelLifespanById(vertexId, labelId);
+            }
+            graph.labelLifespans[vertexId] = lifespans;
+        }
+        for(E edge: snapshot.edgeSet()) {
+            V source = snapshot.getEdgeSource(edge);
+            V target = snapshot.getEdgeTarget(edge);
+            // Appending extends the first edge between the pair, which is the first position of the pair, since
+            // positions of the same neighbor keep the order of the edges.
+            LifespanSet lifespan = lvg.edgeLifespan(lvg.getEdge(source, target));
+            int sourceId = this.vertexIdOf(source);
+            int targetId = this.vertexIdOf(target);
+            graph.replaceEdgeLifespan(sourceId, targetId, lifespan);
+            if(!this.directed) {
+                graph.replaceEdgeLifespan(targetId, sourceId, lifespan);
+            } else {
+                int inPosition = firstPosition(this.inOffsets, this.inNeighbors, targetId, sourceId);
+                graph.inEdgeLifespans[inPosition] = lifespan;
+            }
+        }
+        return graph;
+    }
+
+    private int vertexIdOf(V vertex) {
+        int vertexId = this.vertexDictionary.getId(vertex);
+        if(!this.containsVertexId(vertexId)) {
+            throw new IllegalArgumentException("Expected a snapshot without new vertices");
+        }
+        return vertexId;
+    }
+
+    private void replaceEdgeLifespan(int sourceId, int targetId, LifespanSet lifespan) {
+        int position = firstPosition(this.offsets, this.neighbors, sourceId, targetId);
+        this.edgeLifespans[position] = lifespan;
+        LifespanSet union = lifespan;
+        for(int next = position + 1; next < this.offsets[sourceId + 1] && this.neighbors[next] == targetId; next++) {
+            union = union.or(this.edgeLifespans[next]);
+        }
+        this.edgeIndex.replace(sourceId, targetId, union);
+    }
+
+    // First position of the neighbor in the sorted neighbors of the vertex.
+    private static int firstPosition(int[] offsets, int[] neighbors, int vertexId, int neighbor) {
+        int low = offsets[vertexId];
+        int high = offsets[vertexId + 1];
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(neighbors[middle] < neighbor) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if(low == offsets[vertexId + 1] || neighbors[low] != neighbor) {
+            throw new IllegalArgumentException("Expected a snapshot without new edges");
+        }
+        return low;
+    }
+
+    // Transposes the neighbors, sources are visited in increasing order so incoming neighbors are sorted.
+    private void fillInNeighbors() {
+        int vertexCount = this.vertexLifespans.length;
+        for(int neighbor: this.neighbors) {
+            this.inOffsets[neighbor + 1]++;
+        }
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            this.inOffsets[vertexId + 1] += this.inOffsets[vertexId];
+        }
+        int[] next = Arrays.copyOf(this.inOffsets, vertexCount);
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            for(int position = this.offsets[vertexId]; position < this.offsets[vertexId + 1]; position++) {
+                int inPosition = next[this.neighbors[position]]++;
+                this.inNeighbors[inPosition] = vertexId;
+                this.inEdgeLifespans[inPosition] = this.edgeLifespans[position];
+            }
+        }
+    }
+
+    private LifespanSet[] copyLabelLifespans(LabeledVersionGraph<V, ?, L> lvg, int vertexId) {
+        LifespanSet[] lifespans = NO_LABEL_LIFESPANS;
+        for(int labelId = this.labelCount - 1; labelId >= 0; labelId--) {
+            LifespanSet lifespan = lvg.labelLifespanById(vertexId, labelId);
+            if(lifespan != null) {
+                if(lifespans.length == 0) {
+                    lifespans = new LifespanSet[labelId + 1];
+                }
+                lifespans[labelId] = lifespan;
+            }
+        }
+        return lifespans;
+    }
+
+    private <E> void fillNeighbors(LabeledVersionGraph<V, E, L> lvg, int vertexId) {
+        V vertex = this.vertexDictionary.decode(vertexId);
+        Set<E> edges = Graphs.getTraversableEdges(lvg, vertex);
+        // Sort on neighbor id, the lower half keeps track of the original position.
+        long[] order = new long[edges.size()];
+        LifespanSet[] lifespans = new LifespanSet[edges.size()];
+        int index = 0;
+        for(E edge: edges) {
+            int neighbor = this.vertexDictionary.getId(
+                    org.jgrapht.Graphs.getOppositeVertex(lvg, edge, vertex));
+            order[index] = ((long) neighbor << 32) | index;
+            lifespans[index] = lvg.edgeLifespan(edge);
+            index++;
+        }
+        Arrays.sort(order);
+        int offset = this.offsets[vertexId];
+        for(int i = 0; i < order.length; i++) {
+            this.neighbors[offset + i] = (int) (order[i] >>> 32);
+            this.edgeLifespans[offset + i] = lifespans[(int) order[i]];
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return this.directed;
+    }
+
+    @Override
+    public IdDictionary<V> getVertexDictionary() {
+        return this.vertexDictionary;
+    }
+
+    @Override
+    public IdDictionary<L> getLabelDictionary() {
+        return this.labelDictionary;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return this.vertexLifespans.length;
+    }
+
+    @Override
+    public int getLabelCount() {
+        return this.labelCount;
+    }
+
+    @Override
+    public boolean containsVertexId(int vertexId) {
+        return vertexId >= 0
+                && vertexId < this.vertexLifespans.length
+                && this.vertexLifespans[vertexId] != null;
+    }
+
+    @Override
+    public LifespanSet vertexLifespanById(int vertexId) {
+        return this.vertexLifespans[vertexId];
+    }
+
+    @Override
+    public LifespanSet labelLifespanById(int vertexId, int labelId) {
+        LifespanSet[] lifespans = this.labelLifespans[vertexId];
+        return labelId < lifespans.length ? lifespans[labelId] : null;
+    }
+
+    @Override
+    public int getOutDegree(int vertexId) {
+        return this.offsets[vertexId + 1] - this.offsets[vertexId];
+    }
+
+    @Override
+    public int getOutNeighbor(int vertexId, int index) {
+        return this.neighbors[this.offsets[vertexId] + index];
+    }
+
+    @Override
+    public LifespanSet outEdgeLifespan(int vertexId, int index) {
+        return this.edgeLifespans[this.offsets[vertexId] + index];
+    }
+
+    @Override
+    public LifespanSet edgeLifespanById(int sourceId, int targetId) {
+        return this.edgeIndex.getLifespan(sourceId, targetId);
+    }
+
+    @Override
+    public boolean hasIncomingNeighbors() {
+        return this.directed;
+    }
+
+    @Override
+    public int getInDegree(int vertexId) {
+        if(!this.directed) {
+            return VersionGraph.super.getInDegree(vertexId);
+        }
+        return this.inOffsets[vertexId + 1] - this.inOffsets[vertexId];
+    }
+
+    @Override
+    public int getInNeighbor(int vertexId, int index) {
+        if(!this.directed) {
+            return VersionGraph.super.getInNeighbor(vertexId, index);
+        }
+        return this.inNeighbors[this.inOffsets[vertexId] + index];
+    }
+
+    @Override
+    public LifespanSet inEdgeLifespan(int vertexId, int index) {
+        if(!this.directed) {
+            return VersionGraph.super.inEdgeLifespan(vertexId, index);
+        }
+        return this.inEdgeLifespans[this.inOffsets[vertexId] + index];
+    }
+
+    @Override
+    public String toString() {
+        return "CsrVersionGraph{" +
+                "size=" + size +
+                ", directed=" + directed +
+                ", vertices=" + vertexLifespans.length +
+                ", labels=" + labelCount +
+                ", adjacencies=" + neighbors.length +
+                '}';
+    }
+}
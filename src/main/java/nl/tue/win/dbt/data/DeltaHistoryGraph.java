@@ -0,0 +1,432 @@
+package nl.tue.win.dbt.data;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Consumer;
+
+// History graph that stores a full copy of every checkpointInterval-th snapshot and the vertices, edges and labels
+// that were added or removed for the snapshots in between. Snapshots are rebuilt from the closest checkpoint when
+// they are requested, so every call to get returns a new graph and changes to it are not stored.
+// Only appending snapshots is supported. Edges are identified by their endpoints and recreated when a snapshot
+// is rebuilt.
+public class DeltaHistoryGraph<V, E, L> extends LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L>
+        implements Serializable {
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 8;
+
+    private final int checkpointInterval;
+    // Checkpoint i is the snapshot at timestamp i * checkpointInterval.
+    private final List<LabeledGraph<V, E, L>> checkpoints;
+    // Delta i changes snapshot i - 1 into snapshot i, delta 0 is never used.
+    private final List<Delta<V, L>> deltas;
+    // Copy of the last snapshot to compute the next delta with, rebuilt when needed after deserialization.
+    private transient LabeledGraph<V, E, L> last;
+
+    public DeltaHistoryGraph(GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator) {
+        this(graphCreator, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    public DeltaHistoryGraph(GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator, int checkpointInterval) {
+        super(graphCreator);
+        if(checkpointInterval <= 0) {
+            throw new IllegalArgumentException("Expected a positive checkpoint interval");
+        }
+        this.checkpointInterval = checkpointInterval;
+        this.checkpoints = new ArrayList<>();
+        this.deltas = new ArrayList<>();
+        this.last = null;
+    }
+
+    public int getCheckpointInterval() {
+        return this.checkpointInterval;
+    }
+
+    @Override
+    public int size() {
+        return this.deltas.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.deltas.isEmpty();
+    }
+
+    @Override
+    public boolean add(LabeledGraph<V, E, L> graph) {
+        Objects.requireNonNull(graph);
+        int timestamp = this.size();
+        LabeledGraph<V, E, L> copy = this.copy(graph);
+        if(this.last == null && timestamp > 0) {
+            this.last = this.get(timestamp - 1);
+        }
+        if(this.last == null) {
+            this.deltas.add(new Delta<>());
+        } else {
+            this.deltas.add(new Delta<>(this.last, copy));
+        }
+        if(timestamp % this.checkpointInterval == 0) {
+            this.checkpoints.add(copy);
+        }
+        this.last = copy;
+        return true;
+    }
+
+    // The snapshot would be copied before it is filled.
+    @Override
+    public LabeledGraph<V, E, L> addGraph() {
+        throw new UnsupportedOperationException("Snapshots are copied when they are added");
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends LabeledGraph<V, E, L>> graphs) {
+        graphs.forEach(this::add);
+        return !graphs.isEmpty();
+    }
+
+    @Override
+    public void add(int index, LabeledGraph<V, E, L> graph) {
+        if(index != this.size()) {
+            throw new UnsupportedOperationException("Snapshots can only be appended");
+        }
+        this.add(graph);
+    }
+
+    @Override
+    public LabeledGraph<V, E, L> set(int index, LabeledGraph<V, E, L> graph) {
+        throw new UnsupportedOperationException("Snapshots can only be appended");
+    }
+
+    @Override
+    public LabeledGraph<V, E, L> remove(int index) {
+        throw new UnsupportedOperationException("Snapshots can only be appended");
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        throw new UnsupportedOperationException("Snapshots can only be appended");
+    }
+
+    @Override
+    public void clear() {
+        this.checkpoints.clear();
+        this.deltas.clear();
+        this.last = null;
+        this.clearIndex();
+    }
+
+    @Override
+    public LabeledGraph<V, E, L> get(int index) {
+        if(index < 0 || index >= this.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+        }
+        int checkpoint = index / this.checkpointInterval;
+        LabeledGraph<V, E, L> graph = this.copy(this.checkpoints.get(checkpoint));
+        for(int i = checkpoint * this.checkpointInterval + 1; i <= index; i++) {
+            this.deltas.get(i).apply(graph);
+        }
+        return graph;
+    }
+
+    // Rebuilds every snapshot from the previous one instead of from a checkpoint.
+    @Override
+    public Iterator<LabeledGraph<V, E, L>> iterator() {
+        return this.listIterator();
+    }
+
+    @Override
+    public ListIterator<LabeledGraph<V, E, L>> listIterator() {
+        return this.listIterator(0);
+    }
+
+    @Override
+    public ListIterator<LabeledGraph<V, E, L>> listIterator(int index) {
+        if(index < 0 || index > this.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return Collections.unmodifiableList(new SnapshotList()).listIterator(index);
+    }
+
+    @Override
+    public Spliterator<LabeledGraph<V, E, L>> spliterator() {
+        return Spliterators.spliterator(this.iterator(), this.size(), Spliterator.ORDERED);
+    }
+
+    @Override
+    public void forEach(Consumer<? super LabeledGraph<V, E, L>> action) {
+        this.iterator().forEachRemaining(action);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return new SnapshotList().toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a) {
+        return new SnapshotList().toArray(a);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return new SnapshotList().indexOf(o);
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return new SnapshotList().lastIndexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return this.indexOf(o) >= 0;
+    }
+
+    @Override
+    public List<LabeledGraph<V, E, L>> subList(int fromIndex, int toIndex) {
+        return Collections.unmodifiableList(new SnapshotList().subList(fromIndex, toIndex));
+    }
+
+    private LabeledGraph<V, E, L> copy(LabeledGraph<V, E, L> graph) {
+        LabeledGraph<V, E, L> copy = this.getGraphCreator().create();
+        for(V vertex: graph.vertexSet()) {
+            copy.addVertex(vertex);
+            copy.addAllLabels(vertex, graph.getLabels(vertex));
+        }
+        for(E edge: graph.edgeSet()) {
+            copy.addEdge(graph.getEdgeSource(edge), graph.getEdgeTarget(edge));
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        DeltaHistoryGraph<?, ?, ?> that = (DeltaHistoryGraph<?, ?, ?>) o;
+
+        if (checkpointInterval != that.checkpointInterval) return false;
+        if (!checkpoints.equals(that.checkpoints)) return false;
+        if (!deltas.equals(that.deltas)) return false;
+        return getGraphCreator().equals(that.getGraphCreator());
+    }
+
+    @Override
+    public int hashCode() {
+        int result = checkpointInterval;
+        result = 31 * result + checkpoints.hashCode();
+        result = 31 * result + deltas.hashCode();
+        result = 31 * result + getGraphCreator().hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DeltaHistoryGraph{" +
+                "size=" + size() +
+                ", checkpointInterval=" + checkpointInterval +
+                ", checkpoints=" + checkpoints.size() +
+                '}';
+    }
+
+    // Read only view that rebuilds the snapshots in order while iterating.
+    private final class SnapshotList extends AbstractSequentialList<LabeledGraph<V, E, L>> {
+        @Override
+        public int size() {
+            return DeltaHistoryGraph.this.size();
+        }
+
+        @Override
+        public ListIterator<LabeledGraph<V, E, L>> listIterator(int index) {
+            return new ListIterator<LabeledGraph<V, E, L>>() {
+                private int next = index;
+                // Private copy of the snapshot at next - 1, the next delta turns it into the next snapshot.
+                private LabeledGraph<V, E, L> previous = null;
+
+                @Override
+                public boolean hasNext() {
+                    return this.next < size();
+                }
+
+                @Override
+                public LabeledGraph<V, E, L> next() {
+                    if(!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    if(this.previous == null || this.next % checkpointInterval == 0) {
+                        this.previous = DeltaHistoryGraph.this.get(this.next);
+                    } else {
+                        deltas.get(this.next).apply(this.previous);
+                    }
+                    this.next++;
+                    return copy(this.previous);
+                }
+
+                @Override
+                public boolean hasPrevious() {
+                    return this.next > 0;
+                }
+
+                @Override
+                public LabeledGraph<V, E, L> previous() {
+                    if(!this.hasPrevious()) {
+                        throw new NoSuchElementException();
+                    }
+                    this.next--;
+                    this.previous = null;
+                    return DeltaHistoryGraph.this.get(this.next);
+                }
+
+                @Override
+                public int nextIndex() {
+                    return this.next;
+                }
+
+                @Override
+                public int previousIndex() {
+                    return this.next - 1;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void set(LabeledGraph<V, E, L> graph) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public void add(LabeledGraph<V, E, L> graph) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
+    // Changes between two consecutive snapshots. Edges are stored as source and target pairs.
+    private static final class Delta<V, L> implements Serializable {
+        private final List<V> addedVertices;
+        private final List<V> removedVertices;
+        private final List<V> addedEdges;
+        private final List<V> removedEdges;
+        private final List<V> addedLabelVertices;
+        private final List<L> addedLabels;
+        private final List<V> removedLabelVertices;
+        private final List<L> removedLabels;
+
+        private Delta() {
+            this.addedVertices = Collections.emptyList();
+            this.removedVertices = Collections.emptyList();
+            this.addedEdges = Collections.emptyList();
+            this.removedEdges = Collections.emptyList();
+            this.addedLabelVertices = Collections.emptyList();
+            this.addedLabels = Collections.emptyList();
+            this.removedLabelVertices = Collections.emptyList();
+            this.removedLabels = Collections.emptyList();
+        }
+
+        private <E> Delta(LabeledGraph<V, E, L> from, LabeledGraph<V, E, L> to) {
+            this.addedVertices = new ArrayList<>();
+            this.removedVertices = new ArrayList<>();
+            this.addedEdges = new ArrayList<>();
+            this.removedEdges = new ArrayList<>();
+            this.addedLabelVertices = new ArrayList<>();
+            this.addedLabels = new ArrayList<>();
+            this.removedLabelVertices = new ArrayList<>();
+            this.removedLabels = new ArrayList<>();
+            for(V vertex: from.vertexSet()) {
+                if(!to.containsVertex(vertex)) {
+                    this.removedVertices.add(vertex);
+                    continue;
+                }
+                for(L label: from.getLabels(vertex)) {
+                    if(!to.hasLabel(vertex, label)) {
+                        this.removedLabelVertices.add(vertex);
+                        this.removedLabels.add(label);
+                    }
+                }
+            }
+            for(V vertex: to.vertexSet()) {
+                if(!from.containsVertex(vertex)) {
+                    this.addedVertices.add(vertex);
+                }
+                for(L label: to.getLabels(vertex)) {
+                    if(!from.hasLabel(vertex, label)) {
+                        this.addedLabelVertices.add(vertex);
+                        this.addedLabels.add(label);
+                    }
+                }
+            }
+            V source;
+            V target;
+            for(E edge: from.edgeSet()) {
+                source = from.getEdgeSource(edge);
+                target = from.getEdgeTarget(edge);
+                // Edges of removed vertices are removed together with the vertex.
+                if(to.containsVertex(source) && to.containsVertex(target) && !to.containsEdge(source, target)) {
+                    this.removedEdges.add(source);
+                    this.removedEdges.add(target);
+                }
+            }
+            for(E edge: to.edgeSet()) {
+                source = to.getEdgeSource(edge);
+                target = to.getEdgeTarget(edge);
+                if(!from.containsEdge(source, target)) {
+                    this.addedEdges.add(source);
+                    this.addedEdges.add(target);
+                }
+            }
+        }
+
+        private <E> void apply(LabeledGraph<V, E, L> graph) {
+            for(int i = 0; i < this.removedEdges.size(); i += 2) {
+                graph.removeEdge(this.removedEdges.get(i), this.removedEdges.get(i + 1));
+            }
+            for(int i = 0; i < this.removedLabels.size(); i++) {
+                graph.removeLabel(this.removedLabelVertices.get(i), this.removedLabels.get(i));
+            }
+            for(V vertex: this.removedVertices) {
+                graph.removeAllLabels(vertex);
+                graph.removeVertex(vertex);
+            }
+            this.addedVertices.forEach(graph::addVertex);
+            for(int i = 0; i < this.addedLabels.size(); i++) {
+                graph.addLabel(this.addedLabelVertices.get(i), this.addedLabels.get(i));
+            }
+            for(int i = 0; i < this.addedEdges.size(); i += 2) {
+                graph.addEdge(this.addedEdges.get(i), this.addedEdges.get(i + 1));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Delta<?, ?> delta = (Delta<?, ?>) o;
+
+            if (!addedVertices.equals(delta.addedVertices)) return false;
+            if (!removedVertices.equals(delta.removedVertices)) return false;
+            if (!addedEdges.equals(delta.addedEdges)) return false;
+            if (!removedEdges.equals(delta.removedEdges)) return false;
+            if (!addedLabelVertices.equals(delta.addedLabelVertices)) return false;
+            if (!addedLabels.equals(delta.addedLabels)) return false;
+            if (!removedLabelVertices.equals(delta.removedLabelVertices)) return false;
+            return removedLabels.equals(delta.removedLabels);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = addedVertices.hashCode();
+            result = 31 * result + removedVertices.hashCode();
+            result = 31 * result + addedEdges.hashCode();
+            result = 31 * result + removedEdges.hashCode();
+            result = 31 * result + addedLabelVertices.hashCode();
+            result = 31 * result + addedLabels.hashCode();
+            result = 31 * result + removedLabelVertices.hashCode();
+            result = 31 * result + removedLabels.hashCode();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package nl.tue.win.dbt.data;
+
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+
+import java.io.Serializable;
+import java.util.*;
+
+// Open addressing hash table from a (source id, target id) pair to the union of the lifespans of the edges between
+// them. The pair is packed in a single long, so a lookup never touches vertex or edge objects.
+// Multiple edges between the same pair are treated as one edge, like the search does, so only their union is kept.
+public class EdgeIndex implements Serializable {
+    private static final long EMPTY = -1L;
+    private static final long FIBONACCI = 0x9E3779B97F4A7C15L;
+
+    private final long[] keys;
+    private final LifespanSet[] lifespans;
+    private final int shift;
+    private int pairCount;
+
+    // The table never grows, expectedPairs bounds the number of distinct pairs that can be added.
+    public EdgeIndex(final int expectedPairs) {
+        if(expectedPairs < 0) {
+            throw new IllegalArgumentException("Expected a non-negative number of pairs");
+        }
+        // Keep the load factor at or below one half.
+        int capacity = Integer.highestOneBit(Math.max(2 * expectedPairs, 1) * 2 - 1);
+        this.keys = new long[capacity];
+        Arrays.fill(this.keys, EMPTY);
+        this.lifespans = new LifespanSet[capacity];
+        this.shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        this.pairCount = 0;
+    }
+
+    // Copy with the same pairs, lifespans can be replaced without changing the original.
+    public EdgeIndex(final EdgeIndex index) {
+        Objects.requireNonNull(index);
+        this.keys = index.keys.clone();
+        this.lifespans = index.lifespans.clone();
+        this.shift = index.shift;
+        this.pairCount = index.pairCount;
+    }
+
+    private static long pack(int sourceId, int targetId) {
+        return ((long) sourceId << 32) | (targetId & 0xFFFFFFFFL);
+    }
+
+    // Slot of the pair, or the empty slot where it would be added.
+    private int probe(long key) {
+        int mask = this.keys.length - 1;
+        int slot = this.shift == Long.SIZE ? 0 : (int) ((key * FIBONACCI) >>> this.shift);
+        while(this.keys[slot] != key && this.keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    public void put(int sourceId, int targetId, LifespanSet lifespan) {
+        Objects.requireNonNull(lifespan);
+        if(sourceId < 0 || targetId < 0) {
+            throw new IllegalArgumentException("Expected non-negative vertex ids");
+        }
+        long key = pack(sourceId, targetId);
+        int slot = this.probe(key);
+        if(this.keys[slot] == EMPTY) {
+            if(2 * (this.pairCount + 1) > this.keys.length) {
+                throw new IllegalStateException("Expected at most " + this.keys.length / 2 + " pairs");
+            }
+            this.keys[slot] = key;
+            this.lifespans[slot] = lifespan;
+            this.pairCount++;
+        } else {
+            // Multiple edges, the pair is connected whenever one of them is alive.
+            this.lifespans[slot] = this.lifespans[slot].or(lifespan);
+        }
+    }
+
+    // Replaces the union of the lifespans of a pair that is in the index.
+    public void replace(int sourceId, int targetId, LifespanSet lifespan) {
+        Objects.requireNonNull(lifespan);
+        int slot = this.probe(pack(sourceId, targetId));
+        if(this.keys[slot] == EMPTY) {
+            throw new IllegalArgumentException("Expected a pair in the index");
+        }
+        this.lifespans[slot] = lifespan;
+    }
+
+    // Union of the lifespans of all edges between the pair, null if there is no such edge.
+    public LifespanSet getLifespan(int sourceId, int targetId) {
+        int slot = this.probe(pack(sourceId, targetId));
+        return this.keys[slot] == EMPTY ? null : this.lifespans[slot];
+    }
+
+    public int getPairCount() {
+        return this.pairCount;
+    }
+
+    @Override
+    public String toString() {
+        return "EdgeIndex{" +
+                "capacity=" + keys.length +
+                ", pairs=" + pairCount +
+                '}';
+    }
+}
@@ -10,12 +10,22 @@ import java.util.Set;
 
 public class GraphDecorator<V, E> implements Graph<V,E>, Serializable {
     private final Graph<V, E> impl;
+    // Number of changes made through the decorator, changes made to impl directly are not counted.
+    private transient int modCount;
 
     public GraphDecorator(Graph<V, E> impl) {
         Objects.requireNonNull(impl);
         this.impl = impl;
     }
 
+    public int getModCount() {
+        return this.modCount;
+    }
+
+    protected final void modified() {
+        this.modCount++;
+    }
+
     public Graph<V, E> getImpl() {
         return this.impl;
     }
@@ -45,17 +55,29 @@ public class GraphDecorator<V, E> implements Graph<V,E>, Serializable {
 
     @Override
     public E addEdge(V v, V v1) {
-        return impl.addEdge(v, v1);
+        E edge = impl.addEdge(v, v1);
+        if(edge != null) {
+            this.modified();
+        }
+        return edge;
     }
 
     @Override
     public boolean addEdge(V v, V v1, E e) {
-        return impl.addEdge(v, v1, e);
+        boolean modified = impl.addEdge(v, v1, e);
+        if(modified) {
+            this.modified();
+        }
+        return modified;
     }
 
     @Override
     public boolean addVertex(V v) {
-        return impl.addVertex(v);
+        boolean modified = impl.addVertex(v);
+        if(modified) {
+            this.modified();
+        }
+        return modified;
     }
 
     @Override
@@ -85,32 +107,56 @@ public class GraphDecorator<V, E> implements Graph<V,E>, Serializable {
 
     @Override
     public boolean removeAllEdges(Collection<? extends E> collection) {
-        return impl.removeAllEdges(collection);
+        boolean modified = impl.removeAllEdges(collection);
+        if(modified) {
+            this.modified();
+        }
+        return modified;
     }
 
     @Override
     public Set<E> removeAllEdges(V v, V v1) {
-        return impl.removeAllEdges(v, v1);
+        Set<E> edges = impl.removeAllEdges(v, v1);
+        if(edges != null && !edges.isEmpty()) {
+            this.modified();
+        }
+        return edges;
     }
 
     @Override
     public boolean removeAllVertices(Collection<? extends V> collection) {
-        return impl.removeAllVertices(collection);
+        boolean modified = impl.removeAllVertices(collection);
+        if(modified) {
+            this.modified();
+        }
+        return modified;
     }
 
     @Override
     public E removeEdge(V v, V v1) {
-        return impl.removeEdge(v, v1);
+        E edge = impl.removeEdge(v, v1);
+        if(edge != null) {
+            this.modified();
+        }
+        return edge;
     }
 
     @Override
     public boolean removeEdge(E e) {
-        return impl.removeEdge(e);
+        boolean modified = impl.removeEdge(e);
+        if(modified) {
+            this.modified();
+        }
+        return modified;
     }
 
     @Override
     public boolean removeVertex(V v) {
-        return impl.removeVertex(v);
+        boolean modified = impl.removeVertex(v);
+        if(modified) {
+            this.modified();
+        }
+        return modified;
     }
 
     @Override
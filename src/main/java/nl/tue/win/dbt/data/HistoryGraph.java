@@ -7,9 +7,7 @@ import org.jgrapht.Graph;
 import org.jgrapht.Graphs;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Objects;
-import java.util.Set;
+import java.util.*;
 import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
@@ -17,14 +15,113 @@ public class HistoryGraph<G extends Graph<V, E>, V, E> extends ArrayList<G> impl
 
     private final GraphCreator<G, V, E> graphCreator;
 
+    // Union of the snapshots with the timestamps at which every vertex and edge is present. Snapshots are indexed
+    // when the index is used, appended snapshots are added to it and any other change rebuilds it, also a change
+    // to a snapshot that was indexed already, like a snapshot of addGraph() that is filled in afterwards.
+    private transient Map<V, BitSet> vertexIndex;
+    private transient Map<E, BitSet> edgeIndex;
+    private transient Map<V, Set<E>> incidentEdgeIndex;
+    private transient int indexedGraphs;
+    private transient int indexedModCount;
+    // Modification stamps of the indexed snapshots when they were indexed.
+    private transient List<Integer> indexedStamps;
+
     public HistoryGraph(GraphCreator<G, V, E> graphCreator) {
         Objects.requireNonNull(graphCreator);
         this.graphCreator = graphCreator;
     }
 
+    @Override
+    public boolean add(G graph) {
+        boolean indexed = this.isIndexed();
+        super.add(graph);
+        if(indexed) {
+            // The new snapshot is the only one that is not indexed yet.
+            this.indexedModCount = this.modCount;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends G> graphs) {
+        boolean indexed = this.isIndexed();
+        boolean modified = super.addAll(graphs);
+        if(indexed) {
+            this.indexedModCount = this.modCount;
+        }
+        return modified;
+    }
+
+    @Override
+    public G set(int index, G graph) {
+        G previous = super.set(index, graph);
+        this.clearIndex();
+        return previous;
+    }
+
+    private boolean isIndexed() {
+        if(this.vertexIndex == null || this.indexedModCount != this.modCount) {
+            return false;
+        }
+        for(int timestamp = 0; timestamp < this.indexedStamps.size(); timestamp++) {
+            if(this.modificationStamp(this.get(timestamp)) != this.indexedStamps.get(timestamp)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Changes whenever the snapshot changes. Snapshots that are no GraphDecorator count their vertices and edges,
+    // so changes that keep both counts are not seen for them.
+    protected int modificationStamp(G graph) {
+        if(graph instanceof GraphDecorator) {
+            return ((GraphDecorator<?, ?>) graph).getModCount();
+        }
+        return 31 * graph.vertexSet().size() + graph.edgeSet().size();
+    }
+
+    protected final void updateIndex() {
+        if(!this.isIndexed()) {
+            this.clearIndex();
+            this.vertexIndex = new LinkedHashMap<>();
+            this.edgeIndex = new LinkedHashMap<>();
+            this.incidentEdgeIndex = new HashMap<>();
+            this.indexedGraphs = 0;
+            this.indexedStamps = new ArrayList<>();
+        }
+        for(; this.indexedGraphs < this.size(); this.indexedGraphs++) {
+            G graph = this.get(this.indexedGraphs);
+            this.indexGraph(graph, this.indexedGraphs);
+            this.indexedStamps.add(this.modificationStamp(graph));
+        }
+        this.indexedModCount = this.modCount;
+    }
+
+    protected void indexGraph(G graph, int timestamp) {
+        for(V vertex: graph.vertexSet()) {
+            this.vertexIndex.computeIfAbsent(vertex, v -> new BitSet()).set(timestamp);
+        }
+        for(E edge: graph.edgeSet()) {
+            this.edgeIndex.computeIfAbsent(edge, e -> new BitSet()).set(timestamp);
+            this.incidentEdgeIndex.computeIfAbsent(graph.getEdgeSource(edge), v -> new HashSet<>()).add(edge);
+            this.incidentEdgeIndex.computeIfAbsent(graph.getEdgeTarget(edge), v -> new HashSet<>()).add(edge);
+        }
+    }
+
+    protected void clearIndex() {
+        this.vertexIndex = null;
+        this.edgeIndex = null;
+        this.incidentEdgeIndex = null;
+        this.indexedStamps = null;
+    }
+
+    protected final RangeSet<Integer> toLifespan(BitSet timestamps) {
+        return timestamps == null ? TreeRangeSet.create() : this.createLifespan(timestamps::get);
+    }
+
     public boolean containsEdge(E edge) {
-        return this.stream()
-                .anyMatch(g -> g.containsEdge(edge));
+        this.updateIndex();
+        return this.edgeIndex.containsKey(edge);
     }
 
     public boolean containsEdge(V sourceVertex, V targetVertex) {
@@ -33,20 +130,18 @@ public class HistoryGraph<G extends Graph<V, E>, V, E> extends ArrayList<G> impl
     }
 
     public boolean containsVertex(V vertex) {
-        return this.stream()
-                .anyMatch(g -> g.containsVertex(vertex));
+        this.updateIndex();
+        return this.vertexIndex.containsKey(vertex);
     }
 
     public Set<E> edgeSet() {
-        return this.stream()
-                .flatMap(g -> g.edgeSet().stream())
-                .collect(Collectors.toSet());
+        this.updateIndex();
+        return Collections.unmodifiableSet(this.edgeIndex.keySet());
     }
 
     public Set<E> edgesOf(V vertex) {
-        return this.stream()
-                .flatMap(g -> g.edgesOf(vertex).stream())
-                .collect(Collectors.toSet());
+        this.updateIndex();
+        return Collections.unmodifiableSet(this.incidentEdgeIndex.getOrDefault(vertex, Collections.emptySet()));
     }
 
     public Set<E> getAllEdges(V sourceVertex, V targetVertex) {
@@ -56,9 +151,8 @@ public class HistoryGraph<G extends Graph<V, E>, V, E> extends ArrayList<G> impl
     }
 
     public Set<V> vertexSet() {
-        return this.stream()
-                .flatMap(g -> g.vertexSet().stream())
-                .collect(Collectors.toSet());
+        this.updateIndex();
+        return Collections.unmodifiableSet(this.vertexIndex.keySet());
     }
 
     public E getEdge(V sourceVertex, V targetVertex) {
@@ -127,7 +221,8 @@ public class HistoryGraph<G extends Graph<V, E>, V, E> extends ArrayList<G> impl
     }
 
     public RangeSet<Integer> vertexLifespan(V vertex) {
-        return createLifespan(i -> this.getGraph(i).containsVertex(vertex));
+        this.updateIndex();
+        return this.toLifespan(this.vertexIndex.get(vertex));
     }
 
     public RangeSet<Integer> edgeLifespan(E edge) {
@@ -0,0 +1,82 @@
+package nl.tue.win.dbt.data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Maps values to dense ids 0..size()-1 in order of first encounter.
+public class IdDictionary<T> implements Serializable {
+    public static final int NO_ID = -1;
+
+    private final Map<T, Integer> ids;
+    private final List<T> values;
+
+    public IdDictionary() {
+        this.ids = new HashMap<>();
+        this.values = new ArrayList<>();
+    }
+
+    public IdDictionary(Iterable<? extends T> values) {
+        this();
+        Objects.requireNonNull(values);
+        values.forEach(this::encode);
+    }
+
+    public int encode(T value) {
+        Objects.requireNonNull(value);
+        Integer id = this.ids.get(value);
+        if(id == null) {
+            id = this.values.size();
+            this.ids.put(value, id);
+            this.values.add(value);
+        }
+        return id;
+    }
+
+    public int getId(T value) {
+        Integer id = this.ids.get(value);
+        return id == null ? NO_ID : id;
+    }
+
+    public T decode(int id) {
+        return this.values.get(id);
+    }
+
+    public boolean contains(T value) {
+        return this.ids.containsKey(value);
+    }
+
+    public int size() {
+        return this.values.size();
+    }
+
+    public List<T> values() {
+        return Collections.unmodifiableList(this.values);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IdDictionary)) return false;
+
+        IdDictionary<?> that = (IdDictionary<?>) o;
+
+        return values().equals(that.values());
+    }
+
+    @Override
+    public int hashCode() {
+        return values().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "IdDictionary{" +
+                "size=" + size() +
+                '}';
+    }
+}
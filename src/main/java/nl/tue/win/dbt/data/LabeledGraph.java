@@ -29,11 +29,21 @@ public class LabeledGraph<V, E, L> extends GraphDecorator<V, E> implements Graph
         this.labelsMap = HashMultimap.create(labeledGraph.labelsMap);
     }
 
+    // Shares the labeled vertex graph creator of labeledGraph, but none of its labels.
+    protected LabeledGraph(Graph<V, E> graph, LabeledGraph<V, E, L> labeledGraph) {
+        super(graph);
+        this.graphCreator = labeledGraph.graphCreator;
+        this.labelsMap = HashMultimap.create();
+    }
+
     public boolean addLabel(V vertex, L label) {
         boolean modified = false;
         if(this.containsVertex(vertex)) {
             modified = this.labelsMap.put(vertex, label);
         }
+        if(modified) {
+            this.modified();
+        }
         return modified;
     }
 
@@ -43,18 +53,32 @@ public class LabeledGraph<V, E, L> extends GraphDecorator<V, E> implements Graph
         if(this.containsVertex(vertex)) {
             modified = this.labelsMap.putAll(vertex, labels);
         }
+        if(modified) {
+            this.modified();
+        }
         return modified;
     }
 
     public boolean removeLabel(V vertex, L label) {
-        return this.labelsMap.remove(vertex, label);
+        boolean modified = this.labelsMap.remove(vertex, label);
+        if(modified) {
+            this.modified();
+        }
+        return modified;
     }
 
     public Set<L> removeAllLabels(V vertex) {
-        return this.labelsMap.removeAll(vertex);
+        Set<L> labels = this.labelsMap.removeAll(vertex);
+        if(!labels.isEmpty()) {
+            this.modified();
+        }
+        return labels;
     }
 
     public void removeAllLabels() {
+        if(!this.labelsMap.isEmpty()) {
+            this.modified();
+        }
         this.labelsMap.clear();
     }
 
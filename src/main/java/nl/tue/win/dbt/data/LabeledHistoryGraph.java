@@ -3,26 +3,58 @@ package nl.tue.win.dbt.data;
 import com.google.common.collect.RangeSet;
 
 import java.io.Serializable;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.*;
 
 public class LabeledHistoryGraph <G extends LabeledGraph<V, E, L>, V, E, L> extends HistoryGraph<G, V, E>  implements Serializable {
+    // Timestamps at which every label is present, in total and per vertex. Maintained together with the
+    // indices of the history graph.
+    private transient Map<L, BitSet> labelIndex;
+    private transient Map<V, Map<L, BitSet>> vertexLabelIndex;
+
     public LabeledHistoryGraph(GraphCreator<G, V, E> graphCreator) {
         super(graphCreator);
     }
 
+    @Override
+    protected void indexGraph(G graph, int timestamp) {
+        super.indexGraph(graph, timestamp);
+        if(this.labelIndex == null) {
+            this.labelIndex = new LinkedHashMap<>();
+            this.vertexLabelIndex = new HashMap<>();
+        }
+        for(V vertex: graph.vertexSet()) {
+            for(L label: graph.getLabels(vertex)) {
+                this.labelIndex.computeIfAbsent(label, l -> new BitSet()).set(timestamp);
+                this.vertexLabelIndex.computeIfAbsent(vertex, v -> new HashMap<>())
+                        .computeIfAbsent(label, l -> new BitSet())
+                        .set(timestamp);
+            }
+        }
+    }
+
+    @Override
+    protected void clearIndex() {
+        super.clearIndex();
+        this.labelIndex = null;
+        this.vertexLabelIndex = null;
+    }
+
     public RangeSet<Integer> labelLifespan(L label) {
-        return this.createLifespan(i -> this.getGraph(i).hasLabel(label));
+        this.updateIndex();
+        return this.toLifespan(this.labelIndex == null ? null : this.labelIndex.get(label));
     }
 
     public RangeSet<Integer> labelLifespan(V vertex, L label) {
-        return this.createLifespan(i -> this.getGraph(i).hasLabel(vertex, label));
+        this.updateIndex();
+        Map<L, BitSet> vertexLabels = this.vertexLabelIndex == null ? null : this.vertexLabelIndex.get(vertex);
+        return this.toLifespan(vertexLabels == null ? null : vertexLabels.get(label));
     }
 
     public Set<L> labelSet() {
-        return this.stream()
-                .flatMap(g -> g.labelSet().stream())
-                .collect(Collectors.toSet());
+        this.updateIndex();
+        return this.labelIndex == null
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(this.labelIndex.keySet());
     }
 
     @Override
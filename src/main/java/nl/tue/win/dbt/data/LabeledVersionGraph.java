@@ -1,206 +1,440 @@
 package nl.tue.win.dbt.data;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.RangeSet;
-import com.google.common.collect.Table;
-import nl.tue.win.dbt.util.IntegerRangeSets;
+import nl.tue.win.dbt.data.lifespans.LifespanPool;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
 
 import java.io.Serializable;
 import java.util.*;
-import java.util.function.Function;
 
 public class LabeledVersionGraph<V, E, L> extends LabeledGraph<V, E, L> implements Serializable {
-    private final int size;
+    private static final LifespanSet[] NO_LABEL_LIFESPANS = new LifespanSet[0];
 
-    private final Map<V, BitSet> vertexLifespans;
-    private final Map<E, BitSet> edgeLifespans;
-    private final Table<V, L, BitSet> labelLifespans;
+    private int size;
+    private final LifespanSetFactory lifespanSetFactory;
+    // Equal lifespans share a single instance, lifespans that appending replaced are dropped from the pool.
+    private final LifespanPool lifespanPool;
+
+    private final IdDictionary<V> vertexDictionary;
+    private final IdDictionary<L> labelDictionary;
+
+    // Indexed by vertex id, vertex ids are indices of vertexDictionary.
+    private final List<LifespanSet> vertexLifespans;
+    private final Map<E, LifespanSet> edgeLifespans;
+    // Indexed by vertex id and then by label id.
+    private final List<LifespanSet[]> labelLifespans;
 
     public LabeledVersionGraph(int size) {
+        this(size, new LifespanSetFactory.ContainerFactory());
+    }
+
+    public LabeledVersionGraph(int size, LifespanSetFactory lifespanSetFactory) {
         super(null); // TODO
         if(size <= 0) {
             throw new IllegalArgumentException("An LVG requires a positive size");
         }
+        Objects.requireNonNull(lifespanSetFactory);
         this.size = size;
-        this.vertexLifespans = new HashMap<>();
+        this.lifespanSetFactory = lifespanSetFactory;
+        this.lifespanPool = new LifespanPool();
+        this.vertexDictionary = new IdDictionary<>();
+        this.labelDictionary = new IdDictionary<>();
+        this.vertexLifespans = new ArrayList<>();
         this.edgeLifespans = new HashMap<>();
-        this.labelLifespans = HashBasedTable.create();
+        this.labelLifespans = new ArrayList<>();
     }
 
     public <G extends LabeledGraph<V, E, L>> LabeledVersionGraph(
             final LabeledHistoryGraph<G, V, E, L> historyGraph) {
-        super(historyGraph.flatten());
-        this.size = historyGraph.size();
+        this(historyGraph, new LifespanSetFactory.ContainerFactory());
+    }
 
-        this.vertexLifespans = new HashMap<>();
-        this.initMapLifespans(
-                this.vertexLifespans,
-                super.vertexSet(),
-                historyGraph::vertexLifespan);
+    public <G extends LabeledGraph<V, E, L>> LabeledVersionGraph(
+            final LabeledHistoryGraph<G, V, E, L> historyGraph,
+            final LifespanSetFactory lifespanSetFactory) {
+        this(historyGraph, lifespanSetFactory, new VertexOrder.InsertionOrder());
+    }
 
-        this.edgeLifespans = new HashMap<>();
-        this.initMapLifespans(
-                this.edgeLifespans,
-                super.edgeSet(),
-                historyGraph::edgeLifespan);
-
-        this.labelLifespans = HashBasedTable.create();
-        RangeSet<Integer> lifespan;
-        BitSet bs;
-        for(V vertex: this.vertexSet()) {
+    // Vertex ids are assigned in the given order.
+    public <G extends LabeledGraph<V, E, L>> LabeledVersionGraph(
+            final LabeledHistoryGraph<G, V, E, L> historyGraph,
+            final LifespanSetFactory lifespanSetFactory,
+            final VertexOrder vertexOrder) {
+        this(VersionGraphBuilder.of(historyGraph), lifespanSetFactory, vertexOrder);
+    }
+
+    LabeledVersionGraph(
+            final VersionGraphBuilder<V, E, L> builder,
+            final LifespanSetFactory lifespanSetFactory,
+            final VertexOrder vertexOrder) {
+        super(builder.createGraph());
+        if(builder.getSize() <= 0) {
+            throw new IllegalArgumentException("An LVG requires a positive size");
+        }
+        Objects.requireNonNull(lifespanSetFactory);
+        Objects.requireNonNull(vertexOrder);
+        this.size = builder.getSize();
+        this.lifespanSetFactory = lifespanSetFactory;
+        this.lifespanPool = new LifespanPool();
+        this.vertexDictionary = new IdDictionary<>(vertexOrder.order(this.getImpl()));
+        if(this.vertexDictionary.size() != super.vertexSet().size()
+                || !super.vertexSet().containsAll(this.vertexDictionary.values())) {
+            throw new IllegalArgumentException("Expected an order of every vertex");
+        }
+        this.labelDictionary = new IdDictionary<>(super.labelSet());
+
+        this.vertexLifespans = new ArrayList<>(this.vertexDictionary.size());
+        this.labelLifespans = new ArrayList<>(this.vertexDictionary.size());
+        for(V vertex: this.vertexDictionary.values()) {
+            this.vertexLifespans.add(this.toLifespan(builder.vertexTimestamps(vertex)));
+            this.labelLifespans.add(NO_LABEL_LIFESPANS);
             for(L label: this.getLabels(vertex)) {
-                lifespan = historyGraph.labelLifespan(vertex, label);
-                bs = IntegerRangeSets.toBitSet(lifespan, this.size);
-                this.labelLifespans.put(vertex, label, bs);
+                this.putLabelLifespan(vertex, label, this.toLifespan(builder.labelTimestamps(vertex, label)));
             }
         }
+
+        this.edgeLifespans = new HashMap<>();
+        for(Map.Entry<E, BitSet> entry: builder.edgeTimestamps(this).entrySet()) {
+            this.edgeLifespans.put(entry.getKey(), this.toLifespan(entry.getValue()));
+        }
     }
 
-    protected final <T> void initMapLifespans(
-            final Map<T, BitSet> lifespans,
-            final Set<T> data,
-            final Function<T, RangeSet<Integer>> mapper) {
-        RangeSet<Integer> lifespan;
-        BitSet bs;
-        for(T t: data) {
-            lifespan = mapper.apply(t);
-            bs = IntegerRangeSets.toBitSet(lifespan, this.size);
-            lifespans.put(t, bs);
+    // Version graph on an already flattened graph in which every lifespan is empty.
+    // The dictionaries fix the ids of the vertices and labels, missing values are added to them.
+    public LabeledVersionGraph(
+            final LabeledGraph<V, E, L> graph,
+            final int size,
+            final IdDictionary<V> vertexDictionary,
+            final IdDictionary<L> labelDictionary,
+            final LifespanSetFactory lifespanSetFactory) {
+        super(graph);
+        if(size <= 0) {
+            throw new IllegalArgumentException("An LVG requires a positive size");
+        }
+        Objects.requireNonNull(vertexDictionary);
+        Objects.requireNonNull(labelDictionary);
+        Objects.requireNonNull(lifespanSetFactory);
+        this.size = size;
+        this.lifespanSetFactory = lifespanSetFactory;
+        this.lifespanPool = new LifespanPool();
+        this.vertexDictionary = vertexDictionary;
+        this.labelDictionary = labelDictionary;
+        super.vertexSet().forEach(this.vertexDictionary::encode);
+        super.labelSet().forEach(this.labelDictionary::encode);
+
+        LifespanSet empty = this.emptyLifespan();
+        this.vertexLifespans = new ArrayList<>(this.vertexDictionary.size());
+        this.labelLifespans = new ArrayList<>(this.vertexDictionary.size());
+        for(V vertex: this.vertexDictionary.values()) {
+            this.vertexLifespans.add(super.containsVertex(vertex) ? empty : null);
+            this.labelLifespans.add(NO_LABEL_LIFESPANS);
+        }
+        for(V vertex: super.vertexSet()) {
+            for(L label: this.getLabels(vertex)) {
+                this.putLabelLifespan(vertex, label, empty);
+            }
+        }
+        this.edgeLifespans = new HashMap<>();
+        for(E edge: super.edgeSet()) {
+            this.edgeLifespans.put(edge, empty);
         }
     }
 
+    private LifespanSet toLifespan(BitSet lifespan) {
+        return this.lifespanPool.intern(this.lifespanSetFactory.createLifespanSet(lifespan));
+    }
+
+    private LifespanSet emptyLifespan() {
+        return this.lifespanPool.intern(this.lifespanSetFactory.createLifespanSet(new BitSet(this.size)));
+    }
+
     public int getSize() {
         return this.size;
     }
 
-    public BitSet vertexLifespan(V vertex) {
-        return this.vertexLifespans.get(vertex);
+    public SnapshotView<V, E, L> snapshot(int timestamp) {
+        return SnapshotView.of(this, timestamp);
+    }
+
+    // History graph of views on this version graph, for algorithms that work on snapshots.
+    // graphCreator is only used when graphs are created by the history graph itself.
+    public LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> toHistoryGraph(
+            GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator) {
+        LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> historyGraph = new LabeledHistoryGraph<>(graphCreator);
+        for(int timestamp = 0; timestamp < this.size; timestamp++) {
+            historyGraph.add(this.snapshot(timestamp));
+        }
+        return historyGraph;
+    }
+
+    public LifespanSetFactory getLifespanSetFactory() {
+        return this.lifespanSetFactory;
+    }
+
+    public LifespanPool getLifespanPool() {
+        return this.lifespanPool;
+    }
+
+    public IdDictionary<V> getVertexDictionary() {
+        return this.vertexDictionary;
+    }
+
+    public IdDictionary<L> getLabelDictionary() {
+        return this.labelDictionary;
     }
 
-    public BitSet edgeLifespan(E edge) {
+    public boolean containsVertexId(int vertexId) {
+        return vertexId >= 0
+                && vertexId < this.vertexLifespans.size()
+                && this.vertexLifespans.get(vertexId) != null;
+    }
+
+    public LifespanSet vertexLifespan(V vertex) {
+        int vertexId = this.vertexDictionary.getId(vertex);
+        return vertexId == IdDictionary.NO_ID ? null : this.vertexLifespanById(vertexId);
+    }
+
+    public LifespanSet vertexLifespanById(int vertexId) {
+        return this.vertexLifespans.get(vertexId);
+    }
+
+    public LifespanSet edgeLifespan(E edge) {
         return this.edgeLifespans.get(edge);
     }
 
-    public BitSet labelLifespan(V vertex, L label) {
-        return this.labelLifespans.get(vertex, label);
+    public LifespanSet labelLifespan(V vertex, L label) {
+        int vertexId = this.vertexDictionary.getId(vertex);
+        int labelId = this.labelDictionary.getId(label);
+        if(vertexId == IdDictionary.NO_ID || labelId == IdDictionary.NO_ID) {
+            return null;
+        }
+        return this.labelLifespanById(vertexId, labelId);
     }
 
-    public BitSet changeVertexLifespan(V vertex, BitSet lifespan) {
+    public LifespanSet labelLifespanById(int vertexId, int labelId) {
+        LifespanSet[] lifespans = this.labelLifespans.get(vertexId);
+        return labelId < lifespans.length ? lifespans[labelId] : null;
+    }
+
+    public LifespanSet changeVertexLifespan(V vertex, LifespanSet lifespan) {
         Objects.requireNonNull(lifespan);
         assertCorrectLifespanLength(lifespan);
-        return this.vertexLifespans.put(vertex, lifespan);
+        int vertexId = this.vertexDictionary.getId(vertex);
+        if(vertexId == IdDictionary.NO_ID || !this.containsVertexId(vertexId)) {
+            return null;
+        }
+        return this.vertexLifespans.set(vertexId, this.lifespanPool.intern(lifespan));
     }
 
-    public BitSet changeEdgeLifespan(E edge, BitSet lifespan) {
+    public LifespanSet changeEdgeLifespan(E edge, LifespanSet lifespan) {
         Objects.requireNonNull(lifespan);
         assertCorrectLifespanLength(lifespan);
-        return this.edgeLifespans.put(edge, lifespan);
+        return this.edgeLifespans.put(edge, this.lifespanPool.intern(lifespan));
     }
 
-    public BitSet changeLabelLifespan(V vertex, L label, BitSet lifespan) {
+    public LifespanSet changeLabelLifespan(V vertex, L label, LifespanSet lifespan) {
         Objects.requireNonNull(lifespan);
         assertCorrectLifespanLength(lifespan);
-        return this.labelLifespans.put(vertex, label, lifespan);
+        if(!this.hasLabel(vertex, label)) {
+            return null;
+        }
+        return this.putLabelLifespan(vertex, label, this.lifespanPool.intern(lifespan));
+    }
+
+    private LifespanSet putLabelLifespan(V vertex, L label, LifespanSet lifespan) {
+        int vertexId = this.vertexDictionary.getId(vertex);
+        int labelId = this.labelDictionary.encode(label);
+        LifespanSet[] lifespans = this.labelLifespans.get(vertexId);
+        if(labelId >= lifespans.length) {
+            lifespans = Arrays.copyOf(lifespans, labelId + 1);
+            this.labelLifespans.set(vertexId, lifespans);
+        }
+        LifespanSet previous = lifespans[labelId];
+        lifespans[labelId] = lifespan;
+        return previous;
+    }
+
+    private LifespanSet removeLabelLifespan(V vertex, L label) {
+        int vertexId = this.vertexDictionary.getId(vertex);
+        int labelId = this.labelDictionary.getId(label);
+        if(vertexId == IdDictionary.NO_ID || labelId == IdDictionary.NO_ID) {
+            return null;
+        }
+        LifespanSet[] lifespans = this.labelLifespans.get(vertexId);
+        LifespanSet previous = null;
+        if(labelId < lifespans.length) {
+            previous = lifespans[labelId];
+            lifespans[labelId] = null;
+        }
+        return previous;
     }
 
-    private void assertCorrectLifespanLength(BitSet lifespan) {
-        if(lifespan.length() != this.size) {
+    private void removeAllLabelLifespans(V vertex) {
+        int vertexId = this.vertexDictionary.getId(vertex);
+        if(vertexId != IdDictionary.NO_ID) {
+            this.labelLifespans.set(vertexId, NO_LABEL_LIFESPANS);
+        }
+    }
+
+    private void assertCorrectLifespanLength(LifespanSet lifespan) {
+        if(lifespan.length() > this.size) {
             throw new IllegalArgumentException(
-                    String.format("Expected a lifespan of length %s.", this.size));
+                    String.format("Expected a lifespan within the first %s timestamps.", this.size));
+        }
+    }
+
+    // Adds the snapshot as the timestamp after the last one and returns that timestamp.
+    // Only the lifespans of elements in the snapshot change, lifespans that were equal before stay shared.
+    public int appendSnapshot(LabeledGraph<V, E, L> snapshot) {
+        Objects.requireNonNull(snapshot);
+        int timestamp = this.size;
+        this.size++;
+        BitSet bs = new BitSet(this.size);
+        bs.set(timestamp);
+        LifespanSet current = this.toLifespan(bs);
+        Map<LifespanSet, LifespanSet> extended = new IdentityHashMap<>();
+
+        for(V vertex: snapshot.vertexSet()) {
+            int vertexId = this.vertexDictionary.getId(vertex);
+            if(!this.containsVertexId(vertexId)) {
+                this.addVertex(vertex, current);
+                vertexId = this.vertexDictionary.getId(vertex);
+            } else {
+                this.vertexLifespans.set(
+                        vertexId, this.extendLifespan(this.vertexLifespans.get(vertexId), current, extended));
+            }
+            for(L label: snapshot.getLabels(vertex)) {
+                if(!this.hasLabel(vertex, label)) {
+                    this.addLabel(vertex, label, current);
+                } else {
+                    int labelId = this.labelDictionary.getId(label);
+                    this.putLabelLifespan(vertex, label,
+                            this.extendLifespan(this.labelLifespanById(vertexId, labelId), current, extended));
+                }
+            }
+        }
+        for(E e: snapshot.edgeSet()) {
+            V source = snapshot.getEdgeSource(e);
+            V target = snapshot.getEdgeTarget(e);
+            E edge = this.getEdge(source, target);
+            if(edge == null) {
+                this.addEdge(source, target, current);
+            } else {
+                this.edgeLifespans.put(edge, this.extendLifespan(this.edgeLifespans.get(edge), current, extended));
+            }
         }
+        return timestamp;
     }
 
-    public E addEdge(V v, V v1, BitSet lifespan) {
+    // Lifespans are interned, so every distinct lifespan is extended once per appended snapshot.
+    private LifespanSet extendLifespan(
+            LifespanSet lifespan,
+            LifespanSet current,
+            Map<LifespanSet, LifespanSet> extended) {
+        if(lifespan == null) {
+            return current;
+        }
+        return extended.computeIfAbsent(lifespan, l -> this.lifespanPool.intern(l.or(current)));
+    }
+
+    public E addEdge(V v, V v1, LifespanSet lifespan) {
         Objects.requireNonNull(lifespan);
         assertCorrectLifespanLength(lifespan);
         E edge = super.addEdge(v, v1);
         if(edge != null) {
-            this.edgeLifespans.put(edge, lifespan);
+            this.edgeLifespans.put(edge, this.lifespanPool.intern(lifespan));
         }
         return edge;
     }
 
-    public boolean addEdge(V v, V v1, E e, BitSet lifespan) {
+    public boolean addEdge(V v, V v1, E e, LifespanSet lifespan) {
         Objects.requireNonNull(lifespan);
         assertCorrectLifespanLength(lifespan);
         boolean modified = super.addEdge(v, v1, e);
         if(modified) {
-            this.edgeLifespans.put(e, lifespan);
+            this.edgeLifespans.put(e, this.lifespanPool.intern(lifespan));
         }
         return modified;
     }
 
-    public boolean addVertex(V v, BitSet lifespan) {
+    public boolean addVertex(V v, LifespanSet lifespan) {
         Objects.requireNonNull(lifespan);
         assertCorrectLifespanLength(lifespan);
         boolean modified = super.addVertex(v);
         if(modified) {
-            this.vertexLifespans.put(v, lifespan);
+            int vertexId = this.vertexDictionary.encode(v);
+            if(vertexId == this.vertexLifespans.size()) {
+                this.vertexLifespans.add(this.lifespanPool.intern(lifespan));
+                this.labelLifespans.add(NO_LABEL_LIFESPANS);
+            } else {
+                this.vertexLifespans.set(vertexId, this.lifespanPool.intern(lifespan));
+            }
         }
         return modified;
     }
 
-    public boolean addLabel(V vertex, L label, BitSet lifespan) {
+    public boolean addLabel(V vertex, L label, LifespanSet lifespan) {
         Objects.requireNonNull(lifespan);
         assertCorrectLifespanLength(lifespan);
         boolean modified = super.addLabel(vertex, label);
         if(modified) {
-            this.labelLifespans.put(vertex, label, new BitSet(this.size));
+            this.putLabelLifespan(vertex, label, this.lifespanPool.intern(lifespan));
         }
         return modified;
     }
 
-    public boolean addAllLabels(V vertex, Collection<? extends L> labels, BitSet lifespan) {
+    public boolean addAllLabels(V vertex, Collection<? extends L> labels, LifespanSet lifespan) {
         Objects.requireNonNull(lifespan);
         assertCorrectLifespanLength(lifespan);
         boolean modified = super.addAllLabels(vertex, labels);
         if(modified) {
-            labels.forEach(l -> this.labelLifespans.put(vertex, l, lifespan));
+            LifespanSet interned = this.lifespanPool.intern(lifespan);
+            labels.forEach(l -> this.putLabelLifespan(vertex, l, interned));
         }
         return modified;
     }
 
     @Override
     public boolean addLabel(V vertex, L label) {
-        return this.addLabel(vertex, label, new BitSet(this.size));
+        return this.addLabel(vertex, label, this.emptyLifespan());
     }
 
     @Override
     public boolean addAllLabels(V vertex, Collection<? extends L> labels) {
-        return this.addAllLabels(vertex, labels, new BitSet(this.size));
+        return this.addAllLabels(vertex, labels, this.emptyLifespan());
     }
 
     @Override
     public boolean removeLabel(V vertex, L label) {
-        this.labelLifespans.remove(vertex, label);
+        this.removeLabelLifespan(vertex, label);
         return super.removeLabel(vertex, label);
     }
 
     @Override
     public Set<L> removeAllLabels(V vertex) {
-        this.labelLifespans.row(vertex).clear();
+        this.removeAllLabelLifespans(vertex);
         return super.removeAllLabels(vertex);
     }
 
     @Override
     public void removeAllLabels() {
-        this.labelLifespans.clear();
+        Collections.fill(this.labelLifespans, NO_LABEL_LIFESPANS);
         super.removeAllLabels();
     }
 
     @Override
     public E addEdge(V v, V v1) {
-        return this.addEdge(v, v1, new BitSet(this.size));
+        return this.addEdge(v, v1, this.emptyLifespan());
     }
 
     @Override
     public boolean addEdge(V v, V v1, E e) {
-        return this.addEdge(v, v1, e, new BitSet(this.size));
+        return this.addEdge(v, v1, e, this.emptyLifespan());
     }
 
     @Override
     public boolean addVertex(V v) {
-        return this.addVertex(v, new BitSet(this.size));
+        return this.addVertex(v, this.emptyLifespan());
     }
 
     @Override
@@ -218,9 +452,7 @@ public class LabeledVersionGraph<V, E, L> extends LabeledGraph<V, E, L> implemen
     @Override
     public boolean removeAllVertices(Collection<? extends V> collection) {
         for(V vertex: collection) {
-            this.vertexLifespans.remove(vertex);
-            this.edgesOf(vertex).forEach(this.edgeLifespans::remove);
-            this.labelLifespans.row(vertex).clear();
+            this.removeVertexLifespans(vertex);
         }
         return super.removeAllVertices(collection);
     }
@@ -239,12 +471,20 @@ public class LabeledVersionGraph<V, E, L> extends LabeledGraph<V, E, L> implemen
 
     @Override
     public boolean removeVertex(V v) {
-        this.vertexLifespans.remove(v);
-        this.edgesOf(v).forEach(this.edgeLifespans::remove);
-        this.labelLifespans.row(v).clear();
+        this.removeVertexLifespans(v);
         return super.removeVertex(v);
     }
 
+    private void removeVertexLifespans(V vertex) {
+        int vertexId = this.vertexDictionary.getId(vertex);
+        if(this.containsVertexId(vertexId)) {
+            // Ids are never reused, the vertex keeps its id in the dictionary.
+            this.vertexLifespans.set(vertexId, null);
+            this.edgesOf(vertex).forEach(this.edgeLifespans::remove);
+            this.labelLifespans.set(vertexId, NO_LABEL_LIFESPANS);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -254,11 +494,17 @@ public class LabeledVersionGraph<V, E, L> extends LabeledGraph<V, E, L> implemen
         LabeledVersionGraph<?, ?, ?> that = (LabeledVersionGraph<?, ?, ?>) o;
 
         if (size != that.size) return false;
+        if (!vertexDictionary.equals(that.vertexDictionary)) return false;
+        if (!labelDictionary.equals(that.labelDictionary)) return false;
         if (vertexLifespans != null ? !vertexLifespans.equals(that.vertexLifespans) : that.vertexLifespans != null)
             return false;
         if (edgeLifespans != null ? !edgeLifespans.equals(that.edgeLifespans) : that.edgeLifespans != null)
             return false;
-        return labelLifespans != null ? labelLifespans.equals(that.labelLifespans) : that.labelLifespans == null;
+        if (labelLifespans.size() != that.labelLifespans.size()) return false;
+        for (int i = 0; i < labelLifespans.size(); i++) {
+            if (!Arrays.equals(labelLifespans.get(i), that.labelLifespans.get(i))) return false;
+        }
+        return true;
 
     }
 
@@ -268,7 +514,9 @@ public class LabeledVersionGraph<V, E, L> extends LabeledGraph<V, E, L> implemen
         result = 31 * result + size;
         result = 31 * result + (vertexLifespans != null ? vertexLifespans.hashCode() : 0);
         result = 31 * result + (edgeLifespans != null ? edgeLifespans.hashCode() : 0);
-        result = 31 * result + (labelLifespans != null ? labelLifespans.hashCode() : 0);
+        for (LifespanSet[] lifespans : labelLifespans) {
+            result = 31 * result + Arrays.hashCode(lifespans);
+        }
         return result;
     }
 
@@ -278,7 +526,8 @@ public class LabeledVersionGraph<V, E, L> extends LabeledGraph<V, E, L> implemen
                 "size=" + size +
                 ", vertexLifespans=" + vertexLifespans +
                 ", edgeLifespans=" + edgeLifespans +
-                ", labelLifespans=" + labelLifespans +
+                ", vertices=" + vertexDictionary.size() +
+                ", labels=" + labelDictionary.size() +
                 '}';
     }
 }
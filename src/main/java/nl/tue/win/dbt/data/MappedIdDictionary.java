@@ -0,0 +1,199 @@
+package nl.tue.win.dbt.data;
+
+import nl.tue.win.dbt.codec.BinaryReader;
+import nl.tue.win.dbt.codec.BinaryWriter;
+import nl.tue.win.dbt.codec.ValueCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.util.*;
+
+// Read-only dictionary that stays in a buffer, for example a mapped file, instead of on the heap.
+// Layout: the number of values, the offsets of the encoded values (one more than the number of values), the ids
+// sorted on their encoded values and the encoded values themselves, padded to whole ints. Values are decoded when
+// they are looked up, ids are found with a binary search on the encoded value, so the codec must encode equal
+// values to equal bytes.
+// Serializing the dictionary stores an ordinary IdDictionary with the same values.
+final class MappedIdDictionary<T> extends IdDictionary<T> {
+    private final transient ValueCodec<T> codec;
+    private final transient int count;
+    private final transient IntBuffer offsets;
+    private final transient IntBuffer sorted;
+    private final transient ByteBuffer values;
+    private final transient int length;
+    // Encodes the values that are looked up, guarded by the dictionary.
+    private final transient ByteArrayOutputStream key;
+    private final transient BinaryWriter keyWriter;
+
+    // Reads the dictionary at the position of the buffer, the buffer is not changed.
+    MappedIdDictionary(final ByteBuffer buffer, final ValueCodec<T> codec) {
+        Objects.requireNonNull(buffer);
+        Objects.requireNonNull(codec);
+        this.codec = codec;
+        ByteBuffer dictionary = buffer.slice();
+        this.count = dictionary.getInt(0);
+        IntBuffer ints = dictionary.asIntBuffer();
+        ints.position(1).limit(this.count + 2);
+        this.offsets = ints.slice();
+        ints.limit(2 * this.count + 2).position(this.count + 2);
+        this.sorted = ints.slice();
+        int start = (2 * this.count + 2) * Integer.BYTES;
+        int end = this.offsets.get(this.count);
+        dictionary.limit(start + end).position(start);
+        this.values = dictionary.slice();
+        this.length = start + (end + Integer.BYTES - 1) / Integer.BYTES * Integer.BYTES;
+        this.key = new ByteArrayOutputStream();
+        this.keyWriter = new BinaryWriter(Channels.newChannel(this.key), false);
+    }
+
+    // Writes the values in the layout of a mapped dictionary, the id of a value is its index.
+    static <T> byte[] toBytes(final List<? extends T> values, final ValueCodec<T> codec) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        int[] offsets = new int[values.size() + 1];
+        try(BinaryWriter out = new BinaryWriter(Channels.newChannel(encoded), false)) {
+            for(int id = 0; id < values.size(); id++) {
+                codec.write(out, values.get(id));
+                out.flush();
+                offsets[id + 1] = encoded.size();
+            }
+        }
+        byte[] bytes = encoded.toByteArray();
+        Integer[] sorted = new Integer[values.size()];
+        for(int id = 0; id < sorted.length; id++) {
+            sorted[id] = id;
+        }
+        Arrays.sort(sorted, (id1, id2) -> compare(
+                bytes, offsets[id1], offsets[id1 + 1], bytes, offsets[id2], offsets[id2 + 1]));
+
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(dictionary)) {
+            out.writeInt(values.size());
+            for(int offset: offsets) {
+                out.writeInt(offset);
+            }
+            for(int id: sorted) {
+                out.writeInt(id);
+            }
+            out.write(bytes);
+            for(int i = bytes.length; i % Integer.BYTES != 0; i++) {
+                out.writeByte(0);
+            }
+        }
+        return dictionary.toByteArray();
+    }
+
+    private static int compare(byte[] bytes1, int from1, int to1, byte[] bytes2, int from2, int to2) {
+        int length = Math.min(to1 - from1, to2 - from2);
+        for(int i = 0; i < length; i++) {
+            int difference = (bytes1[from1 + i] & 0xFF) - (bytes2[from2 + i] & 0xFF);
+            if(difference != 0) {
+                return difference;
+            }
+        }
+        return (to1 - from1) - (to2 - from2);
+    }
+
+    private int compare(byte[] key, int id) {
+        int from = this.offsets.get(id);
+        int to = this.offsets.get(id + 1);
+        int length = Math.min(key.length, to - from);
+        for(int i = 0; i < length; i++) {
+            int difference = (key[i] & 0xFF) - (this.values.get(from + i) & 0xFF);
+            if(difference != 0) {
+                return difference;
+            }
+        }
+        return key.length - (to - from);
+    }
+
+    // Bytes that the dictionary takes in the buffer.
+    int length() {
+        return this.length;
+    }
+
+    @Override
+    public int encode(T value) {
+        throw new UnsupportedOperationException("Mapped dictionaries are read-only");
+    }
+
+    @Override
+    public int getId(T value) {
+        if(value == null) {
+            return NO_ID;
+        }
+        byte[] encoded;
+        synchronized(this) {
+            try {
+                this.key.reset();
+                this.codec.write(this.keyWriter, value);
+                this.keyWriter.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            encoded = this.key.toByteArray();
+        }
+        int low = 0;
+        int high = this.count;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            int difference = this.compare(encoded, this.sorted.get(middle));
+            if(difference == 0) {
+                return this.sorted.get(middle);
+            } else if(difference > 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return NO_ID;
+    }
+
+    @Override
+    public T decode(int id) {
+        if(id < 0 || id >= this.count) {
+            throw new IndexOutOfBoundsException("Expected an id below " + this.count + ", got " + id);
+        }
+        ByteBuffer value = this.values.duplicate();
+        value.limit(this.offsets.get(id + 1)).position(this.offsets.get(id));
+        try {
+            return this.codec.read(new BinaryReader(value));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean contains(T value) {
+        return this.getId(value) != NO_ID;
+    }
+
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    @Override
+    public List<T> values() {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                return MappedIdDictionary.this.decode(index);
+            }
+
+            @Override
+            public int size() {
+                return MappedIdDictionary.this.count;
+            }
+        };
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return new IdDictionary<>(this.values());
+    }
+}
@@ -0,0 +1,440 @@
+package nl.tue.win.dbt.data;
+
+import nl.tue.win.dbt.codec.ValueCodec;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Version graph that is queried in place from a memory mapped file. The dictionaries, the adjacency, the lifespan
+// references and the lifespans themselves stay in the mapped file, lifespans are decoded when they are looked up
+// and only a bounded number of decoded lifespans is kept on the heap.
+// Serializing this graph only stores the path of the file, the codecs and the size of the cache.
+public class MappedVersionGraph<V, L> implements VersionGraph<V, L>, Serializable {
+    static final int MAGIC = 0x4C564731; // "LVG1"
+    static final int VERSION = 2;
+    static final int HEADER_INTS = 11;
+    static final int NO_LIFESPAN = -1;
+    public static final int DEFAULT_LIFESPAN_CACHE_SIZE = 1024;
+
+    private final String filename;
+    private final ValueCodec<V> vertexCodec;
+    private final ValueCodec<L> labelCodec;
+    private final LifespanSetFactory lifespanSetFactory;
+    private final int lifespanCacheSize;
+
+    private transient int size;
+    private transient boolean directed;
+    private transient IdDictionary<V> vertexDictionary;
+    private transient IdDictionary<L> labelDictionary;
+    private transient int vertexCount;
+    private transient int labelCount;
+
+    // Distinct lifespans, all other sections refer to lifespans by their index. Runs of lifespan i are the (start,
+    // exclusive end) pairs from runOffsets[i] until runOffsets[i + 1].
+    private transient int lifespanCount;
+    private transient IntBuffer runOffsets;
+    private transient IntBuffer runs;
+    private transient Map<Integer, LifespanSet> lifespanCache;
+    private transient IntBuffer vertexLifespans;
+    // Labels of vertex v are the (label id, lifespan) pairs from labelOffsets[v] until labelOffsets[v + 1].
+    private transient IntBuffer labelOffsets;
+    private transient IntBuffer labelEntries;
+    // Neighbors of vertex v are neighbors[offsets[v]] until neighbors[offsets[v + 1]].
+    private transient IntBuffer offsets;
+    private transient IntBuffer neighbors;
+    private transient IntBuffer edgeLifespans;
+
+    public MappedVersionGraph(
+            final String filename,
+            final ValueCodec<V> vertexCodec,
+            final ValueCodec<L> labelCodec) throws IOException {
+        this(filename, vertexCodec, labelCodec, new LifespanSetFactory.ContainerFactory(), DEFAULT_LIFESPAN_CACHE_SIZE);
+    }
+
+    // The codecs must be the codecs that the file was written with.
+    public MappedVersionGraph(
+            final String filename,
+            final ValueCodec<V> vertexCodec,
+            final ValueCodec<L> labelCodec,
+            final LifespanSetFactory lifespanSetFactory,
+            final int lifespanCacheSize) throws IOException {
+        Objects.requireNonNull(filename);
+        Objects.requireNonNull(vertexCodec);
+        Objects.requireNonNull(labelCodec);
+        Objects.requireNonNull(lifespanSetFactory);
+        if(lifespanCacheSize < 0) {
+            throw new IllegalArgumentException("Expected a non-negative lifespan cache size");
+        }
+        this.filename = filename;
+        this.vertexCodec = vertexCodec;
+        this.labelCodec = labelCodec;
+        this.lifespanSetFactory = lifespanSetFactory;
+        this.lifespanCacheSize = lifespanCacheSize;
+        this.map();
+    }
+
+    // Codecs encode the values of the dictionaries, equal values must have equal encodings.
+    public static <V, L> void write(
+            final VersionGraph<V, L> graph,
+            final String filename,
+            final ValueCodec<V> vertexCodec,
+            final ValueCodec<L> labelCodec) throws IOException {
+        Objects.requireNonNull(graph);
+        Objects.requireNonNull(filename);
+        Objects.requireNonNull(vertexCodec);
+        Objects.requireNonNull(labelCodec);
+        int vertexCount = graph.getVertexCount();
+        int labelCount = graph.getLabelCount();
+
+        Map<LifespanSet, Integer> lifespanIndices = new HashMap<>();
+        List<LifespanSet> lifespans = new ArrayList<>();
+        int[] vertexLifespans = new int[vertexCount];
+        int[] labelOffsets = new int[vertexCount + 1];
+        List<Integer> labelEntries = new ArrayList<>();
+        int[] offsets = new int[vertexCount + 1];
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            vertexLifespans[vertexId] = NO_LIFESPAN;
+            if(graph.containsVertexId(vertexId)) {
+                vertexLifespans[vertexId] = indexOf(graph.vertexLifespanById(vertexId), lifespanIndices, lifespans);
+                for(int labelId = 0; labelId < labelCount; labelId++) {
+                    LifespanSet lifespan = graph.labelLifespanById(vertexId, labelId);
+                    if(lifespan != null) {
+                        labelEntries.add(labelId);
+                        labelEntries.add(indexOf(lifespan, lifespanIndices, lifespans));
+                    }
+                }
+                offsets[vertexId + 1] = offsets[vertexId] + graph.getOutDegree(vertexId);
+            } else {
+                offsets[vertexId + 1] = offsets[vertexId];
+            }
+            labelOffsets[vertexId + 1] = labelEntries.size() / 2;
+        }
+        int adjacencyCount = offsets[vertexCount];
+        int[] neighbors = new int[adjacencyCount];
+        int[] edgeLifespans = new int[adjacencyCount];
+        for(int vertexId = 0; vertexId < vertexCount; vertexId++) {
+            for(int index = 0; index < offsets[vertexId + 1] - offsets[vertexId]; index++) {
+                neighbors[offsets[vertexId] + index] = graph.getOutNeighbor(vertexId, index);
+                edgeLifespans[offsets[vertexId] + index] = indexOf(
+                        graph.outEdgeLifespan(vertexId, index), lifespanIndices, lifespans);
+            }
+        }
+
+        byte[] dictionaries = writeDictionaries(
+                graph.getVertexDictionary().values().subList(0, vertexCount), vertexCodec,
+                graph.getLabelDictionary().values().subList(0, labelCount), labelCodec);
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(Paths.get(filename))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(graph.getSize());
+            out.writeInt(graph.isDirected() ? 1 : 0);
+            out.writeInt(vertexCount);
+            out.writeInt(labelCount);
+            out.writeInt(lifespans.size());
+            out.writeInt(labelEntries.size() / 2);
+            out.writeInt(adjacencyCount);
+            out.writeInt(dictionaries.length);
+            out.writeInt(runCount(lifespans));
+            // Dictionaries are whole ints, so the int sections stay aligned.
+            out.write(dictionaries);
+            writeLifespans(out, lifespans);
+            writeInts(out, vertexLifespans);
+            writeInts(out, labelOffsets);
+            for(int entry: labelEntries) {
+                out.writeInt(entry);
+            }
+            writeInts(out, offsets);
+            writeInts(out, neighbors);
+            writeInts(out, edgeLifespans);
+        }
+    }
+
+    private static int indexOf(LifespanSet lifespan, Map<LifespanSet, Integer> indices, List<LifespanSet> lifespans) {
+        Integer index = indices.get(lifespan);
+        if(index == null) {
+            index = lifespans.size();
+            indices.put(lifespan, index);
+            lifespans.add(lifespan);
+        }
+        return index;
+    }
+
+    // The vertex dictionary followed by the label dictionary, see MappedIdDictionary for the layout.
+    private static <V, L> byte[] writeDictionaries(
+            List<V> vertices,
+            ValueCodec<V> vertexCodec,
+            List<L> labels,
+            ValueCodec<L> labelCodec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(MappedIdDictionary.toBytes(vertices, vertexCodec));
+        bytes.write(MappedIdDictionary.toBytes(labels, labelCodec));
+        return bytes.toByteArray();
+    }
+
+    // Reads the dictionaries that writeDictionaries wrote at the position of the buffer.
+    static <V, L> List<IdDictionary<?>> readDictionaries(
+            ByteBuffer buffer,
+            ValueCodec<V> vertexCodec,
+            ValueCodec<L> labelCodec) {
+        MappedIdDictionary<V> vertexDictionary = new MappedIdDictionary<>(buffer, vertexCodec);
+        ByteBuffer labels = buffer.duplicate();
+        labels.position(buffer.position() + vertexDictionary.length());
+        return Arrays.asList(vertexDictionary, new MappedIdDictionary<>(labels, labelCodec));
+    }
+
+    private static int runCount(List<LifespanSet> lifespans) {
+        int runs = 0;
+        for(LifespanSet lifespan: lifespans) {
+            for(int start = lifespan.nextSetBit(0); start >= 0; start = lifespan.nextSetBit(lifespan.nextClearBit(start))) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+
+    // Lifespans are stored as run offsets followed by the start and exclusive end of every run.
+    private static void writeLifespans(DataOutputStream out, List<LifespanSet> lifespans) throws IOException {
+        int runs = 0;
+        out.writeInt(runs);
+        for(LifespanSet lifespan: lifespans) {
+            for(int start = lifespan.nextSetBit(0); start >= 0; start = lifespan.nextSetBit(lifespan.nextClearBit(start))) {
+                runs++;
+            }
+            out.writeInt(runs);
+        }
+        int end;
+        for(LifespanSet lifespan: lifespans) {
+            for(int start = lifespan.nextSetBit(0); start >= 0; start = lifespan.nextSetBit(end)) {
+                end = lifespan.nextClearBit(start);
+                out.writeInt(start);
+                out.writeInt(end);
+            }
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for(int value: values) {
+            out.writeInt(value);
+        }
+    }
+
+    private void map() throws IOException {
+        try(FileChannel channel = FileChannel.open(Paths.get(this.filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_INTS * Integer.BYTES);
+            while(header.hasRemaining()) {
+                if(channel.read(header) < 0) {
+                    throw new IOException("Unexpected end of file " + this.filename);
+                }
+            }
+            header.flip();
+            if(header.getInt() != MAGIC) {
+                throw new IOException("Not a mapped version graph: " + this.filename);
+            }
+            int version = header.getInt();
+            if(version != VERSION) {
+                throw new IOException("Unsupported mapped version graph version " + version);
+            }
+            this.size = header.getInt();
+            this.directed = header.getInt() != 0;
+            this.vertexCount = header.getInt();
+            this.labelCount = header.getInt();
+            int lifespanCount = header.getInt();
+            int labelEntryCount = header.getInt();
+            int adjacencyCount = header.getInt();
+            int dictionaryLength = header.getInt();
+            int runCount = header.getInt();
+
+            long position = HEADER_INTS * Integer.BYTES;
+            this.mapDictionaries(channel.map(FileChannel.MapMode.READ_ONLY, position, dictionaryLength));
+            position += dictionaryLength;
+
+            this.lifespanCount = lifespanCount;
+            this.runOffsets = mapInts(channel, position, lifespanCount + 1);
+            position += (long) (lifespanCount + 1) * Integer.BYTES;
+            this.runs = mapInts(channel, position, 2L * runCount);
+            position += 2L * runCount * Integer.BYTES;
+
+            this.vertexLifespans = mapInts(channel, position, this.vertexCount);
+            position += (long) this.vertexCount * Integer.BYTES;
+            this.labelOffsets = mapInts(channel, position, this.vertexCount + 1);
+            position += (long) (this.vertexCount + 1) * Integer.BYTES;
+            this.labelEntries = mapInts(channel, position, 2L * labelEntryCount);
+            position += 2L * labelEntryCount * Integer.BYTES;
+            this.offsets = mapInts(channel, position, this.vertexCount + 1);
+            position += (long) (this.vertexCount + 1) * Integer.BYTES;
+            this.neighbors = mapInts(channel, position, adjacencyCount);
+            position += (long) adjacencyCount * Integer.BYTES;
+            this.edgeLifespans = mapInts(channel, position, adjacencyCount);
+        }
+        // Least recently used decoded lifespans are dropped first.
+        this.lifespanCache = new LinkedHashMap<Integer, LifespanSet>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, LifespanSet> eldest) {
+                return this.size() > MappedVersionGraph.this.lifespanCacheSize;
+            }
+        };
+    }
+
+    private static IntBuffer mapInts(FileChannel channel, long position, long count) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, count * Integer.BYTES).asIntBuffer();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mapDictionaries(ByteBuffer buffer) {
+        List<IdDictionary<?>> dictionaries = readDictionaries(buffer, this.vertexCodec, this.labelCodec);
+        this.vertexDictionary = (IdDictionary<V>) dictionaries.get(0);
+        this.labelDictionary = (IdDictionary<L>) dictionaries.get(1);
+    }
+
+    private LifespanSet lifespan(int index) {
+        synchronized(this.lifespanCache) {
+            LifespanSet lifespan = this.lifespanCache.get(index);
+            if(lifespan != null) {
+                return lifespan;
+            }
+        }
+        BitSet bs = new BitSet(this.size);
+        for(int run = this.runOffsets.get(index); run < this.runOffsets.get(index + 1); run++) {
+            bs.set(this.runs.get(2 * run), this.runs.get(2 * run + 1));
+        }
+        LifespanSet lifespan = this.lifespanSetFactory.createLifespanSet(bs);
+        synchronized(this.lifespanCache) {
+            this.lifespanCache.put(index, lifespan);
+        }
+        return lifespan;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.map();
+    }
+
+    public String getFilename() {
+        return this.filename;
+    }
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return this.directed;
+    }
+
+    @Override
+    public IdDictionary<V> getVertexDictionary() {
+        return this.vertexDictionary;
+    }
+
+    @Override
+    public IdDictionary<L> getLabelDictionary() {
+        return this.labelDictionary;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return this.vertexCount;
+    }
+
+    @Override
+    public int getLabelCount() {
+        return this.labelCount;
+    }
+
+    @Override
+    public boolean containsVertexId(int vertexId) {
+        return vertexId >= 0
+                && vertexId < this.vertexCount
+                && this.vertexLifespans.get(vertexId) != NO_LIFESPAN;
+    }
+
+    @Override
+    public LifespanSet vertexLifespanById(int vertexId) {
+        int lifespan = this.vertexLifespans.get(vertexId);
+        return lifespan == NO_LIFESPAN ? null : this.lifespan(lifespan);
+    }
+
+    @Override
+    public LifespanSet labelLifespanById(int vertexId, int labelId) {
+        int lifespan = this.labelLifespanIndex(vertexId, labelId);
+        return lifespan == NO_LIFESPAN ? null : this.lifespan(lifespan);
+    }
+
+    @Override
+    public int labelLifespanIndex(int vertexId, int labelId) {
+        // Entries are sorted on label id and vertices only have a few labels.
+        for(int entry = this.labelOffsets.get(vertexId); entry < this.labelOffsets.get(vertexId + 1); entry++) {
+            int entryLabel = this.labelEntries.get(2 * entry);
+            if(entryLabel == labelId) {
+                return this.labelEntries.get(2 * entry + 1);
+            } else if(entryLabel > labelId) {
+                break;
+            }
+        }
+        return NO_LIFESPAN;
+    }
+
+    @Override
+    public int getOutDegree(int vertexId) {
+        return this.offsets.get(vertexId + 1) - this.offsets.get(vertexId);
+    }
+
+    @Override
+    public int getOutNeighbor(int vertexId, int index) {
+        return this.neighbors.get(this.offsets.get(vertexId) + index);
+    }
+
+    @Override
+    public LifespanSet outEdgeLifespan(int vertexId, int index) {
+        return this.lifespan(this.edgeLifespans.get(this.offsets.get(vertexId) + index));
+    }
+
+    @Override
+    public LifespanSet edgeLifespanById(int sourceId, int targetId) {
+        int end = this.offsets.get(sourceId + 1);
+        int low = this.offsets.get(sourceId);
+        int high = end;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(this.neighbors.get(middle) < targetId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if(low == end || this.neighbors.get(low) != targetId) {
+            return null;
+        }
+        LifespanSet lifespan = this.lifespan(this.edgeLifespans.get(low));
+        // Multiple edges, the pair is connected whenever one of them is alive.
+        for(int position = low + 1; position < end && this.neighbors.get(position) == targetId; position++) {
+            lifespan = lifespan.or(this.lifespan(this.edgeLifespans.get(position)));
+        }
+        return lifespan;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedVersionGraph{" +
+                "filename='" + filename + '\'' +
+                ", size=" + size +
+                ", directed=" + directed +
+                ", vertices=" + vertexCount +
+                ", labels=" + labelCount +
+                ", lifespans=" + lifespanCount +
+                ", adjacencies=" + neighbors.limit() +
+                '}';
+    }
+}
@@ -0,0 +1,326 @@
+package nl.tue.win.dbt.data;
+
+import nl.tue.win.dbt.codec.ValueCodec;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Version graph for graphs that do not fit in the heap. The file of a MappedVersionGraph is read through a bounded
+// buffer pool of fixed-size pages instead of being mapped, so the adjacency, the lifespan references and the
+// lifespans themselves stay on disk. Only the encoded dictionaries and a bounded number of decoded lifespans are
+// kept on the heap. Serializing this graph only stores the path of the file, the codecs and the sizes of the pool.
+public class PagedVersionGraph<V, L> implements VersionGraph<V, L>, Closeable {
+    public static final int DEFAULT_PAGE_SIZE = 4096;
+    public static final int DEFAULT_POOL_PAGES = 256;
+    public static final int DEFAULT_LIFESPAN_CACHE_SIZE = 1024;
+
+    private final String filename;
+    private final ValueCodec<V> vertexCodec;
+    private final ValueCodec<L> labelCodec;
+    private final LifespanSetFactory lifespanSetFactory;
+    private final int pageSize;
+    private final int poolPages;
+    private final int lifespanCacheSize;
+
+    private transient BufferPool bufferPool;
+    private transient Map<Integer, LifespanSet> lifespanCache;
+    private transient int size;
+    private transient boolean directed;
+    private transient IdDictionary<V> vertexDictionary;
+    private transient IdDictionary<L> labelDictionary;
+    private transient int vertexCount;
+    private transient int labelCount;
+    private transient int lifespanCount;
+    private transient int adjacencyCount;
+
+    // Positions in the file of the sections, see MappedVersionGraph.write.
+    private transient long runOffsets;
+    private transient long runs;
+    private transient long vertexLifespans;
+    private transient long labelOffsets;
+    private transient long labelEntries;
+    private transient long offsets;
+    private transient long neighbors;
+    private transient long edgeLifespans;
+
+    public PagedVersionGraph(
+            final String filename,
+            final ValueCodec<V> vertexCodec,
+            final ValueCodec<L> labelCodec) throws IOException {
+        this(filename, vertexCodec, labelCodec, new LifespanSetFactory.ContainerFactory(),
+                DEFAULT_PAGE_SIZE, DEFAULT_POOL_PAGES, DEFAULT_LIFESPAN_CACHE_SIZE);
+    }
+
+    // The codecs must be the codecs that the file was written with.
+    public PagedVersionGraph(
+            final String filename,
+            final ValueCodec<V> vertexCodec,
+            final ValueCodec<L> labelCodec,
+            final LifespanSetFactory lifespanSetFactory,
+            final int pageSize,
+            final int poolPages,
+            final int lifespanCacheSize) throws IOException {
+        Objects.requireNonNull(filename);
+        Objects.requireNonNull(vertexCodec);
+        Objects.requireNonNull(labelCodec);
+        Objects.requireNonNull(lifespanSetFactory);
+        if(lifespanCacheSize < 0) {
+            throw new IllegalArgumentException("Expected a non-negative lifespan cache size");
+        }
+        this.filename = filename;
+        this.vertexCodec = vertexCodec;
+        this.labelCodec = labelCodec;
+        this.lifespanSetFactory = lifespanSetFactory;
+        this.pageSize = pageSize;
+        this.poolPages = poolPages;
+        this.lifespanCacheSize = lifespanCacheSize;
+        this.open();
+    }
+
+    // Paged version graphs use the file format of mapped version graphs.
+    public static <V, L> void write(
+            final VersionGraph<V, L> graph,
+            final String filename,
+            final ValueCodec<V> vertexCodec,
+            final ValueCodec<L> labelCodec) throws IOException {
+        MappedVersionGraph.write(graph, filename, vertexCodec, labelCodec);
+    }
+
+    private void open() throws IOException {
+        int runCount;
+        int labelEntryCount;
+        int dictionaryLength;
+        try(FileChannel channel = FileChannel.open(Paths.get(this.filename), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MappedVersionGraph.HEADER_INTS * Integer.BYTES);
+            readFully(channel, header, 0);
+            header.flip();
+            if(header.getInt() != MappedVersionGraph.MAGIC) {
+                throw new IOException("Not a mapped version graph: " + this.filename);
+            }
+            int version = header.getInt();
+            if(version != MappedVersionGraph.VERSION) {
+                throw new IOException("Unsupported mapped version graph version " + version);
+            }
+            this.size = header.getInt();
+            this.directed = header.getInt() != 0;
+            this.vertexCount = header.getInt();
+            this.labelCount = header.getInt();
+            this.lifespanCount = header.getInt();
+            labelEntryCount = header.getInt();
+            this.adjacencyCount = header.getInt();
+            dictionaryLength = header.getInt();
+            runCount = header.getInt();
+
+            ByteBuffer dictionaries = ByteBuffer.allocate(dictionaryLength);
+            readFully(channel, dictionaries, MappedVersionGraph.HEADER_INTS * Integer.BYTES);
+            dictionaries.flip();
+            this.readDictionaries(dictionaries);
+        }
+
+        long position = MappedVersionGraph.HEADER_INTS * Integer.BYTES;
+        position += dictionaryLength;
+        this.runOffsets = position;
+        position += (long) (this.lifespanCount + 1) * Integer.BYTES;
+        this.runs = position;
+        position += 2L * runCount * Integer.BYTES;
+        this.vertexLifespans = position;
+        position += (long) this.vertexCount * Integer.BYTES;
+        this.labelOffsets = position;
+        position += (long) (this.vertexCount + 1) * Integer.BYTES;
+        this.labelEntries = position;
+        position += 2L * labelEntryCount * Integer.BYTES;
+        this.offsets = position;
+        position += (long) (this.vertexCount + 1) * Integer.BYTES;
+        this.neighbors = position;
+        position += (long) this.adjacencyCount * Integer.BYTES;
+        this.edgeLifespans = position;
+
+        this.bufferPool = new BufferPool(Paths.get(this.filename), this.pageSize, this.poolPages);
+        // Least recently used decoded lifespans are dropped first.
+        this.lifespanCache = new LinkedHashMap<Integer, LifespanSet>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, LifespanSet> eldest) {
+                return this.size() > PagedVersionGraph.this.lifespanCacheSize;
+            }
+        };
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readDictionaries(ByteBuffer buffer) {
+        List<IdDictionary<?>> dictionaries = MappedVersionGraph.readDictionaries(
+                buffer, this.vertexCodec, this.labelCodec);
+        this.vertexDictionary = (IdDictionary<V>) dictionaries.get(0);
+        this.labelDictionary = (IdDictionary<L>) dictionaries.get(1);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.open();
+    }
+
+    private int getInt(long section, long index) {
+        return this.bufferPool.getInt(section + index * Integer.BYTES);
+    }
+
+    private LifespanSet lifespan(int index) {
+        synchronized(this.lifespanCache) {
+            LifespanSet lifespan = this.lifespanCache.get(index);
+            if(lifespan != null) {
+                return lifespan;
+            }
+        }
+        BitSet bs = new BitSet(this.size);
+        for(int run = this.getInt(this.runOffsets, index); run < this.getInt(this.runOffsets, index + 1); run++) {
+            bs.set(this.getInt(this.runs, 2L * run), this.getInt(this.runs, 2L * run + 1));
+        }
+        LifespanSet lifespan = this.lifespanSetFactory.createLifespanSet(bs);
+        synchronized(this.lifespanCache) {
+            this.lifespanCache.put(index, lifespan);
+        }
+        return lifespan;
+    }
+
+    public String getFilename() {
+        return this.filename;
+    }
+
+    // Hit and miss counters of the pool can be used to size it.
+    public BufferPool getBufferPool() {
+        return this.bufferPool;
+    }
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return this.directed;
+    }
+
+    @Override
+    public IdDictionary<V> getVertexDictionary() {
+        return this.vertexDictionary;
+    }
+
+    @Override
+    public IdDictionary<L> getLabelDictionary() {
+        return this.labelDictionary;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return this.vertexCount;
+    }
+
+    @Override
+    public int getLabelCount() {
+        return this.labelCount;
+    }
+
+    @Override
+    public boolean containsVertexId(int vertexId) {
+        return vertexId >= 0
+                && vertexId < this.vertexCount
+                && this.getInt(this.vertexLifespans, vertexId) != MappedVersionGraph.NO_LIFESPAN;
+    }
+
+    @Override
+    public LifespanSet vertexLifespanById(int vertexId) {
+        int lifespan = this.getInt(this.vertexLifespans, vertexId);
+        return lifespan == MappedVersionGraph.NO_LIFESPAN ? null : this.lifespan(lifespan);
+    }
+
+    @Override
+    public LifespanSet labelLifespanById(int vertexId, int labelId) {
+        int lifespan = this.labelLifespanIndex(vertexId, labelId);
+        return lifespan == MappedVersionGraph.NO_LIFESPAN ? null : this.lifespan(lifespan);
+    }
+
+    @Override
+    public int labelLifespanIndex(int vertexId, int labelId) {
+        int end = this.getInt(this.labelOffsets, vertexId + 1);
+        for(int entry = this.getInt(this.labelOffsets, vertexId); entry < end; entry++) {
+            int entryLabel = this.getInt(this.labelEntries, 2L * entry);
+            if(entryLabel == labelId) {
+                return this.getInt(this.labelEntries, 2L * entry + 1);
+            } else if(entryLabel > labelId) {
+                break;
+            }
+        }
+        return MappedVersionGraph.NO_LIFESPAN;
+    }
+
+    @Override
+    public int getOutDegree(int vertexId) {
+        return this.getInt(this.offsets, vertexId + 1) - this.getInt(this.offsets, vertexId);
+    }
+
+    @Override
+    public int getOutNeighbor(int vertexId, int index) {
+        return this.getInt(this.neighbors, this.getInt(this.offsets, vertexId) + index);
+    }
+
+    @Override
+    public LifespanSet outEdgeLifespan(int vertexId, int index) {
+        return this.lifespan(this.getInt(this.edgeLifespans, this.getInt(this.offsets, vertexId) + index));
+    }
+
+    @Override
+    public LifespanSet edgeLifespanById(int sourceId, int targetId) {
+        int end = this.getInt(this.offsets, sourceId + 1);
+        int low = this.getInt(this.offsets, sourceId);
+        int high = end;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(this.getInt(this.neighbors, middle) < targetId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if(low == end || this.getInt(this.neighbors, low) != targetId) {
+            return null;
+        }
+        LifespanSet lifespan = this.lifespan(this.getInt(this.edgeLifespans, low));
+        // Multiple edges, the pair is connected whenever one of them is alive.
+        for(int position = low + 1; position < end && this.getInt(this.neighbors, position) == targetId; position++) {
+            lifespan = lifespan.or(this.lifespan(this.getInt(this.edgeLifespans, position)));
+        }
+        return lifespan;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.bufferPool.close();
+    }
+
+    @Override
+    public String toString() {
+        return "PagedVersionGraph{" +
+                "filename='" + filename + '\'' +
+                ", size=" + size +
+                ", directed=" + directed +
+                ", vertices=" + vertexCount +
+                ", labels=" + labelCount +
+                ", lifespans=" + lifespanCount +
+                ", adjacencies=" + adjacencyCount +
+                ", bufferPool=" + bufferPool +
+                '}';
+    }
+}
@@ -0,0 +1,309 @@
+package nl.tue.win.dbt.data;
+
+import com.google.common.collect.Sets;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.EdgeFactory;
+import org.jgrapht.Graph;
+import org.jgrapht.UndirectedGraph;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Read-only snapshot of a version graph at a single timestamp. Nothing is copied, vertices, edges and labels of the
+// version graph are filtered on their lifespan whenever they are accessed.
+// Changes to the version graph are visible in the view.
+public class SnapshotView<V, E, L> extends LabeledGraph<V, E, L> {
+    private final LabeledVersionGraph<V, E, L> versionGraph;
+    private final int timestamp;
+
+    private SnapshotView(LabeledVersionGraph<V, E, L> versionGraph, int timestamp) {
+        super(versionGraph.getImpl(), versionGraph);
+        if(timestamp < 0 || timestamp >= versionGraph.getSize()) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Timestamp %s is not within the %s timestamps.", timestamp, versionGraph.getSize()));
+        }
+        this.versionGraph = versionGraph;
+        this.timestamp = timestamp;
+    }
+
+    // The view is a directed graph if the version graph is directed, so algorithms that inspect the type of a graph
+    // treat the view the same as a copied snapshot.
+    public static <V, E, L> SnapshotView<V, E, L> of(LabeledVersionGraph<V, E, L> versionGraph, int timestamp) {
+        Objects.requireNonNull(versionGraph);
+        if(versionGraph.getExactImpl() instanceof DirectedGraph) {
+            return new Directed<>(versionGraph, timestamp);
+        }
+        return new Undirected<>(versionGraph, timestamp);
+    }
+
+    public LabeledVersionGraph<V, E, L> getVersionGraph() {
+        return this.versionGraph;
+    }
+
+    public int getTimestamp() {
+        return this.timestamp;
+    }
+
+    private boolean isAlive(LifespanSet lifespan) {
+        return lifespan != null && lifespan.get(this.timestamp);
+    }
+
+    private boolean isAliveVertex(V vertex) {
+        return this.isAlive(this.versionGraph.vertexLifespan(vertex));
+    }
+
+    private boolean isAliveEdge(E edge) {
+        return this.isAlive(this.versionGraph.edgeLifespan(edge));
+    }
+
+    // Views are graphs themselves, unwrapping them would expose every timestamp.
+    @Override
+    public Graph<V, E> getImpl() {
+        return this;
+    }
+
+    @Override
+    public Graph<V, E> getExactImpl() {
+        return this;
+    }
+
+    @Override
+    public Set<E> getAllEdges(V v, V v1) {
+        if(!this.containsVertex(v) || !this.containsVertex(v1)) {
+            return null;
+        }
+        return Sets.filter(this.versionGraph.getAllEdges(v, v1), this::isAliveEdge);
+    }
+
+    @Override
+    public E getEdge(V v, V v1) {
+        if(!this.containsVertex(v) || !this.containsVertex(v1)) {
+            return null;
+        }
+        for(E edge: this.versionGraph.getAllEdges(v, v1)) {
+            if(this.isAliveEdge(edge)) {
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public EdgeFactory<V, E> getEdgeFactory() {
+        return this.versionGraph.getEdgeFactory();
+    }
+
+    @Override
+    public boolean containsEdge(V v, V v1) {
+        return this.getEdge(v, v1) != null;
+    }
+
+    @Override
+    public boolean containsEdge(E e) {
+        return this.isAliveEdge(e);
+    }
+
+    @Override
+    public boolean containsVertex(V v) {
+        return this.isAliveVertex(v);
+    }
+
+    @Override
+    public Set<E> edgeSet() {
+        return Sets.filter(this.versionGraph.edgeSet(), this::isAliveEdge);
+    }
+
+    @Override
+    public Set<E> edgesOf(V v) {
+        if(!this.containsVertex(v)) {
+            throw new IllegalArgumentException("no such vertex in graph: " + v);
+        }
+        return Sets.filter(this.versionGraph.edgesOf(v), this::isAliveEdge);
+    }
+
+    @Override
+    public Set<V> vertexSet() {
+        return Sets.filter(this.versionGraph.vertexSet(), this::isAliveVertex);
+    }
+
+    @Override
+    public V getEdgeSource(E e) {
+        return this.versionGraph.getEdgeSource(e);
+    }
+
+    @Override
+    public V getEdgeTarget(E e) {
+        return this.versionGraph.getEdgeTarget(e);
+    }
+
+    @Override
+    public double getEdgeWeight(E e) {
+        return this.versionGraph.getEdgeWeight(e);
+    }
+
+    @Override
+    public Set<L> getLabels(V vertex) {
+        if(!this.containsVertex(vertex)) {
+            return Collections.emptySet();
+        }
+        return Sets.filter(
+                this.versionGraph.getLabels(vertex),
+                label -> this.isAlive(this.versionGraph.labelLifespan(vertex, label)));
+    }
+
+    @Override
+    public Set<L> getAllLabels() {
+        return this.vertexSet()
+                .stream()
+                .flatMap(vertex -> this.getLabels(vertex).stream())
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean hasLabel(V vertex, L label) {
+        return this.containsVertex(vertex) && this.isAlive(this.versionGraph.labelLifespan(vertex, label));
+    }
+
+    @Override
+    public boolean hasLabel(L label) {
+        return this.vertexSet().stream().anyMatch(vertex -> this.hasLabel(vertex, label));
+    }
+
+    @Override
+    public boolean hasLabels() {
+        return this.vertexSet().stream().allMatch(vertex -> this.getLabels(vertex).isEmpty());
+    }
+
+    @Override
+    public boolean addLabel(V vertex, L label) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public boolean addAllLabels(V vertex, Collection<? extends L> labels) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public boolean removeLabel(V vertex, L label) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public Set<L> removeAllLabels(V vertex) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public void removeAllLabels() {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public E addEdge(V v, V v1) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public boolean addEdge(V v, V v1, E e) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public boolean addVertex(V v) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public boolean removeAllEdges(Collection<? extends E> collection) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public Set<E> removeAllEdges(V v, V v1) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public boolean removeAllVertices(Collection<? extends V> collection) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public E removeEdge(V v, V v1) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public boolean removeEdge(E e) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public boolean removeVertex(V v) {
+        throw new UnsupportedOperationException("Snapshot views are read-only");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SnapshotView<?, ?, ?> that = (SnapshotView<?, ?, ?>) o;
+
+        return timestamp == that.timestamp && versionGraph == that.versionGraph;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(versionGraph) + timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotView{timestamp=" + this.timestamp + "}";
+    }
+
+    private static final class Directed<V, E, L> extends SnapshotView<V, E, L> implements DirectedGraph<V, E> {
+        private Directed(LabeledVersionGraph<V, E, L> versionGraph, int timestamp) {
+            super(versionGraph, timestamp);
+        }
+
+        @Override
+        public int inDegreeOf(V vertex) {
+            return this.incomingEdgesOf(vertex).size();
+        }
+
+        @Override
+        public Set<E> incomingEdgesOf(V vertex) {
+            return Sets.filter(this.edgesOf(vertex), edge -> this.getEdgeTarget(edge).equals(vertex));
+        }
+
+        @Override
+        public int outDegreeOf(V vertex) {
+            return this.outgoingEdgesOf(vertex).size();
+        }
+
+        @Override
+        public Set<E> outgoingEdgesOf(V vertex) {
+            return Sets.filter(this.edgesOf(vertex), edge -> this.getEdgeSource(edge).equals(vertex));
+        }
+    }
+
+    private static final class Undirected<V, E, L> extends SnapshotView<V, E, L> implements UndirectedGraph<V, E> {
+        private Undirected(LabeledVersionGraph<V, E, L> versionGraph, int timestamp) {
+            super(versionGraph, timestamp);
+        }
+
+        @Override
+        public int degreeOf(V vertex) {
+            int degree = 0;
+            for(E edge: this.edgesOf(vertex)) {
+                // Loops count twice, the same as in jgrapht.
+                degree += this.getEdgeSource(edge).equals(this.getEdgeTarget(edge)) ? 2 : 1;
+            }
+            return degree;
+        }
+    }
+}
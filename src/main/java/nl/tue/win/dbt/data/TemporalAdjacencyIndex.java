@@ -0,0 +1,195 @@
+package nl.tue.win.dbt.data;
+
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+
+import java.io.Serializable;
+import java.util.*;
+
+// Neighbors of high-degree vertices of a version graph, grouped by buckets of consecutive timestamps.
+// A neighbor is in every bucket in which its edge is alive, so the neighbors that are alive during a lifespan are
+// found in the buckets that the lifespan overlaps, without looking at the lifespans of all other neighbors.
+// Vertices with a low degree are not indexed, scanning all their neighbors is cheaper.
+// Buckets are rolled up into coarser buckets, so a lifespan that overlaps all buckets of a coarse bucket takes the
+// neighbors of the coarse bucket, where every neighbor is listed once, instead of those of each finer bucket.
+// The index is kept on the heap, also for mapped and paged version graphs. Every indexed vertex takes an int for
+// each bucket of each level and an int for each bucket that each of its edges is alive in, at every level, so up to
+// levels x (buckets + degree x buckets) ints. Graphs that do not fit in the heap should not be indexed, see
+// Configuration.setTemporalAdjacencyIndexed.
+public class TemporalAdjacencyIndex implements Serializable {
+    public static final int DEFAULT_BUCKET_COUNT = 32;
+    public static final int DEFAULT_MIN_DEGREE = 32;
+
+    private final int bucketWidth;
+    private final int bucketCount;
+    private final int minDegree;
+    // Levels of buckets, the buckets of level 0 are bucketWidth timestamps wide.
+    private final TimeHierarchy hierarchy;
+    // Positions (indices in the neighbors of the vertex) in bucket b of a level are
+    // positions[vertex][level][bucketOffsets[vertex][level][b]] until
+    // positions[vertex][level][bucketOffsets[vertex][level][b + 1]].
+    // Both are null for vertices that are not indexed.
+    private final int[][][] bucketOffsets;
+    private final int[][][] positions;
+    private final int[] degrees;
+
+    public TemporalAdjacencyIndex(final VersionGraph<?, ?> graph) {
+        this(graph, DEFAULT_BUCKET_COUNT, DEFAULT_MIN_DEGREE);
+    }
+
+    public TemporalAdjacencyIndex(final VersionGraph<?, ?> graph, final int bucketCount, final int minDegree) {
+        Objects.requireNonNull(graph);
+        if(bucketCount <= 0) {
+            throw new IllegalArgumentException("Expected a positive bucket count");
+        }
+        int size = Math.max(graph.getSize(), 1);
+        this.bucketWidth = (size + bucketCount - 1) / bucketCount;
+        this.bucketCount = (size + this.bucketWidth - 1) / this.bucketWidth;
+        this.minDegree = minDegree;
+        this.hierarchy = new TimeHierarchy(this.bucketCount);
+        this.bucketOffsets = new int[graph.getVertexCount()][][];
+        this.positions = new int[graph.getVertexCount()][][];
+        this.degrees = new int[graph.getVertexCount()];
+        for(int vertexId = 0; vertexId < graph.getVertexCount(); vertexId++) {
+            if(graph.containsVertexId(vertexId) && graph.getOutDegree(vertexId) >= minDegree) {
+                this.indexVertex(graph, vertexId);
+            }
+        }
+    }
+
+    private void indexVertex(VersionGraph<?, ?> graph, int vertexId) {
+        int degree = graph.getOutDegree(vertexId);
+        int[] offsets = new int[this.bucketCount + 1];
+        for(int index = 0; index < degree; index++) {
+            LifespanSet lifespan = graph.outEdgeLifespan(vertexId, index);
+            for(int bucket = this.nextBucket(lifespan, 0); bucket >= 0; bucket = this.nextBucket(lifespan, bucket + 1)) {
+                offsets[bucket + 1]++;
+            }
+        }
+        for(int bucket = 0; bucket < this.bucketCount; bucket++) {
+            offsets[bucket + 1] += offsets[bucket];
+        }
+        int[] bucketPositions = new int[offsets[this.bucketCount]];
+        int[] next = Arrays.copyOf(offsets, this.bucketCount);
+        // Positions are added in increasing order, so every bucket is sorted.
+        for(int index = 0; index < degree; index++) {
+            LifespanSet lifespan = graph.outEdgeLifespan(vertexId, index);
+            for(int bucket = this.nextBucket(lifespan, 0); bucket >= 0; bucket = this.nextBucket(lifespan, bucket + 1)) {
+                bucketPositions[next[bucket]++] = index;
+            }
+        }
+        int levelCount = this.hierarchy.getLevelCount();
+        this.bucketOffsets[vertexId] = new int[levelCount][];
+        this.positions[vertexId] = new int[levelCount][];
+        this.bucketOffsets[vertexId][0] = offsets;
+        this.positions[vertexId][0] = bucketPositions;
+        for(int level = 1; level < levelCount; level++) {
+            this.rollUp(vertexId, level);
+        }
+        this.degrees[vertexId] = degree;
+    }
+
+    // Positions of a coarse bucket are the sorted union of the positions of its children.
+    private void rollUp(int vertexId, int level) {
+        int[] childOffsets = this.bucketOffsets[vertexId][level - 1];
+        int[] childPositions = this.positions[vertexId][level - 1];
+        int count = this.hierarchy.getBucketCount(level);
+        int[] offsets = new int[count + 1];
+        int[] bucketPositions = new int[childPositions.length];
+        BitSet union = new BitSet();
+        int size = 0;
+        for(int bucket = 0; bucket < count; bucket++) {
+            union.clear();
+            int end = this.hierarchy.endChild(level, bucket);
+            for(int child = this.hierarchy.firstChild(bucket); child < end; child++) {
+                for(int position = childOffsets[child]; position < childOffsets[child + 1]; position++) {
+                    union.set(childPositions[position]);
+                }
+            }
+            for(int position = union.nextSetBit(0); position >= 0; position = union.nextSetBit(position + 1)) {
+                bucketPositions[size++] = position;
+            }
+            offsets[bucket + 1] = size;
+        }
+        this.bucketOffsets[vertexId][level] = offsets;
+        this.positions[vertexId][level] = Arrays.copyOf(bucketPositions, size);
+    }
+
+    // First bucket from the given bucket onwards that the lifespan overlaps, -1 if there is none.
+    private int nextBucket(LifespanSet lifespan, int fromBucket) {
+        if(fromBucket >= this.bucketCount) {
+            return -1;
+        }
+        int timestamp = lifespan.nextSetBit(fromBucket * this.bucketWidth);
+        return timestamp < 0 ? -1 : Math.min(timestamp / this.bucketWidth, this.bucketCount - 1);
+    }
+
+    public boolean isIndexed(int vertexId) {
+        return vertexId >= 0 && vertexId < this.positions.length && this.positions[vertexId] != null;
+    }
+
+    // Sets the positions of the neighbors of the vertex whose edges are alive in a bucket that the lifespan overlaps.
+    // Edges that are alive during the lifespan are always included, edges that only share a bucket with it may be
+    // included as well. Returns false, without changing alive, if the vertex is not indexed or if the buckets hold
+    // as many positions as the vertex has neighbors, then all neighbors should be scanned instead.
+    public boolean alivePositions(int vertexId, LifespanSet lifespan, BitSet alive) {
+        if(!this.isIndexed(vertexId)) {
+            return false;
+        }
+        int[][] offsets = this.bucketOffsets[vertexId];
+        int[][] bucketPositions = this.positions[vertexId];
+        BitSet overlapped = new BitSet(this.bucketCount);
+        for(int bucket = this.nextBucket(lifespan, 0); bucket >= 0; bucket = this.nextBucket(lifespan, bucket + 1)) {
+            overlapped.set(bucket);
+        }
+        TimeHierarchy.Intervals buckets = this.hierarchy.rollUp(overlapped);
+        int[] count = {0};
+        buckets.cover((level, bucket) -> count[0] += offsets[level][bucket + 1] - offsets[level][bucket]);
+        if(count[0] >= this.degrees[vertexId]) {
+            return false;
+        }
+        alive.clear();
+        buckets.cover((level, bucket) -> {
+            for(int position = offsets[level][bucket]; position < offsets[level][bucket + 1]; position++) {
+                alive.set(bucketPositions[level][position]);
+            }
+        });
+        return true;
+    }
+
+    public int getBucketWidth() {
+        return this.bucketWidth;
+    }
+
+    public int getBucketCount() {
+        return this.bucketCount;
+    }
+
+    public int getLevelCount() {
+        return this.hierarchy.getLevelCount();
+    }
+
+    public int getMinDegree() {
+        return this.minDegree;
+    }
+
+    @Override
+    public String toString() {
+        int indexed = 0;
+        long entries = 0;
+        for(int[][] bucketPositions: this.positions) {
+            if(bucketPositions != null) {
+                indexed++;
+                for(int[] levelPositions: bucketPositions) {
+                    entries += levelPositions.length;
+                }
+            }
+        }
+        return "TemporalAdjacencyIndex{" +
+                "bucketWidth=" + bucketWidth +
+                ", bucketCount=" + bucketCount +
+                ", minDegree=" + minDegree +
+                ", indexedVertices=" + indexed +
+                ", entries=" + entries +
+                '}';
+    }
+}
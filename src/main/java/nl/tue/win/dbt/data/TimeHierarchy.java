@@ -0,0 +1,203 @@
+package nl.tue.win.dbt.data;
+
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+
+import java.io.Serializable;
+import java.util.*;
+
+// Timestamps grouped into buckets at several resolutions. Level 0 has one timestamp per bucket and every bucket of
+// level k + 1 covers fanOut consecutive buckets of level k, the top level has a single bucket. Rolled-up intervals
+// and counters give bounds for whole buckets, so searches check coarse buckets first and only descend into buckets
+// where the bounds do not decide.
+public class TimeHierarchy implements Serializable {
+    public static final int DEFAULT_FAN_OUT = 4;
+
+    private final int size;
+    private final int fanOut;
+    private final int levelCount;
+
+    public TimeHierarchy(final int size) {
+        this(size, DEFAULT_FAN_OUT);
+    }
+
+    public TimeHierarchy(final int size, final int fanOut) {
+        if(size < 0) {
+            throw new IllegalArgumentException("Expected a non-negative size");
+        }
+        if(fanOut < 2) {
+            throw new IllegalArgumentException("Expected a fan out of at least 2");
+        }
+        this.size = size;
+        this.fanOut = fanOut;
+        int levels = 1;
+        for(long width = 1; width < size; width *= fanOut) {
+            levels++;
+        }
+        this.levelCount = levels;
+    }
+
+    public int getSize() {
+        return this.size;
+    }
+
+    public int getFanOut() {
+        return this.fanOut;
+    }
+
+    public int getLevelCount() {
+        return this.levelCount;
+    }
+
+    public int getTopLevel() {
+        return this.levelCount - 1;
+    }
+
+    public int getBucketCount(int level) {
+        int count = this.size;
+        for(int i = 0; i < level; i++) {
+            count = (count + this.fanOut - 1) / this.fanOut;
+        }
+        return Math.max(count, 1);
+    }
+
+    // First child of a bucket, the children of a bucket of level k are buckets of level k - 1.
+    public int firstChild(int bucket) {
+        return bucket * this.fanOut;
+    }
+
+    // One past the last child of a bucket.
+    public int endChild(int level, int bucket) {
+        return Math.min((bucket + 1) * this.fanOut, this.getBucketCount(level - 1));
+    }
+
+    public Intervals rollUp(final LifespanSet intervals) {
+        Objects.requireNonNull(intervals);
+        BitSet timestamps = new BitSet(this.size);
+        for(int i = intervals.nextSetBit(0); i >= 0 && i < this.size; i = intervals.nextSetBit(i + 1)) {
+            timestamps.set(i);
+        }
+        return new Intervals(timestamps);
+    }
+
+    public Intervals rollUp(final BitSet intervals) {
+        Objects.requireNonNull(intervals);
+        return new Intervals(intervals.get(0, this.size));
+    }
+
+    // Counters must have one entry per timestamp.
+    public Counters rollUp(final int[] counters) {
+        Objects.requireNonNull(counters);
+        if(counters.length != this.size) {
+            throw new IllegalArgumentException("Expected " + this.size + " counters");
+        }
+        return new Counters(counters);
+    }
+
+    @Override
+    public String toString() {
+        return "TimeHierarchy{" +
+                "size=" + size +
+                ", fanOut=" + fanOut +
+                ", levels=" + levelCount +
+                '}';
+    }
+
+    // Whether any and whether all timestamps of every bucket are in the intervals.
+    public final class Intervals implements Serializable {
+        private final BitSet[] any;
+        private final BitSet[] all;
+
+        private Intervals(BitSet timestamps) {
+            int levels = TimeHierarchy.this.levelCount;
+            this.any = new BitSet[levels];
+            this.all = new BitSet[levels];
+            this.any[0] = timestamps;
+            this.all[0] = timestamps;
+            for(int level = 1; level < levels; level++) {
+                int count = TimeHierarchy.this.getBucketCount(level);
+                this.any[level] = new BitSet(count);
+                this.all[level] = new BitSet(count);
+                for(int bucket = 0; bucket < count; bucket++) {
+                    int first = TimeHierarchy.this.firstChild(bucket);
+                    int end = TimeHierarchy.this.endChild(level, bucket);
+                    int nextAny = this.any[level - 1].nextSetBit(first);
+                    if(nextAny >= 0 && nextAny < end) {
+                        this.any[level].set(bucket);
+                        int nextMissing = this.all[level - 1].nextClearBit(first);
+                        if(nextMissing >= end) {
+                            this.all[level].set(bucket);
+                        }
+                    }
+                }
+            }
+        }
+
+        public boolean any(int level, int bucket) {
+            return this.any[level].get(bucket);
+        }
+
+        public boolean all(int level, int bucket) {
+            return this.all[level].get(bucket);
+        }
+
+        // Calls the consumer with the fewest buckets that together cover exactly the timestamps of the intervals,
+        // coarse buckets come before the finer buckets next to them.
+        public void cover(BucketConsumer consumer) {
+            this.cover(TimeHierarchy.this.getTopLevel(), 0, consumer);
+        }
+
+        private void cover(int level, int bucket, BucketConsumer consumer) {
+            if(this.all(level, bucket)) {
+                consumer.accept(level, bucket);
+            } else if(level > 0 && this.any(level, bucket)) {
+                int end = TimeHierarchy.this.endChild(level, bucket);
+                for(int child = TimeHierarchy.this.firstChild(bucket); child < end; child++) {
+                    this.cover(level - 1, child, consumer);
+                }
+            }
+        }
+    }
+
+    // Maximum and minimum of counters per bucket, level 0 is the counters themselves.
+    public final class Counters implements Serializable {
+        private final int[][] max;
+        private final int[][] min;
+
+        private Counters(int[] counters) {
+            int levels = TimeHierarchy.this.levelCount;
+            this.max = new int[levels][];
+            this.min = new int[levels][];
+            this.max[0] = counters;
+            this.min[0] = counters;
+            for(int level = 1; level < levels; level++) {
+                int count = TimeHierarchy.this.getBucketCount(level);
+                this.max[level] = new int[count];
+                this.min[level] = new int[count];
+                for(int bucket = 0; bucket < count; bucket++) {
+                    int first = TimeHierarchy.this.firstChild(bucket);
+                    int end = TimeHierarchy.this.endChild(level, bucket);
+                    int bucketMax = Integer.MIN_VALUE;
+                    int bucketMin = Integer.MAX_VALUE;
+                    for(int child = first; child < end; child++) {
+                        bucketMax = Math.max(bucketMax, this.max[level - 1][child]);
+                        bucketMin = Math.min(bucketMin, this.min[level - 1][child]);
+                    }
+                    this.max[level][bucket] = bucketMax;
+                    this.min[level][bucket] = bucketMin;
+                }
+            }
+        }
+
+        public int max(int level, int bucket) {
+            return this.max[level][bucket];
+        }
+
+        public int min(int level, int bucket) {
+            return this.min[level][bucket];
+        }
+    }
+
+    public interface BucketConsumer {
+        void accept(int level, int bucket);
+    }
+}
@@ -0,0 +1,245 @@
+package nl.tue.win.dbt.data;
+
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+// Consecutive timestamps of a version graph at which the whole graph is the same, collapsed into segments.
+// A compacted version graph has one timestamp per segment, so its lifespans and the counters of time indices shrink
+// with the number of timestamps at which nothing changes. Segments are weighted by the timestamps they cover, so
+// durations and matches are mapped back to the original timestamps with the weights of a query.
+public class TimeSegments implements Serializable {
+    private final int size;
+    // Segment s covers the timestamps starts[s] until starts[s + 1], the last start is size.
+    private final int[] starts;
+    // Segment of every original timestamp.
+    private final int[] segments;
+
+    private TimeSegments(int size, int[] starts) {
+        this.size = size;
+        this.starts = starts;
+        this.segments = new int[size];
+        for(int segment = 0; segment < this.getSegmentCount(); segment++) {
+            Arrays.fill(this.segments, starts[segment], starts[segment + 1], segment);
+        }
+    }
+
+    // A new segment starts at every timestamp at which a vertex, label or edge appears or disappears.
+    public static TimeSegments of(final LabeledVersionGraph<?, ?, ?> lvg) {
+        Objects.requireNonNull(lvg);
+        BitSet changes = new BitSet(lvg.getSize());
+        changes.set(0);
+        // Lifespans of the version graph are interned, so every distinct lifespan is only visited once.
+        Set<LifespanSet> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(LifespanSet lifespan: lifespans(lvg)) {
+            if(visited.add(lifespan)) {
+                int end;
+                for(int start = lifespan.nextSetBit(0); start >= 0; start = lifespan.nextSetBit(end)) {
+                    end = lifespan.nextClearBit(start);
+                    changes.set(start);
+                    changes.set(end);
+                }
+            }
+        }
+        changes.clear(lvg.getSize(), Math.max(changes.length(), lvg.getSize()));
+        int[] starts = new int[changes.cardinality() + 1];
+        int segment = 0;
+        for(int timestamp = changes.nextSetBit(0); timestamp >= 0; timestamp = changes.nextSetBit(timestamp + 1)) {
+            starts[segment++] = timestamp;
+        }
+        starts[segment] = lvg.getSize();
+        return new TimeSegments(lvg.getSize(), starts);
+    }
+
+    private static <V, E, L> List<LifespanSet> lifespans(LabeledVersionGraph<V, E, L> lvg) {
+        List<LifespanSet> lifespans = new ArrayList<>();
+        for(V vertex: lvg.vertexSet()) {
+            lifespans.add(lvg.vertexLifespan(vertex));
+            for(L label: lvg.getLabels(vertex)) {
+                lifespans.add(lvg.labelLifespan(vertex, label));
+            }
+        }
+        for(E edge: lvg.edgeSet()) {
+            lifespans.add(lvg.edgeLifespan(edge));
+        }
+        return lifespans;
+    }
+
+    // Version graph with one timestamp per segment, lvg must be the version graph the segments were created for.
+    public <V, E, L> LabeledVersionGraph<V, E, L> compact(
+            final LabeledVersionGraph<V, E, L> lvg,
+            final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            final LifespanSetFactory lifespanSetFactory) {
+        Objects.requireNonNull(lvg);
+        Objects.requireNonNull(graphCreator);
+        Objects.requireNonNull(lifespanSetFactory);
+        if(lvg.getSize() != this.size) {
+            throw new IllegalArgumentException("Expected the version graph of the segments");
+        }
+        VersionGraphBuilder<V, E, L> builder = new VersionGraphBuilder<>(graphCreator, this.getSegmentCount());
+        for(V vertex: lvg.vertexSet()) {
+            this.forEachSegment(lvg.vertexLifespan(vertex), segment -> builder.addVertex(vertex, segment));
+            for(L label: lvg.getLabels(vertex)) {
+                this.forEachSegment(lvg.labelLifespan(vertex, label), segment -> builder.addLabel(vertex, label, segment));
+            }
+        }
+        for(E edge: lvg.edgeSet()) {
+            V source = lvg.getEdgeSource(edge);
+            V target = lvg.getEdgeTarget(edge);
+            this.forEachSegment(lvg.edgeLifespan(edge), segment -> builder.addEdge(source, target, segment));
+        }
+        return builder.build(lifespanSetFactory);
+    }
+
+    // Lifespans never change within a segment, so a run of a lifespan covers whole segments.
+    private void forEachSegment(LifespanSet lifespan, IntConsumer consumer) {
+        int end;
+        for(int start = lifespan.nextSetBit(0); start >= 0 && start < this.size; start = lifespan.nextSetBit(end)) {
+            end = Math.min(lifespan.nextClearBit(start), this.size);
+            for(int segment = this.segments[start]; segment <= this.segments[end - 1]; segment++) {
+                consumer.accept(segment);
+            }
+        }
+    }
+
+    // Number of original timestamps.
+    public int getSize() {
+        return this.size;
+    }
+
+    public int getSegmentCount() {
+        return this.starts.length - 1;
+    }
+
+    public int getStart(int segment) {
+        return this.starts[segment];
+    }
+
+    public int getWeight(int segment) {
+        return this.starts[segment + 1] - this.starts[segment];
+    }
+
+    public int segmentOf(int timestamp) {
+        return this.segments[timestamp];
+    }
+
+    // Weights of the segments for a query on the given original timestamps.
+    public Weights weigh(final BitSet intervals) {
+        Objects.requireNonNull(intervals);
+        return new Weights(intervals);
+    }
+
+    @Override
+    public String toString() {
+        return "TimeSegments{" +
+                "size=" + size +
+                ", segments=" + getSegmentCount() +
+                '}';
+    }
+
+    // Segments weighted by the timestamps of the query intervals they cover. Durations of lifespans of a compacted
+    // version graph are the durations of the original timestamps of their segments that are in the intervals.
+    public final class Weights implements Serializable {
+        private final BitSet intervals;
+        private final BitSet querySegments;
+        // Number of query timestamps in every segment.
+        private final int[] weights;
+        // Length of the run of query timestamps at the start and at the end of every segment and the longest run of
+        // query timestamps in every segment.
+        private final int[] heads;
+        private final int[] tails;
+        private final int[] inner;
+        private final int maxWeight;
+
+        private Weights(BitSet intervals) {
+            this.intervals = intervals.get(0, TimeSegments.this.size);
+            int count = TimeSegments.this.getSegmentCount();
+            this.querySegments = new BitSet(count);
+            this.weights = new int[count];
+            this.heads = new int[count];
+            this.tails = new int[count];
+            this.inner = new int[count];
+            int max = 0;
+            for(int segment = 0; segment < count; segment++) {
+                int start = TimeSegments.this.starts[segment];
+                int end = TimeSegments.this.starts[segment + 1];
+                int runEnd;
+                for(int run = this.intervals.nextSetBit(start); run >= 0 && run < end; run = this.intervals.nextSetBit(runEnd)) {
+                    runEnd = Math.min(this.intervals.nextClearBit(run), end);
+                    this.weights[segment] += runEnd - run;
+                    this.inner[segment] = Math.max(this.inner[segment], runEnd - run);
+                    if(run == start) {
+                        this.heads[segment] = runEnd - run;
+                    }
+                    if(runEnd == end) {
+                        this.tails[segment] = runEnd - run;
+                    }
+                }
+                if(this.weights[segment] > 0) {
+                    this.querySegments.set(segment);
+                }
+                max = Math.max(max, this.weights[segment]);
+            }
+            this.maxWeight = max;
+        }
+
+        // Segments that cover at least one query timestamp.
+        public BitSet getSegments() {
+            return (BitSet) this.querySegments.clone();
+        }
+
+        // Upper bound on the weight of a single segment, a lifespan of n segments lasts at most n times this.
+        public int getMaxWeight() {
+            return this.maxWeight;
+        }
+
+        public int cardinality(LifespanSet lifespan) {
+            int cardinality = 0;
+            int count = this.weights.length;
+            for(int segment = lifespan.nextSetBit(0); segment >= 0 && segment < count; segment = lifespan.nextSetBit(segment + 1)) {
+                cardinality += this.weights[segment];
+            }
+            return cardinality;
+        }
+
+        // Runs continue into the next segment if both segments are in the lifespan and the query timestamps reach
+        // the end of the first segment and the start of the next one.
+        public int longestRun(LifespanSet lifespan) {
+            int longest = 0;
+            int current = 0;
+            int previous = -2;
+            int count = this.weights.length;
+            for(int segment = lifespan.nextSetBit(0); segment >= 0 && segment < count; segment = lifespan.nextSetBit(segment + 1)) {
+                if(segment != previous + 1) {
+                    current = 0;
+                }
+                if(this.weights[segment] == TimeSegments.this.getWeight(segment)) {
+                    current += this.weights[segment];
+                } else {
+                    longest = Math.max(longest, Math.max(current + this.heads[segment], this.inner[segment]));
+                    current = this.tails[segment];
+                }
+                longest = Math.max(longest, current);
+                previous = segment;
+            }
+            return longest;
+        }
+
+        // Original query timestamps of the segments of the lifespan.
+        public BitSet toTimestamps(LifespanSet lifespan) {
+            BitSet timestamps = new BitSet(TimeSegments.this.size);
+            int count = this.weights.length;
+            for(int segment = lifespan.nextSetBit(0); segment >= 0 && segment < count; segment = lifespan.nextSetBit(segment + 1)) {
+                int start = TimeSegments.this.starts[segment];
+                int end = TimeSegments.this.starts[segment + 1];
+                for(int t = this.intervals.nextSetBit(start); t >= 0 && t < end; t = this.intervals.nextSetBit(t + 1)) {
+                    timestamps.set(t);
+                }
+            }
+            return timestamps;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package nl.tue.win.dbt.data;
+
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+
+import java.io.Serializable;
+
+// Read-only view of a version graph in which vertices and labels are identified by their dense ids.
+// Neighbors are traversable neighbors (see Graphs.getTraversableEdges) and are sorted per vertex.
+public interface VersionGraph<V, L> extends Serializable {
+    int getSize();
+
+    boolean isDirected();
+
+    IdDictionary<V> getVertexDictionary();
+
+    IdDictionary<L> getLabelDictionary();
+
+    // Vertex ids and label ids range from zero up to these counts.
+    int getVertexCount();
+
+    int getLabelCount();
+
+    boolean containsVertexId(int vertexId);
+
+    default int getVertexId(V vertex) {
+        int vertexId = this.getVertexDictionary().getId(vertex);
+        return vertexId < this.getVertexCount() ? vertexId : IdDictionary.NO_ID;
+    }
+
+    default int getLabelId(L label) {
+        int labelId = this.getLabelDictionary().getId(label);
+        return labelId < this.getLabelCount() ? labelId : IdDictionary.NO_ID;
+    }
+
+    LifespanSet vertexLifespanById(int vertexId);
+
+    LifespanSet labelLifespanById(int vertexId, int labelId);
+
+    // Index of the stored label lifespan for graphs that decode lifespans from a file, equal indices have equal
+    // lifespans. -1 if the graph does not have the label or keeps its lifespans as interned instances.
+    default int labelLifespanIndex(int vertexId, int labelId) {
+        return -1;
+    }
+
+    int getOutDegree(int vertexId);
+
+    int getOutNeighbor(int vertexId, int index);
+
+    LifespanSet outEdgeLifespan(int vertexId, int index);
+
+    // Index of the first edge from source to target, -1 if there is no such edge. Multiple edges to the same target
+    // follow it, since neighbors are sorted.
+    default int getOutEdgeIndex(int sourceId, int targetId) {
+        int low = 0;
+        int high = this.getOutDegree(sourceId);
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(this.getOutNeighbor(sourceId, middle) < targetId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < this.getOutDegree(sourceId) && this.getOutNeighbor(sourceId, low) == targetId ? low : -1;
+    }
+
+    // Union of the lifespans of all edges from source to target, null if there is no such edge.
+    LifespanSet edgeLifespanById(int sourceId, int targetId);
+
+    // Incoming neighbors of directed graphs, the sources of the edges to a vertex, sorted per vertex.
+    // Neighbors of undirected graphs are all traversable, so only directed graphs can have incoming neighbors.
+    default boolean hasIncomingNeighbors() {
+        return false;
+    }
+
+    default int getInDegree(int vertexId) {
+        throw new UnsupportedOperationException("Version graph has no incoming neighbors");
+    }
+
+    default int getInNeighbor(int vertexId, int index) {
+        throw new UnsupportedOperationException("Version graph has no incoming neighbors");
+    }
+
+    default LifespanSet inEdgeLifespan(int vertexId, int index) {
+        throw new UnsupportedOperationException("Version graph has no incoming neighbors");
+    }
+}
@@ -0,0 +1,197 @@
+package nl.tue.win.dbt.data;
+
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+// Accumulates the timestamps at which vertices, edges and labels exist, so a version graph can be built without
+// asking a history graph for the lifespan of every element separately.
+// Builders are not thread safe, partial builders of disjoint timestamps can be combined with merge.
+public class VersionGraphBuilder<V, E, L> {
+    private final GraphCreator<? extends LabeledGraph<V, E, L>, V, E> graphCreator;
+    private int size;
+
+    // Keys are kept in the order in which they are first seen.
+    private final Map<V, BitSet> vertices;
+    private final Map<V, Map<L, BitSet>> labels;
+    private final Map<EdgeKey<V>, BitSet> edges;
+
+    public VersionGraphBuilder(GraphCreator<? extends LabeledGraph<V, E, L>, V, E> graphCreator) {
+        this(graphCreator, 0);
+    }
+
+    public VersionGraphBuilder(GraphCreator<? extends LabeledGraph<V, E, L>, V, E> graphCreator, int size) {
+        Objects.requireNonNull(graphCreator);
+        if(size < 0) {
+            throw new IllegalArgumentException("Expected a non-negative size");
+        }
+        this.graphCreator = graphCreator;
+        this.size = size;
+        this.vertices = new LinkedHashMap<>();
+        this.labels = new LinkedHashMap<>();
+        this.edges = new LinkedHashMap<>();
+    }
+
+    // Sweeps every snapshot once, snapshots are divided over threads and the partial builders are merged.
+    public static <G extends LabeledGraph<V, E, L>, V, E, L> VersionGraphBuilder<V, E, L> of(
+            final LabeledHistoryGraph<G, V, E, L> historyGraph) {
+        Objects.requireNonNull(historyGraph);
+        return IntStream.range(0, historyGraph.size())
+                .parallel()
+                .collect(
+                        () -> new VersionGraphBuilder<>(historyGraph.getGraphCreator(), historyGraph.size()),
+                        (builder, timestamp) -> builder.addSnapshot(historyGraph.getGraph(timestamp), timestamp),
+                        VersionGraphBuilder::merge);
+    }
+
+    public GraphCreator<? extends LabeledGraph<V, E, L>, V, E> getGraphCreator() {
+        return this.graphCreator;
+    }
+
+    // One more than the last timestamp, unless a larger size was given.
+    public int getSize() {
+        return this.size;
+    }
+
+    public void addSnapshot(LabeledGraph<V, E, L> graph, int timestamp) {
+        Objects.requireNonNull(graph);
+        for(V vertex: graph.vertexSet()) {
+            this.addVertex(vertex, timestamp);
+            for(L label: graph.getLabels(vertex)) {
+                this.addLabel(vertex, label, timestamp);
+            }
+        }
+        for(E edge: graph.edgeSet()) {
+            this.addEdge(graph.getEdgeSource(edge), graph.getEdgeTarget(edge), timestamp);
+        }
+    }
+
+    public void addVertex(V vertex, int timestamp) {
+        Objects.requireNonNull(vertex);
+        this.timestamps(this.vertices, vertex, timestamp).set(timestamp);
+    }
+
+    // Also adds the vertex at the timestamp.
+    public void addLabel(V vertex, L label, int timestamp) {
+        Objects.requireNonNull(label);
+        this.addVertex(vertex, timestamp);
+        Map<L, BitSet> vertexLabels = this.labels.computeIfAbsent(vertex, v -> new LinkedHashMap<>());
+        this.timestamps(vertexLabels, label, timestamp).set(timestamp);
+    }
+
+    // Also adds both endpoints at the timestamp.
+    public void addEdge(V sourceVertex, V targetVertex, int timestamp) {
+        this.addVertex(sourceVertex, timestamp);
+        this.addVertex(targetVertex, timestamp);
+        this.timestamps(this.edges, new EdgeKey<>(sourceVertex, targetVertex), timestamp).set(timestamp);
+    }
+
+    public boolean containsEdge(V sourceVertex, V targetVertex, int timestamp) {
+        BitSet timestamps = this.edges.get(new EdgeKey<>(sourceVertex, targetVertex));
+        return timestamps != null && timestamps.get(timestamp);
+    }
+
+    private <K> BitSet timestamps(Map<K, BitSet> map, K key, int timestamp) {
+        if(timestamp < 0) {
+            throw new IndexOutOfBoundsException("timestamp < 0: " + timestamp);
+        }
+        this.size = Math.max(this.size, timestamp + 1);
+        return map.computeIfAbsent(key, k -> new BitSet());
+    }
+
+    // Adds everything of the other builder, the other builder should not be used afterwards.
+    public void merge(VersionGraphBuilder<V, E, L> other) {
+        Objects.requireNonNull(other);
+        this.size = Math.max(this.size, other.size);
+        mergeTimestamps(this.vertices, other.vertices);
+        for(Map.Entry<V, Map<L, BitSet>> entry: other.labels.entrySet()) {
+            Map<L, BitSet> vertexLabels = this.labels.putIfAbsent(entry.getKey(), entry.getValue());
+            if(vertexLabels != null) {
+                mergeTimestamps(vertexLabels, entry.getValue());
+            }
+        }
+        mergeTimestamps(this.edges, other.edges);
+    }
+
+    private static <K> void mergeTimestamps(Map<K, BitSet> map, Map<K, BitSet> other) {
+        for(Map.Entry<K, BitSet> entry: other.entrySet()) {
+            BitSet timestamps = map.putIfAbsent(entry.getKey(), entry.getValue());
+            if(timestamps != null) {
+                timestamps.or(entry.getValue());
+            }
+        }
+    }
+
+    public LabeledVersionGraph<V, E, L> build() {
+        return this.build(new LifespanSetFactory.ContainerFactory());
+    }
+
+    public LabeledVersionGraph<V, E, L> build(LifespanSetFactory lifespanSetFactory) {
+        return this.build(lifespanSetFactory, new VertexOrder.InsertionOrder());
+    }
+
+    public LabeledVersionGraph<V, E, L> build(LifespanSetFactory lifespanSetFactory, VertexOrder vertexOrder) {
+        return new LabeledVersionGraph<>(this, lifespanSetFactory, vertexOrder);
+    }
+
+    // Graph with every vertex, label and edge that exists at some timestamp.
+    LabeledGraph<V, E, L> createGraph() {
+        LabeledGraph<V, E, L> graph = this.graphCreator.create();
+        this.vertices.keySet().forEach(graph::addVertex);
+        for(Map.Entry<V, Map<L, BitSet>> entry: this.labels.entrySet()) {
+            graph.addAllLabels(entry.getKey(), entry.getValue().keySet());
+        }
+        for(EdgeKey<V> edge: this.edges.keySet()) {
+            if(!graph.containsEdge(edge.source, edge.target)) {
+                graph.addEdge(edge.source, edge.target);
+            }
+        }
+        return graph;
+    }
+
+    BitSet vertexTimestamps(V vertex) {
+        return this.vertices.getOrDefault(vertex, new BitSet());
+    }
+
+    BitSet labelTimestamps(V vertex, L label) {
+        return this.labels.getOrDefault(vertex, Collections.emptyMap()).getOrDefault(label, new BitSet());
+    }
+
+    // Timestamps of the edges between the vertices, in an undirected graph both directions belong to the same edge.
+    Map<E, BitSet> edgeTimestamps(LabeledGraph<V, E, L> graph) {
+        Map<E, BitSet> timestamps = new HashMap<>();
+        for(Map.Entry<EdgeKey<V>, BitSet> entry: this.edges.entrySet()) {
+            E edge = graph.getEdge(entry.getKey().source, entry.getKey().target);
+            timestamps.computeIfAbsent(edge, e -> new BitSet()).or(entry.getValue());
+        }
+        return timestamps;
+    }
+
+    private static final class EdgeKey<V> {
+        private final V source;
+        private final V target;
+
+        private EdgeKey(V source, V target) {
+            Objects.requireNonNull(source);
+            Objects.requireNonNull(target);
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            EdgeKey<?> edgeKey = (EdgeKey<?>) o;
+
+            return source.equals(edgeKey.source) && target.equals(edgeKey.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * source.hashCode() + target.hashCode();
+        }
+    }
+}
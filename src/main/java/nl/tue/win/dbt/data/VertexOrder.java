@@ -0,0 +1,98 @@
+package nl.tue.win.dbt.data;
+
+import org.jgrapht.Graph;
+import org.jgrapht.Graphs;
+
+import java.io.Serializable;
+import java.util.*;
+
+// Order in which the vertices of a version graph get their dense ids. Arrays that are indexed by vertex id, such as
+// the adjacency of a CsrVersionGraph and the time indices, follow this order, so an order that keeps neighbors close
+// together improves the locality of lookups. Ids map back to the original vertices with the vertex dictionary.
+public interface VertexOrder extends Serializable {
+    // Every vertex of the graph exactly once, the first vertex gets id 0.
+    <V, E> List<V> order(final Graph<V, E> graph);
+
+    // Ids in the order in which the graph lists its vertices, this is the order without reordering.
+    class InsertionOrder implements VertexOrder, Serializable {
+
+        @Override
+        public <V, E> List<V> order(final Graph<V, E> graph) {
+            return new ArrayList<>(graph.vertexSet());
+        }
+    }
+
+    // Vertices with the most edges first, so the adjacency of hubs is at the start of the arrays.
+    class DegreeOrder implements VertexOrder, Serializable {
+
+        @Override
+        public <V, E> List<V> order(final Graph<V, E> graph) {
+            List<V> vertices = new ArrayList<>(graph.vertexSet());
+            Map<V, Integer> degrees = degrees(graph);
+            // Sorting is stable, vertices with the same degree keep their insertion order.
+            vertices.sort(Comparator.comparing((V vertex) -> degrees.get(vertex)).reversed());
+            return vertices;
+        }
+    }
+
+    // Breadth-first order of every component, starting from the vertex with the highest degree.
+    // Neighbors are visited in order of increasing degree.
+    class BreadthFirstOrder implements VertexOrder, Serializable {
+
+        @Override
+        public <V, E> List<V> order(final Graph<V, E> graph) {
+            Map<V, Integer> degrees = degrees(graph);
+            List<V> starts = new ArrayList<>(graph.vertexSet());
+            starts.sort(Comparator.comparing((V vertex) -> degrees.get(vertex)).reversed());
+            return breadthFirst(graph, starts, degrees);
+        }
+    }
+
+    // Reverse Cuthill-McKee: breadth-first from a vertex with the lowest degree, neighbors in order of increasing
+    // degree, reversed afterwards. It keeps the ids of neighbors close together for most vertices.
+    class ReverseCuthillMcKee implements VertexOrder, Serializable {
+
+        @Override
+        public <V, E> List<V> order(final Graph<V, E> graph) {
+            Map<V, Integer> degrees = degrees(graph);
+            List<V> starts = new ArrayList<>(graph.vertexSet());
+            starts.sort(Comparator.comparing(degrees::get));
+            List<V> order = breadthFirst(graph, starts, degrees);
+            Collections.reverse(order);
+            return order;
+        }
+    }
+
+    // Number of distinct neighbors of every vertex, in both directions for directed graphs.
+    static <V, E> Map<V, Integer> degrees(final Graph<V, E> graph) {
+        Map<V, Integer> degrees = new HashMap<>();
+        for(V vertex: graph.vertexSet()) {
+            degrees.put(vertex, new HashSet<>(Graphs.neighborListOf(graph, vertex)).size());
+        }
+        return degrees;
+    }
+
+    // Visits every component, each from the first vertex of starts that was not visited yet.
+    static <V, E> List<V> breadthFirst(final Graph<V, E> graph, final List<V> starts, final Map<V, Integer> degrees) {
+        List<V> order = new ArrayList<>(starts.size());
+        Set<V> visited = new HashSet<>();
+        for(V start: starts) {
+            if(!visited.add(start)) {
+                continue;
+            }
+            int head = order.size();
+            order.add(start);
+            while(head < order.size()) {
+                V vertex = order.get(head++);
+                List<V> neighbors = new ArrayList<>(new LinkedHashSet<>(Graphs.neighborListOf(graph, vertex)));
+                neighbors.sort(Comparator.comparing(degrees::get));
+                for(V neighbor: neighbors) {
+                    if(visited.add(neighbor)) {
+                        order.add(neighbor);
+                    }
+                }
+            }
+        }
+        return order;
+    }
+}
@@ -0,0 +1,99 @@
+package nl.tue.win.dbt.data.lifespans;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+public abstract class AbstractLifespanSet implements LifespanSet, Serializable {
+    private LifespanSummary summary;
+
+    @Override
+    public LifespanSummary summary() {
+        if(this.summary == null) {
+            this.summary = LifespanSummary.of(this);
+        }
+        return this.summary;
+    }
+
+    @Override
+    public int longestRun() {
+        int longest = 0;
+        int start = this.nextSetBit(0);
+        int end;
+        while(start >= 0) {
+            end = this.nextClearBit(start);
+            longest = Math.max(longest, end - start);
+            start = this.nextSetBit(end);
+        }
+        return longest;
+    }
+
+    @Override
+    public boolean intersects(LifespanSet other) {
+        return !this.and(other).isEmpty();
+    }
+
+    @Override
+    public BitSet toBitSet() {
+        BitSet bs = new BitSet(this.length());
+        int start = this.nextSetBit(0);
+        int end;
+        while(start >= 0) {
+            end = this.nextClearBit(start);
+            bs.set(start, end);
+            start = this.nextSetBit(end);
+        }
+        return bs;
+    }
+
+    // Lifespans are equal when they contain the same timestamps, regardless of their representation.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LifespanSet)) return false;
+
+        LifespanSet that = (LifespanSet) o;
+
+        if (this.cardinality() != that.cardinality()) return false;
+        return this.toBitSet().equals(that.toBitSet());
+    }
+
+    // Same hash code as BitSet, computed from the runs without materializing the words.
+    @Override
+    public int hashCode() {
+        long h = 1234;
+        int wordIndex = -1;
+        long word = 0;
+        int start = this.nextSetBit(0);
+        int end;
+        int first;
+        int last;
+        while(start >= 0) {
+            end = this.nextClearBit(start);
+            first = start >>> 6;
+            last = (end - 1) >>> 6;
+            for(int i = first; i <= last; i++) {
+                if(i != wordIndex) {
+                    h ^= word * (wordIndex + 1);
+                    wordIndex = i;
+                    word = 0;
+                }
+                long mask = -1L;
+                if(i == first) {
+                    mask &= -1L << start;
+                }
+                if(i == last) {
+                    mask &= -1L >>> (Long.SIZE - 1 - ((end - 1) & 63));
+                }
+                word |= mask;
+            }
+            start = this.nextSetBit(end);
+        }
+        h ^= word * (wordIndex + 1);
+        return (int) ((h >> 32) ^ h);
+    }
+
+    @Override
+    public String toString() {
+        return this.toBitSet().toString();
+    }
+}
@@ -0,0 +1,93 @@
+package nl.tue.win.dbt.data.lifespans;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Objects;
+
+// Uncompressed lifespan, one bit per timestamp up to the last set timestamp.
+public class BitSetLifespanSet extends AbstractLifespanSet implements Serializable {
+    private final BitSet bs;
+
+    public BitSetLifespanSet(BitSet bs) {
+        this(bs, true);
+    }
+
+    private BitSetLifespanSet(BitSet bs, boolean copy) {
+        Objects.requireNonNull(bs);
+        this.bs = copy ? (BitSet) bs.clone() : bs;
+    }
+
+    @Override
+    public boolean get(int timestamp) {
+        return this.bs.get(timestamp);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.bs.isEmpty();
+    }
+
+    @Override
+    public int cardinality() {
+        return this.bs.cardinality();
+    }
+
+    @Override
+    public int length() {
+        return this.bs.length();
+    }
+
+    @Override
+    public int nextSetBit(int fromTimestamp) {
+        return this.bs.nextSetBit(fromTimestamp);
+    }
+
+    @Override
+    public int nextClearBit(int fromTimestamp) {
+        return this.bs.nextClearBit(fromTimestamp);
+    }
+
+    @Override
+    public boolean intersects(LifespanSet other) {
+        return this.bs.intersects(toBitSetOf(other));
+    }
+
+    @Override
+    public LifespanSet and(LifespanSet other) {
+        BitSet result = (BitSet) this.bs.clone();
+        result.and(toBitSetOf(other));
+        return new BitSetLifespanSet(result, false);
+    }
+
+    @Override
+    public LifespanSet or(LifespanSet other) {
+        BitSet result = (BitSet) this.bs.clone();
+        result.or(toBitSetOf(other));
+        return new BitSetLifespanSet(result, false);
+    }
+
+    @Override
+    public BitSet toBitSet() {
+        return (BitSet) this.bs.clone();
+    }
+
+    private static BitSet toBitSetOf(LifespanSet lifespan) {
+        if(lifespan instanceof BitSetLifespanSet) {
+            return ((BitSetLifespanSet) lifespan).bs;
+        }
+        return lifespan.toBitSet();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof BitSetLifespanSet) {
+            return this.bs.equals(((BitSetLifespanSet) o).bs);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.bs.hashCode();
+    }
+}
@@ -0,0 +1,560 @@
+package nl.tue.win.dbt.data.lifespans;
+
+import java.io.Serializable;
+import java.util.*;
+
+// Compressed lifespan in the style of Roaring bitmaps. Timestamps are split in chunks of 2^16 by their high bits
+// and every non-empty chunk is stored as a sorted array when it is sparse or as a bitmap when it is dense.
+public class ContainerLifespanSet extends AbstractLifespanSet implements Serializable {
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int LOW_MASK = CHUNK_SIZE - 1;
+    static final int ARRAY_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = CHUNK_SIZE / Long.SIZE;
+
+    private final int[] keys;
+    private final Container[] containers;
+    private final int cardinality;
+
+    public ContainerLifespanSet(BitSet bs) {
+        Objects.requireNonNull(bs);
+        List<Integer> keys = new ArrayList<>();
+        List<Container> containers = new ArrayList<>();
+        int start = bs.nextSetBit(0);
+        int key;
+        int chunkStart;
+        int chunkEnd;
+        while(start >= 0) {
+            key = start >>> CHUNK_BITS;
+            chunkStart = key << CHUNK_BITS;
+            chunkEnd = (key + 1) << CHUNK_BITS;
+            if(chunkEnd <= 0) {
+                chunkEnd = Integer.MAX_VALUE;
+            }
+            keys.add(key);
+            containers.add(Container.of(bs.get(chunkStart, chunkEnd)));
+            start = chunkEnd == Integer.MAX_VALUE ? -1 : bs.nextSetBit(chunkEnd);
+        }
+        this.keys = new int[keys.size()];
+        for(int i = 0; i < this.keys.length; i++) {
+            this.keys[i] = keys.get(i);
+        }
+        this.containers = containers.toArray(new Container[containers.size()]);
+        this.cardinality = sumCardinality(this.containers);
+    }
+
+    private ContainerLifespanSet(int[] keys, Container[] containers) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinality = sumCardinality(containers);
+    }
+
+    private static int sumCardinality(Container[] containers) {
+        int cardinality = 0;
+        for(Container container: containers) {
+            cardinality += container.cardinality();
+        }
+        return cardinality;
+    }
+
+    private static int toTimestamp(int key, int low) {
+        return (key << CHUNK_BITS) + low;
+    }
+
+    @Override
+    public boolean get(int timestamp) {
+        if(timestamp < 0) {
+            throw new IndexOutOfBoundsException("timestamp < 0: " + timestamp);
+        }
+        int index = Arrays.binarySearch(this.keys, timestamp >>> CHUNK_BITS);
+        return index >= 0 && this.containers[index].contains(timestamp & LOW_MASK);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.keys.length == 0;
+    }
+
+    @Override
+    public int cardinality() {
+        return this.cardinality;
+    }
+
+    @Override
+    public int length() {
+        if(this.isEmpty()) {
+            return 0;
+        }
+        int last = this.keys.length - 1;
+        return toTimestamp(this.keys[last], this.containers[last].last()) + 1;
+    }
+
+    @Override
+    public int nextSetBit(int fromTimestamp) {
+        if(fromTimestamp < 0) {
+            throw new IndexOutOfBoundsException("fromTimestamp < 0: " + fromTimestamp);
+        }
+        int index = Arrays.binarySearch(this.keys, fromTimestamp >>> CHUNK_BITS);
+        if(index >= 0) {
+            int low = this.containers[index].nextSetBit(fromTimestamp & LOW_MASK);
+            if(low >= 0) {
+                return toTimestamp(this.keys[index], low);
+            }
+            index++;
+        } else {
+            index = -index - 1;
+        }
+        if(index < this.keys.length) {
+            return toTimestamp(this.keys[index], this.containers[index].nextSetBit(0));
+        }
+        return -1;
+    }
+
+    @Override
+    public int nextClearBit(int fromTimestamp) {
+        if(fromTimestamp < 0) {
+            throw new IndexOutOfBoundsException("fromTimestamp < 0: " + fromTimestamp);
+        }
+        int key = fromTimestamp >>> CHUNK_BITS;
+        int index = Arrays.binarySearch(this.keys, key);
+        if(index < 0) {
+            return fromTimestamp;
+        }
+        int low = this.containers[index].nextClearBit(fromTimestamp & LOW_MASK);
+        // A run can continue into the next chunk when the current one is set up to its end
+        while(low == CHUNK_SIZE && index + 1 < this.keys.length && this.keys[index + 1] == key + 1) {
+            index++;
+            key++;
+            low = this.containers[index].nextClearBit(0);
+        }
+        return toTimestamp(key, low);
+    }
+
+    @Override
+    public boolean intersects(LifespanSet other) {
+        ContainerLifespanSet that = toContainers(other);
+        int i = 0;
+        int j = 0;
+        while(i < this.keys.length && j < that.keys.length) {
+            if(this.keys[i] < that.keys[j]) {
+                i++;
+            } else if(this.keys[i] > that.keys[j]) {
+                j++;
+            } else {
+                if(this.containers[i].intersects(that.containers[j])) {
+                    return true;
+                }
+                i++;
+                j++;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public LifespanSet and(LifespanSet other) {
+        ContainerLifespanSet that = toContainers(other);
+        int size = Math.min(this.keys.length, that.keys.length);
+        int[] keys = new int[size];
+        Container[] containers = new Container[size];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        Container container;
+        while(i < this.keys.length && j < that.keys.length) {
+            if(this.keys[i] < that.keys[j]) {
+                i++;
+            } else if(this.keys[i] > that.keys[j]) {
+                j++;
+            } else {
+                container = this.containers[i].and(that.containers[j]);
+                if(container.cardinality() > 0) {
+                    keys[n] = this.keys[i];
+                    containers[n] = container;
+                    n++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return new ContainerLifespanSet(Arrays.copyOf(keys, n), Arrays.copyOf(containers, n));
+    }
+
+    @Override
+    public LifespanSet or(LifespanSet other) {
+        ContainerLifespanSet that = toContainers(other);
+        int size = this.keys.length + that.keys.length;
+        int[] keys = new int[size];
+        Container[] containers = new Container[size];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while(i < this.keys.length || j < that.keys.length) {
+            if(j == that.keys.length || (i < this.keys.length && this.keys[i] < that.keys[j])) {
+                keys[n] = this.keys[i];
+                containers[n] = this.containers[i];
+                i++;
+            } else if(i == this.keys.length || this.keys[i] > that.keys[j]) {
+                keys[n] = that.keys[j];
+                containers[n] = that.containers[j];
+                j++;
+            } else {
+                keys[n] = this.keys[i];
+                containers[n] = this.containers[i].or(that.containers[j]);
+                i++;
+                j++;
+            }
+            n++;
+        }
+        return new ContainerLifespanSet(Arrays.copyOf(keys, n), Arrays.copyOf(containers, n));
+    }
+
+    @Override
+    public BitSet toBitSet() {
+        BitSet bs = new BitSet(this.length());
+        for(int i = 0; i < this.keys.length; i++) {
+            this.containers[i].addTo(bs, toTimestamp(this.keys[i], 0));
+        }
+        return bs;
+    }
+
+    private static ContainerLifespanSet toContainers(LifespanSet lifespan) {
+        if(lifespan instanceof ContainerLifespanSet) {
+            return (ContainerLifespanSet) lifespan;
+        }
+        return new ContainerLifespanSet(lifespan.toBitSet());
+    }
+
+    // Containers are canonical: a chunk is stored as an array if and only if it has at most ARRAY_MAX_SIZE elements.
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof ContainerLifespanSet) {
+            ContainerLifespanSet that = (ContainerLifespanSet) o;
+            return this.cardinality == that.cardinality
+                    && Arrays.equals(this.keys, that.keys)
+                    && Arrays.equals(this.containers, that.containers);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    abstract static class Container implements Serializable {
+
+        static Container of(BitSet chunk) {
+            int cardinality = chunk.cardinality();
+            if(cardinality <= ARRAY_MAX_SIZE) {
+                char[] values = new char[cardinality];
+                int n = 0;
+                for(int i = chunk.nextSetBit(0); i >= 0; i = chunk.nextSetBit(i + 1)) {
+                    values[n++] = (char) i;
+                }
+                return new ArrayContainer(values);
+            }
+            return new BitmapContainer(Arrays.copyOf(chunk.toLongArray(), BITMAP_WORDS), cardinality);
+        }
+
+        abstract int cardinality();
+
+        abstract boolean contains(int low);
+
+        // Returns -1 if there is no set value from low onwards.
+        abstract int nextSetBit(int low);
+
+        // Returns CHUNK_SIZE if all values from low onwards are set.
+        abstract int nextClearBit(int low);
+
+        abstract int last();
+
+        abstract boolean intersects(Container other);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        void addTo(BitSet bs, int offset) {
+            int start = this.nextSetBit(0);
+            int end;
+            while(start >= 0) {
+                end = this.nextClearBit(start);
+                bs.set(offset + start, offset + end);
+                start = end < CHUNK_SIZE ? this.nextSetBit(end) : -1;
+            }
+        }
+    }
+
+    static final class ArrayContainer extends Container {
+        private final char[] values;
+
+        ArrayContainer(char[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int cardinality() {
+            return this.values.length;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return Arrays.binarySearch(this.values, (char) low) >= 0;
+        }
+
+        @Override
+        int nextSetBit(int low) {
+            int index = Arrays.binarySearch(this.values, (char) low);
+            if(index < 0) {
+                index = -index - 1;
+            }
+            return index < this.values.length ? this.values[index] : -1;
+        }
+
+        @Override
+        int nextClearBit(int low) {
+            int index = Arrays.binarySearch(this.values, (char) low);
+            if(index < 0) {
+                return low;
+            }
+            int value = low;
+            while(index < this.values.length && this.values[index] == value) {
+                index++;
+                value++;
+            }
+            return value;
+        }
+
+        @Override
+        int last() {
+            return this.values[this.values.length - 1];
+        }
+
+        @Override
+        boolean intersects(Container other) {
+            if(other instanceof BitmapContainer) {
+                return other.intersects(this);
+            }
+            char[] those = ((ArrayContainer) other).values;
+            int i = 0;
+            int j = 0;
+            while(i < this.values.length && j < those.length) {
+                if(this.values[i] < those[j]) {
+                    i++;
+                } else if(this.values[i] > those[j]) {
+                    j++;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[this.values.length];
+            int n = 0;
+            if(other instanceof BitmapContainer) {
+                for(char value: this.values) {
+                    if(other.contains(value)) {
+                        result[n++] = value;
+                    }
+                }
+                return new ArrayContainer(Arrays.copyOf(result, n));
+            }
+            char[] those = ((ArrayContainer) other).values;
+            int i = 0;
+            int j = 0;
+            while(i < this.values.length && j < those.length) {
+                if(this.values[i] < those[j]) {
+                    i++;
+                } else if(this.values[i] > those[j]) {
+                    j++;
+                } else {
+                    result[n++] = this.values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(Arrays.copyOf(result, n));
+        }
+
+        @Override
+        Container or(Container other) {
+            if(other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            char[] those = ((ArrayContainer) other).values;
+            char[] result = new char[this.values.length + those.length];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while(i < this.values.length || j < those.length) {
+                if(j == those.length || (i < this.values.length && this.values[i] < those[j])) {
+                    result[n++] = this.values[i++];
+                } else if(i == this.values.length || this.values[i] > those[j]) {
+                    result[n++] = those[j++];
+                } else {
+                    result[n++] = this.values[i];
+                    i++;
+                    j++;
+                }
+            }
+            if(n <= ARRAY_MAX_SIZE) {
+                return new ArrayContainer(Arrays.copyOf(result, n));
+            }
+            long[] words = new long[BITMAP_WORDS];
+            for(int k = 0; k < n; k++) {
+                words[result[k] >>> 6] |= 1L << result[k];
+            }
+            return new BitmapContainer(words, n);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ArrayContainer && Arrays.equals(this.values, ((ArrayContainer) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(this.values);
+        }
+    }
+
+    static final class BitmapContainer extends Container {
+        private final long[] words;
+        private final int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return this.cardinality;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return (this.words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int nextSetBit(int low) {
+            int index = low >>> 6;
+            long word = this.words[index] & (-1L << low);
+            while(word == 0) {
+                if(++index == BITMAP_WORDS) {
+                    return -1;
+                }
+                word = this.words[index];
+            }
+            return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        int nextClearBit(int low) {
+            int index = low >>> 6;
+            long word = ~this.words[index] & (-1L << low);
+            while(word == 0) {
+                if(++index == BITMAP_WORDS) {
+                    return CHUNK_SIZE;
+                }
+                word = ~this.words[index];
+            }
+            return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        int last() {
+            int index = BITMAP_WORDS - 1;
+            while(this.words[index] == 0) {
+                index--;
+            }
+            return index * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(this.words[index]);
+        }
+
+        @Override
+        boolean intersects(Container other) {
+            if(other instanceof ArrayContainer) {
+                for(char value: ((ArrayContainer) other).values) {
+                    if(this.contains(value)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            long[] those = ((BitmapContainer) other).words;
+            for(int i = 0; i < BITMAP_WORDS; i++) {
+                if((this.words[i] & those[i]) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        Container and(Container other) {
+            if(other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] those = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            int cardinality = 0;
+            for(int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = this.words[i] & those[i];
+                cardinality += Long.bitCount(result[i]);
+            }
+            if(cardinality > ARRAY_MAX_SIZE) {
+                return new BitmapContainer(result, cardinality);
+            }
+            char[] values = new char[cardinality];
+            int n = 0;
+            long word;
+            for(int i = 0; i < BITMAP_WORDS; i++) {
+                word = result[i];
+                while(word != 0) {
+                    values[n++] = (char) (i * Long.SIZE + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = this.words.clone();
+            int cardinality = this.cardinality;
+            if(other instanceof ArrayContainer) {
+                long bit;
+                for(char value: ((ArrayContainer) other).values) {
+                    bit = 1L << value;
+                    if((result[value >>> 6] & bit) == 0) {
+                        result[value >>> 6] |= bit;
+                        cardinality++;
+                    }
+                }
+                return new BitmapContainer(result, cardinality);
+            }
+            long[] those = ((BitmapContainer) other).words;
+            cardinality = 0;
+            for(int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] |= those[i];
+                cardinality += Long.bitCount(result[i]);
+            }
+            return new BitmapContainer(result, cardinality);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BitmapContainer && Arrays.equals(this.words, ((BitmapContainer) o).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(this.words);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package nl.tue.win.dbt.data.lifespans;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+// Interning pool for immutable lifespans, equal lifespans share a single instance.
+// Lifespans are only held weakly, so lifespans that nothing else refers to anymore, like the lifespans that appended
+// snapshots replaced, are dropped from the pool.
+public class LifespanPool implements Serializable {
+    // Values refer to their keys weakly as well, otherwise keys would never be dropped.
+    private transient Map<LifespanSet, WeakReference<LifespanSet>> lifespans;
+    private long requests;
+
+    public LifespanPool() {
+        this.lifespans = new WeakHashMap<>();
+        this.requests = 0;
+    }
+
+    public LifespanSet intern(LifespanSet lifespan) {
+        Objects.requireNonNull(lifespan);
+        this.requests++;
+        WeakReference<LifespanSet> reference = this.lifespans.get(lifespan);
+        LifespanSet interned = reference == null ? null : reference.get();
+        if(interned == null) {
+            // Stored lifespans carry their summary, so that it is never computed during a query.
+            lifespan.summary();
+            this.lifespans.put(lifespan, new WeakReference<>(lifespan));
+            return lifespan;
+        }
+        return interned;
+    }
+
+    public int size() {
+        return this.lifespans.size();
+    }
+
+    public long getRequests() {
+        return this.requests;
+    }
+
+    // Number of interned lifespans per distinct lifespan, 1 means that nothing was shared.
+    public double getDedupRatio() {
+        int size = this.lifespans.size();
+        return size == 0 ? 1 : (double) this.requests / size;
+    }
+
+    public void clear() {
+        this.lifespans.clear();
+        this.requests = 0;
+    }
+
+    // Only the lifespans that are still in the pool are written, they are shared with the graph that is written.
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(new ArrayList<>(this.lifespans.keySet()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.lifespans = new WeakHashMap<>();
+        for(LifespanSet lifespan: (List<LifespanSet>) in.readObject()) {
+            this.lifespans.put(lifespan, new WeakReference<>(lifespan));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LifespanPool{" +
+                "requests=" + requests +
+                ", distinct=" + lifespans.size() +
+                ", dedupRatio=" + String.format("%.2f", getDedupRatio()) +
+                '}';
+    }
+}
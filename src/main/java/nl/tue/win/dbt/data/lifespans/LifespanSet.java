@@ -0,0 +1,34 @@
+package nl.tue.win.dbt.data.lifespans;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+// Immutable set of timestamps. Operations never modify the operands.
+public interface LifespanSet extends Serializable {
+    boolean get(int timestamp);
+
+    boolean isEmpty();
+
+    int cardinality();
+
+    // Index of the highest timestamp plus one, like BitSet.length().
+    int length();
+
+    int longestRun();
+
+    // Returns -1 if there is no set timestamp from the given timestamp onwards.
+    int nextSetBit(int fromTimestamp);
+
+    int nextClearBit(int fromTimestamp);
+
+    // Computed once and kept with the lifespan.
+    LifespanSummary summary();
+
+    boolean intersects(LifespanSet other);
+
+    LifespanSet and(LifespanSet other);
+
+    LifespanSet or(LifespanSet other);
+
+    BitSet toBitSet();
+}
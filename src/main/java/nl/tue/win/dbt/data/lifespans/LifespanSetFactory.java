@@ -0,0 +1,32 @@
+package nl.tue.win.dbt.data.lifespans;
+
+import java.io.Serializable;
+import java.util.BitSet;
+
+public interface LifespanSetFactory extends Serializable {
+    LifespanSet createLifespanSet(final BitSet bs);
+
+    class BitSetFactory implements LifespanSetFactory, Serializable {
+
+        @Override
+        public LifespanSet createLifespanSet(final BitSet bs) {
+            return new BitSetLifespanSet(bs);
+        }
+    }
+
+    class ContainerFactory implements LifespanSetFactory, Serializable {
+
+        @Override
+        public LifespanSet createLifespanSet(final BitSet bs) {
+            return new ContainerLifespanSet(bs);
+        }
+    }
+
+    class RunFactory implements LifespanSetFactory, Serializable {
+
+        @Override
+        public LifespanSet createLifespanSet(final BitSet bs) {
+            return new RunLifespanSet(bs);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package nl.tue.win.dbt.data.lifespans;
+
+import java.io.Serializable;
+
+// First and last timestamp, cardinality and longest run of a lifespan. Bounds on intersections can be derived
+// from the summaries of the operands without touching the lifespans themselves.
+public final class LifespanSummary implements Serializable {
+    public static final LifespanSummary EMPTY = new LifespanSummary(-1, -1, 0, 0);
+
+    private final int first;
+    private final int last;
+    private final int cardinality;
+    private final int longestRun;
+
+    public LifespanSummary(int first, int last, int cardinality, int longestRun) {
+        this.first = first;
+        this.last = last;
+        this.cardinality = cardinality;
+        this.longestRun = longestRun;
+    }
+
+    public static LifespanSummary of(LifespanSet lifespan) {
+        if(lifespan.isEmpty()) {
+            return EMPTY;
+        }
+        return new LifespanSummary(
+                lifespan.nextSetBit(0),
+                lifespan.length() - 1,
+                lifespan.cardinality(),
+                lifespan.longestRun());
+    }
+
+    public int getFirst() {
+        return this.first;
+    }
+
+    public int getLast() {
+        return this.last;
+    }
+
+    public int getCardinality() {
+        return this.cardinality;
+    }
+
+    public int getLongestRun() {
+        return this.longestRun;
+    }
+
+    public boolean isEmpty() {
+        return this.cardinality == 0;
+    }
+
+    // Number of timestamps in which the spans of both lifespans overlap.
+    public int overlap(LifespanSummary other) {
+        if(this.isEmpty() || other.isEmpty()) {
+            return 0;
+        }
+        return Math.max(0, Math.min(this.last, other.last) - Math.max(this.first, other.first) + 1);
+    }
+
+    public int maxIntersectionCardinality(LifespanSummary other) {
+        return Math.min(this.overlap(other), Math.min(this.cardinality, other.cardinality));
+    }
+
+    public int maxIntersectionRun(LifespanSummary other) {
+        return Math.min(this.overlap(other), Math.min(this.longestRun, other.longestRun));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        LifespanSummary that = (LifespanSummary) o;
+
+        if (first != that.first) return false;
+        if (last != that.last) return false;
+        if (cardinality != that.cardinality) return false;
+        return longestRun == that.longestRun;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = first;
+        result = 31 * result + last;
+        result = 31 * result + cardinality;
+        result = 31 * result + longestRun;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LifespanSummary{" +
+                "first=" + first +
+                ", last=" + last +
+                ", cardinality=" + cardinality +
+                ", longestRun=" + longestRun +
+                '}';
+    }
+}
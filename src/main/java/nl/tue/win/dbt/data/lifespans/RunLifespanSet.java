@@ -0,0 +1,269 @@
+package nl.tue.win.dbt.data.lifespans;
+
+import java.io.Serializable;
+import java.util.*;
+
+// Lifespan stored as sorted, maximal runs of consecutive timestamps. The longest run is tracked while the runs
+// are created, so continuous durations are available without rescanning the lifespan.
+public class RunLifespanSet extends AbstractLifespanSet implements Serializable {
+    private static final int[] NO_RUNS = new int[0];
+
+    // Run i contains the timestamps from starts[i] until ends[i], exclusive.
+    private final int[] starts;
+    private final int[] ends;
+    private final int cardinality;
+    private final int longestRun;
+
+    public RunLifespanSet(BitSet bs) {
+        this(runsOf(bs));
+    }
+
+    private RunLifespanSet(Builder builder) {
+        this.starts = builder.size == 0 ? NO_RUNS : Arrays.copyOf(builder.starts, builder.size);
+        this.ends = builder.size == 0 ? NO_RUNS : Arrays.copyOf(builder.ends, builder.size);
+        this.cardinality = builder.cardinality;
+        this.longestRun = builder.longestRun;
+    }
+
+    public static RunLifespanSet valueOf(LifespanSet lifespan) {
+        Objects.requireNonNull(lifespan);
+        if(lifespan instanceof RunLifespanSet) {
+            return (RunLifespanSet) lifespan;
+        }
+        Builder builder = new Builder(4);
+        int start = lifespan.nextSetBit(0);
+        int end;
+        while(start >= 0) {
+            end = lifespan.nextClearBit(start);
+            builder.add(start, end);
+            start = lifespan.nextSetBit(end);
+        }
+        return new RunLifespanSet(builder);
+    }
+
+    private static Builder runsOf(BitSet bs) {
+        Objects.requireNonNull(bs);
+        Builder builder = new Builder(4);
+        int start = bs.nextSetBit(0);
+        int end;
+        while(start >= 0) {
+            end = bs.nextClearBit(start);
+            builder.add(start, end);
+            start = bs.nextSetBit(end);
+        }
+        return builder;
+    }
+
+    public int runCount() {
+        return this.starts.length;
+    }
+
+    // Index of the run that starts at or before the timestamp, -1 if there is none.
+    private int floorRun(int timestamp) {
+        int low = 0;
+        int high = this.starts.length;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(this.starts[middle] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    @Override
+    public boolean get(int timestamp) {
+        if(timestamp < 0) {
+            throw new IndexOutOfBoundsException("timestamp < 0: " + timestamp);
+        }
+        int run = this.floorRun(timestamp);
+        return run >= 0 && timestamp < this.ends[run];
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.starts.length == 0;
+    }
+
+    @Override
+    public int cardinality() {
+        return this.cardinality;
+    }
+
+    @Override
+    public int length() {
+        return this.ends.length == 0 ? 0 : this.ends[this.ends.length - 1];
+    }
+
+    @Override
+    public int longestRun() {
+        return this.longestRun;
+    }
+
+    @Override
+    public int nextSetBit(int fromTimestamp) {
+        if(fromTimestamp < 0) {
+            throw new IndexOutOfBoundsException("fromTimestamp < 0: " + fromTimestamp);
+        }
+        int run = this.floorRun(fromTimestamp);
+        if(run >= 0 && fromTimestamp < this.ends[run]) {
+            return fromTimestamp;
+        }
+        return run + 1 < this.starts.length ? this.starts[run + 1] : -1;
+    }
+
+    @Override
+    public int nextClearBit(int fromTimestamp) {
+        if(fromTimestamp < 0) {
+            throw new IndexOutOfBoundsException("fromTimestamp < 0: " + fromTimestamp);
+        }
+        int run = this.floorRun(fromTimestamp);
+        return run >= 0 && fromTimestamp < this.ends[run] ? this.ends[run] : fromTimestamp;
+    }
+
+    @Override
+    public boolean intersects(LifespanSet other) {
+        if(!(other instanceof RunLifespanSet)) {
+            return super.intersects(other);
+        }
+        RunLifespanSet that = (RunLifespanSet) other;
+        int i = 0;
+        int j = 0;
+        while(i < this.starts.length && j < that.starts.length) {
+            if(Math.max(this.starts[i], that.starts[j]) < Math.min(this.ends[i], that.ends[j])) {
+                return true;
+            }
+            if(this.ends[i] < that.ends[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public LifespanSet and(LifespanSet other) {
+        if(other instanceof RunLifespanSet) {
+            return this.and((RunLifespanSet) other);
+        }
+        // Walk the runs of the other lifespan that fall inside the runs of this lifespan.
+        Builder builder = new Builder(this.starts.length);
+        int start;
+        int end;
+        for(int i = 0; i < this.starts.length; i++) {
+            start = other.nextSetBit(this.starts[i]);
+            while(start >= 0 && start < this.ends[i]) {
+                end = Math.min(other.nextClearBit(start), this.ends[i]);
+                builder.add(start, end);
+                start = end < this.ends[i] ? other.nextSetBit(end) : -1;
+            }
+        }
+        return new RunLifespanSet(builder);
+    }
+
+    private RunLifespanSet and(RunLifespanSet that) {
+        Builder builder = new Builder(Math.min(this.starts.length, that.starts.length));
+        int i = 0;
+        int j = 0;
+        int start;
+        int end;
+        while(i < this.starts.length && j < that.starts.length) {
+            start = Math.max(this.starts[i], that.starts[j]);
+            end = Math.min(this.ends[i], that.ends[j]);
+            if(start < end) {
+                builder.add(start, end);
+            }
+            if(this.ends[i] < that.ends[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return new RunLifespanSet(builder);
+    }
+
+    @Override
+    public LifespanSet or(LifespanSet other) {
+        RunLifespanSet that = valueOf(other);
+        Builder builder = new Builder(this.starts.length + that.starts.length);
+        int i = 0;
+        int j = 0;
+        while(i < this.starts.length || j < that.starts.length) {
+            if(j == that.starts.length || (i < this.starts.length && this.starts[i] <= that.starts[j])) {
+                builder.merge(this.starts[i], this.ends[i]);
+                i++;
+            } else {
+                builder.merge(that.starts[j], that.ends[j]);
+                j++;
+            }
+        }
+        return new RunLifespanSet(builder);
+    }
+
+    @Override
+    public BitSet toBitSet() {
+        BitSet bs = new BitSet(this.length());
+        for(int i = 0; i < this.starts.length; i++) {
+            bs.set(this.starts[i], this.ends[i]);
+        }
+        return bs;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof RunLifespanSet) {
+            RunLifespanSet that = (RunLifespanSet) o;
+            return Arrays.equals(this.starts, that.starts) && Arrays.equals(this.ends, that.ends);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    // Collects runs in increasing order and keeps track of the cardinality and the longest run.
+    private static final class Builder {
+        private int[] starts;
+        private int[] ends;
+        private int size;
+        private int cardinality;
+        private int longestRun;
+
+        private Builder(int capacity) {
+            this.starts = new int[Math.max(capacity, 1)];
+            this.ends = new int[this.starts.length];
+        }
+
+        // Adds a run that starts after the end of the previous run.
+        private void add(int start, int end) {
+            if(this.size == this.starts.length) {
+                this.starts = Arrays.copyOf(this.starts, this.size * 2);
+                this.ends = Arrays.copyOf(this.ends, this.size * 2);
+            }
+            this.starts[this.size] = start;
+            this.ends[this.size] = end;
+            this.size++;
+            this.cardinality += end - start;
+            this.longestRun = Math.max(this.longestRun, end - start);
+        }
+
+        // Adds a run that starts at or after the start of the previous run, coalescing overlapping runs.
+        private void merge(int start, int end) {
+            if(this.size == 0 || start > this.ends[this.size - 1]) {
+                this.add(start, end);
+                return;
+            }
+            int last = this.size - 1;
+            if(end > this.ends[last]) {
+                this.cardinality += end - this.ends[last];
+                this.ends[last] = end;
+                this.longestRun = Math.max(this.longestRun, end - this.starts[last]);
+            }
+        }
+    }
+}
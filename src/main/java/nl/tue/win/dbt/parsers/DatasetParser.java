@@ -2,7 +2,18 @@ package nl.tue.win.dbt.parsers;
 
 import nl.tue.win.dbt.data.LabeledGraph;
 import nl.tue.win.dbt.data.LabeledHistoryGraph;
+import nl.tue.win.dbt.data.LabeledVersionGraph;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
 
 public interface DatasetParser<V, E, L> {
      LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> convertToHistoryGraph(String file);
+
+     default LabeledVersionGraph<V, E, L> convertToVersionGraph(String file) {
+          return this.convertToVersionGraph(file, new LifespanSetFactory.ContainerFactory());
+     }
+
+     // Parsers that can avoid creating a graph per snapshot should override this.
+     default LabeledVersionGraph<V, E, L> convertToVersionGraph(String file, LifespanSetFactory lifespanSetFactory) {
+          return new LabeledVersionGraph<>(this.convertToHistoryGraph(file), lifespanSetFactory);
+     }
 }
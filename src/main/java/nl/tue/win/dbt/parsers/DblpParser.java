@@ -7,9 +7,11 @@ import com.google.common.collect.TreeRangeSet;
 import nl.tue.win.dbt.algorithms.BaselineAlgorithm;
 import nl.tue.win.dbt.algorithms.DurablePatternAlgorithm;
 import nl.tue.win.dbt.data.*;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.Consumer;
 
 import nl.tue.win.dbt.util.IntegerRanges;
 import org.jgrapht.graph.SimpleGraph;
@@ -39,24 +41,63 @@ public class DblpParser implements DatasetParser<Integer, Edge, DblpLabel> {
             Edge,
             DblpLabel> convertToHistoryGraph(String file) {
 
-        FileReader inputFile = null;//sample_dblp_coauthor.txt
+        this.readLines(file, this::parse);
+        addLabels();
+        Iterable<Integer> keys = this.yearToLgMap.keySet().stream().sorted()::iterator;
+        for(Integer year: keys) {
+            lhg.add(this.yearToLgMap.get(year));
+        }
+        return this.lhg;
+    }
+
+    // Streams the co-authorships into lifespan accumulators, no graph is created per year.
+    // Timestamps are the indices of the distinct years in increasing order, so the years are read first.
+    @Override
+    public LabeledVersionGraph<Integer, Edge, DblpLabel> convertToVersionGraph(
+            String file,
+            LifespanSetFactory lifespanSetFactory) {
+        Set<Integer> years = new TreeSet<>();
+        this.readLines(file, words -> years.add(this.parseYear(words)));
+        Map<Integer, Integer> yearToTimestamp = new HashMap<>();
+        for(Integer year: years) {
+            yearToTimestamp.put(year, yearToTimestamp.size());
+        }
+
+        VersionGraphBuilder<Integer, Edge, DblpLabel> builder = new VersionGraphBuilder<>(
+                DblpParser::createGraph, years.size());
+        Table<Integer, Integer, Integer> timestampAuthorCount = TreeBasedTable.create();
+        this.readLines(file, words -> {
+            int timestamp = yearToTimestamp.get(this.parseYear(words));
+            int author0 = Integer.parseInt(words[0]);
+            int author1 = Integer.parseInt(words[1]);
+            builder.addVertex(author0, timestamp);
+            builder.addVertex(author1, timestamp);
+            // Co-authorships are undirected and counted once per year.
+            if(!builder.containsEdge(author0, author1, timestamp)
+                    && !builder.containsEdge(author1, author0, timestamp)) {
+                builder.addEdge(author0, author1, timestamp);
+                incrementCount(timestampAuthorCount, timestamp, author0);
+                incrementCount(timestampAuthorCount, timestamp, author1);
+            }
+        });
+        for(Table.Cell<Integer, Integer, Integer> cell: timestampAuthorCount.cellSet()) {
+            builder.addLabel(cell.getColumnKey(), DblpLabel.calculateLabel(cell.getValue()), cell.getRowKey());
+        }
+        return builder.build(lifespanSetFactory);
+    }
+
+    private void readLines(String file, Consumer<String[]> consumer) {
         try(BufferedReader bufRead = new BufferedReader(new FileReader(file))) {
             String myLine = null;
             while ( (myLine = bufRead.readLine()) != null) {
                 String[] words = myLine.split(" +");
                 if (this.isValidLine(words)) {
-                    this.parse(words);
+                    consumer.accept(words);
                 }
             }
         } catch (IOException e) {
             e.printStackTrace();
         }
-        addLabels();
-        Iterable<Integer> keys = this.yearToLgMap.keySet().stream().sorted()::iterator;
-        for(Integer year: keys) {
-            lhg.add(this.yearToLgMap.get(year));
-        }
-        return this.lhg;
     }
 
     private boolean isValidLine(String[] words) {
@@ -79,10 +120,14 @@ public class DblpParser implements DatasetParser<Integer, Edge, DblpLabel> {
         }
     }
 
-    public void parse(String[] array) {
+    private int parseYear(String[] array) {
         Calendar date = Calendar.getInstance();
         date.setTimeInMillis(Long.parseLong(array[3])*1000);
-        int year = date.get(YEAR);
+        return date.get(YEAR);
+    }
+
+    public void parse(String[] array) {
+        int year = this.parseYear(array);
 
         LabeledGraph<Integer, Edge, DblpLabel> graph;
         if(!this.yearToLgMap.containsKey(year)) {
@@ -106,10 +151,14 @@ public class DblpParser implements DatasetParser<Integer, Edge, DblpLabel> {
     }
 
     private void incrementYearAuthorCount(int year, int author) {
-        if(!this.yearAuthorCount.contains(year, author)) {
-            this.yearAuthorCount.put(year, author, 0);
+        incrementCount(this.yearAuthorCount, year, author);
+    }
+
+    private static void incrementCount(Table<Integer, Integer, Integer> counts, int row, int column) {
+        if(!counts.contains(row, column)) {
+            counts.put(row, column, 0);
         }
-        this.yearAuthorCount.put(year, author, this.yearAuthorCount.get(year, author) + 1); // TODO: get++
+        counts.put(row, column, counts.get(row, column) + 1); // TODO: get++
     }
 
     public static LabeledGraph<Integer, Edge, DblpLabel> createGraph() {
@@ -2,6 +2,7 @@ package nl.tue.win.dbt.tests;
 
 import nl.tue.win.dbt.Configuration;
 import nl.tue.win.dbt.algorithms.BaselineAlgorithm;
+import nl.tue.win.dbt.codec.GraphCodec;
 import nl.tue.win.dbt.data.LabeledGraph;
 import nl.tue.win.dbt.data.LabeledHistoryGraph;
 
@@ -14,6 +15,7 @@ public class BaseSetupTime<V, E, L> {
     private final String filename;
     private final LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg;
     private final Configuration config;
+    private final GraphCodec<V, E, L> codec;
 
     private final BaselineAlgorithm<V, E, L> baselineAlgo;
 
@@ -27,11 +29,21 @@ public class BaseSetupTime<V, E, L> {
     }
 
     public BaseSetupTime(String filename, LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg, Configuration config) {
+        this(filename, lhg, config, null);
+    }
+
+    // Writes the history graph with the codec instead of Java serialization when a codec is given.
+    public BaseSetupTime(
+            String filename,
+            LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg,
+            Configuration config,
+            GraphCodec<V, E, L> codec) {
         Objects.requireNonNull(filename);
         Objects.requireNonNull(lhg);
         this.filename = filename;
         this.lhg = lhg;
         this.config = config;
+        this.codec = codec;
         this.startBase = System.currentTimeMillis();
         if(config == null) {
              this.baselineAlgo = new BaselineAlgorithm<>(this.lhg);
@@ -55,6 +67,10 @@ public class BaseSetupTime<V, E, L> {
         return this.config;
     }
 
+    public GraphCodec<V, E, L> getCodec() {
+        return this.codec;
+    }
+
     public BaselineAlgorithm<V, E, L> getBaselineAlgo() {
         return this.baselineAlgo;
     }
@@ -84,6 +100,14 @@ public class BaseSetupTime<V, E, L> {
     }
 
     private void writeToFile(String filename) {
+        if(this.codec != null) {
+            try {
+                this.codec.writeHistoryGraph(this.lhg, filename);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return;
+        }
         try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(filename))) {
             out.writeObject(this.baselineAlgo);
         } catch (IOException e) {
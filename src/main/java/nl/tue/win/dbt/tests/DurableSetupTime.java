@@ -2,6 +2,7 @@ package nl.tue.win.dbt.tests;
 
 import nl.tue.win.dbt.Configuration;
 import nl.tue.win.dbt.algorithms.DurablePatternAlgorithm;
+import nl.tue.win.dbt.codec.GraphCodec;
 import nl.tue.win.dbt.data.GraphCreator;
 import nl.tue.win.dbt.data.LabeledGraph;
 import nl.tue.win.dbt.data.LabeledVersionGraph;
@@ -14,6 +15,7 @@ import java.util.Objects;
 public class DurableSetupTime<V, E, L> {
     private final String filename;
     private final Configuration config;
+    private final GraphCodec<V, E, L> codec;
 
     private final LabeledVersionGraph<V, E, L> lvg;
     private final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator;
@@ -29,6 +31,17 @@ public class DurableSetupTime<V, E, L> {
     }
 
     public DurableSetupTime(String filename, LabeledVersionGraph<V, E, L> lvg, GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator, Configuration config) {
+        this(filename, lvg, graphCreator, config, null);
+    }
+
+    // Writes the version graph and the candidate filter with the codec instead of Java serialization when a
+    // codec is given.
+    public DurableSetupTime(
+            String filename,
+            LabeledVersionGraph<V, E, L> lvg,
+            GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator,
+            Configuration config,
+            GraphCodec<V, E, L> codec) {
         Objects.requireNonNull(filename);
         Objects.requireNonNull(lvg);
         Objects.requireNonNull(graphCreator);
@@ -36,6 +49,7 @@ public class DurableSetupTime<V, E, L> {
         this.lvg = lvg;
         this.graphCreator = graphCreator;
         this.config = config;
+        this.codec = codec;
 
         this.startDurable = System.currentTimeMillis();
         if(config == null) {
@@ -58,6 +72,10 @@ public class DurableSetupTime<V, E, L> {
         return this.config;
     }
 
+    public GraphCodec<V, E, L> getCodec() {
+        return this.codec;
+    }
+
     public LabeledVersionGraph<V, E, L> getLvg() {
         return this.lvg;
     }
@@ -95,6 +113,14 @@ public class DurableSetupTime<V, E, L> {
     }
 
     private void writeToFile(String filename) {
+        if(this.codec != null) {
+            try {
+                this.codec.writeDurablePattern(this.lvg, this.durableAlgo.getCandidateFilter(), filename);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return;
+        }
         try(ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(filename))) {
             out.writeObject(this.durableAlgo);
         } catch (IOException e) {
@@ -4,6 +4,8 @@ import nl.tue.win.dbt.data.GraphCreator;
 import nl.tue.win.dbt.data.LabeledGraph;
 import nl.tue.win.dbt.data.LabeledHistoryGraph;
 import nl.tue.win.dbt.data.LabeledVersionGraph;
+import nl.tue.win.dbt.data.VertexOrder;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -15,6 +17,7 @@ public class LvgTime<V, E, L> {
 
     private final LabeledVersionGraph<V, E, L> lvg;
     private final GraphCreator<LabeledGraph<V, E, L>, V, E> graphCreator;
+    private final VertexOrder vertexOrder;
 
     private final long startLvg;
     private final long endLvg;
@@ -22,12 +25,19 @@ public class LvgTime<V, E, L> {
     private final long endWrite;
 
     public LvgTime(LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg) {
+        this(lhg, new VertexOrder.InsertionOrder());
+    }
+
+    // Ordering the vertices is part of creating the LVG.
+    public LvgTime(LabeledHistoryGraph<LabeledGraph<V, E, L>, V, E, L> lhg, VertexOrder vertexOrder) {
         Objects.requireNonNull(lhg);
+        Objects.requireNonNull(vertexOrder);
         this.lhg = lhg;
         this.graphCreator = lhg.getGraphCreator();
+        this.vertexOrder = vertexOrder;
 
         this.startLvg = System.currentTimeMillis();
-        this.lvg = new LabeledVersionGraph<>(this.lhg);
+        this.lvg = new LabeledVersionGraph<>(this.lhg, new LifespanSetFactory.ContainerFactory(), this.vertexOrder);
         this.endLvg = this.startWrite  = System.currentTimeMillis();
 //        this.writeToFile("data/lvg.ser");
         this.endWrite = System.currentTimeMillis();
@@ -41,6 +51,10 @@ public class LvgTime<V, E, L> {
         return this.lvg;
     }
 
+    public VertexOrder getVertexOrder() {
+        return this.vertexOrder;
+    }
+
     public long getStartLvg() {
         return this.startLvg;
     }
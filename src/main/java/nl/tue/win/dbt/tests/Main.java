@@ -2,17 +2,22 @@ package nl.tue.win.dbt.tests;
 
 import nl.tue.win.dbt.Configuration;
 import nl.tue.win.dbt.algorithms.TimeIndices.Tila;
+import nl.tue.win.dbt.codec.GraphCodec;
+import nl.tue.win.dbt.codec.ValueCodec;
 import nl.tue.win.dbt.data.DblpLabel;
 import nl.tue.win.dbt.data.Edge;
 import nl.tue.win.dbt.data.LabeledGraph;
+import nl.tue.win.dbt.data.VertexOrder;
 import nl.tue.win.dbt.parsers.DblpParser;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
 public class Main {
     private final List<LabeledGraph<Integer, Edge, DblpLabel>> patterns;
+    private final GraphCodec<Integer, Edge, DblpLabel> codec;
     private final ReadTime<Integer, Edge, DblpLabel> readTime;
     private final LvgTime<Integer, Edge, DblpLabel> lvgTime;
     private final BaseSetupTime<Integer, Edge, DblpLabel> baseTime;
@@ -22,21 +27,33 @@ public class Main {
     private final DurableSetupTime<Integer, Edge, DblpLabel> ctinlaTime;
     private final QueryTime<Integer, Edge, DblpLabel> ctinlaQueryTime;
 
-    private Main(String filename, boolean base, boolean tila, boolean ctinla, int maxClique, DblpLabel label) {
+    private Main(
+            String filename,
+            boolean base,
+            boolean tila,
+            boolean ctinla,
+            int maxClique,
+            DblpLabel label,
+            VertexOrder vertexOrder) {
         Objects.requireNonNull(filename);
         Objects.requireNonNull(label);
+        Objects.requireNonNull(vertexOrder);
         System.out.println("Creating patterns");
         this.patterns = this.createCliquePatterns(maxClique, label);
+        this.codec = new GraphCodec<>(
+                new ValueCodec.IntegerCodec(),
+                new ValueCodec.EnumCodec<>(DblpLabel.class),
+                DblpParser::createGraph);
         System.out.println("Creating history graph");
         this.readTime = new ReadTime<>(filename, new DblpParser());
         System.out.println("Creating LVG");
-        this.lvgTime = new LvgTime<>(this.readTime.getLhg());
+        this.lvgTime = new LvgTime<>(this.readTime.getLhg(), vertexOrder);
 
         if(base) {
             System.out.println("Creating baseline algorithm");
             this.baseTime = this.createBaseTime();
             System.out.println("Executing baseline queries");
-            this.baseQueryTime = new QueryTime<>(this.baseTime.getFilename(), this.patterns);
+            this.baseQueryTime = new QueryTime<>(this.baseTime.getFilename(), this.patterns, null, this.codec);
         } else {
             this.baseTime = null;
             this.baseQueryTime = null;
@@ -46,7 +63,7 @@ public class Main {
             System.out.println("Creating TiLa algorithm");
             this.tilaTime = this.createTilaTime();
             System.out.println("Executing TiLa queries");
-            this.tilaQueryTime = new QueryTime<>(this.tilaTime.getFilename(), this.patterns);
+            this.tilaQueryTime = new QueryTime<>(this.tilaTime.getFilename(), this.patterns, null, this.codec);
         } else {
             this.tilaTime = null;
             this.tilaQueryTime = null;
@@ -56,7 +73,7 @@ public class Main {
             System.out.println("Creating CTiNLa algorithm");
             this.ctinlaTime = this.createCtinlaTime();
             System.out.println("Executing CTiNLa queries");
-            this.ctinlaQueryTime = new QueryTime<>(this.ctinlaTime.getFilename(), this.patterns);
+            this.ctinlaQueryTime = new QueryTime<>(this.ctinlaTime.getFilename(), this.patterns, null, this.codec);
         } else {
             this.ctinlaTime = null;
             this.ctinlaQueryTime = null;
@@ -65,27 +82,29 @@ public class Main {
 
     private BaseSetupTime<Integer, Edge, DblpLabel> createBaseTime() {
         return new BaseSetupTime<>(
-                "data/base.ser", this.readTime.getLhg());
+                "data/base.bin", this.readTime.getLhg(), null, this.codec);
     }
 
     private DurableSetupTime<Integer, Edge, DblpLabel> createTilaTime() {
         Configuration config = new Configuration();
         config.setTi(new Tila());
         return new DurableSetupTime<>(
-                "data/tila.ser",
+                "data/tila.bin",
                 this.lvgTime.getLvg(),
                 this.lvgTime.getLhg().getGraphCreator(),
-                config);
+                config,
+                this.codec);
     }
 
     private DurableSetupTime<Integer, Edge, DblpLabel> createCtinlaTime() {
         Configuration config = new Configuration();
         config.setTi(new Tila());
         return new DurableSetupTime<>(
-                "data/ctinla.ser",
+                "data/ctinla.bin",
                 this.lvgTime.getLvg(),
                 this.lvgTime.getLhg().getGraphCreator(),
-                config);
+                config,
+                this.codec);
     }
 
     private List<LabeledGraph<Integer, Edge, DblpLabel>> createCliquePatterns(int max) {
@@ -130,17 +149,33 @@ public class Main {
         int maxClique = 5;
         DblpLabel label = DblpLabel.JUNIOR;
 
-        Main m = new Main(filename, base, tila, ctinla, maxClique, label);
+        // The LVG and the time indices are created once per vertex order.
+        // The baseline does not use vertex ids, so it only runs with the first order.
+        List<VertexOrder> vertexOrders = Arrays.asList(
+                new VertexOrder.InsertionOrder(),
+                new VertexOrder.DegreeOrder(),
+                new VertexOrder.ReverseCuthillMcKee());
+
+        for(int i = 0; i < vertexOrders.size(); i++) {
+            boolean orderBase = base && i == 0;
+            Main m = new Main(filename, orderBase, tila, ctinla, maxClique, label, vertexOrders.get(i));
+            printResults(m, orderBase, tila, ctinla);
+        }
+    }
 
+    private static void printResults(Main m, boolean base, boolean tila, boolean ctinla) {
         // TODO: query the info.
 
         System.out.println("-------------------------------------------------------------------");
         System.out.println("Results");
         System.out.println("-------------------------------------------------------------------");
 
+        System.out.println("Vertex order " + m.lvgTime.getVertexOrder().getClass().getSimpleName());
+
         System.out.println("Reading data took " + m.readTime.calculateReadDelta());
 
         System.out.println("Creating LVG took " + m.lvgTime.calculateLvgDelta());
+        System.out.println("LVG lifespan dedup ratio " + m.lvgTime.getLvg().getLifespanPool().getDedupRatio());
 
         if(base) {
             System.out.println("Creating base took " + m.baseTime.calculateBaseDelta());
@@ -162,6 +197,7 @@ public class Main {
     }
 
     private static void printQueryTime(QueryTime<?, ?, ?> qt, String description) {
+        System.out.println("Reading " + description + " took " + qt.calculateReadDelta());
         List<Long> col = qt.calculateCollectiveTimeDeltas();
         printList(col, "Collective " + description);
         List<Long> con = qt.calculateContinuousTimeDeltas();
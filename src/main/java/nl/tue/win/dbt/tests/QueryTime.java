@@ -1,7 +1,9 @@
 package nl.tue.win.dbt.tests;
 
 import com.google.common.collect.RangeSet;
+import nl.tue.win.dbt.Configuration;
 import nl.tue.win.dbt.algorithms.DurablePattern;
+import nl.tue.win.dbt.codec.GraphCodec;
 import nl.tue.win.dbt.data.LabeledGraph;
 import nl.tue.win.dbt.data.Lifespan;
 
@@ -17,6 +19,7 @@ public class QueryTime<V, E, L> {
     private final String filename;
     private final List<LabeledGraph<V, E, L>> patterns;
     private final List<RangeSet<Integer>> intervals;
+    private final GraphCodec<V, E, L> codec;
 
     private final long startRead;
     private final long endRead;
@@ -33,6 +36,15 @@ public class QueryTime<V, E, L> {
     }
 
     public QueryTime(String filename, List<LabeledGraph<V, E, L>> patterns, List<RangeSet<Integer>> intervals) {
+        this(filename, patterns, intervals, null);
+    }
+
+    // Reads the algorithm with the codec instead of Java deserialization when a codec is given.
+    public QueryTime(
+            String filename,
+            List<LabeledGraph<V, E, L>> patterns,
+            List<RangeSet<Integer>> intervals,
+            GraphCodec<V, E, L> codec) {
         Objects.requireNonNull(filename);
         Objects.requireNonNull(patterns);
         if(intervals != null && patterns.size() != intervals.size()) {
@@ -41,6 +53,7 @@ public class QueryTime<V, E, L> {
         this.filename = filename;
         this.patterns = patterns;
         this.intervals = intervals;
+        this.codec = codec;
         this.collectiveRunningTimes = new ArrayList<>();
         this.continuousRunningTimes = new ArrayList<>();
         this.collectiveResults = new ArrayList<>();
@@ -66,6 +79,10 @@ public class QueryTime<V, E, L> {
         return this.intervals;
     }
 
+    public GraphCodec<V, E, L> getCodec() {
+        return this.codec;
+    }
+
     public long getStartRead() {
         return this.startRead;
     }
@@ -142,6 +159,13 @@ public class QueryTime<V, E, L> {
 
     @SuppressWarnings("unchecked")
     private <T> T readFromFile(String filename) {
+        if(this.codec != null) {
+            try {
+                return (T) this.codec.readAlgorithm(filename, new Configuration());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
         try(ObjectInputStream in = new ObjectInputStream(new FileInputStream(filename))) {
             return (T) in.readObject();
         } catch (ClassNotFoundException | IOException e) {
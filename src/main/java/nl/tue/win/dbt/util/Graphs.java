@@ -4,6 +4,7 @@ import nl.tue.win.dbt.data.GraphDecorator;
 import org.jgrapht.DirectedGraph;
 import org.jgrapht.Graph;
 
+import java.util.Collections;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -12,6 +13,13 @@ public class Graphs {
         // Do not construct utility class.
     }
 
+    public static <V, E> boolean isDirected(Graph<V, E> graph) {
+        if(graph instanceof GraphDecorator) {
+            graph = ((GraphDecorator<V, E>) graph).getExactImpl();
+        }
+        return graph instanceof DirectedGraph;
+    }
+
     public static <V, E> Set<E> getTraversableEdges(Graph<V, E> graph, V vertex) {
         // Code smell due to bad design JGraphT. See CrossComponentIterator.createGraphSpecifics
         // https://github.com/jgrapht/jgrapht/blob/master/jgrapht-core/src/main/java/org/jgrapht/traverse/CrossComponentIterator.java#L339
@@ -32,4 +40,21 @@ public class Graphs {
                 .map(e -> org.jgrapht.Graphs.getOppositeVertex(graph, e, vertex))
                 .collect(Collectors.toSet());
     }
+
+    // Edges into the vertex of directed graphs, none for undirected graphs whose edges are all traversable.
+    public static <V, E> Set<E> getIncomingEdges(Graph<V, E> graph, V vertex) {
+        if(graph instanceof GraphDecorator) {
+            graph = ((GraphDecorator<V, E>) graph).getExactImpl();
+        }
+        if(graph instanceof DirectedGraph) {
+            return ((DirectedGraph<V, E>) graph).incomingEdgesOf(vertex);
+        }
+        return Collections.emptySet();
+    }
+
+    public static <V, E> Set<V> getPreviousNeighbors(Graph<V, E> graph, V vertex) {
+        return getIncomingEdges(graph, vertex).stream()
+                .map(e -> org.jgrapht.Graphs.getOppositeVertex(graph, e, vertex))
+                .collect(Collectors.toSet());
+    }
 }
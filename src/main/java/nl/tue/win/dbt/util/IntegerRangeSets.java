@@ -35,6 +35,18 @@ public class IntegerRangeSets {
         return bs;
     }
 
+    public static RangeSet<Integer> fromBitSet(BitSet bs) {
+        RangeSet<Integer> rangeSet = TreeRangeSet.create();
+        int start = bs.nextSetBit(0);
+        int end;
+        while(start >= 0) {
+            end = bs.nextClearBit(start);
+            rangeSet.add(IntegerRanges.closed(start, end - 1));
+            start = bs.nextSetBit(end);
+        }
+        return rangeSet;
+    }
+
     public static <T extends Comparable<T>> RangeSet<T> intersect(RangeSet<T> rs1, RangeSet<T> rs2) {
         // RangeSet.intersect still missing in Guava
         // https://github.com/google/guava/issues/1825
@@ -0,0 +1,66 @@
+package nl.tue.win.dbt;
+
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import junit.framework.TestCase;
+import nl.tue.win.dbt.algorithms.DurablePatternAlgorithm;
+import nl.tue.win.dbt.data.*;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.util.IntegerRanges;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.util.*;
+
+// Matches of multigraphs, where every one of multiple edges between two vertices has a lifespan of its own.
+public class DurablePatternAlgorithmTest extends TestCase {
+    private static final int SIZE = 6;
+
+    private static RangeSet<Integer> allIntervals() {
+        RangeSet<Integer> intervals = TreeRangeSet.create();
+        intervals.add(IntegerRanges.closed(0, SIZE - 1));
+        return intervals;
+    }
+
+    // A path 0 -> 1 -> 2 at every timestamp, where the edge from 1 to the leaf 2 is a different edge in the first and
+    // the second half.
+    private static LabeledVersionGraph<Integer, DefaultEdge, DblpLabel> versionGraph() {
+        List<LabeledGraph<Integer, DefaultEdge, DblpLabel>> snapshots = new ArrayList<>();
+        for(int t = 0; t < SIZE; t++) {
+            LabeledGraph<Integer, DefaultEdge, DblpLabel> snapshot = TestGraphs.multigraph();
+            for(int v = 0; v < 3; v++) {
+                snapshot.addVertex(v);
+                snapshot.addLabel(v, DblpLabel.values()[v % 2]);
+            }
+            snapshot.addEdge(0, 1);
+            if(t < SIZE / 2) {
+                snapshot.addEdge(1, 2);
+            }
+            snapshots.add(snapshot);
+        }
+        LabeledVersionGraph<Integer, DefaultEdge, DblpLabel> lvg =
+                TestGraphs.versionGraph(TestGraphs::multigraph, snapshots);
+        BitSet timestamps = new BitSet();
+        timestamps.set(SIZE / 2, SIZE);
+        LifespanSet lifespan = lvg.getLifespanSetFactory().createLifespanSet(timestamps);
+        assertNotNull(lvg.addEdge(1, 2, lifespan));
+        return lvg;
+    }
+
+    // Each of the edges to the leaf lasts half of the time, together they last all of the time.
+    public void testParallelLeafEdges() {
+        DurablePatternAlgorithm<Integer, DefaultEdge, DblpLabel> algorithm =
+                new DurablePatternAlgorithm<>(versionGraph(), TestGraphs::multigraph, new Configuration());
+        LabeledGraph<Integer, DefaultEdge, DblpLabel> pattern = TestGraphs.pattern(
+                TestGraphs::multigraph,
+                new int[][] {{0, 1}, {1, 2}},
+                DblpLabel.values()[0], DblpLabel.values()[1], DblpLabel.values()[0]);
+        Set<String> expected = new HashSet<>(Arrays.asList("[0, 1, 2] [[0‥3)]", "[0, 1, 2] [[3‥6)]"));
+        assertEquals(expected, TestGraphs.durations(
+                algorithm.queryMaximalCollectiveDurableGraphPattern(pattern, allIntervals())));
+        assertEquals(expected, TestGraphs.durations(
+                algorithm.queryMaximalContinuousDurableGraphPattern(pattern, allIntervals())));
+        assertEquals(expected, TestGraphs.durations(
+                algorithm.queryDurableGraphPatterns(pattern, allIntervals(), SIZE / 2)));
+        assertTrue(algorithm.queryDurableGraphPatterns(pattern, allIntervals(), SIZE / 2 + 1).isEmpty());
+    }
+}
@@ -0,0 +1,131 @@
+package nl.tue.win.dbt;
+
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import junit.framework.TestCase;
+import nl.tue.win.dbt.algorithms.DurablePatternAlgorithm;
+import nl.tue.win.dbt.algorithms.DurablePatternStore;
+import nl.tue.win.dbt.data.*;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.util.IntegerRanges;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.util.*;
+
+// Appends snapshots to a store and compares every version with a version graph that is built from scratch.
+// Most snapshots only have elements that the store already has, so their versions extend the previous version.
+public class DurablePatternStoreTest extends TestCase {
+    private static final int VERTICES = 25;
+    private static final int APPENDS = 20;
+
+    // Snapshot with some of the vertices, labels and edges of the version graph.
+    private static <E> LabeledGraph<Integer, E, DblpLabel> existingSnapshot(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            LabeledVersionGraph<Integer, E, DblpLabel> lvg,
+            Random random) {
+        LabeledGraph<Integer, E, DblpLabel> snapshot = creator.create();
+        for(Integer vertex: lvg.vertexSet()) {
+            if(random.nextInt(10) < 7) {
+                snapshot.addVertex(vertex);
+                for(DblpLabel label: lvg.getLabels(vertex)) {
+                    if(random.nextBoolean()) {
+                        snapshot.addLabel(vertex, label);
+                    }
+                }
+            }
+        }
+        for(E edge: lvg.edgeSet()) {
+            Integer source = lvg.getEdgeSource(edge);
+            Integer target = lvg.getEdgeTarget(edge);
+            if(snapshot.containsVertex(source) && snapshot.containsVertex(target) && random.nextInt(10) < 7) {
+                snapshot.addEdge(source, target);
+            }
+        }
+        return snapshot;
+    }
+
+    private static <E> void assertAppends(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            LabeledVersionGraph<Integer, E, DblpLabel> lvg,
+            Random random) {
+        DurablePatternStore<Integer, E, DblpLabel> store = new DurablePatternStore<>(lvg, creator, new Configuration());
+        int extended = 0;
+        for(int i = 0; i < APPENDS; i++) {
+            DurablePatternStore.Version<Integer, E, DblpLabel> previous = store.pin();
+            VersionGraph<Integer, DblpLabel> before = new CsrVersionGraph<>(
+                    lvg,
+                    new IdDictionary<>(lvg.getVertexDictionary().values()),
+                    new IdDictionary<>(lvg.getLabelDictionary().values()));
+            TestGraphs.assertSameGraph(before, previous.getVersionGraph());
+            LabeledGraph<Integer, E, DblpLabel> snapshot = i % 5 == 4
+                    ? TestGraphs.randomSnapshot(creator, TestGraphs.range(0, VERTICES), random)
+                    : existingSnapshot(creator, lvg, random);
+            int timestamp = store.appendSnapshot(snapshot);
+            assertEquals(previous.getSize(), timestamp);
+            try(DurablePatternStore.Version<Integer, E, DblpLabel> version = store.pin()) {
+                assertEquals(timestamp + 1, version.getSize());
+                if(version.getEpoch() == previous.getEpoch()) {
+                    extended++;
+                }
+                VersionGraph<Integer, DblpLabel> expected = new CsrVersionGraph<>(lvg);
+                assertEquals(expected.hasIncomingNeighbors(), version.getVersionGraph().hasIncomingNeighbors());
+                TestGraphs.assertSameGraph(expected, version.getVersionGraph());
+                assertSameResults(
+                        new DurablePatternAlgorithm<>(lvg, creator, new Configuration()),
+                        version.createAlgorithm(),
+                        version.getSize());
+            }
+            // Extending the version does not change the version it extends.
+            TestGraphs.assertSameGraph(before, previous.getVersionGraph());
+            previous.close();
+            assertTrue(previous.isReclaimed());
+        }
+        assertTrue(extended > 0);
+    }
+
+    private static <E> void assertSameResults(
+            DurablePatternAlgorithm<Integer, E, DblpLabel> expected,
+            DurablePatternAlgorithm<Integer, E, DblpLabel> actual,
+            int size) {
+        RangeSet<Integer> intervals = TreeRangeSet.create();
+        intervals.add(IntegerRanges.closed(0, size - 1));
+        LabeledGraph<Integer, E, DblpLabel> pattern = TestGraphs.pattern(
+                expected.getGraphCreator(), new int[][] {{0, 1}}, DblpLabel.values()[0], DblpLabel.values()[1]);
+        assertEquals(
+                TestGraphs.durations(expected.queryMaximalCollectiveDurableGraphPattern(pattern, intervals)),
+                TestGraphs.durations(actual.queryMaximalCollectiveDurableGraphPattern(pattern, intervals)));
+        assertEquals(
+                TestGraphs.durations(expected.queryDurableGraphPatterns(pattern, intervals, 2)),
+                TestGraphs.durations(actual.queryDurableGraphPatterns(pattern, intervals, 2)));
+    }
+
+    private static <E> LabeledVersionGraph<Integer, E, DblpLabel> versionGraph(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            Random random) {
+        return TestGraphs.versionGraph(creator, 3, TestGraphs.range(0, VERTICES), random);
+    }
+
+    public void testUndirected() {
+        Random random = new Random(1);
+        assertAppends(TestGraphs::undirected, versionGraph(TestGraphs::undirected, random), random);
+    }
+
+    public void testDirected() {
+        Random random = new Random(2);
+        assertAppends(TestGraphs::directed, versionGraph(TestGraphs::directed, random), random);
+    }
+
+    public void testParallelEdges() {
+        Random random = new Random(3);
+        LabeledVersionGraph<Integer, DefaultEdge, DblpLabel> lvg = versionGraph(TestGraphs::multigraph, random);
+        List<DefaultEdge> edges = new ArrayList<>(lvg.edgeSet());
+        for(int i = 0; i < 10; i++) {
+            DefaultEdge edge = edges.get(random.nextInt(edges.size()));
+            BitSet timestamps = new BitSet();
+            timestamps.set(random.nextInt(lvg.getSize()));
+            LifespanSet lifespan = lvg.getLifespanSetFactory().createLifespanSet(timestamps);
+            assertNotNull(lvg.addEdge(lvg.getEdgeSource(edge), lvg.getEdgeTarget(edge), lifespan));
+        }
+        assertAppends(TestGraphs::multigraph, lvg, random);
+    }
+}
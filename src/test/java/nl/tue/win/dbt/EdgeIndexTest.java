@@ -0,0 +1,105 @@
+package nl.tue.win.dbt;
+
+import junit.framework.TestCase;
+import nl.tue.win.dbt.data.EdgeIndex;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
+
+import java.util.*;
+
+// Fills EdgeIndex up to its maximum load, so pairs collide and probe past each other, and compares every lookup
+// with a HashMap.
+public class EdgeIndexTest extends TestCase {
+    private final LifespanSetFactory factory = new LifespanSetFactory.ContainerFactory();
+    private final Random random = new Random(7);
+
+    private LifespanSet lifespan(int... timestamps) {
+        BitSet bs = new BitSet();
+        for(int timestamp: timestamps) {
+            bs.set(timestamp);
+        }
+        return this.factory.createLifespanSet(bs);
+    }
+
+    private static long pack(int sourceId, int targetId) {
+        return ((long) sourceId << 32) | targetId;
+    }
+
+    private void assertMatches(EdgeIndex index, Map<Long, LifespanSet> expected, int range) {
+        assertEquals(expected.size(), index.getPairCount());
+        for(Map.Entry<Long, LifespanSet> entry: expected.entrySet()) {
+            int sourceId = (int) (entry.getKey() >>> 32);
+            int targetId = (int) (long) entry.getKey();
+            assertEquals(entry.getValue(), index.getLifespan(sourceId, targetId));
+        }
+        // Pairs that are not in the index probe until an empty slot.
+        for(int i = 0; i < 1000; i++) {
+            int sourceId = this.random.nextInt(range);
+            int targetId = this.random.nextInt(range);
+            assertEquals(expected.get(pack(sourceId, targetId)), index.getLifespan(sourceId, targetId));
+        }
+    }
+
+    public void testFullTable() {
+        for(int expectedPairs: new int[] {1, 2, 3, 17, 1000}) {
+            EdgeIndex index = new EdgeIndex(expectedPairs);
+            Map<Long, LifespanSet> expected = new HashMap<>();
+            int range = 4 * expectedPairs + 2;
+            // The table holds at least the expected number of pairs, at a load factor of at most one half.
+            while(expected.size() < expectedPairs) {
+                int sourceId = this.random.nextInt(range);
+                int targetId = this.random.nextInt(range);
+                LifespanSet lifespan = this.lifespan(this.random.nextInt(64));
+                if(!expected.containsKey(pack(sourceId, targetId))) {
+                    expected.put(pack(sourceId, targetId), lifespan);
+                    index.put(sourceId, targetId, lifespan);
+                }
+            }
+            this.assertMatches(index, expected, range);
+        }
+    }
+
+    // Keys that only differ in which half of the packed long holds an id, or in the high bits of an id.
+    public void testSimilarKeys() {
+        EdgeIndex index = new EdgeIndex(8);
+        Map<Long, LifespanSet> expected = new HashMap<>();
+        int[][] pairs = {{0, 1}, {1, 0}, {0, 0}, {1, 1}, {Integer.MAX_VALUE, 0}, {0, Integer.MAX_VALUE}, {1 << 16, 1}, {1, 1 << 16}};
+        for(int i = 0; i < pairs.length; i++) {
+            LifespanSet lifespan = this.lifespan(i);
+            index.put(pairs[i][0], pairs[i][1], lifespan);
+            expected.put(pack(pairs[i][0], pairs[i][1]), lifespan);
+        }
+        this.assertMatches(index, expected, 4);
+        assertNull(index.getLifespan(2, 0));
+        assertNull(index.getLifespan(Integer.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    public void testMultipleEdgesUnion() {
+        EdgeIndex index = new EdgeIndex(2);
+        index.put(3, 5, this.lifespan(0, 1));
+        index.put(5, 3, this.lifespan(7));
+        index.put(3, 5, this.lifespan(1, 4));
+        assertEquals(2, index.getPairCount());
+        assertEquals(this.lifespan(0, 1, 4), index.getLifespan(3, 5));
+        assertEquals(this.lifespan(7), index.getLifespan(5, 3));
+    }
+
+    public void testRejectsInvalidPairs() {
+        EdgeIndex index = new EdgeIndex(1);
+        index.put(0, 1, this.lifespan(0));
+        // A full table still accepts more edges between pairs it already holds.
+        index.put(0, 1, this.lifespan(1));
+        try {
+            index.put(1, 0, this.lifespan(0));
+            fail("Expected a full table");
+        } catch (IllegalStateException e) {
+            assertEquals(1, index.getPairCount());
+        }
+        try {
+            index.put(-1, 0, this.lifespan(0));
+            fail("Expected non-negative ids");
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, index.getPairCount());
+        }
+    }
+}
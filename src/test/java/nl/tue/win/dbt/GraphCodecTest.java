@@ -0,0 +1,291 @@
+package nl.tue.win.dbt;
+
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import junit.framework.TestCase;
+import nl.tue.win.dbt.algorithms.BaselineAlgorithm;
+import nl.tue.win.dbt.algorithms.DurablePattern;
+import nl.tue.win.dbt.algorithms.DurablePatternAlgorithm;
+import nl.tue.win.dbt.algorithms.TimeIndices.Ctinla;
+import nl.tue.win.dbt.algorithms.TimeIndices.Tila;
+import nl.tue.win.dbt.algorithms.TimeIndices.TimeIndex;
+import nl.tue.win.dbt.algorithms.TimeIndices.candidatefilters.CandidateFilter;
+import nl.tue.win.dbt.codec.GraphCodec;
+import nl.tue.win.dbt.codec.ValueCodec;
+import nl.tue.win.dbt.data.*;
+import nl.tue.win.dbt.data.lifespans.LifespanSet;
+import nl.tue.win.dbt.util.IntegerRanges;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.*;
+
+// Writes graphs, candidate filters and algorithms with GraphCodec, reads them back and compares the contents and
+// the results of queries before and after the round trip.
+public class GraphCodecTest extends TestCase {
+    private static final int SIZE = 6;
+    private static final int VERTICES = 30;
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("graph-codec").toFile();
+    }
+
+    @Override
+    protected void tearDown() {
+        File[] files = this.directory.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    private String file(String name) {
+        return new File(this.directory, name).getPath();
+    }
+
+    private static <E> GraphCodec<Integer, E, DblpLabel> codec(GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator) {
+        return new GraphCodec<>(new ValueCodec.IntegerCodec(), new ValueCodec.EnumCodec<>(DblpLabel.class), creator);
+    }
+
+    private static <E> LabeledHistoryGraph<LabeledGraph<Integer, E, DblpLabel>, Integer, E, DblpLabel> history(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            long seed) {
+        return TestGraphs.history(creator, SIZE, TestGraphs.range(0, VERTICES), new Random(seed));
+    }
+
+    private static <E> List<LabeledGraph<Integer, E, DblpLabel>> patterns(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator) {
+        return Arrays.asList(
+                TestGraphs.pattern(creator, new int[][] {{0, 1}}, DblpLabel.values()[0], DblpLabel.values()[1]),
+                TestGraphs.pattern(creator, new int[][] {{0, 1}, {1, 2}}, DblpLabel.values()[0], DblpLabel.values()[0], DblpLabel.values()[1]),
+                TestGraphs.pattern(creator, new int[][] {{0, 1}, {1, 2}, {2, 0}}, DblpLabel.values()[0], DblpLabel.values()[0], DblpLabel.values()[0]));
+    }
+
+    private static List<RangeSet<Integer>> intervals() {
+        RangeSet<Integer> all = TreeRangeSet.create();
+        all.add(IntegerRanges.closed(0, SIZE - 1));
+        RangeSet<Integer> split = TreeRangeSet.create();
+        split.add(IntegerRanges.closed(0, 1));
+        split.add(IntegerRanges.closed(3, SIZE - 1));
+        return Arrays.asList(all, split);
+    }
+
+    // Matches as sorted strings of their vertices, edges and timestamps, independent of edge objects.
+    private static <E> List<String> canonical(Set<Lifespan<LabeledGraph<Integer, E, DblpLabel>>> matches) {
+        List<String> result = new ArrayList<>();
+        for(Lifespan<LabeledGraph<Integer, E, DblpLabel>> match: matches) {
+            LabeledGraph<Integer, E, DblpLabel> graph = match.getData();
+            result.add(new TreeSet<>(graph.vertexSet()) + " " + edgePairs(graph) + " " + match.getRangeSet());
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static <E> List<String> edgePairs(org.jgrapht.Graph<Integer, E> graph) {
+        List<String> pairs = new ArrayList<>();
+        for(E edge: graph.edgeSet()) {
+            pairs.add(graph.getEdgeSource(edge) + "-" + graph.getEdgeTarget(edge));
+        }
+        Collections.sort(pairs);
+        return pairs;
+    }
+
+    private static <E> List<String> results(
+            DurablePattern<Integer, E, DblpLabel> algorithm,
+            List<LabeledGraph<Integer, E, DblpLabel>> patterns) {
+        List<String> results = new ArrayList<>();
+        for(LabeledGraph<Integer, E, DblpLabel> pattern: patterns) {
+            for(RangeSet<Integer> intervals: intervals()) {
+                results.add(canonical(algorithm.queryMaximalCollectiveDurableGraphPattern(pattern, intervals)).toString());
+                results.add(canonical(algorithm.queryMaximalContinuousDurableGraphPattern(pattern, intervals)).toString());
+            }
+        }
+        return results;
+    }
+
+    private <E> void assertHistoryGraphRoundTrip(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            boolean compressed) throws IOException {
+        LabeledHistoryGraph<LabeledGraph<Integer, E, DblpLabel>, Integer, E, DblpLabel> lhg = history(creator, 1);
+        GraphCodec<Integer, E, DblpLabel> codec = codec(creator);
+        codec.setCompressed(compressed);
+        codec.writeHistoryGraph(lhg, this.file("history"));
+        LabeledHistoryGraph<LabeledGraph<Integer, E, DblpLabel>, Integer, E, DblpLabel> read = codec.readHistoryGraph(this.file("history"));
+        assertEquals(lhg.size(), read.size());
+        for(int t = 0; t < lhg.size(); t++) {
+            LabeledGraph<Integer, E, DblpLabel> expected = lhg.get(t);
+            LabeledGraph<Integer, E, DblpLabel> actual = read.get(t);
+            assertEquals(expected.vertexSet(), actual.vertexSet());
+            for(Integer vertex: expected.vertexSet()) {
+                assertEquals(expected.getLabels(vertex), actual.getLabels(vertex));
+            }
+            assertEquals(edgePairs(expected), edgePairs(actual));
+        }
+    }
+
+    public void testHistoryGraphRoundTrip() throws IOException {
+        for(boolean compressed: new boolean[] {false, true}) {
+            this.assertHistoryGraphRoundTrip(TestGraphs::undirected, compressed);
+            this.assertHistoryGraphRoundTrip(TestGraphs::directed, compressed);
+        }
+    }
+
+    public void testHistoryGraphKeepsMultiEdges() throws IOException {
+        LabeledHistoryGraph<LabeledGraph<Integer, DefaultEdge, DblpLabel>, Integer, DefaultEdge, DblpLabel> lhg =
+                history(TestGraphs::multigraph, 2);
+        // Parallel edges in every snapshot.
+        for(LabeledGraph<Integer, DefaultEdge, DblpLabel> snapshot: lhg) {
+            DefaultEdge edge = snapshot.edgeSet().iterator().next();
+            snapshot.addEdge(snapshot.getEdgeSource(edge), snapshot.getEdgeTarget(edge));
+        }
+        GraphCodec<Integer, DefaultEdge, DblpLabel> codec = codec(TestGraphs::multigraph);
+        codec.writeHistoryGraph(lhg, this.file("multi"));
+        LabeledHistoryGraph<LabeledGraph<Integer, DefaultEdge, DblpLabel>, Integer, DefaultEdge, DblpLabel> read =
+                codec.readHistoryGraph(this.file("multi"));
+        for(int t = 0; t < lhg.size(); t++) {
+            assertEquals(edgePairs(lhg.get(t)), edgePairs(read.get(t)));
+            assertEquals(lhg.get(t).edgeSet().size(), read.get(t).edgeSet().size());
+        }
+    }
+
+    private <E> void assertVersionGraphRoundTrip(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            LabeledVersionGraph<Integer, E, DblpLabel> lvg) throws IOException {
+        GraphCodec<Integer, E, DblpLabel> codec = codec(creator);
+        codec.writeVersionGraph(lvg, this.file("lvg"));
+        LabeledVersionGraph<Integer, E, DblpLabel> read = codec.readVersionGraph(this.file("lvg"));
+        assertEquals(lvg.getSize(), read.getSize());
+        TestGraphs.assertSameGraph(new CsrVersionGraph<>(lvg), new CsrVersionGraph<>(read));
+        assertEquals(lvg.getVertexDictionary().values(), read.getVertexDictionary().values());
+        Configuration config = new Configuration();
+        assertEquals(
+                results(new DurablePatternAlgorithm<>(lvg, creator, config), patterns(creator)),
+                results(new DurablePatternAlgorithm<>(read, creator, config), patterns(creator)));
+    }
+
+    public void testVersionGraphRoundTrip() throws IOException {
+        this.assertVersionGraphRoundTrip(
+                TestGraphs::undirected, new LabeledVersionGraph<>(history(TestGraphs::undirected, 3)));
+        this.assertVersionGraphRoundTrip(
+                TestGraphs::directed, new LabeledVersionGraph<>(history(TestGraphs::directed, 4)));
+    }
+
+    public void testVersionGraphKeepsMultiEdges() throws IOException {
+        LabeledVersionGraph<Integer, DefaultEdge, DblpLabel> lvg = new LabeledVersionGraph<>(
+                history(TestGraphs::multigraph, 5));
+        // A parallel edge with a lifespan of its own.
+        DefaultEdge edge = lvg.edgeSet().iterator().next();
+        BitSet timestamps = new BitSet();
+        timestamps.set(SIZE - 1);
+        LifespanSet lifespan = lvg.getLifespanSetFactory().createLifespanSet(timestamps);
+        int before = lvg.edgeSet().size();
+        assertNotNull(lvg.addEdge(lvg.getEdgeSource(edge), lvg.getEdgeTarget(edge), lifespan));
+        assertEquals(before + 1, lvg.edgeSet().size());
+        this.assertVersionGraphRoundTrip(TestGraphs::multigraph, lvg);
+    }
+
+    public void testCandidateFilterRoundTrip() throws IOException {
+        GraphCodec<Integer, Edge, DblpLabel> codec = codec(TestGraphs::directed);
+        LabeledVersionGraph<Integer, Edge, DblpLabel> lvg = new LabeledVersionGraph<>(history(TestGraphs::directed, 6));
+        VersionGraph<Integer, DblpLabel> csr = new CsrVersionGraph<>(lvg);
+        Configuration config = new Configuration();
+        for(TimeIndex ti: new TimeIndex[] {new Tila(), new Ctinla()}) {
+            config.setTi(ti);
+            CandidateFilter<Integer, Edge, DblpLabel> filter = config.createCandidateFilter(csr);
+            codec.writeCandidateFilter(filter, this.file("filter"));
+            CandidateFilter<Integer, Edge, DblpLabel> read = codec.readCandidateFilter(this.file("filter"), csr);
+            assertEquals(filter.getClass(), read.getClass());
+            for(LabeledGraph<Integer, Edge, DblpLabel> pattern: patterns(TestGraphs::directed)) {
+                for(RangeSet<Integer> intervals: intervals()) {
+                    LifespanSet lifespan = config.createLifespanSet(nl.tue.win.dbt.util.IntegerRangeSets.toBitSet(intervals));
+                    for(Integer vertex: pattern.vertexSet()) {
+                        assertEquals(
+                                filter.filterCandidates(pattern, vertex, lifespan),
+                                read.filterCandidates(pattern, vertex, lifespan));
+                    }
+                }
+            }
+        }
+    }
+
+    // A durable pattern file reads back as the durable algorithm and a history graph file as the baseline, both
+    // give the same results as the algorithms on the graphs before writing.
+    public void testAlgorithmRoundTrip() throws IOException {
+        GraphCreator<LabeledGraph<Integer, Edge, DblpLabel>, Integer, Edge> creator = TestGraphs::undirected;
+        GraphCodec<Integer, Edge, DblpLabel> codec = codec(creator);
+        codec.setCompressed(true);
+        LabeledHistoryGraph<LabeledGraph<Integer, Edge, DblpLabel>, Integer, Edge, DblpLabel> lhg = history(creator, 7);
+        LabeledVersionGraph<Integer, Edge, DblpLabel> lvg = new LabeledVersionGraph<>(lhg);
+        Configuration config = new Configuration();
+        DurablePatternAlgorithm<Integer, Edge, DblpLabel> durable = new DurablePatternAlgorithm<>(lvg, creator, config);
+        List<String> expected = results(durable, patterns(creator));
+        assertFalse(expected.stream().allMatch("[]"::equals));
+
+        codec.writeDurablePattern(lvg, durable.getCandidateFilter(), this.file("durable"));
+        DurablePattern<Integer, Edge, DblpLabel> readDurable = codec.readAlgorithm(this.file("durable"), config);
+        assertTrue(readDurable instanceof DurablePatternAlgorithm);
+        assertEquals(expected, results(readDurable, patterns(creator)));
+        assertEquals(expected, results(codec.readDurablePattern(this.file("durable"), config), patterns(creator)));
+
+        codec.writeHistoryGraph(lhg, this.file("baseline"));
+        DurablePattern<Integer, Edge, DblpLabel> readBaseline = codec.readAlgorithm(this.file("baseline"), config);
+        assertTrue(readBaseline instanceof BaselineAlgorithm);
+        assertEquals(
+                results(new BaselineAlgorithm<>(lhg, config), patterns(creator)),
+                results(readBaseline, patterns(creator)));
+    }
+
+    private void assertRejected(String filename, String message) {
+        try {
+            codec(TestGraphs::undirected).readHistoryGraph(filename);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    public void testRejectsForeignFiles() throws IOException {
+        GraphCodec<Integer, Edge, DblpLabel> codec = codec(TestGraphs::undirected);
+        LabeledHistoryGraph<LabeledGraph<Integer, Edge, DblpLabel>, Integer, Edge, DblpLabel> lhg = history(TestGraphs::undirected, 8);
+        codec.writeHistoryGraph(lhg, this.file("history"));
+
+        // Another kind of content.
+        try {
+            codec.readVersionGraph(this.file("history"));
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unexpected content"));
+        }
+        try {
+            codec.readAlgorithm(this.file("history"), new Configuration());
+        } catch (IOException e) {
+            fail("History graphs are read as baseline algorithms");
+        }
+
+        try(RandomAccessFile file = new RandomAccessFile(this.file("history"), "rw")) {
+            // Format version after the magic number.
+            file.seek(Integer.BYTES);
+            file.writeInt(2);
+        }
+        this.assertRejected(this.file("history"), "Unsupported format version 2");
+
+        try(RandomAccessFile file = new RandomAccessFile(this.file("history"), "rw")) {
+            file.seek(0);
+            file.writeInt(0x12345678);
+        }
+        this.assertRejected(this.file("history"), "Unknown file format");
+
+        try(RandomAccessFile file = new RandomAccessFile(this.file("history"), "rw")) {
+            file.setLength(3);
+        }
+        this.assertRejected(this.file("history"), "Truncated header");
+    }
+}
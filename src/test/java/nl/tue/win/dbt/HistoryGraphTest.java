@@ -0,0 +1,67 @@
+package nl.tue.win.dbt;
+
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import junit.framework.TestCase;
+import nl.tue.win.dbt.data.*;
+import nl.tue.win.dbt.util.IntegerRanges;
+import org.jgrapht.graph.SimpleGraph;
+
+import java.util.*;
+
+// Changes to snapshots after the history graph indexed them, for labeled snapshots and for plain jgrapht graphs.
+public class HistoryGraphTest extends TestCase {
+
+    private static RangeSet<Integer> closed(int first, int last) {
+        RangeSet<Integer> rangeSet = TreeRangeSet.create();
+        rangeSet.add(IntegerRanges.closed(first, last));
+        return rangeSet;
+    }
+
+    public void testSnapshotChangedAfterIndexing() {
+        LabeledHistoryGraph<LabeledGraph<Integer, Edge, DblpLabel>, Integer, Edge, DblpLabel> lhg =
+                new LabeledHistoryGraph<>(TestGraphs::undirected);
+        LabeledGraph<Integer, Edge, DblpLabel> first = lhg.addGraph();
+        first.addVertex(1);
+        first.addLabel(1, DblpLabel.values()[0]);
+        assertEquals(Collections.singleton(1), lhg.vertexSet());
+
+        // Snapshots of addGraph() are filled in after they are added.
+        LabeledGraph<Integer, Edge, DblpLabel> second = lhg.addGraph();
+        assertEquals(Collections.singleton(1), lhg.vertexSet());
+        second.addVertex(1);
+        second.addVertex(2);
+        second.addLabel(2, DblpLabel.values()[1]);
+        Edge edge = second.addEdge(1, 2);
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), lhg.vertexSet());
+        assertEquals(closed(0, 1), lhg.vertexLifespan(1));
+        assertEquals(Collections.singleton(edge), lhg.edgesOf(2));
+        assertEquals(closed(1, 1), lhg.labelLifespan(2, DblpLabel.values()[1]));
+
+        // Changes that keep the number of vertices and edges.
+        first.removeLabel(1, DblpLabel.values()[0]);
+        first.addLabel(1, DblpLabel.values()[1]);
+        assertEquals(closed(0, 0), lhg.labelLifespan(1, DblpLabel.values()[1]));
+        assertTrue(lhg.labelLifespan(DblpLabel.values()[0]).isEmpty());
+        second.removeVertex(2);
+        second.addVertex(3);
+        assertFalse(lhg.containsVertex(2));
+        assertFalse(lhg.containsEdge(edge));
+        assertEquals(closed(1, 1), lhg.vertexLifespan(3));
+    }
+
+    public void testPlainSnapshotChangedAfterIndexing() {
+        HistoryGraph<SimpleGraph<Integer, Edge>, Integer, Edge> hg =
+                new HistoryGraph<>(() -> new SimpleGraph<>(Edge.class));
+        SimpleGraph<Integer, Edge> snapshot = hg.addGraph();
+        assertTrue(hg.vertexSet().isEmpty());
+        snapshot.addVertex(1);
+        snapshot.addVertex(2);
+        Edge edge = snapshot.addEdge(1, 2);
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), hg.vertexSet());
+        assertTrue(hg.containsEdge(edge));
+        snapshot.removeVertex(2);
+        assertFalse(hg.containsVertex(2));
+        assertTrue(hg.edgeSet().isEmpty());
+    }
+}
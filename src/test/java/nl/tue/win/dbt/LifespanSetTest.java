@@ -0,0 +1,214 @@
+package nl.tue.win.dbt;
+
+import junit.framework.TestCase;
+import nl.tue.win.dbt.data.lifespans.*;
+
+import java.io.*;
+import java.util.*;
+
+// Compares every lifespan set implementation with BitSet on random sets, including sets that cross the chunk
+// boundaries of ContainerLifespanSet, switch between its array and bitmap containers and end runs at word boundaries.
+public class LifespanSetTest extends TestCase {
+    private static final int CHUNK = 1 << 16;
+    private static final int ARRAY_MAX_SIZE = 4096;
+
+    private static final LifespanSetFactory[] FACTORIES = {
+            new LifespanSetFactory.BitSetFactory(),
+            new LifespanSetFactory.ContainerFactory(),
+            new LifespanSetFactory.RunFactory()};
+
+    private final Random random = new Random(42);
+
+    private List<BitSet> createSets() {
+        List<BitSet> sets = new ArrayList<>();
+        sets.add(new BitSet());
+        BitSet single = new BitSet();
+        single.set(CHUNK - 1);
+        sets.add(single);
+        // Runs that end and start at word and chunk boundaries.
+        BitSet boundaries = new BitSet();
+        boundaries.set(0, 64);
+        boundaries.set(127, 129);
+        boundaries.set(CHUNK - 3, CHUNK + 3);
+        boundaries.set(2 * CHUNK - 1);
+        sets.add(boundaries);
+        // A chunk at the largest array size and one just over it, so one array and one bitmap container.
+        BitSet containers = new BitSet();
+        this.setRandom(containers, 0, CHUNK, ARRAY_MAX_SIZE);
+        this.setRandom(containers, CHUNK, 2 * CHUNK, ARRAY_MAX_SIZE + 1);
+        sets.add(containers);
+        // A full chunk, a bitmap container without clear bits.
+        BitSet full = new BitSet();
+        full.set(CHUNK, 2 * CHUNK);
+        sets.add(full);
+        for(int i = 0; i < 12; i++) {
+            BitSet bs = new BitSet();
+            int size = 1 + this.random.nextInt(3 * CHUNK);
+            if(i % 3 == 0) {
+                this.setRandom(bs, 0, size, 1 + this.random.nextInt(Math.min(size, 2 * ARRAY_MAX_SIZE)));
+            } else {
+                this.setRandomRuns(bs, size, 1 + this.random.nextInt(200));
+            }
+            sets.add(bs);
+        }
+        return sets;
+    }
+
+    private void setRandom(BitSet bs, int from, int to, int count) {
+        BitSet chunk = new BitSet();
+        while(chunk.cardinality() < count) {
+            chunk.set(from + this.random.nextInt(to - from));
+        }
+        bs.or(chunk);
+    }
+
+    private void setRandomRuns(BitSet bs, int size, int runs) {
+        for(int i = 0; i < runs; i++) {
+            int start = this.random.nextInt(size);
+            bs.set(start, Math.min(size, start + 1 + this.random.nextInt(2000)));
+        }
+    }
+
+    // Timestamps around every run boundary and at random positions.
+    private int[] probes(BitSet bs) {
+        Set<Integer> probes = new TreeSet<>();
+        for(int i = bs.nextSetBit(0); i >= 0; i = bs.nextSetBit(bs.nextClearBit(i))) {
+            int end = bs.nextClearBit(i);
+            for(int delta = -1; delta <= 1; delta++) {
+                probes.add(Math.max(0, i + delta));
+                probes.add(Math.max(0, end + delta));
+            }
+        }
+        for(int boundary: new int[] {0, 63, 64, 65, CHUNK - 1, CHUNK, CHUNK + 1, 2 * CHUNK, 3 * CHUNK + 1}) {
+            probes.add(boundary);
+        }
+        for(int i = 0; i < 200; i++) {
+            probes.add(this.random.nextInt(3 * CHUNK + 2));
+        }
+        return probes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int longestRun(BitSet bs) {
+        int longest = 0;
+        for(int i = bs.nextSetBit(0); i >= 0; i = bs.nextSetBit(bs.nextClearBit(i))) {
+            longest = Math.max(longest, bs.nextClearBit(i) - i);
+        }
+        return longest;
+    }
+
+    private static void assertSame(String message, BitSet expected, LifespanSet actual, int[] probes) {
+        assertEquals(message, expected, actual.toBitSet());
+        assertEquals(message, expected.isEmpty(), actual.isEmpty());
+        assertEquals(message, expected.cardinality(), actual.cardinality());
+        assertEquals(message, expected.length(), actual.length());
+        assertEquals(message, longestRun(expected), actual.longestRun());
+        assertEquals(message, expected.hashCode(), actual.hashCode());
+        for(int probe: probes) {
+            assertEquals(message + " get " + probe, expected.get(probe), actual.get(probe));
+            assertEquals(message + " nextSetBit " + probe, expected.nextSetBit(probe), actual.nextSetBit(probe));
+            assertEquals(message + " nextClearBit " + probe, expected.nextClearBit(probe), actual.nextClearBit(probe));
+        }
+    }
+
+    public void testMatchesBitSet() {
+        for(BitSet bs: this.createSets()) {
+            int[] probes = this.probes(bs);
+            for(LifespanSetFactory factory: FACTORIES) {
+                assertSame(factory.getClass().getSimpleName(), bs, factory.createLifespanSet(bs), probes);
+            }
+        }
+    }
+
+    public void testSummary() {
+        for(BitSet bs: this.createSets()) {
+            for(LifespanSetFactory factory: FACTORIES) {
+                LifespanSummary summary = factory.createLifespanSet(bs).summary();
+                if(bs.isEmpty()) {
+                    assertEquals(LifespanSummary.EMPTY, summary);
+                } else {
+                    assertEquals(bs.nextSetBit(0), summary.getFirst());
+                    assertEquals(bs.length() - 1, summary.getLast());
+                    assertEquals(bs.cardinality(), summary.getCardinality());
+                    assertEquals(longestRun(bs), summary.getLongestRun());
+                }
+            }
+        }
+    }
+
+    // Every pair of sets, with every pair of implementations, so mixed operands are covered as well.
+    public void testAndOr() {
+        List<BitSet> sets = this.createSets();
+        for(BitSet bs1: sets) {
+            for(BitSet bs2: sets) {
+                BitSet and = (BitSet) bs1.clone();
+                and.and(bs2);
+                BitSet or = (BitSet) bs1.clone();
+                or.or(bs2);
+                int[] probes = this.probes(or);
+                for(LifespanSetFactory factory1: FACTORIES) {
+                    for(LifespanSetFactory factory2: FACTORIES) {
+                        LifespanSet lifespan1 = factory1.createLifespanSet(bs1);
+                        LifespanSet lifespan2 = factory2.createLifespanSet(bs2);
+                        String message = factory1.getClass().getSimpleName() + " " + factory2.getClass().getSimpleName();
+                        assertSame(message + " and", and, lifespan1.and(lifespan2), probes);
+                        assertSame(message + " or", or, lifespan1.or(lifespan2), probes);
+                        assertEquals(message, bs1.intersects(bs2), lifespan1.intersects(lifespan2));
+                        // Operands are never modified.
+                        assertEquals(message, bs1, lifespan1.toBitSet());
+                        assertEquals(message, bs2, lifespan2.toBitSet());
+                    }
+                }
+            }
+        }
+    }
+
+    public void testEqualsAcrossImplementations() {
+        for(BitSet bs: this.createSets()) {
+            for(LifespanSetFactory factory1: FACTORIES) {
+                for(LifespanSetFactory factory2: FACTORIES) {
+                    LifespanSet lifespan1 = factory1.createLifespanSet(bs);
+                    LifespanSet lifespan2 = factory2.createLifespanSet(bs);
+                    assertEquals(lifespan1, lifespan2);
+                    assertEquals(lifespan1.hashCode(), lifespan2.hashCode());
+                }
+            }
+        }
+    }
+
+    public void testRunsOfOtherImplementations() {
+        for(BitSet bs: this.createSets()) {
+            for(LifespanSetFactory factory: FACTORIES) {
+                RunLifespanSet runs = RunLifespanSet.valueOf(factory.createLifespanSet(bs));
+                assertSame(factory.getClass().getSimpleName(), bs, runs, this.probes(bs));
+            }
+        }
+    }
+
+    // Equal lifespans share an instance, also with the lifespans of a pool that was serialized with them.
+    @SuppressWarnings("unchecked")
+    public void testPool() throws IOException, ClassNotFoundException {
+        LifespanPool pool = new LifespanPool();
+        List<LifespanSet> interned = new ArrayList<>();
+        for(BitSet bs: this.createSets()) {
+            for(LifespanSetFactory factory: FACTORIES) {
+                LifespanSet lifespan = pool.intern(factory.createLifespanSet(bs));
+                assertSame(interned.isEmpty() ? lifespan : interned.get(interned.size() - 1), lifespan);
+                interned.add(lifespan);
+            }
+            interned.clear();
+        }
+
+        LifespanSet kept = pool.intern(FACTORIES[0].createLifespanSet(this.createSets().get(2)));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(Arrays.asList(pool, kept));
+        }
+        List<Object> read;
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (List<Object>) in.readObject();
+        }
+        LifespanPool readPool = (LifespanPool) read.get(0);
+        assertSame(read.get(1), readPool.intern(FACTORIES[1].createLifespanSet(this.createSets().get(2))));
+        assertEquals(pool.getRequests(), readPool.getRequests() - 1);
+    }
+}
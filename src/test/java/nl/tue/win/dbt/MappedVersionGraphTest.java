@@ -0,0 +1,141 @@
+package nl.tue.win.dbt;
+
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import junit.framework.TestCase;
+import nl.tue.win.dbt.algorithms.DurablePatternAlgorithm;
+import nl.tue.win.dbt.codec.ValueCodec;
+import nl.tue.win.dbt.data.*;
+import nl.tue.win.dbt.data.lifespans.LifespanSetFactory;
+import nl.tue.win.dbt.util.IntegerRanges;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+// Writes version graphs in the mapped file format, reads them back as mapped and paged version graphs and compares
+// the contents, the dictionaries and the results of queries with the version graph that was written.
+public class MappedVersionGraphTest extends TestCase {
+    private static final int SIZE = 8;
+    private static final int VERTICES = 40;
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("mapped-version-graph").toFile();
+    }
+
+    @Override
+    protected void tearDown() {
+        File[] files = this.directory.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    private String file(String name) {
+        return new File(this.directory, name).getPath();
+    }
+
+    // Vertices are spread out and negative, so their encodings differ in length and do not sort like their ids.
+    private static LabeledVersionGraph<Integer, Edge, DblpLabel> versionGraph(
+            GraphCreator<LabeledGraph<Integer, Edge, DblpLabel>, Integer, Edge> creator,
+            long seed) {
+        List<Integer> vertices = new ArrayList<>();
+        for(int v = 0; v < VERTICES; v++) {
+            vertices.add((v % 2 == 0 ? 1 : -1) * v * 997);
+        }
+        return TestGraphs.versionGraph(creator, SIZE, vertices, new Random(seed));
+    }
+
+    private void assertRoundTrip(
+            GraphCreator<LabeledGraph<Integer, Edge, DblpLabel>, Integer, Edge> creator,
+            long seed) throws IOException, ClassNotFoundException {
+        LabeledVersionGraph<Integer, Edge, DblpLabel> lvg = versionGraph(creator, seed);
+        VersionGraph<Integer, DblpLabel> expected = new CsrVersionGraph<>(lvg);
+        String filename = this.file("graph-" + seed);
+        ValueCodec<Integer> vertexCodec = new ValueCodec.IntegerCodec();
+        ValueCodec<DblpLabel> labelCodec = new ValueCodec.EnumCodec<>(DblpLabel.class);
+        MappedVersionGraph.write(expected, filename, vertexCodec, labelCodec);
+
+        // A small lifespan cache, so lifespans are decoded again after they are dropped.
+        MappedVersionGraph<Integer, DblpLabel> mapped = new MappedVersionGraph<>(
+                filename, vertexCodec, labelCodec, new LifespanSetFactory.ContainerFactory(), 4);
+        assertSameGraph(expected, mapped);
+        assertSameGraph(expected, roundTrip(mapped));
+        Configuration config = new Configuration();
+        Set<String> durations = durations(new DurablePatternAlgorithm<>(lvg, creator, config));
+        assertFalse(durations.isEmpty());
+        assertEquals(durations, durations(new DurablePatternAlgorithm<>(mapped, creator, config)));
+
+        // Lifespans of paged graphs are new instances whenever they are decoded, the filter and the queries share
+        // them by their index in the file.
+        try(PagedVersionGraph<Integer, DblpLabel> paged = new PagedVersionGraph<>(
+                filename, vertexCodec, labelCodec, new LifespanSetFactory.ContainerFactory(), 64, 4, 4)) {
+            assertSameGraph(expected, paged);
+            assertEquals(durations, durations(new DurablePatternAlgorithm<>(paged, creator, config)));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T roundTrip(T value) throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        try(ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (T) in.readObject();
+        }
+    }
+
+    // Besides the same contents, the graphs must have the same ids.
+    private static void assertSameGraph(VersionGraph<Integer, DblpLabel> expected, VersionGraph<Integer, DblpLabel> actual)
+            throws IOException, ClassNotFoundException {
+        TestGraphs.assertSameGraph(expected, actual);
+        assertEquals(expected.getVertexCount(), actual.getVertexCount());
+        assertEquals(expected.getLabelCount(), actual.getLabelCount());
+        assertSameDictionary(expected.getVertexDictionary(), actual.getVertexDictionary(), 1);
+        assertSameDictionary(expected.getLabelDictionary(), actual.getLabelDictionary(), null);
+    }
+
+    // Every value has the same id, values that are not in the dictionary have no id.
+    private static <T> void assertSameDictionary(IdDictionary<T> expected, IdDictionary<T> actual, T missing)
+            throws IOException, ClassNotFoundException {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.values(), actual.values());
+        for(int id = 0; id < expected.size(); id++) {
+            T value = expected.decode(id);
+            assertEquals(value, actual.decode(id));
+            assertEquals(id, actual.getId(value));
+            assertTrue(actual.contains(value));
+        }
+        if(missing != null) {
+            assertFalse(actual.contains(missing));
+            assertEquals(IdDictionary.NO_ID, actual.getId(missing));
+        }
+        assertEquals(expected, roundTrip(actual));
+    }
+
+    private static Set<String> durations(DurablePatternAlgorithm<Integer, Edge, DblpLabel> algorithm) {
+        RangeSet<Integer> intervals = TreeRangeSet.create();
+        intervals.add(IntegerRanges.closed(0, SIZE - 1));
+        LabeledGraph<Integer, Edge, DblpLabel> pattern = TestGraphs.pattern(
+                algorithm.getGraphCreator(), new int[][] {{0, 1}}, DblpLabel.values()[0], DblpLabel.values()[1]);
+        Set<String> result = new HashSet<>();
+        result.addAll(TestGraphs.durations(algorithm.queryMaximalCollectiveDurableGraphPattern(pattern, intervals)));
+        result.addAll(TestGraphs.durations(algorithm.queryDurableGraphPatterns(pattern, intervals, 2)));
+        return result;
+    }
+
+    public void testUndirected() throws IOException, ClassNotFoundException {
+        assertRoundTrip(TestGraphs::undirected, 1);
+    }
+
+    public void testDirected() throws IOException, ClassNotFoundException {
+        assertRoundTrip(TestGraphs::directed, 2);
+    }
+}
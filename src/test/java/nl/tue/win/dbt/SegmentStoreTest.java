@@ -0,0 +1,247 @@
+package nl.tue.win.dbt;
+
+import junit.framework.TestCase;
+import nl.tue.win.dbt.codec.GraphCodec;
+import nl.tue.win.dbt.codec.SegmentStore;
+import nl.tue.win.dbt.codec.ValueCodec;
+import nl.tue.win.dbt.data.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+
+// Appends snapshots to a segment store and compares the version graph of the store, also after it is opened again,
+// with a version graph that is built from the same snapshots. Crashes are simulated by changing the files of a
+// closed store into the state that a crash at that point leaves behind.
+public class SegmentStoreTest extends TestCase {
+    private static final int VERTICES = 20;
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("segment-store").toFile();
+    }
+
+    @Override
+    protected void tearDown() {
+        File[] files = this.directory.listFiles();
+        if(files != null) {
+            for(File file: files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    private static GraphCodec<Integer, Edge, DblpLabel> codec() {
+        return new GraphCodec<>(
+                new ValueCodec.IntegerCodec(),
+                new ValueCodec.EnumCodec<>(DblpLabel.class),
+                TestGraphs::undirected);
+    }
+
+    private SegmentStore<Integer, Edge, DblpLabel> open() throws IOException {
+        return new SegmentStore<>(this.directory.getPath(), codec());
+    }
+
+    // Later snapshots have vertices that earlier snapshots do not have, so merged dictionaries differ.
+    private static LabeledGraph<Integer, Edge, DblpLabel> randomSnapshot(int timestamp, Random random) {
+        return TestGraphs.randomSnapshot(TestGraphs::undirected, TestGraphs.range(timestamp, VERTICES), random);
+    }
+
+    // Ids may differ between the version graphs.
+    private static void assertSameGraph(
+            List<LabeledGraph<Integer, Edge, DblpLabel>> snapshots,
+            LabeledVersionGraph<Integer, Edge, DblpLabel> actual) {
+        TestGraphs.assertSameGraph(
+                new CsrVersionGraph<>(TestGraphs.versionGraph(TestGraphs::undirected, snapshots)),
+                new CsrVersionGraph<>(actual));
+    }
+
+    private int segmentFiles() {
+        File[] files = this.directory.listFiles((dir, name) -> name.endsWith(".seg"));
+        return files == null ? 0 : files.length;
+    }
+
+    private File log() {
+        return new File(this.directory, "wal.log");
+    }
+
+    // Contents of the segment files, by file name, ordered on the first timestamp.
+    private SortedMap<String, byte[]> segments() throws IOException {
+        SortedMap<String, byte[]> segments = new TreeMap<>();
+        File[] files = this.directory.listFiles((dir, name) -> name.endsWith(".seg"));
+        if(files != null) {
+            for(File file: files) {
+                segments.put(file.getName(), Files.readAllBytes(file.toPath()));
+            }
+        }
+        return segments;
+    }
+
+    private void restore(String name, byte[] contents) throws IOException {
+        Files.write(new File(this.directory, name).toPath(), contents);
+    }
+
+    private List<LabeledGraph<Integer, Edge, DblpLabel>> append(
+            SegmentStore<Integer, Edge, DblpLabel> store,
+            int count,
+            Random random) throws IOException {
+        List<LabeledGraph<Integer, Edge, DblpLabel>> snapshots = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            LabeledGraph<Integer, Edge, DblpLabel> snapshot = randomSnapshot(store.getSize(), random);
+            assertEquals(store.getSize(), store.append(snapshot));
+            snapshots.add(snapshot);
+        }
+        return snapshots;
+    }
+
+    // A record that was only partly written ends the log, the records before it are replayed.
+    public void testTornLogTail() throws IOException {
+        Random random = new Random(2);
+        List<LabeledGraph<Integer, Edge, DblpLabel>> snapshots = new ArrayList<>();
+        long complete;
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            snapshots.addAll(this.append(store, 3, random));
+            store.flush();
+            snapshots.addAll(this.append(store, 2, random));
+            complete = this.log().length();
+            this.append(store, 1, random);
+        }
+        try(RandomAccessFile file = new RandomAccessFile(this.log(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            assertEquals(snapshots.size(), store.getSize());
+            assertEquals(2, store.getPendingCount());
+            assertSameGraph(snapshots, store.getVersionGraph());
+            // The torn record is cut off, so new records follow the complete ones.
+            assertEquals(complete, this.log().length());
+            snapshots.addAll(this.append(store, 1, random));
+        }
+
+        // A record with a corrupt payload ends the log as well.
+        try(RandomAccessFile file = new RandomAccessFile(this.log(), "rw")) {
+            file.seek(file.length() - 1);
+            int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 0xFF);
+        }
+        snapshots.remove(snapshots.size() - 1);
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            assertEquals(snapshots.size(), store.getSize());
+            assertEquals(complete, this.log().length());
+            assertSameGraph(snapshots, store.getVersionGraph());
+        }
+    }
+
+    // The segment of a flush is complete but the log was not emptied, its records are already in the segment.
+    public void testCrashBeforeLogTruncation() throws IOException {
+        Random random = new Random(3);
+        List<LabeledGraph<Integer, Edge, DblpLabel>> snapshots = new ArrayList<>();
+        byte[] log;
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            snapshots.addAll(this.append(store, 2, random));
+            store.flush();
+            snapshots.addAll(this.append(store, 3, random));
+            log = Files.readAllBytes(this.log().toPath());
+            store.flush();
+            assertEquals(0, this.log().length());
+        }
+        Files.write(this.log().toPath(), log);
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            assertEquals(snapshots.size(), store.getSize());
+            assertEquals(2, store.getSegmentCount());
+            assertEquals(0, store.getPendingCount());
+            assertSameGraph(snapshots, store.getVersionGraph());
+            // Records after the old ones are replayed.
+            snapshots.addAll(this.append(store, 2, random));
+        }
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            assertEquals(snapshots.size(), store.getSize());
+            assertEquals(2, store.getPendingCount());
+            assertSameGraph(snapshots, store.getVersionGraph());
+        }
+    }
+
+    // The merged segment is complete but some or all of the segments that it replaces were not deleted yet, or a
+    // merge did not finish and left a temporary file.
+    public void testLeftoverSegmentsAfterMerge() throws IOException, InterruptedException, ExecutionException {
+        Random random = new Random(4);
+        List<LabeledGraph<Integer, Edge, DblpLabel>> snapshots = new ArrayList<>();
+        SortedMap<String, byte[]> replaced;
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            store.setCompactionThreshold(10);
+            for(int batch = 0; batch < 3; batch++) {
+                List<LabeledGraph<Integer, Edge, DblpLabel>> snapshotBatch = new ArrayList<>();
+                for(int i = 0; i < 2; i++) {
+                    snapshotBatch.add(randomSnapshot(snapshots.size() + i, random));
+                }
+                store.appendBatch(snapshotBatch);
+                snapshots.addAll(snapshotBatch);
+            }
+            replaced = this.segments();
+            assertEquals(3, replaced.size());
+            store.setCompactionThreshold(3);
+            store.compactInBackground().get();
+            assertEquals(1, store.getSegmentCount());
+        }
+        assertEquals(1, this.segmentFiles());
+
+        // The first and the last replaced segment are left behind, with the temporary file of a later merge.
+        List<String> names = new ArrayList<>(replaced.keySet());
+        this.restore(names.get(0), replaced.get(names.get(0)));
+        this.restore(names.get(2), replaced.get(names.get(2)));
+        this.restore("segment-0000000000-0000000012.seg.tmp", new byte[] {1, 2, 3});
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            assertEquals(snapshots.size(), store.getSize());
+            assertEquals(1, store.getSegmentCount());
+            assertSameGraph(snapshots, store.getVersionGraph());
+        }
+        // Only the merged segment and the log are left.
+        assertEquals(1, this.segmentFiles());
+        assertEquals(2, this.directory.listFiles().length);
+
+        // None of the replaced segments were deleted.
+        for(Map.Entry<String, byte[]> segment: replaced.entrySet()) {
+            this.restore(segment.getKey(), segment.getValue());
+        }
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            assertEquals(snapshots.size(), store.getSize());
+            assertEquals(1, store.getSegmentCount());
+            assertSameGraph(snapshots, store.getVersionGraph());
+        }
+        assertEquals(1, this.segmentFiles());
+    }
+
+    public void testTieredCompaction() throws IOException, InterruptedException, ExecutionException {
+        Random random = new Random(1);
+        List<LabeledGraph<Integer, Edge, DblpLabel>> snapshots = new ArrayList<>();
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            store.setCompactionThreshold(3);
+            for(int batch = 0; batch < 14; batch++) {
+                List<LabeledGraph<Integer, Edge, DblpLabel>> snapshotBatch = new ArrayList<>();
+                for(int i = 0; i < 2; i++) {
+                    snapshotBatch.add(randomSnapshot(snapshots.size() + i, random));
+                }
+                store.appendBatch(snapshotBatch);
+                snapshots.addAll(snapshotBatch);
+                store.compactInBackground().get();
+            }
+            // Segments of 2 snapshots are tier 0, of 6 tier 1 and of 18 tier 2. The first 9 batches are merged into
+            // a segment of 18 snapshots, the next 3 into a segment of 6 and the last 2 are not merged yet.
+            assertEquals(4, store.getSegmentCount());
+            assertSameGraph(snapshots, store.getVersionGraph());
+        }
+        assertEquals(4, this.segmentFiles());
+        try(SegmentStore<Integer, Edge, DblpLabel> store = this.open()) {
+            assertEquals(snapshots.size(), store.getSize());
+            assertEquals(4, store.getSegmentCount());
+            assertSameGraph(snapshots, store.getVersionGraph());
+        }
+    }
+}
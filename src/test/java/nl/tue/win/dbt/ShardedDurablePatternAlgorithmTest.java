@@ -0,0 +1,100 @@
+package nl.tue.win.dbt;
+
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import junit.framework.TestCase;
+import nl.tue.win.dbt.algorithms.DurablePatternAlgorithm;
+import nl.tue.win.dbt.algorithms.ShardedDurablePatternAlgorithm;
+import nl.tue.win.dbt.data.*;
+import nl.tue.win.dbt.util.IntegerRanges;
+
+import java.util.*;
+
+// Compares the results of sharded queries with the results of the same queries on the whole version graph, for
+// shards of several lengths. Snapshots are repeated for a few timestamps, so matches have runs that cross the
+// borders of the shards.
+public class ShardedDurablePatternAlgorithmTest extends TestCase {
+    private static final int SIZE = 30;
+    private static final int VERTICES = 20;
+
+    private static LabeledVersionGraph<Integer, Edge, DblpLabel> versionGraph(
+            GraphCreator<LabeledGraph<Integer, Edge, DblpLabel>, Integer, Edge> creator,
+            Random random) {
+        List<LabeledGraph<Integer, Edge, DblpLabel>> snapshots = new ArrayList<>();
+        LabeledGraph<Integer, Edge, DblpLabel> snapshot = null;
+        for(int t = 0; t < SIZE; t++) {
+            if(snapshot == null || random.nextInt(3) == 0) {
+                snapshot = TestGraphs.randomSnapshot(creator, TestGraphs.range(0, VERTICES), random);
+            }
+            snapshots.add(snapshot);
+        }
+        return TestGraphs.versionGraph(creator, snapshots);
+    }
+
+    private static List<LabeledGraph<Integer, Edge, DblpLabel>> patterns(
+            GraphCreator<LabeledGraph<Integer, Edge, DblpLabel>, Integer, Edge> creator) {
+        DblpLabel beginner = DblpLabel.values()[0];
+        DblpLabel junior = DblpLabel.values()[1];
+        return Arrays.asList(
+                TestGraphs.pattern(creator, new int[][] {{0, 1}}, beginner, junior),
+                TestGraphs.pattern(creator, new int[][] {{0, 1}, {1, 2}}, beginner, junior, beginner),
+                TestGraphs.pattern(creator, new int[][] {{0, 1}, {1, 2}, {2, 0}}, beginner, beginner, beginner),
+                TestGraphs.pattern(creator, new int[][] {{0, 1}, {1, 2}, {2, 0}}, junior, junior, junior));
+    }
+
+    private static List<RangeSet<Integer>> intervals(Random random) {
+        List<RangeSet<Integer>> intervals = new ArrayList<>();
+        RangeSet<Integer> all = TreeRangeSet.create();
+        all.add(IntegerRanges.closed(0, SIZE - 1));
+        intervals.add(all);
+        for(int i = 0; i < 3; i++) {
+            RangeSet<Integer> some = TreeRangeSet.create();
+            for(int j = 0; j < 3; j++) {
+                int start = random.nextInt(SIZE);
+                some.add(IntegerRanges.closed(start, Math.min(SIZE - 1, start + random.nextInt(10))));
+            }
+            intervals.add(some);
+        }
+        return intervals;
+    }
+
+    private static void assertSameResults(
+            GraphCreator<LabeledGraph<Integer, Edge, DblpLabel>, Integer, Edge> creator,
+            long seed) {
+        Random random = new Random(seed);
+        LabeledVersionGraph<Integer, Edge, DblpLabel> lvg = versionGraph(creator, random);
+        DurablePatternAlgorithm<Integer, Edge, DblpLabel> unsharded =
+                new DurablePatternAlgorithm<>(lvg, creator, new Configuration());
+        int matches = 0;
+        for(int shardLength: new int[] {1, 4, 7, SIZE}) {
+            ShardedDurablePatternAlgorithm<Integer, Edge, DblpLabel> sharded =
+                    new ShardedDurablePatternAlgorithm<>(lvg, creator, shardLength);
+            for(LabeledGraph<Integer, Edge, DblpLabel> pattern: patterns(creator)) {
+                for(RangeSet<Integer> intervals: intervals(random)) {
+                    String query = "shards of " + shardLength + ", " + intervals;
+                    Set<String> collective = TestGraphs.durations(
+                            unsharded.queryMaximalCollectiveDurableGraphPattern(pattern, intervals));
+                    assertEquals(query, collective, TestGraphs.durations(
+                            sharded.queryMaximalCollectiveDurableGraphPattern(pattern, intervals)));
+                    assertEquals(query, TestGraphs.durations(
+                            unsharded.queryMaximalContinuousDurableGraphPattern(pattern, intervals)),
+                            TestGraphs.durations(sharded.queryMaximalContinuousDurableGraphPattern(pattern, intervals)));
+                    matches += collective.size();
+                }
+            }
+        }
+        assertTrue(matches > 0);
+    }
+
+    public void testUndirected() {
+        for(long seed = 1; seed <= 3; seed++) {
+            assertSameResults(TestGraphs::undirected, seed);
+        }
+    }
+
+    public void testDirected() {
+        for(long seed = 1; seed <= 3; seed++) {
+            assertSameResults(TestGraphs::directed, seed);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package nl.tue.win.dbt;
+
+import nl.tue.win.dbt.data.*;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.DirectedMultigraph;
+import org.jgrapht.graph.SimpleGraph;
+
+import java.util.*;
+
+import static junit.framework.Assert.*;
+
+// Graph creators, random graphs and comparisons that the tests share.
+final class TestGraphs {
+
+    private TestGraphs() {
+    }
+
+    static LabeledGraph<Integer, Edge, DblpLabel> undirected() {
+        return new LabeledGraph<>(new SimpleGraph<>(Edge.class), () -> new SimpleGraph<>(Edge.class));
+    }
+
+    static LabeledGraph<Integer, Edge, DblpLabel> directed() {
+        return new LabeledGraph<>(new DefaultDirectedGraph<>(Edge.class), () -> new DefaultDirectedGraph<>(Edge.class));
+    }
+
+    // DefaultEdge compares by identity, so parallel edges are kept apart.
+    static LabeledGraph<Integer, DefaultEdge, DblpLabel> multigraph() {
+        return new LabeledGraph<>(
+                new DirectedMultigraph<>(DefaultEdge.class),
+                () -> new DirectedMultigraph<>(DefaultEdge.class));
+    }
+
+    static List<Integer> range(int first, int count) {
+        List<Integer> vertices = new ArrayList<>(count);
+        for(int v = first; v < first + count; v++) {
+            vertices.add(v);
+        }
+        return vertices;
+    }
+
+    // Snapshot with about 80% of the vertices, each with one of the first two labels, and up to 3 edges per vertex.
+    static <E> LabeledGraph<Integer, E, DblpLabel> randomSnapshot(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            List<Integer> vertices,
+            Random random) {
+        LabeledGraph<Integer, E, DblpLabel> snapshot = creator.create();
+        for(Integer vertex: vertices) {
+            if(random.nextInt(10) < 8) {
+                snapshot.addVertex(vertex);
+                snapshot.addLabel(vertex, DblpLabel.values()[random.nextInt(2)]);
+            }
+        }
+        List<Integer> present = new ArrayList<>(snapshot.vertexSet());
+        for(int i = 0; i < 3 * vertices.size() && present.size() > 1; i++) {
+            int source = present.get(random.nextInt(present.size()));
+            int target = present.get(random.nextInt(present.size()));
+            if(source != target) {
+                snapshot.addEdge(source, target);
+            }
+        }
+        return snapshot;
+    }
+
+    static <E> LabeledHistoryGraph<LabeledGraph<Integer, E, DblpLabel>, Integer, E, DblpLabel> history(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            int size,
+            List<Integer> vertices,
+            Random random) {
+        LabeledHistoryGraph<LabeledGraph<Integer, E, DblpLabel>, Integer, E, DblpLabel> lhg = new LabeledHistoryGraph<>(creator);
+        for(int t = 0; t < size; t++) {
+            lhg.add(randomSnapshot(creator, vertices, random));
+        }
+        return lhg;
+    }
+
+    static <E> LabeledVersionGraph<Integer, E, DblpLabel> versionGraph(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            int size,
+            List<Integer> vertices,
+            Random random) {
+        return new LabeledVersionGraph<>(history(creator, size, vertices, random));
+    }
+
+    static <E> LabeledVersionGraph<Integer, E, DblpLabel> versionGraph(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            List<? extends LabeledGraph<Integer, E, DblpLabel>> snapshots) {
+        LabeledHistoryGraph<LabeledGraph<Integer, E, DblpLabel>, Integer, E, DblpLabel> lhg = new LabeledHistoryGraph<>(creator);
+        lhg.addAll(snapshots);
+        return new LabeledVersionGraph<>(lhg);
+    }
+
+    static <E> LabeledGraph<Integer, E, DblpLabel> pattern(
+            GraphCreator<LabeledGraph<Integer, E, DblpLabel>, Integer, E> creator,
+            int[][] edges,
+            DblpLabel... labels) {
+        LabeledGraph<Integer, E, DblpLabel> pattern = creator.create();
+        for(int i = 0; i < labels.length; i++) {
+            pattern.addVertex(i);
+            pattern.addLabel(i, labels[i]);
+        }
+        for(int[] edge: edges) {
+            pattern.addEdge(edge[0], edge[1]);
+        }
+        return pattern;
+    }
+
+    // Compares the lifespans of the vertices, labels and edges of the version graphs by value, so the version
+    // graphs may number their vertices and labels differently. Incoming neighbors are compared if the actual graph
+    // has them, mapped files do not store them.
+    static void assertSameGraph(VersionGraph<Integer, DblpLabel> expected, VersionGraph<Integer, DblpLabel> actual) {
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.isDirected(), actual.isDirected());
+        assertTrue(expected.hasIncomingNeighbors() || !actual.hasIncomingNeighbors());
+        assertEquals(vertexCount(expected), vertexCount(actual));
+        for(int vertexId = 0; vertexId < expected.getVertexCount(); vertexId++) {
+            if(!expected.containsVertexId(vertexId)) {
+                continue;
+            }
+            Integer vertex = expected.getVertexDictionary().decode(vertexId);
+            int actualId = actual.getVertexId(vertex);
+            assertTrue(vertex.toString(), actualId != IdDictionary.NO_ID && actual.containsVertexId(actualId));
+            assertEquals(vertex.toString(), expected.vertexLifespanById(vertexId), actual.vertexLifespanById(actualId));
+            for(int labelId = 0; labelId < expected.getLabelCount(); labelId++) {
+                DblpLabel label = expected.getLabelDictionary().decode(labelId);
+                int actualLabelId = actual.getLabelId(label);
+                assertEquals(
+                        vertex + " " + label,
+                        expected.labelLifespanById(vertexId, labelId),
+                        actualLabelId == IdDictionary.NO_ID ? null : actual.labelLifespanById(actualId, actualLabelId));
+            }
+            assertEquals(outEdges(expected, vertexId), outEdges(actual, actualId));
+            for(int index = 0; index < expected.getOutDegree(vertexId); index++) {
+                int neighbor = expected.getOutNeighbor(vertexId, index);
+                assertEquals(
+                        expected.edgeLifespanById(vertexId, neighbor),
+                        actual.edgeLifespanById(actualId, actual.getVertexId(expected.getVertexDictionary().decode(neighbor))));
+            }
+            if(actual.hasIncomingNeighbors()) {
+                assertEquals(inEdges(expected, vertexId), inEdges(actual, actualId));
+            }
+        }
+    }
+
+    private static int vertexCount(VersionGraph<Integer, DblpLabel> graph) {
+        int count = 0;
+        for(int vertexId = 0; vertexId < graph.getVertexCount(); vertexId++) {
+            if(graph.containsVertexId(vertexId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Neighbors with the lifespans of their edges, as sorted strings.
+    private static List<String> outEdges(VersionGraph<Integer, DblpLabel> graph, int vertexId) {
+        List<String> edges = new ArrayList<>();
+        for(int index = 0; index < graph.getOutDegree(vertexId); index++) {
+            edges.add(graph.getVertexDictionary().decode(graph.getOutNeighbor(vertexId, index))
+                    + " " + graph.outEdgeLifespan(vertexId, index));
+        }
+        Collections.sort(edges);
+        return edges;
+    }
+
+    private static List<String> inEdges(VersionGraph<Integer, DblpLabel> graph, int vertexId) {
+        List<String> edges = new ArrayList<>();
+        for(int index = 0; index < graph.getInDegree(vertexId); index++) {
+            edges.add(graph.getVertexDictionary().decode(graph.getInNeighbor(vertexId, index))
+                    + " " + graph.inEdgeLifespan(vertexId, index));
+        }
+        Collections.sort(edges);
+        return edges;
+    }
+
+    // Vertices and timestamps of the matches, independent of the edge objects and of which of several equal
+    // matches an algorithm keeps.
+    static <E> Set<String> durations(Set<Lifespan<LabeledGraph<Integer, E, DblpLabel>>> matches) {
+        Set<String> result = new HashSet<>();
+        for(Lifespan<LabeledGraph<Integer, E, DblpLabel>> match: matches) {
+            result.add(new TreeSet<>(match.getData().vertexSet()) + " " + match.getRangeSet());
+        }
+        return result;
+    }
+}